@@ -1,65 +1,201 @@
 package com.dacsanviet.config;
 
+import com.dacsanviet.service.CartService;
+import com.dacsanviet.service.CategoryService;
+import com.dacsanviet.service.DashboardService;
+import com.dacsanviet.service.NewsReadModel;
+import com.dacsanviet.service.OrderAnalyticsService;
+import com.dacsanviet.service.ProductCacheInvalidator;
+import com.dacsanviet.service.ProductService;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.jcache.JCacheCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.cache.Caching;
 import javax.cache.configuration.MutableConfiguration;
-import javax.cache.expiry.CreatedExpiryPolicy;
 import javax.cache.expiry.Duration;
+import javax.cache.expiry.ModifiedExpiryPolicy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import jakarta.annotation.PreDestroy;
 
 /**
  * Cache configuration for performance optimization.
  * Implements caching strategy for product catalog, user sessions, and search results.
+ *
+ * Every cache is a CoalescingCache, so {@code @Cacheable(sync = true)} misses for one key
+ * share a single load and entries near their TTL are reloaded in the background, through
+ * the reloads registered in {@link #cacheReloaders}.
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    private ThreadPoolTaskExecutor refreshPool;
+
     /**
      * Configure cache manager with different cache regions for different data types.
      */
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(CacheLoadingProperties loadingProperties, CacheReloaders reloaders) {
         javax.cache.CacheManager jCacheManager = Caching.getCachingProvider().getCacheManager();
-        
+        Map<String, Long> ttlMillis = new HashMap<>();
+
+        // Expiry restarts on update, so a background refresh extends the entry's life
+
         // Product catalog cache - longer TTL since products don't change frequently
+        Duration productTtl = new Duration(TimeUnit.MINUTES, 30);
         MutableConfiguration<Object, Object> productCacheConfig = new MutableConfiguration<>()
                 .setTypes(Object.class, Object.class)
                 .setStoreByValue(false)
-                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MINUTES, 30)));
-        
+                .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(productTtl));
+
         // User session cache - medium TTL for user-specific data
+        Duration userTtl = new Duration(TimeUnit.MINUTES, 15);
         MutableConfiguration<Object, Object> userCacheConfig = new MutableConfiguration<>()
                 .setTypes(Object.class, Object.class)
                 .setStoreByValue(false)
-                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MINUTES, 15)));
-        
+                .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(userTtl));
+
         // Search results cache - shorter TTL since search results can change frequently
+        Duration searchTtl = new Duration(TimeUnit.MINUTES, 5);
         MutableConfiguration<Object, Object> searchCacheConfig = new MutableConfiguration<>()
                 .setTypes(Object.class, Object.class)
                 .setStoreByValue(false)
-                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MINUTES, 5)));
-        
+                .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(searchTtl));
+
         // Category cache - long TTL since categories rarely change
+        Duration categoryTtl = new Duration(TimeUnit.MINUTES, 60);
         MutableConfiguration<Object, Object> categoryCacheConfig = new MutableConfiguration<>()
                 .setTypes(Object.class, Object.class)
                 .setStoreByValue(false)
-                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MINUTES, 60)));
+                .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(categoryTtl));
+
+        // Admin dashboard snapshots - seconds only, so figures stay close to live
+        Duration dashboardTtl = new Duration(TimeUnit.SECONDS, 30);
+        MutableConfiguration<Object, Object> dashboardCacheConfig = new MutableConfiguration<>()
+                .setTypes(Object.class, Object.class)
+                .setStoreByValue(false)
+                .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(dashboardTtl));
+
+        // News lists and articles - evicted by news writes, so the TTL only bounds view count lag
+        Duration newsTtl = new Duration(TimeUnit.MINUTES, 10);
+        MutableConfiguration<Object, Object> newsCacheConfig = new MutableConfiguration<>()
+                .setTypes(Object.class, Object.class)
+                .setStoreByValue(false)
+                .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(newsTtl));
 
         // Create cache instances
-        jCacheManager.createCache("products", productCacheConfig);
-        jCacheManager.createCache("productDetails", productCacheConfig);
-        jCacheManager.createCache("categories", categoryCacheConfig);
-        jCacheManager.createCache("userSessions", userCacheConfig);
-        jCacheManager.createCache("userCarts", userCacheConfig);
-        jCacheManager.createCache("searchResults", searchCacheConfig);
-        jCacheManager.createCache("featuredProducts", productCacheConfig);
-        
-        return new JCacheCacheManager(jCacheManager);
+        createCache(jCacheManager, ttlMillis, "products", productCacheConfig, productTtl);
+        createCache(jCacheManager, ttlMillis, "productDetails", productCacheConfig, productTtl);
+        createCache(jCacheManager, ttlMillis, "categories", categoryCacheConfig, categoryTtl);
+        createCache(jCacheManager, ttlMillis, "userSessions", userCacheConfig, userTtl);
+        createCache(jCacheManager, ttlMillis, "userCarts", userCacheConfig, userTtl);
+        createCache(jCacheManager, ttlMillis, "searchResults", searchCacheConfig, searchTtl);
+        createCache(jCacheManager, ttlMillis, "featuredProducts", productCacheConfig, productTtl);
+        createCache(jCacheManager, ttlMillis, "dashboardSnapshots", dashboardCacheConfig, dashboardTtl);
+        createCache(jCacheManager, ttlMillis, NewsReadModel.NEWS_LISTS, newsCacheConfig, newsTtl);
+        createCache(jCacheManager, ttlMillis, NewsReadModel.NEWS_ARTICLES, newsCacheConfig, newsTtl);
+
+        Executor refreshExecutor = refreshExecutor(loadingProperties.getRefreshThreads());
+        return new JCacheCacheManager(jCacheManager) {
+            @Override
+            protected Cache decorateCache(Cache cache) {
+                Cache decorated = super.decorateCache(cache);
+                String name = decorated.getName();
+                long refreshAfter = loadingProperties.refreshAfterMillis(ttlMillis.getOrDefault(name, 0L));
+                Function<Object, Runnable> reloads = key -> reloaders.find(name, key);
+                // Product results record their products, so writes evict only what they affect
+                if (ProductCacheInvalidator.TRACKED_CACHES.contains(name)) {
+                    return new DependencyTrackingCache(decorated, refreshAfter, reloads, refreshExecutor,
+                            (key, value) -> ProductCacheInvalidator.dependencies(name, key, value));
+                }
+                return new CoalescingCache(decorated, refreshAfter, reloads, refreshExecutor);
+            }
+        };
+    }
+
+    /**
+     * The cached method that reloads each cache's keys when they are refreshed ahead. The
+     * keys here must match those of the methods' {@code @Cacheable} annotations.
+     */
+    @Bean
+    public CacheReloaders cacheReloaders(BeanFactory beanFactory) {
+        return new CacheReloaders(beanFactory)
+                .register("categories", "active"::equals, CategoryService.class,
+                        (service, key) -> service.getAllActiveCategories())
+                .register("categories", "withProducts"::equals, CategoryService.class,
+                        (service, key) -> service.getCategoriesWithProducts())
+                .register("productDetails", Long.class::isInstance, ProductService.class,
+                        (service, key) -> service.getProductById((Long) key))
+                .register("searchResults", CacheKeys.SearchPage.class::isInstance, ProductService.class,
+                        (service, key) -> {
+                            CacheKeys.SearchPage page = (CacheKeys.SearchPage) key;
+                            service.searchProducts(page.keyword(), page.pageable());
+                        })
+                .register("featuredProducts", CacheKeys.ListPage.class::isInstance, ProductService.class,
+                        (service, key) -> service.getFeaturedProducts(((CacheKeys.ListPage) key).pageable()))
+                .register("userCarts", Long.class::isInstance, CartService.class,
+                        (service, key) -> service.getCart((Long) key))
+                .register("dashboardSnapshots", "orderStatistics"::equals, OrderAnalyticsService.class,
+                        (service, key) -> service.getOrderStatisticsSnapshot())
+                .register("dashboardSnapshots", CacheKeys.DashboardStats.class::isInstance, DashboardService.class,
+                        (service, key) -> service.getDashboardStatistics(((CacheKeys.DashboardStats) key).period()))
+                .register(NewsReadModel.NEWS_LISTS, key -> isNewsList(key, NewsReadModel.FEATURED), NewsReadModel.class,
+                        (readModel, key) -> readModel.findFeaturedCards(((CacheKeys.NewsList) key).limit()))
+                .register(NewsReadModel.NEWS_LISTS, key -> isNewsList(key, NewsReadModel.RECENT), NewsReadModel.class,
+                        (readModel, key) -> readModel.findRecentCards(((CacheKeys.NewsList) key).limit()))
+                .register(NewsReadModel.NEWS_LISTS, NewsReadModel.ACTIVE_CATEGORIES::equals, NewsReadModel.class,
+                        (readModel, key) -> readModel.findActiveCategories())
+                .register(NewsReadModel.NEWS_ARTICLES, String.class::isInstance, NewsReadModel.class,
+                        (readModel, key) -> readModel.findArticle((String) key));
+    }
+
+    private static boolean isNewsList(Object key, String list) {
+        return key instanceof CacheKeys.NewsList newsList && newsList.list().equals(list);
+    }
+
+    /**
+     * The JCache manager is shared by the JVM, so a second application context (the test
+     * suite starts several) finds the caches already there and starts them empty instead.
+     */
+    private static void createCache(javax.cache.CacheManager jCacheManager, Map<String, Long> ttlMillis, String name,
+                                    MutableConfiguration<Object, Object> config, Duration ttl) {
+        javax.cache.Cache<Object, Object> existing = jCacheManager.getCache(name);
+        if (existing == null) {
+            jCacheManager.createCache(name, config);
+        } else {
+            existing.clear();
+        }
+        ttlMillis.put(name, ttl.getTimeUnit().toMillis(ttl.getDurationAmount()));
+    }
+
+    /**
+     * Runs background refreshes
+     */
+    private Executor refreshExecutor(int threads) {
+        refreshPool = new ThreadPoolTaskExecutor();
+        refreshPool.setCorePoolSize(threads);
+        refreshPool.setMaxPoolSize(threads);
+        refreshPool.setThreadNamePrefix("cache-refresh-");
+        refreshPool.setWaitForTasksToCompleteOnShutdown(false);
+        refreshPool.initialize();
+        return refreshPool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshPool != null) {
+            refreshPool.shutdown();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.dacsanviet.config;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Keys of the cache entries that depend on more than one argument. Each key carries the
+ * arguments it was made from, so a background refresh can call the cached method again
+ * and ProductCacheInvalidator can read a search's keyword without parsing the key.
+ *
+ * {@code @Cacheable} key expressions build them through the factory methods, e.g.
+ * {@code key = "T(com.dacsanviet.config.CacheKeys).searchPage(#keyword, #pageable)"}.
+ */
+public final class CacheKeys {
+
+    private CacheKeys() {
+    }
+
+    public static SearchPage searchPage(String keyword, Pageable pageable) {
+        return new SearchPage(keyword != null ? keyword : "", pageable.getPageNumber(), pageable.getPageSize());
+    }
+
+    public static ListPage listPage(Pageable pageable) {
+        return new ListPage(pageable.getPageNumber(), pageable.getPageSize());
+    }
+
+    public static DashboardStats dashboardStats(String period) {
+        return new DashboardStats(period);
+    }
+
+    public static NewsList newsList(String list, int limit) {
+        return new NewsList(list, limit);
+    }
+
+    /**
+     * A page of product search results ({@code searchResults})
+     */
+    public record SearchPage(String keyword, int page, int size) {
+
+        public PageRequest pageable() {
+            return PageRequest.of(page, size);
+        }
+    }
+
+    /**
+     * A page of an unfiltered product list ({@code featuredProducts})
+     */
+    public record ListPage(int page, int size) {
+
+        public PageRequest pageable() {
+            return PageRequest.of(page, size);
+        }
+    }
+
+    /**
+     * Dashboard statistics for a period ({@code dashboardSnapshots})
+     */
+    public record DashboardStats(String period) {
+    }
+
+    /**
+     * The first {@code limit} cards of a news list such as "featured" or "recent"
+     * ({@code NewsReadModel.NEWS_LISTS})
+     */
+    public record NewsList(String list, int limit) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache loading configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.cache.loading")
+public class CacheLoadingProperties {
+
+    /** Reload a cached entry in the background once it has lived this fraction of its TTL; 0 turns refresh-ahead off. */
+    private double refreshAheadRatio = 0.8;
+
+    /** Threads that run background refreshes. */
+    private int refreshThreads = 2;
+
+    /**
+     * Age after which a hit on an entry with the given TTL triggers a refresh, or 0 for none
+     */
+    public long refreshAfterMillis(long ttlMillis) {
+        if (refreshAheadRatio <= 0 || refreshAheadRatio >= 1) {
+            return 0;
+        }
+        return Math.max(1, (long) (ttlMillis * refreshAheadRatio));
+    }
+
+    public double getRefreshAheadRatio() {
+        return refreshAheadRatio;
+    }
+
+    public void setRefreshAheadRatio(double refreshAheadRatio) {
+        this.refreshAheadRatio = refreshAheadRatio;
+    }
+
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    public void setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+}
@@ -0,0 +1,54 @@
+package com.dacsanviet.config;
+
+import org.springframework.beans.factory.BeanFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * How background refreshes reload cache entries: for each cache, the bean and cached
+ * method that load its keys. The bean is looked up when a refresh runs and called through
+ * its proxy, so the reload runs with the method's own transaction, as a request's miss
+ * would. Keys with no reload are not refreshed ahead; they expire and the next request
+ * loads them.
+ */
+public class CacheReloaders {
+
+    private final BeanFactory beanFactory;
+    private final Map<String, List<Reload>> reloads = new ConcurrentHashMap<>();
+
+    public CacheReloaders(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * Reload the keys of a cache that match {@code keys} by calling {@code method} on the
+     * bean of {@code beanType}. The method must load through the same cache and key.
+     */
+    public <T> CacheReloaders register(String cacheName, Predicate<Object> keys, Class<T> beanType,
+                                       BiConsumer<T, Object> method) {
+        reloads.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>())
+                .add(new Reload(keys, key -> method.accept(beanFactory.getBean(beanType), key)));
+        return this;
+    }
+
+    /**
+     * The reload of a key, or null when none is registered for it
+     */
+    public Runnable find(String cacheName, Object key) {
+        for (Reload reload : reloads.getOrDefault(cacheName, List.of())) {
+            if (reload.keys.test(key)) {
+                return () -> reload.method.accept(key);
+            }
+        }
+        return null;
+    }
+
+    private record Reload(Predicate<Object> keys, Consumer<Object> method) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chat write-behind journal configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.chat.journal")
+public class ChatJournalProperties {
+
+    /** How long the oldest buffered write may wait before a flush. */
+    private long flushIntervalMs = 200;
+
+    /** Writes per JDBC batch; a full batch is flushed without waiting for the interval. */
+    private int batchSize = 500;
+
+    /** Writes buffered in memory; senders wait for room once it is full. */
+    private int queueCapacity = 20000;
+
+    /** How long a sender waits for room in a full journal before the send fails. */
+    private long appendTimeoutMs = 5000;
+
+    /** Delay before retrying a batch the database rejected. */
+    private long retryDelayMs = 1000;
+
+    /** Chat sessions whose recent messages are kept in memory. */
+    private int recentSessions = 5000;
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getAppendTimeoutMs() {
+        return appendTimeoutMs;
+    }
+
+    public void setAppendTimeoutMs(long appendTimeoutMs) {
+        this.appendTimeoutMs = appendTimeoutMs;
+    }
+
+    public long getRetryDelayMs() {
+        return retryDelayMs;
+    }
+
+    public void setRetryDelayMs(long retryDelayMs) {
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    public int getRecentSessions() {
+        return recentSessions;
+    }
+
+    public void setRecentSessions(int recentSessions) {
+        this.recentSessions = recentSessions;
+    }
+}
@@ -0,0 +1,355 @@
+package com.dacsanviet.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A cache whose loads through {@link #get(Object, Callable)} ({@code @Cacheable(sync = true)})
+ * are single-flight: concurrent misses for one key wait for a single loader call instead of
+ * each running the same query.
+ *
+ * With refresh-ahead on, a hit on an entry older than {@code refreshAfterMillis} is still
+ * served, while one background thread reloads it before it expires. The reload is the one
+ * registered for the key (see CacheReloaders), not the hit's loader: that loader belongs
+ * to a request that has finished. The reload calls back into this cache for the key, which
+ * then loads instead of returning the entry; keys with no reload are not refreshed ahead.
+ * A load is not stored
+ * when its key was evicted or the cache cleared while it ran, as it may have read data
+ * from before the write.
+ */
+public class CoalescingCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingCache.class);
+
+    // The refresh running on this thread, if any
+    private static final ThreadLocal<Refresh> refreshing = new ThreadLocal<>();
+
+    protected final Cache delegate;
+    private final long refreshAfterMillis;
+    private final Function<Object, Runnable> reloads;
+    private final Executor refreshExecutor;
+
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // Sequence number of the last eviction of each key, kept while loads are in flight
+    private final Map<Object, Long> evictedAt = new ConcurrentHashMap<>();
+    private volatile long clearedAt;
+
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong staleLoadCount = new AtomicLong();
+    private final AtomicLong clearCount = new AtomicLong();
+
+    /**
+     * @param refreshAfterMillis age after which a hit triggers a background reload; 0 for none
+     * @param reloads the reload of a key, or null for a key that is not refreshed ahead
+     */
+    public CoalescingCache(Cache delegate, long refreshAfterMillis, Function<Object, Runnable> reloads,
+                           Executor refreshExecutor) {
+        this.delegate = delegate;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.reloads = reloads;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper != null && wrapper.get() instanceof Loaded loaded) {
+            return new SimpleValueWrapper(loaded.value);
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Refresh refresh = refreshing.get();
+        if (refresh != null && refresh.cache == this && refresh.key.equals(key)) {
+            // The reload of a refresh calling back in: load with its loader
+            refresh.value = load(key, valueLoader);
+            refresh.loaded = true;
+            return (T) refresh.value;
+        }
+
+        Loaded cached = lookup(key);
+        if (cached != null) {
+            if (refreshAfterMillis > 0 && System.currentTimeMillis() - cached.loadedAt >= refreshAfterMillis) {
+                refreshAhead(key);
+            }
+            return (T) cached.value;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            coalescedCount.incrementAndGet();
+            return (T) await(key, valueLoader, inFlight);
+        }
+        try {
+            // A load for this key may have finished between the lookup and putIfAbsent
+            cached = lookup(key);
+            Object value = cached != null ? cached.value : load(key, valueLoader);
+            future.complete(value);
+            return (T) value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private Loaded lookup(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        // Values put straight into the native cache carry no load time
+        return value instanceof Loaded loaded ? loaded : new Loaded(value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reload an entry in the background unless it has no reload or a load for its key is
+     * already running. Misses arriving meanwhile wait for this reload.
+     */
+    private void refreshAhead(Object key) {
+        Runnable reload = reloads.apply(key);
+        if (reload == null) {
+            return;
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) != null) {
+            return;
+        }
+        Runnable refresh = () -> {
+            Refresh current = new Refresh(this, key);
+            refreshing.set(current);
+            try {
+                reload.run();
+                if (!current.loaded) {
+                    throw new IllegalStateException("the reload did not load the entry");
+                }
+                future.complete(current.value);
+                refreshCount.incrementAndGet();
+            } catch (RuntimeException | Error e) {
+                refreshFailureCount.incrementAndGet();
+                logger.warn("Background refresh of {} in cache {} failed: {}", key, getName(), e.getMessage());
+                future.completeExceptionally(e);
+            } finally {
+                refreshing.remove();
+                loading.remove(key, future);
+            }
+        };
+        try {
+            refreshExecutor.execute(refresh);
+        } catch (RejectedExecutionException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader) {
+        long startedAt = sequence.get();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        loadCount.incrementAndGet();
+        store(key, value, startedAt);
+        return value;
+    }
+
+    private static Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new ValueRetrievalException(key, valueLoader, cause);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store(key, value, sequence.get());
+    }
+
+    /**
+     * Store a value loaded from {@code startedAt} (a {@link #currentSequence()}), unless it
+     * has gone stale meanwhile
+     */
+    protected void store(Object key, Object value, long startedAt) {
+        if (isStale(key, startedAt)) {
+            recordStaleLoad();
+            return;
+        }
+        putLoaded(key, value);
+        // Recheck for an eviction between the check and the put
+        if (isStale(key, startedAt)) {
+            delegate.evict(key);
+            recordStaleLoad();
+        }
+    }
+
+    /**
+     * Whether the key was evicted or the cache cleared after {@code startedAt}
+     */
+    protected boolean isStale(Object key, long startedAt) {
+        if (clearedAt > startedAt) {
+            return true;
+        }
+        Long evicted = evictedAt.get(key);
+        return evicted != null && evicted > startedAt;
+    }
+
+    protected final void putLoaded(Object key, Object value) {
+        delegate.put(key, new Loaded(value, System.currentTimeMillis()));
+    }
+
+    protected final void recordStaleLoad() {
+        staleLoadCount.incrementAndGet();
+    }
+
+    protected final long currentSequence() {
+        return sequence.get();
+    }
+
+    protected final long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * Whether any load may still store a value; eviction records older than every running
+     * load can be dropped when there is none
+     */
+    protected final boolean hasLoadsInFlight() {
+        return !loading.isEmpty();
+    }
+
+    @Override
+    public void evict(Object key) {
+        long upTo = sequence.get();
+        evictedAt.put(key, nextSequence());
+        delegate.evict(key);
+        if (!hasLoadsInFlight()) {
+            evictedAt.values().removeIf(evictedSequence -> evictedSequence <= upTo);
+        }
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = delegate.get(key) != null;
+        evict(key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        clearedAt = nextSequence();
+        clearCount.incrementAndGet();
+        delegate.clear();
+        evictedAt.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        clearedAt = nextSequence();
+        clearCount.incrementAndGet();
+        evictedAt.clear();
+        return delegate.invalidate();
+    }
+
+    /**
+     * Loading statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loads", loadCount.get());
+        stats.put("coalescedLoads", coalescedCount.get());
+        stats.put("loadsInFlight", loading.size());
+        stats.put("refreshAfterMillis", refreshAfterMillis);
+        stats.put("refreshes", refreshCount.get());
+        stats.put("refreshFailures", refreshFailureCount.get());
+        stats.put("staleLoadsDiscarded", staleLoadCount.get());
+        stats.put("clears", clearCount.get());
+        return stats;
+    }
+
+    /**
+     * A refresh of one key, and the value its reload loaded
+     */
+    private static final class Refresh {
+
+        private final CoalescingCache cache;
+        private final Object key;
+        private boolean loaded;
+        private Object value;
+
+        private Refresh(CoalescingCache cache, Object key) {
+            this.cache = cache;
+            this.key = key;
+        }
+    }
+
+    /**
+     * A cached value with the time it was loaded
+     */
+    private static final class Loaded {
+
+        private final Object value;
+        private final long loadedAt;
+
+        private Loaded(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.dacsanviet.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A cache that records what each entry depends on (e.g. the products and categories on a
+ * cached page of results), so a write can evict just the entries that depend on what it
+ * changed instead of clearing the whole cache.
+ *
+ * Loads are single-flight as in CoalescingCache. A loaded value is also not stored when
+ * one of its dependencies was evicted while it loaded, as it may have been read before
+ * the write committed.
+ */
+public class DependencyTrackingCache extends CoalescingCache {
+
+    // Stores between sweeps of index entries whose cache entry has expired
+    private static final int PRUNE_INTERVAL = 1000;
+
+    private final BiFunction<Object, Object, Set<String>> dependencies;
+
+    private final Map<Object, Set<String>> dependenciesByKey = new ConcurrentHashMap<>();
+    private final Map<String, Set<Object>> keysByDependency = new ConcurrentHashMap<>();
+    // Sequence number of the last eviction of each dependency, kept while loads are in flight
+    private final Map<String, Long> evictedAt = new ConcurrentHashMap<>();
+    private final AtomicInteger storesSincePrune = new AtomicInteger();
+
+    private final AtomicLong dependencyEvictionCount = new AtomicLong();
+    private final AtomicLong entriesEvictedCount = new AtomicLong();
+
+    /**
+     * @param dependencies what an entry depends on, given its key and value
+     */
+    public DependencyTrackingCache(Cache delegate, long refreshAfterMillis, Function<Object, Runnable> reloads,
+                                   Executor refreshExecutor, BiFunction<Object, Object, Set<String>> dependencies) {
+        super(delegate, refreshAfterMillis, reloads, refreshExecutor);
+        this.dependencies = dependencies;
+    }
+
+    @Override
+    protected void store(Object key, Object value, long startedAt) {
+        Set<String> entryDependencies = dependencies.apply(key, value);
+        if (isStale(key, startedAt, entryDependencies)) {
+            recordStaleLoad();
+            return;
+        }
+
+        // Index before the value is visible, then recheck for an eviction in between
+        index(key, entryDependencies);
+        putLoaded(key, value);
+        if (isStale(key, startedAt, entryDependencies)) {
+            delegate.evict(key);
+            unindex(key);
+            recordStaleLoad();
+        }
+
+        if (storesSincePrune.incrementAndGet() >= PRUNE_INTERVAL) {
+            storesSincePrune.set(0);
+            pruneExpired();
+        }
+    }
+
+    private boolean isStale(Object key, long startedAt, Set<String> entryDependencies) {
+        if (isStale(key, startedAt)) {
+            return true;
+        }
+        for (String dependency : entryDependencies) {
+            Long evicted = evictedAt.get(dependency);
+            if (evicted != null && evicted > startedAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        unindex(key);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        dependenciesByKey.clear();
+        keysByDependency.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean hadEntries = super.invalidate();
+        dependenciesByKey.clear();
+        keysByDependency.clear();
+        return hadEntries;
+    }
+
+    /**
+     * Evict every entry that depends on any of the given dependencies
+     *
+     * @return the number of entries evicted
+     */
+    public int evictDependents(Collection<String> evictedDependencies) {
+        long upTo = currentSequence();
+        int evicted = 0;
+        for (String dependency : evictedDependencies) {
+            evictedAt.put(dependency, nextSequence());
+            dependencyEvictionCount.incrementAndGet();
+            Set<Object> keys = keysByDependency.remove(dependency);
+            if (keys != null) {
+                for (Object key : keys) {
+                    delegate.evict(key);
+                    if (unindex(key)) {
+                        evicted++;
+                    }
+                }
+            }
+        }
+        entriesEvictedCount.addAndGet(evicted);
+        if (!hasLoadsInFlight()) {
+            // Only loads in flight can be stale; none started before these evictions
+            evictedAt.values().removeIf(evictedSequence -> evictedSequence <= upTo);
+        }
+        return evicted;
+    }
+
+    /**
+     * Everything the entries depending on the given dependency also depend on
+     */
+    public Set<String> dependenciesOfDependents(String dependency) {
+        Set<String> result = new HashSet<>();
+        for (Object key : keysByDependency.getOrDefault(dependency, Set.of())) {
+            result.addAll(dependenciesByKey.getOrDefault(key, Set.of()));
+        }
+        return result;
+    }
+
+    /**
+     * Every dependency some entry currently has
+     */
+    public Set<String> trackedDependencies() {
+        return new HashSet<>(keysByDependency.keySet());
+    }
+
+    private void index(Object key, Set<String> entryDependencies) {
+        unindex(key);
+        dependenciesByKey.put(key, entryDependencies);
+        for (String dependency : entryDependencies) {
+            keysByDependency.computeIfAbsent(dependency, d -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private boolean unindex(Object key) {
+        Set<String> previous = dependenciesByKey.remove(key);
+        if (previous == null) {
+            return false;
+        }
+        for (String dependency : previous) {
+            keysByDependency.computeIfPresent(dependency, (d, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        return true;
+    }
+
+    private void pruneExpired() {
+        for (Object key : dependenciesByKey.keySet()) {
+            if (delegate.get(key) == null) {
+                unindex(key);
+            }
+        }
+    }
+
+    /**
+     * Loading and dependency tracking statistics for performance monitoring
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = super.getStats();
+        stats.put("trackedEntries", dependenciesByKey.size());
+        stats.put("trackedDependencies", keysByDependency.size());
+        stats.put("dependencyEvictions", dependencyEvictionCount.get());
+        stats.put("entriesEvicted", entriesEvictedCount.get());
+        return stats;
+    }
+}
@@ -14,6 +14,12 @@ public class JwtProperties {
     private long expiration;
     private long refreshExpiration;
     
+    /** Verified access tokens remembered by the authentication filter. */
+    private int verifiedCacheSize = 10000;
+    
+    /** How long a verified token skips re-verification and the user lookup, in milliseconds. */
+    private long verifiedCacheTtl = 300000;
+    
     public String getSecret() {
         return secret;
     }
@@ -37,4 +43,20 @@ public class JwtProperties {
     public void setRefreshExpiration(long refreshExpiration) {
         this.refreshExpiration = refreshExpiration;
     }
+    
+    public int getVerifiedCacheSize() {
+        return verifiedCacheSize;
+    }
+    
+    public void setVerifiedCacheSize(int verifiedCacheSize) {
+        this.verifiedCacheSize = verifiedCacheSize;
+    }
+    
+    public long getVerifiedCacheTtl() {
+        return verifiedCacheTtl;
+    }
+    
+    public void setVerifiedCacheTtl(long verifiedCacheTtl) {
+        this.verifiedCacheTtl = verifiedCacheTtl;
+    }
 }
\ No newline at end of file
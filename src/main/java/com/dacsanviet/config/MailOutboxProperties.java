@@ -0,0 +1,100 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mail outbox configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.mail.outbox")
+public class MailOutboxProperties {
+
+    /** When false, emails are delivered synchronously instead of going through the outbox table. */
+    private boolean enabled = true;
+
+    /** Messages sent over one SMTP connection. */
+    private int batchSize = 20;
+
+    /** Delivery worker threads, i.e. concurrent SMTP connections. */
+    private int workers = 2;
+
+    /** Attempts before a job is parked as FAILED. */
+    private int maxAttempts = 6;
+
+    /** Delay before the first retry; doubles on every further attempt. */
+    private long baseBackoffMs = 30000;
+
+    /** Upper bound for the retry delay. */
+    private long maxBackoffMs = 3600000;
+
+    /** Jobs left in SENDING longer than this are assumed orphaned and requeued. */
+    private long claimTimeoutMs = 600000;
+
+    /** Delivered jobs are purged after this many days. */
+    private int retentionDays = 14;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseBackoffMs() {
+        return baseBackoffMs;
+    }
+
+    public void setBaseBackoffMs(long baseBackoffMs) {
+        this.baseBackoffMs = baseBackoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    public void setMaxBackoffMs(long maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public long getClaimTimeoutMs() {
+        return claimTimeoutMs;
+    }
+
+    public void setClaimTimeoutMs(long claimTimeoutMs) {
+        this.claimTimeoutMs = claimTimeoutMs;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    public void setRetentionDays(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+}
@@ -0,0 +1,67 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * News article view counter configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.news.views")
+public class NewsViewProperties {
+
+    /** How often counted views are written to news_articles. */
+    private long flushIntervalMs = 5000;
+
+    /** Articles updated per UPDATE statement. */
+    private int batchSize = 500;
+
+    /** Count a visitor's repeat views of an article once per window. */
+    private boolean dedupeEnabled = true;
+
+    /** How long a visitor's view of an article is remembered; up to twice this in practice. */
+    private long dedupeWindowMinutes = 30;
+
+    /** Distinct visitor and article pairs per window at a 1% false positive rate. */
+    private int dedupeCapacity = 200000;
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isDedupeEnabled() {
+        return dedupeEnabled;
+    }
+
+    public void setDedupeEnabled(boolean dedupeEnabled) {
+        this.dedupeEnabled = dedupeEnabled;
+    }
+
+    public long getDedupeWindowMinutes() {
+        return dedupeWindowMinutes;
+    }
+
+    public void setDedupeWindowMinutes(long dedupeWindowMinutes) {
+        this.dedupeWindowMinutes = dedupeWindowMinutes;
+    }
+
+    public int getDedupeCapacity() {
+        return dedupeCapacity;
+    }
+
+    public void setDedupeCapacity(int dedupeCapacity) {
+        this.dedupeCapacity = dedupeCapacity;
+    }
+}
@@ -0,0 +1,45 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rendered page cache configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.page-cache")
+public class PageCacheProperties {
+
+    /** Serve anonymous storefront pages from the rendered page cache. */
+    private boolean enabled = true;
+
+    /** How long a rendered page is served before it is rendered again, even without a write. */
+    private long ttlSeconds = 300;
+
+    /** Rendered pages kept; once full, storing a page evicts the least recently used one. */
+    private int maxEntries = 2000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
@@ -0,0 +1,236 @@
+package com.dacsanviet.config;
+
+import com.dacsanviet.service.NewsService;
+import com.dacsanviet.service.NewsViewCounter;
+import com.dacsanviet.service.PageOutputCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.SessionFlashMapManager;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Serves anonymous GET requests for storefront pages (home, product list and detail, news
+ * list and article) from PageOutputCache. A hit is written from the stored gzipped bytes,
+ * or answered 304 when If-None-Match matches, without reaching the controller or Thymeleaf.
+ * A miss is rendered into a buffer and stored when it is a plain 200 HTML page that its
+ * controller tagged and that holds nothing belonging to this visitor.
+ *
+ * Registered after Spring Security, so signed-in users always get a freshly rendered page.
+ */
+public class PageOutputCacheFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageOutputCacheFilter.class);
+
+    private static final Pattern CACHEABLE_PATH =
+            Pattern.compile("/|/products|/products/\\d+|/news|/news/(?!search$|featured$)[^/]+");
+
+    // Query parameters read by the product and news list controllers and templates; other
+    // pages read none. Any other parameter (tracking tags, cache busters) renders the same page.
+    private static final Set<String> PRODUCT_LIST_PARAMETERS = Set.of("page", "size", "sortBy", "sortDir",
+            "search", "categoryId", "origin", "price", "weight", "inStock", "featured",
+            "keyword", "category", "minPrice", "maxPrice");
+    private static final Set<String> NEWS_LIST_PARAMETERS = Set.of("page", "size");
+
+    private static final String FLASH_MAPS_ATTRIBUTE = SessionFlashMapManager.class.getName() + ".FLASH_MAPS";
+
+    // A rendered form carries the visitor's CSRF token; a URL may carry their session id
+    private static final byte[][] VISITOR_MARKERS = {
+            "name=\"_csrf\"".getBytes(StandardCharsets.UTF_8),
+            ";jsessionid=".getBytes(StandardCharsets.UTF_8)
+    };
+
+    private final PageOutputCache pageOutputCache;
+    private final PageCacheProperties properties;
+    private final NewsService newsService;
+
+    public PageOutputCacheFilter(PageOutputCache pageOutputCache, PageCacheProperties properties,
+                                 NewsService newsService) {
+        this.pageOutputCache = pageOutputCache;
+        this.properties = properties;
+        this.newsService = newsService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled() || !"GET".equals(request.getMethod())) {
+            return true;
+        }
+        return !CACHEABLE_PATH.matcher(path(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!isAnonymous() || hasFlashAttributes(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = key(request);
+        PageOutputCache.CachedPage page = pageOutputCache.get(key);
+        if (page != null) {
+            if (page.getViewedArticleId() != null) {
+                countView(request, page.getViewedArticleId());
+            }
+            write(request, response, page);
+            return;
+        }
+
+        PageOutputCache.Capture capture = pageOutputCache.startCapture(request);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        byte[] body = wrapper.getContentAsByteArray();
+        if (isStorable(request, wrapper, body)) {
+            write(request, response, pageOutputCache.store(key, capture, wrapper.getContentType(), body));
+        } else {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private boolean isStorable(HttpServletRequest request, ContentCachingResponseWrapper response, byte[] body) {
+        String contentType = response.getContentType();
+        if (response.getStatus() != HttpServletResponse.SC_OK || body.length == 0
+                || contentType == null || !contentType.startsWith("text/html")) {
+            return false;
+        }
+        // A new session or CSRF cookie belongs to this visitor
+        if (!response.getHeaders(HttpHeaders.SET_COOKIE).isEmpty()
+                || !isAnonymous() || hasFlashAttributes(request)) {
+            return false;
+        }
+        for (byte[] marker : VISITOR_MARKERS) {
+            if (contains(body, marker)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, PageOutputCache.CachedPage page)
+            throws IOException {
+        response.setHeader(HttpHeaders.ETAG, page.getEtag());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // Browsers keep the page but revalidate it with If-None-Match on every visit
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), page.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(page.getContentType());
+        byte[] body;
+        if (acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = page.getGzipped();
+        } else {
+            body = page.getBody();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    private void countView(HttpServletRequest request, Long articleId) {
+        try {
+            newsService.incrementViewCount(articleId, NewsViewCounter.visitorKey(request));
+        } catch (Exception e) {
+            logger.warn("Could not count view of cached article {}: {}", articleId, e.getMessage());
+        }
+    }
+
+    /**
+     * Path, the query parameters the page reads and locale: the same URL may be rendered per
+     * language. Parameters are sorted and empty values left out, so URLs that render the
+     * same page share one entry.
+     */
+    static String key(HttpServletRequest request) {
+        Set<String> read = switch (path(request)) {
+            case "/products" -> PRODUCT_LIST_PARAMETERS;
+            case "/news" -> NEWS_LIST_PARAMETERS;
+            default -> Set.of();
+        };
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        char separator = '?';
+        for (String name : new TreeSet<>(request.getParameterMap().keySet())) {
+            if (!read.contains(name)) {
+                continue;
+            }
+            for (String value : request.getParameterValues(name)) {
+                if (!value.isEmpty()) {
+                    key.append(separator).append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                    separator = '&';
+                }
+            }
+        }
+        return key.append('|').append(request.getLocale().toLanguageTag()).toString();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean isAnonymous() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated();
+    }
+
+    private static boolean hasFlashAttributes(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        return session != null && session.getAttribute(FLASH_MAPS_ATTRIBUTE) != null;
+    }
+
+    static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static boolean contains(byte[] body, byte[] marker) {
+        outer:
+        for (int i = 0; i <= body.length - marker.length; i++) {
+            for (int j = 0; j < marker.length; j++) {
+                if (body[i + j] != marker[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticated user (UserPrincipal) cache configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.security.principal-cache")
+public class PrincipalCacheProperties {
+
+    /** Users kept in memory; 0 disables the cache. */
+    private int maxEntries = 5000;
+
+    /** How long a loaded user is served without re-reading the users table. */
+    private int ttlSeconds = 60;
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
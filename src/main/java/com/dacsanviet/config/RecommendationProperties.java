@@ -0,0 +1,56 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Related products and articles configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.recommendations")
+public class RecommendationProperties {
+
+    /** Related items kept for each product and each article. */
+    private int limit = 8;
+
+    /** Orders placed within this many days count towards "bought together". */
+    private int coPurchaseDays = 365;
+
+    /** Score added for the same category; shared words score between 0 and 1. */
+    private double categoryWeight = 0.25;
+
+    /** Weight of the co-purchase score (0 to 1) relative to shared words. */
+    private double coPurchaseWeight = 1.0;
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getCoPurchaseDays() {
+        return coPurchaseDays;
+    }
+
+    public void setCoPurchaseDays(int coPurchaseDays) {
+        this.coPurchaseDays = coPurchaseDays;
+    }
+
+    public double getCategoryWeight() {
+        return categoryWeight;
+    }
+
+    public void setCategoryWeight(double categoryWeight) {
+        this.categoryWeight = categoryWeight;
+    }
+
+    public double getCoPurchaseWeight() {
+        return coPurchaseWeight;
+    }
+
+    public void setCoPurchaseWeight(double coPurchaseWeight) {
+        this.coPurchaseWeight = coPurchaseWeight;
+    }
+}
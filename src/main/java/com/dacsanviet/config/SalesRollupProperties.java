@@ -0,0 +1,34 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Daily sales rollup configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.sales.rollup")
+public class SalesRollupProperties {
+
+    /** Past days (before today) recomputed from the orders table by the nightly rebuild. */
+    private int rebuildDays = 35;
+
+    /** Rebuild every day since the first order at startup when the rollup table is empty. */
+    private boolean bootstrapOnStartup = true;
+
+    public int getRebuildDays() {
+        return rebuildDays;
+    }
+
+    public void setRebuildDays(int rebuildDays) {
+        this.rebuildDays = rebuildDays;
+    }
+
+    public boolean isBootstrapOnStartup() {
+        return bootstrapOnStartup;
+    }
+
+    public void setBootstrapOnStartup(boolean bootstrapOnStartup) {
+        this.bootstrapOnStartup = bootstrapOnStartup;
+    }
+}
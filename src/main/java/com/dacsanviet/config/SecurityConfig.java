@@ -84,13 +84,12 @@ public class SecurityConfig {
                         .csrfTokenRepository(org.springframework.security.web.csrf.CookieCsrfTokenRepository.withHttpOnlyFalse())
                 )
             .headers(headers -> headers
-                .frameOptions().sameOrigin() // Allow H2 console frames
-                .contentTypeOptions().and()
+                .frameOptions(frameOptions -> frameOptions.sameOrigin()) // Allow H2 console frames
+                .contentTypeOptions(contentTypeOptions -> { })
                 .httpStrictTransportSecurity(hstsConfig -> hstsConfig
                     .maxAgeInSeconds(31536000)
                     .includeSubDomains(true)
                 )
-                .and()
             )
             .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED))
@@ -0,0 +1,45 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stock reservation configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.stock.reservation")
+public class StockReservationProperties {
+
+    /** How long an unpaid order holds its stock; also the VNPay payment URL expiry. */
+    private int ttlMinutes = 15;
+
+    /** Expired reservations released per sweeper transaction. */
+    private int sweepBatchSize = 200;
+
+    /** Batches released per sweeper run before yielding to the next run. */
+    private int maxBatchesPerSweep = 10;
+
+    public int getTtlMinutes() {
+        return ttlMinutes;
+    }
+
+    public void setTtlMinutes(int ttlMinutes) {
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    public int getSweepBatchSize() {
+        return sweepBatchSize;
+    }
+
+    public void setSweepBatchSize(int sweepBatchSize) {
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    public int getMaxBatchesPerSweep() {
+        return maxBatchesPerSweep;
+    }
+
+    public void setMaxBatchesPerSweep(int maxBatchesPerSweep) {
+        this.maxBatchesPerSweep = maxBatchesPerSweep;
+    }
+}
@@ -1,6 +1,11 @@
 package com.dacsanviet.config;
 
+import com.dacsanviet.service.NewsService;
+import com.dacsanviet.service.PageOutputCache;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -32,4 +37,18 @@ public class WebConfig implements WebMvcConfigurer {
                 .addResourceLocations(categoryUploadLocation)
                 .setCachePeriod(3600);
     }
+
+    /**
+     * Rendered page cache for anonymous storefront pages, placed after Spring Security
+     * so the visitor's authentication is known
+     */
+    @Bean
+    public FilterRegistrationBean<PageOutputCacheFilter> pageOutputCacheFilter(PageOutputCache pageOutputCache,
+            PageCacheProperties pageCacheProperties, NewsService newsService) {
+        FilterRegistrationBean<PageOutputCacheFilter> registration = new FilterRegistrationBean<>(
+                new PageOutputCacheFilter(pageOutputCache, pageCacheProperties, newsService));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
 }
@@ -0,0 +1,122 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * STOMP message broker configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.websocket.broker")
+public class WebSocketBrokerProperties {
+
+    /** "simple": in-memory broker, single node. "relay": also fan out to other nodes through a STOMP broker. */
+    private String mode = "simple";
+
+    /** STOMP broker (RabbitMQ STOMP plugin, ActiveMQ, ...) shared by all nodes in relay mode. */
+    private String relayHost = "localhost";
+
+    private int relayPort = 61613;
+
+    private String relayLogin = "guest";
+
+    private String relayPasscode = "guest";
+
+    /** Broker topic the nodes publish batches to and subscribe to. */
+    private String relayDestination = "/topic/dacsanviet.broker-relay";
+
+    /** Messages sent in one relay frame at most. */
+    private int batchSize = 100;
+
+    /** How long the first message of a batch waits for more before the batch is sent. */
+    private int flushIntervalMs = 10;
+
+    /** Messages waiting to be relayed; further messages are dropped (local delivery is unaffected). */
+    private int queueCapacity = 10000;
+
+    private int reconnectDelayMs = 5000;
+
+    public boolean isRelayMode() {
+        return "relay".equalsIgnoreCase(mode);
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public String getRelayHost() {
+        return relayHost;
+    }
+
+    public void setRelayHost(String relayHost) {
+        this.relayHost = relayHost;
+    }
+
+    public int getRelayPort() {
+        return relayPort;
+    }
+
+    public void setRelayPort(int relayPort) {
+        this.relayPort = relayPort;
+    }
+
+    public String getRelayLogin() {
+        return relayLogin;
+    }
+
+    public void setRelayLogin(String relayLogin) {
+        this.relayLogin = relayLogin;
+    }
+
+    public String getRelayPasscode() {
+        return relayPasscode;
+    }
+
+    public void setRelayPasscode(String relayPasscode) {
+        this.relayPasscode = relayPasscode;
+    }
+
+    public String getRelayDestination() {
+        return relayDestination;
+    }
+
+    public void setRelayDestination(String relayDestination) {
+        this.relayDestination = relayDestination;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(int flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getReconnectDelayMs() {
+        return reconnectDelayMs;
+    }
+
+    public void setReconnectDelayMs(int reconnectDelayMs) {
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+}
@@ -1,10 +1,23 @@
 package com.dacsanviet.config;
 
+import com.dacsanviet.service.BrokerRelay;
+import com.dacsanviet.service.LocalBrokerRelay;
+import com.dacsanviet.service.StompBrokerRelay;
+import com.dacsanviet.service.WebSocketBrokerMonitor;
+import com.dacsanviet.service.WebSocketSessionBuffers;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 /**
  * WebSocket configuration for real-time chat functionality
@@ -13,11 +26,47 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private WebSocketBrokerProperties brokerProperties;
+
+    @Autowired
+    private WebSocketOutboundProperties outboundProperties;
+
+    @Autowired
+    private ObjectProvider<WebSocketBrokerMonitor> brokerMonitor;
+
+    @Autowired
+    private ObjectProvider<WebSocketSessionBuffers> sessionBuffers;
+
+    /**
+     * Carries broker messages to the other nodes in relay mode; does nothing in simple mode.
+     * The broker channel is injected lazily because it is built from this configuration.
+     */
+    @Bean
+    public BrokerRelay brokerRelay(@Qualifier("brokerChannel") @Lazy MessageChannel brokerChannel) {
+        if (brokerProperties.isRelayMode()) {
+            return new StompBrokerRelay(brokerProperties, brokerChannel);
+        }
+        return new LocalBrokerRelay();
+    }
+
+    @Bean
+    public WebSocketBrokerMonitor webSocketBrokerMonitor(BrokerRelay brokerRelay) {
+        return new WebSocketBrokerMonitor(brokerRelay);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public WebSocketSessionBuffers webSocketSessionBuffers() {
+        return new WebSocketSessionBuffers(outboundProperties);
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable a simple memory-based message broker to carry messages back to the client
-        // on destinations prefixed with "/topic" and "/queue"
+        // on destinations prefixed with "/topic" and "/queue". In relay mode each node still
+        // delivers to its own clients, and the BrokerRelay forwards to the other nodes.
         config.enableSimpleBroker("/topic", "/queue");
+        config.configureBrokerChannel().interceptors(brokerMonitor.getObject().brokerChannelInterceptor());
         
         // Designate the "/app" prefix for messages that are bound for methods
         // annotated with @MessageMapping
@@ -27,6 +76,20 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(brokerMonitor.getObject().clientInboundInterceptor());
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Frames are buffered per session and written by the session buffers' own threads, which
+        // apply the overflow policy; Spring's limits stay as a backstop with the same values
+        registration.addDecoratorFactory(handler -> sessionBuffers.getObject().decorate(handler));
+        registration.setSendBufferSizeLimit(outboundProperties.getSessionBufferSizeLimit());
+        registration.setSendTimeLimit(outboundProperties.getSessionSendTimeLimitMs());
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Register the "/ws" endpoint for WebSocket connections
@@ -35,4 +98,4 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.dacsanviet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Outbound WebSocket delivery configuration properties
+ */
+@Component
+@ConfigurationProperties(prefix = "app.websocket.outbound")
+public class WebSocketOutboundProperties {
+
+    /** Threads that hand application messages to the broker, off the request thread. */
+    private int dispatchThreads = 2;
+
+    /** Messages waiting for dispatch across all destinations; further messages are dropped. */
+    private int maxQueuedMessages = 10000;
+
+    /** Threads that write buffered frames to client sockets. */
+    private int sendThreads = 4;
+
+    /** Bytes buffered for one session before the overflow policy applies. */
+    private int sessionBufferSizeLimit = 512 * 1024;
+
+    /** How long one write to a session may block before the client counts as too slow. */
+    private int sessionSendTimeLimitMs = 10000;
+
+    /** "drop": discard the oldest buffered frames of a slow client. "disconnect": close its session. */
+    private String overflowPolicy = "drop";
+
+    public boolean isDisconnectOnOverflow() {
+        return "disconnect".equalsIgnoreCase(overflowPolicy);
+    }
+
+    public int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    public void setDispatchThreads(int dispatchThreads) {
+        this.dispatchThreads = dispatchThreads;
+    }
+
+    public int getMaxQueuedMessages() {
+        return maxQueuedMessages;
+    }
+
+    public void setMaxQueuedMessages(int maxQueuedMessages) {
+        this.maxQueuedMessages = maxQueuedMessages;
+    }
+
+    public int getSendThreads() {
+        return sendThreads;
+    }
+
+    public void setSendThreads(int sendThreads) {
+        this.sendThreads = sendThreads;
+    }
+
+    public int getSessionBufferSizeLimit() {
+        return sessionBufferSizeLimit;
+    }
+
+    public void setSessionBufferSizeLimit(int sessionBufferSizeLimit) {
+        this.sessionBufferSizeLimit = sessionBufferSizeLimit;
+    }
+
+    public int getSessionSendTimeLimitMs() {
+        return sessionSendTimeLimitMs;
+    }
+
+    public void setSessionSendTimeLimitMs(int sessionSendTimeLimitMs) {
+        this.sessionSendTimeLimitMs = sessionSendTimeLimitMs;
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+}
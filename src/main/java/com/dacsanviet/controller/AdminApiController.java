@@ -38,9 +38,13 @@ import com.dacsanviet.model.Role;
 import com.dacsanviet.model.User;
 import com.dacsanviet.repository.OrderRepository;
 import com.dacsanviet.repository.UserRepository;
+import com.dacsanviet.security.UserPrincipalCache;
 import com.dacsanviet.service.OrderService;
 import com.dacsanviet.service.ProductService;
 import com.dacsanviet.service.EmailService;
+import com.dacsanviet.service.PerformanceMonitoringService;
+import com.dacsanviet.service.SalesRollupService;
+import com.dacsanviet.service.StockReservationService;
 
 /**
  * Admin API Controller for AJAX requests
@@ -62,12 +66,24 @@ public class AdminApiController {
 	@Autowired
 	private PasswordEncoder passwordEncoder;
 
+	@Autowired
+	private UserPrincipalCache userPrincipalCache;
+
 	@Autowired
 	private ProductService productService;
 
 	@Autowired
 	private EmailService emailService;
 
+	@Autowired
+	private PerformanceMonitoringService performanceMonitoringService;
+
+	@Autowired
+	private StockReservationService stockReservationService;
+
+	@Autowired
+	private SalesRollupService salesRollupService;
+
 	@Value("${app.frontend.url}")
 	private String frontendUrl;
 
@@ -90,6 +106,7 @@ public class AdminApiController {
 			String newPassword = UUID.randomUUID().toString().substring(0, 8);
 			user.setPassword(passwordEncoder.encode(newPassword));
 			userRepository.save(user);
+			userPrincipalCache.invalidateUser(user.getId());
 
 			try {
 				emailService.sendSimpleEmail(
@@ -192,11 +209,14 @@ public class AdminApiController {
 			OrderStatus oldStatus = order.getStatus();
 			OrderStatus newStatus = OrderStatus.valueOf(statusStr.toUpperCase());
 
+			// Runs in its own transaction first, so a failure leaves the order unchanged
+			stockReservationService.commitForStatus(order.getId(), newStatus);
 			order.setStatus(newStatus);
 			if (request.containsKey("notes")) {
 				order.setNotes(request.get("notes"));
 			}
 			orderRepository.save(order);
+			salesRollupService.recordStatusChange(order, oldStatus, newStatus);
 
 			OrderDao dao = orderService.convertToDao(order);
 			if (oldStatus != newStatus) {
@@ -219,10 +239,12 @@ public class AdminApiController {
 			if (!"COD".equals(order.getPaymentMethod())) {
 				return ResponseEntity.status(400).body(Map.of("success", false, "message", "Đây không phải đơn hàng COD"));
 			}
+			OrderStatus oldStatus = order.getStatus();
 			order.setStatus(OrderStatus.SHIPPED);
 			if (request.get("shippingCarrier") != null) order.setShippingCarrier(request.get("shippingCarrier"));
 			if (request.get("trackingNumber") != null) order.setTrackingNumber(request.get("trackingNumber"));
 			orderRepository.save(order);
+			salesRollupService.recordStatusChange(order, oldStatus, OrderStatus.SHIPPED);
 			return ResponseEntity.ok(Map.of("success", true, "message", "Đơn hàng COD đã được phê duyệt"));
 		} catch (Exception e) {
 			return ResponseEntity.status(500).body(Map.of("success", false, "message", e.getMessage()));
@@ -235,37 +257,50 @@ public class AdminApiController {
 	@PutMapping("/orders/{id}")
 	@Transactional
 	public ResponseEntity<?> updateOrder(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+		Optional<Order> found = orderRepository.findById(id);
+		if (found.isEmpty()) {
+			return ResponseEntity.status(400).body(Map.of("error", "Order not found"));
+		}
+		Order order = found.get();
+		OrderStatus newS;
+		PaymentStatus newP;
 		try {
-			Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
+			newS = request.containsKey("status")
+					? OrderStatus.valueOf(((String) request.get("status")).toUpperCase()) : null;
+			newP = request.containsKey("paymentStatus")
+					? PaymentStatus.valueOf(((String) request.get("paymentStatus")).toUpperCase()) : null;
+		} catch (RuntimeException e) {
+			return ResponseEntity.status(400).body(Map.of("error", "Invalid status: " + e.getMessage()));
+		}
 
-			if (request.containsKey("status")) {
-				OrderStatus oldS = order.getStatus();
-				OrderStatus newS = OrderStatus.valueOf(((String) request.get("status")).toUpperCase());
-				order.setStatus(newS);
-				if (oldS != newS) {
-					OrderDao d = orderService.convertToDao(order);
-					if (newS == OrderStatus.SHIPPED) emailService.sendShippingNotificationEmail(d);
-					else if (newS == OrderStatus.DELIVERED) emailService.sendOrderCompletionEmail(d);
-				}
+		// Nothing below is caught: a failed stock or outbox write has marked the transaction
+		// rollback-only, so the request must fail instead of answering 400 and committing
+		if (newS != null) {
+			OrderStatus oldS = order.getStatus();
+			order.setStatus(newS);
+			stockReservationService.commitForStatus(order.getId(), newS);
+			salesRollupService.recordStatusChange(order, oldS, newS);
+			if (oldS != newS) {
+				OrderDao d = orderService.convertToDao(order);
+				if (newS == OrderStatus.SHIPPED) emailService.sendShippingNotificationEmail(d);
+				else if (newS == OrderStatus.DELIVERED) emailService.sendOrderCompletionEmail(d);
 			}
+		}
 
-			if (request.containsKey("paymentStatus")) {
-				PaymentStatus oldP = order.getPaymentStatus();
-				PaymentStatus newP = PaymentStatus.valueOf(((String) request.get("paymentStatus")).toUpperCase());
-				order.setPaymentStatus(newP);
-				if (oldP != PaymentStatus.COMPLETED && newP == PaymentStatus.COMPLETED) {
-					emailService.sendPaymentConfirmationEmail(orderService.convertToDao(order));
-				}
+		if (newP != null) {
+			PaymentStatus oldP = order.getPaymentStatus();
+			order.setPaymentStatus(newP);
+			if (oldP != PaymentStatus.COMPLETED && newP == PaymentStatus.COMPLETED) {
+				stockReservationService.commit(order.getId());
+				emailService.sendPaymentConfirmationEmail(orderService.convertToDao(order));
 			}
+		}
 
-			if (request.get("shippingCarrier") != null) order.setShippingCarrier((String) request.get("shippingCarrier"));
-			if (request.get("trackingNumber") != null) order.setTrackingNumber((String) request.get("trackingNumber"));
+		if (request.get("shippingCarrier") != null) order.setShippingCarrier((String) request.get("shippingCarrier"));
+		if (request.get("trackingNumber") != null) order.setTrackingNumber((String) request.get("trackingNumber"));
 
-			orderRepository.save(order);
-			return ResponseEntity.ok(Map.of("message", "Order updated successfully"));
-		} catch (Exception e) {
-			return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
-		}
+		orderRepository.save(order);
+		return ResponseEntity.ok(Map.of("message", "Order updated successfully"));
 	}
 
 	/**
@@ -348,6 +383,7 @@ public class AdminApiController {
 			if (userDao.getFullName() != null) user.setFullName(userDao.getFullName());
 			if (userDao.getEmail() != null) user.setEmail(userDao.getEmail());
 			userRepository.save(user);
+			userPrincipalCache.invalidateUser(id);
 			return ResponseEntity.ok(Map.of("message", "Cập nhật thành công"));
 		} catch (Exception e) {
 			return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
@@ -362,12 +398,109 @@ public class AdminApiController {
 	public ResponseEntity<?> deleteUser(@PathVariable Long id) {
 		try {
 			userRepository.deleteById(id);
+			userPrincipalCache.invalidateUser(id);
 			return ResponseEntity.ok(Map.of("message", "Xóa thành công"));
 		} catch (Exception e) {
 			return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
 		}
 	}
 
+	/**
+	 * Mail outbox metrics (AJAX)
+	 */
+	@GetMapping("/performance/mail-queue")
+	public ResponseEntity<?> getMailQueueStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getMailQueueStats());
+	}
+
+	/**
+	 * Stock reservation metrics (AJAX)
+	 */
+	@GetMapping("/performance/stock-reservations")
+	public ResponseEntity<?> getStockReservationStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getStockReservationStats());
+	}
+
+	@GetMapping("/performance/sales-rollup")
+	public ResponseEntity<?> getSalesRollupStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getSalesRollupStats());
+	}
+
+	@GetMapping("/performance/product-search")
+	public ResponseEntity<?> getProductSearchStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getProductSearchStats());
+	}
+
+	@GetMapping("/performance/product-suggest")
+	public ResponseEntity<?> getProductSuggestStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getProductSuggestStats());
+	}
+
+	@GetMapping("/performance/product-facets")
+	public ResponseEntity<?> getProductFacetStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getProductFacetStats());
+	}
+
+	@GetMapping("/performance/token-cache")
+	public ResponseEntity<?> getVerifiedTokenCacheStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getVerifiedTokenCacheStats());
+	}
+
+	@GetMapping("/performance/principal-cache")
+	public ResponseEntity<?> getPrincipalCacheStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getPrincipalCacheStats());
+	}
+
+	@GetMapping("/performance/websocket-broker")
+	public ResponseEntity<?> getWebSocketBrokerStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getWebSocketBrokerStats());
+	}
+
+	@GetMapping("/performance/websocket-outbound")
+	public ResponseEntity<?> getWebSocketOutboundStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getWebSocketOutboundStats());
+	}
+
+	@GetMapping("/performance/chat-journal")
+	public ResponseEntity<?> getChatJournalStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getChatJournalStats());
+	}
+
+	@GetMapping("/performance/category-tree")
+	public ResponseEntity<?> getCategoryTreeStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getCategoryTreeStats());
+	}
+
+	@GetMapping("/performance/page-cache")
+	public ResponseEntity<?> getPageCacheStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getPageCacheStats());
+	}
+
+	@GetMapping("/performance/product-cache")
+	public ResponseEntity<?> getProductCacheStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getProductCacheStats());
+	}
+
+	@GetMapping("/performance/cache-loading")
+	public ResponseEntity<?> getCacheLoadingStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getCacheLoadingStats());
+	}
+
+	@GetMapping("/performance/news-views")
+	public ResponseEntity<?> getNewsViewStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getNewsViewStats());
+	}
+
+	@GetMapping("/performance/news-search")
+	public ResponseEntity<?> getNewsSearchStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getNewsSearchStats());
+	}
+
+	@GetMapping("/performance/related-items")
+	public ResponseEntity<?> getRelatedItemsStats() {
+		return ResponseEntity.ok(performanceMonitoringService.getRelatedItemsStats());
+	}
+
 	@GetMapping("/orders/export")
 	public ResponseEntity<String> exportOrders() { return ResponseEntity.ok("Tính năng đang phát triển"); }
 
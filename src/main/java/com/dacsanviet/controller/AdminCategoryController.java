@@ -2,6 +2,8 @@ package com.dacsanviet.controller;
 
 import com.dacsanviet.model.Category;
 import com.dacsanviet.repository.CategoryRepository;
+import com.dacsanviet.service.CategoryTreeSnapshot;
+import com.dacsanviet.service.ProductCacheInvalidator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
@@ -36,6 +38,12 @@ public class AdminCategoryController {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private CategoryTreeSnapshot categoryTreeSnapshot;
+    
+    @Autowired
+    private ProductCacheInvalidator productCacheInvalidator;
+    
     @Value("${file.upload-dir:uploads/categories}")
     private String uploadDir;
 
@@ -238,6 +246,7 @@ public class AdminCategoryController {
             }
             
             categoryRepository.save(category);
+            categoryTreeSnapshot.refresh();
             return "redirect:/admin/categories?success=created";
         } catch (Exception e) {
             model.addAttribute("error", "Lỗi khi tạo danh mục: " + e.getMessage());
@@ -276,6 +285,7 @@ public class AdminCategoryController {
                         return "admin/categories/edit";
                     }
                     
+                    boolean renamed = !category.getName().equals(name);
                     category.setName(name);
                     category.setDescription(description);
                     category.setIsActive(active != null && active);
@@ -294,6 +304,10 @@ public class AdminCategoryController {
                     }
                     
                     categoryRepository.save(category);
+                    categoryTreeSnapshot.refresh();
+                    if (renamed) {
+                        productCacheInvalidator.categoryChanged(id);
+                    }
                     return "redirect:/admin/categories?success=updated";
                 } catch (Exception e) {
                     model.addAttribute("error", "Lỗi khi cập nhật danh mục: " + e.getMessage());
@@ -322,6 +336,7 @@ public class AdminCategoryController {
                     }
                     
                     categoryRepository.delete(category);
+                    categoryTreeSnapshot.refresh();
                     return ResponseEntity.ok().body("Category deleted successfully");
                 } catch (Exception e) {
                     return ResponseEntity.badRequest().body("Error deleting category: " + e.getMessage());
@@ -341,6 +356,7 @@ public class AdminCategoryController {
             .map(category -> {
                 category.setIsActive(!category.getIsActive());
                 categoryRepository.save(category);
+                categoryTreeSnapshot.refresh();
                 return ResponseEntity.ok().body("Category status updated");
             })
             .orElse(ResponseEntity.notFound().build());
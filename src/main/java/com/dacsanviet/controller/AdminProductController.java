@@ -8,6 +8,9 @@ import com.dacsanviet.repository.CategoryRepository;
 import com.dacsanviet.repository.ProductImageRepository;
 import com.dacsanviet.repository.ProductRepository;
 import com.dacsanviet.service.CategoryService;
+import com.dacsanviet.service.PageOutputCache;
+import com.dacsanviet.service.ProductCacheInvalidator;
+import com.dacsanviet.service.ProductFacetIndex;
 import com.dacsanviet.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -48,6 +51,15 @@ public class AdminProductController {
 
     @Autowired
     private CategoryService categoryService;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private PageOutputCache pageOutputCache;
+    
+    @Autowired
+    private ProductCacheInvalidator productCacheInvalidator;
 
     @Value("${upload.path:uploads/products}")
     private String uploadPath;
@@ -128,6 +140,9 @@ public class AdminProductController {
             }
             
             Product savedProduct = productRepository.save(product);
+            productFacetIndex.index(savedProduct);
+            pageOutputCache.evictProduct(savedProduct.getId(), categoryId);
+            productCacheInvalidator.productChanged(null, savedProduct);
             
             // Handle additional images
             if (additionalImages != null && additionalImages.length > 0) {
@@ -178,6 +193,9 @@ public class AdminProductController {
             Category category = categoryRepository.findById(categoryId)
                     .orElseThrow(() -> new RuntimeException("Category not found"));
             
+            Long previousCategoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+            ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
+            
             product.setName(name);
             product.setDescription(description);
             product.setStory(story);
@@ -207,6 +225,12 @@ public class AdminProductController {
             }
             
             productRepository.save(product);
+            productFacetIndex.index(product);
+            pageOutputCache.evictProduct(id, categoryId);
+            if (previousCategoryId != null && !previousCategoryId.equals(categoryId)) {
+                pageOutputCache.evictProduct(id, previousCategoryId);
+            }
+            productCacheInvalidator.productChanged(before, product);
             
             // Handle additional images
             if (additionalImages != null && additionalImages.length > 0) {
@@ -6,6 +6,7 @@ import com.dacsanviet.security.JwtTokenProvider;
 import com.dacsanviet.service.UserService;
 import com.dacsanviet.service.PasswordResetService;
 import com.dacsanviet.service.SecurityAuditService;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -201,8 +202,9 @@ public class AuthController {
         try {
             String refreshToken = refreshTokenRequest.getRefreshToken();
             
-            if (tokenProvider.validateToken(refreshToken)) {
-                String username = tokenProvider.getUsernameFromToken(refreshToken);
+            Claims claims = tokenProvider.parseClaims(refreshToken);
+            if (claims != null) {
+                String username = claims.getSubject();
                 
                 // Generate new access token
                 String newAccessToken = tokenProvider.generateTokenFromUsername(username);
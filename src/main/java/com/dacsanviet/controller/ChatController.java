@@ -21,6 +21,9 @@ import java.util.Map;
 @Controller
 public class ChatController {
     
+    // chat_messages.session_id, sender_name and sender_email are VARCHAR(255)
+    private static final int MAX_FIELD_LENGTH = 255;
+    
     @Autowired
     private ChatService chatService;
     
@@ -35,12 +38,12 @@ public class ChatController {
             String senderEmail = (String) messageData.get("senderEmail");
             String message = (String) messageData.get("message");
             
-            if (sessionId == null || message == null || message.trim().isEmpty()) {
+            if (!isValidSessionId(sessionId) || message == null || message.trim().isEmpty()) {
                 return;
             }
             
             // Save and broadcast message
-            chatService.sendUserMessage(sessionId, senderName, senderEmail, message.trim());
+            chatService.sendUserMessage(sessionId, truncate(senderName), truncate(senderEmail), message.trim());
             
         } catch (Exception e) {
             System.err.println("Error handling chat message: " + e.getMessage());
@@ -59,7 +62,7 @@ public class ChatController {
             Long adminId = messageData.get("adminId") != null ? 
                 Long.valueOf(messageData.get("adminId").toString()) : null;
             
-            if (sessionId == null || message == null || message.trim().isEmpty()) {
+            if (!isValidSessionId(sessionId) || message == null || message.trim().isEmpty()) {
                 return;
             }
             
@@ -131,8 +134,15 @@ public class ChatController {
                 error.put("error", "Session ID and message are required");
                 return ResponseEntity.badRequest().body(error);
             }
+            if (!isValidSessionId(sessionId)) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("error", "Session ID is too long");
+                return ResponseEntity.badRequest().body(error);
+            }
             
-            ChatMessage chatMessage = chatService.sendUserMessage(sessionId, senderName, senderEmail, message.trim());
+            // The message is written behind, so its id is not set yet
+            ChatMessage chatMessage = chatService.sendUserMessage(sessionId, truncate(senderName),
+                    truncate(senderEmail), message.trim());
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -214,4 +224,15 @@ public class ChatController {
             return ResponseEntity.status(500).body(null);
         }
     }
-}
\ No newline at end of file
+    
+    private boolean isValidSessionId(String sessionId) {
+        return sessionId != null && sessionId.length() <= MAX_FIELD_LENGTH;
+    }
+    
+    /**
+     * Guest name and email as typed, cut to what the column holds
+     */
+    private String truncate(String value) {
+        return value != null && value.length() > MAX_FIELD_LENGTH ? value.substring(0, MAX_FIELD_LENGTH) : value;
+    }
+}
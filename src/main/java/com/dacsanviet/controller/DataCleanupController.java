@@ -2,6 +2,7 @@ package com.dacsanviet.controller;
 
 import com.dacsanviet.model.Category;
 import com.dacsanviet.repository.CategoryRepository;
+import com.dacsanviet.service.CategoryTreeSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +30,9 @@ public class DataCleanupController {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategoryTreeSnapshot categoryTreeSnapshot;
+
     /**
      * Reset province categories - Public endpoint for demo
      */
@@ -62,6 +66,7 @@ public class DataCleanupController {
 
             // Tạo lại danh mục tỉnh thành mới (chỉ 4 tỉnh cho mỗi miền)
             createNewProvinceCategories();
+            categoryTreeSnapshot.refresh();
 
             response.put("success", true);
             response.put("message", "Đã reset thành công danh mục tỉnh thành. Mỗi miền giờ chỉ có 4 tỉnh tiêu biểu.");
@@ -2,6 +2,7 @@ package com.dacsanviet.controller;
 
 import com.dacsanviet.model.*;
 import com.dacsanviet.repository.*;
+import com.dacsanviet.service.CategoryTreeSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
@@ -19,6 +20,9 @@ public class DataInitController {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private CategoryTreeSnapshot categoryTreeSnapshot;
+    
     @Autowired
     private ProductRepository productRepository;
     
@@ -35,6 +39,7 @@ public class DataInitController {
             // Create categories if they don't exist
             if (categoryRepository.count() == 0) {
                 createCategories();
+                categoryTreeSnapshot.refresh();
             }
             
             // Create products if they don't exist
@@ -20,11 +20,13 @@ import com.dacsanviet.dao.CategoryDao;
 import com.dacsanviet.dao.ProductDao;
 import com.dacsanviet.model.User;
 import com.dacsanviet.repository.UserRepository;
+import com.dacsanviet.security.UserPrincipalCache;
 import com.dacsanviet.dto.NewsArticleDto;
 import com.dacsanviet.dto.ConsultationRequest;
 import com.dacsanviet.service.CategoryService;
 import com.dacsanviet.service.EmailService;
-import com.dacsanviet.service.NewsService;
+import com.dacsanviet.service.NewsReadModel;
+import com.dacsanviet.service.PageOutputCache;
 import com.dacsanviet.service.ProductService;
 
 import jakarta.validation.Valid;
@@ -47,7 +49,7 @@ public class HomeController {
 	private EmailService emailService;
 
 	@Autowired
-	private NewsService newsService;
+	private NewsReadModel newsReadModel;
 
 	@Autowired
 	private UserRepository userRepository; // Sử dụng UserRepository bạn vừa gửi
@@ -55,6 +57,9 @@ public class HomeController {
 	@Autowired
 	private PasswordEncoder passwordEncoder;
 
+	@Autowired
+	private UserPrincipalCache userPrincipalCache;
+
 	@GetMapping("/")
 	public String home(Model model) {
 		try {
@@ -73,9 +78,14 @@ public class HomeController {
 					.toList();
 			model.addAttribute("categories", parentCategories);
 
-			List<NewsArticleDto> latestNews = newsService.findRecentArticles(3);
+			List<NewsArticleDto> latestNews = newsReadModel.findRecentCards(3);
 			model.addAttribute("newsList", latestNews);
 
+			PageOutputCache.tag(PageOutputCache.PRODUCT_LIST_TAG, PageOutputCache.NEWS_LIST_TAG);
+			PageOutputCache.tagProducts(featuredProducts.getContent());
+			PageOutputCache.tagProducts(newProducts.getContent());
+			PageOutputCache.tagArticles(latestNews);
+
 		} catch (Exception e) {
 			log.error("Lỗi khi tải dữ liệu trang chủ: {}", e.getMessage());
 			model.addAttribute("featuredProducts", List.of());
@@ -123,6 +133,7 @@ public class HomeController {
 			// Cập nhật mật khẩu đã mã hóa
 			user.setPassword(passwordEncoder.encode(newPassword));
 			userRepository.save(user);
+			userPrincipalCache.invalidateUser(user.getId());
 
 			// Gửi Email
 			try {
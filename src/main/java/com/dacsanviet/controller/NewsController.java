@@ -6,6 +6,9 @@ import com.dacsanviet.dto.NewsCommentDto;
 import com.dacsanviet.service.NewsService;
 import com.dacsanviet.service.NewsCategoryService;
 import com.dacsanviet.service.NewsCommentService;
+import com.dacsanviet.service.NewsReadModel;
+import com.dacsanviet.service.NewsViewCounter;
+import com.dacsanviet.service.PageOutputCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -20,6 +23,8 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.util.List;
 import java.util.Optional;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 /**
  * Public News Controller for displaying news articles to users
  * Handles news listing, article detail view, category filtering, and search
@@ -33,10 +38,12 @@ public class NewsController {
     private final NewsService newsService;
     private final NewsCategoryService newsCategoryService;
     private final NewsCommentService newsCommentService;
+    private final NewsReadModel newsReadModel;
     
     private static final int DEFAULT_PAGE_SIZE = 12;
     private static final int FEATURED_ARTICLES_LIMIT = 3;
     private static final int RECENT_ARTICLES_LIMIT = 6;
+    private static final int RELATED_ARTICLES_LIMIT = 3;
     
     /**
      * Display news listing page with pagination
@@ -64,13 +71,13 @@ public class NewsController {
             Page<NewsArticleDto> articles = newsService.findPublishedArticles(pageable);
             
             // Get featured articles for hero section
-            List<NewsArticleDto> featuredArticles = newsService.findFeaturedArticles(FEATURED_ARTICLES_LIMIT);
+            List<NewsArticleDto> featuredArticles = newsReadModel.findFeaturedCards(FEATURED_ARTICLES_LIMIT);
             
             // Get active categories for navigation
-            List<NewsCategoryDto> categories = newsCategoryService.findActiveCategories();
+            List<NewsCategoryDto> categories = newsReadModel.findActiveCategories();
             
             // Get recent articles for sidebar
-            List<NewsArticleDto> recentArticles = newsService.findRecentArticles(RECENT_ARTICLES_LIMIT);
+            List<NewsArticleDto> recentArticles = newsReadModel.findRecentCards(RECENT_ARTICLES_LIMIT);
             
             // Add data to model
             model.addAttribute("articles", articles);
@@ -84,6 +91,7 @@ public class NewsController {
             model.addAttribute("pageDescription", "Cập nhật những tin tức mới nhất về đặc sản Việt Nam");
             
             log.info("Loaded {} articles for news listing", articles.getNumberOfElements());
+            PageOutputCache.tag(PageOutputCache.NEWS_LIST_TAG);
             return "news/news-list";
             
         } catch (Exception e) {
@@ -98,12 +106,13 @@ public class NewsController {
      * Requirements: 2.2
      */
     @GetMapping("/{slug}")
-    public String viewArticle(@PathVariable String slug, Model model, RedirectAttributes redirectAttributes) {
+    public String viewArticle(@PathVariable String slug, Model model, RedirectAttributes redirectAttributes,
+                              HttpServletRequest request) {
         try {
             log.info("Viewing article with slug: {}", slug);
             
             // Find article by slug
-            Optional<NewsArticleDto> articleOpt = newsService.findBySlug(slug);
+            Optional<NewsArticleDto> articleOpt = newsReadModel.findArticle(slug);
             
             if (articleOpt.isEmpty()) {
                 log.warn("Article not found with slug: {}", slug);
@@ -113,26 +122,21 @@ public class NewsController {
             
             NewsArticleDto article = articleOpt.get();
             
-            // Increment view count
-            newsService.incrementViewCount(article.getId());
-            
-            // Get related articles from same category
-            List<NewsArticleDto> relatedArticles = null;
-            if (article.getCategoryId() != null) {
-                Pageable pageable = PageRequest.of(0, 4, 
-                    Sort.by(Sort.Direction.DESC, "publishedAt"));
-                Page<NewsArticleDto> relatedPage = newsService.findByCategory(article.getCategoryId(), pageable);
-                relatedArticles = relatedPage.getContent().stream()
-                    .filter(a -> !a.getId().equals(article.getId())) // Exclude current article
-                    .limit(3)
-                    .toList();
+            // Count the view; repeat views by the same visitor count once, and staff
+            // checking an article they manage are not readers
+            if (!request.isUserInRole("ADMIN") && !request.isUserInRole("STAFF")) {
+                newsService.incrementViewCount(article.getId(), NewsViewCounter.visitorKey(request));
             }
             
+            // Related articles are precomputed (shared words and category)
+            List<NewsArticleDto> relatedArticles = newsService.findRelatedArticles(article.getId(),
+                article.getCategoryId(), RELATED_ARTICLES_LIMIT);
+            
             // Get active categories for navigation
-            List<NewsCategoryDto> categories = newsCategoryService.findActiveCategories();
+            List<NewsCategoryDto> categories = newsReadModel.findActiveCategories();
             
             // Get recent articles for sidebar
-            List<NewsArticleDto> recentArticles = newsService.findRecentArticles(RECENT_ARTICLES_LIMIT);
+            List<NewsArticleDto> recentArticles = newsReadModel.findRecentCards(RECENT_ARTICLES_LIMIT);
             
             // Get approved comments for this article
             List<NewsCommentDto> comments = newsCommentService.findApprovedCommentsByArticle(article.getId());
@@ -152,8 +156,13 @@ public class NewsController {
             model.addAttribute("pageDescription", article.getMetaDescription() != null ? 
                 article.getMetaDescription() : article.getExcerpt());
             model.addAttribute("pageKeywords", article.getMetaKeywords());
+            // Thymeleaf 3.1 no longer exposes #httpServletRequest to templates
+            model.addAttribute("shareUrl", request.getRequestURL().toString());
             
             log.info("Loaded article: {} (ID: {})", article.getTitle(), article.getId());
+            // Related and recent articles change with any article, comments with this one
+            PageOutputCache.tag(PageOutputCache.articleTag(article.getId()), PageOutputCache.NEWS_LIST_TAG);
+            PageOutputCache.countArticleView(article.getId());
             return "news/article-detail";
             
         } catch (Exception e) {
@@ -202,10 +211,10 @@ public class NewsController {
             Page<NewsArticleDto> articles = newsService.findByCategorySlug(categorySlug, pageable);
             
             // Get active categories for navigation
-            List<NewsCategoryDto> categories = newsCategoryService.findActiveCategories();
+            List<NewsCategoryDto> categories = newsReadModel.findActiveCategories();
             
             // Get recent articles for sidebar
-            List<NewsArticleDto> recentArticles = newsService.findRecentArticles(RECENT_ARTICLES_LIMIT);
+            List<NewsArticleDto> recentArticles = newsReadModel.findRecentCards(RECENT_ARTICLES_LIMIT);
             
             // Add data to model
             model.addAttribute("articles", articles);
@@ -262,18 +271,17 @@ public class NewsController {
                 size = 24;
             }
             
-            // Create pageable with sort by published date desc
-            Pageable pageable = PageRequest.of(page, size, 
-                Sort.by(Sort.Direction.DESC, "publishedAt"));
+            // Results come in relevance order
+            Pageable pageable = PageRequest.of(page, size);
             
             // Search articles
             Page<NewsArticleDto> articles = newsService.searchArticles(keyword, pageable);
             
             // Get active categories for navigation
-            List<NewsCategoryDto> categories = newsCategoryService.findActiveCategories();
+            List<NewsCategoryDto> categories = newsReadModel.findActiveCategories();
             
             // Get recent articles for sidebar
-            List<NewsArticleDto> recentArticles = newsService.findRecentArticles(RECENT_ARTICLES_LIMIT);
+            List<NewsArticleDto> recentArticles = newsReadModel.findRecentCards(RECENT_ARTICLES_LIMIT);
             
             // Add data to model
             model.addAttribute("articles", articles);
@@ -306,10 +314,10 @@ public class NewsController {
             log.info("Loading featured articles");
             
             // Get featured articles
-            List<NewsArticleDto> featuredArticles = newsService.findFeaturedArticles(10);
+            List<NewsArticleDto> featuredArticles = newsReadModel.findFeaturedCards(10);
             
             // Get active categories for navigation
-            List<NewsCategoryDto> categories = newsCategoryService.findActiveCategories();
+            List<NewsCategoryDto> categories = newsReadModel.findActiveCategories();
             
             // Add data to model
             model.addAttribute("articles", featuredArticles);
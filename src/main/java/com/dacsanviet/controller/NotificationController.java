@@ -1,9 +1,9 @@
 package com.dacsanviet.controller;
 
 import com.dacsanviet.dao.NotificationDao;
+import com.dacsanviet.service.OutboundMessageDispatcher;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -14,7 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 public class NotificationController {
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private OutboundMessageDispatcher outboundDispatcher;
 
     /**
      * Handle subscription to notifications
@@ -40,7 +40,7 @@ public class NotificationController {
             message,
             System.currentTimeMillis()
         );
-        messagingTemplate.convertAndSend("/topic/notifications", notification);
+        outboundDispatcher.send("/topic/notifications", notification);
     }
 
     /**
@@ -52,7 +52,7 @@ public class NotificationController {
             message,
             System.currentTimeMillis()
         );
-        messagingTemplate.convertAndSendToUser(username, "/queue/notifications", notification);
+        outboundDispatcher.sendToUser(username, "/queue/notifications", notification);
     }
 
     /**
@@ -64,7 +64,7 @@ public class NotificationController {
             message,
             System.currentTimeMillis()
         );
-        messagingTemplate.convertAndSend("/topic/admin-notifications", notification);
+        outboundDispatcher.send("/topic/admin-notifications", notification);
     }
 
     /**
@@ -76,7 +76,7 @@ public class NotificationController {
             String.format("Order %s: %s - %s", orderNumber, status, message),
             System.currentTimeMillis()
         );
-        messagingTemplate.convertAndSendToUser(username, "/queue/order-updates", notification);
+        outboundDispatcher.sendToUser(username, "/queue/order-updates", notification);
     }
 
     /**
@@ -89,7 +89,7 @@ public class NotificationController {
             message,
             System.currentTimeMillis()
         );
-        messagingTemplate.convertAndSend("/topic/inventory-alerts", notification);
+        outboundDispatcher.send("/topic/inventory-alerts", notification);
     }
 
     /**
@@ -102,7 +102,7 @@ public class NotificationController {
             message,
             System.currentTimeMillis()
         );
-        messagingTemplate.convertAndSendToUser(username, "/queue/payment-confirmations", notification);
+        outboundDispatcher.sendToUser(username, "/queue/payment-confirmations", notification);
     }
 
     /**
@@ -114,6 +114,6 @@ public class NotificationController {
             message,
             System.currentTimeMillis()
         );
-        messagingTemplate.convertAndSend("/topic/maintenance", notification);
+        outboundDispatcher.send("/topic/maintenance", notification);
     }
 }
\ No newline at end of file
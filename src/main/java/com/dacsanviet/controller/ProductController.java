@@ -2,8 +2,11 @@ package com.dacsanviet.controller;
 
 import com.dacsanviet.dao.ProductDao;
 import com.dacsanviet.model.ProductImage;
+import com.dacsanviet.service.PageOutputCache;
+import com.dacsanviet.service.ProductFacetIndex;
 import com.dacsanviet.service.ProductService;
 import com.dacsanviet.service.CategoryService;
+import com.dacsanviet.service.StockReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -31,8 +34,15 @@ public class ProductController {
     @Autowired
     private CategoryService categoryService;
     
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    private static final int RELATED_PRODUCTS_LIMIT = 8;
+    
     /**
      * List all products (public view)
+     * Origin, price, weight, stock and featured filters and the counts next to every
+     * filter value come from the product facet index
      */
     @GetMapping
     public String listProducts(
@@ -42,28 +52,48 @@ public class ProductController {
             @RequestParam(defaultValue = "asc") String sortDir,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String origin,
+            @RequestParam(required = false) String price,
+            @RequestParam(required = false) String weight,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) Boolean featured,
             Model model) {
         
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                    Sort.by(sortBy).descending() : 
                    Sort.by(sortBy).ascending();
         
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<ProductDao> products;
+        boolean hasSearch = search != null && !search.trim().isEmpty();
+        // Search results keep their relevance order
+        Pageable pageable = hasSearch ? PageRequest.of(page, size) : PageRequest.of(page, size, sort);
         
-        // Always load all products for client-side filtering
-        // Only apply search filter on server-side
-        if (search != null && !search.trim().isEmpty()) {
-            products = productService.searchProducts(search, categoryId, pageable);
-        } else {
-            // Load all products regardless of categoryId - let client-side handle category filtering
-            products = productService.getAllProducts(pageable);
+        ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter();
+        filter.setOrigin(origin);
+        filter.setPriceRange(ProductFacetIndex.PriceRange.fromParam(price));
+        filter.setWeightRange(ProductFacetIndex.WeightRange.fromParam(weight));
+        filter.setStockStatus(Boolean.TRUE.equals(inStock) ? ProductFacetIndex.StockStatus.IN_STOCK : null);
+        filter.setFeatured(featured);
+        if (hasSearch) {
+            // Only apply the category on server-side together with a search;
+            // otherwise load every category and let client-side handle category filtering
+            filter.setCategoryId(categoryId);
         }
         
+        ProductFacetIndex.Result result = productService.browseProducts(search, filter, pageable);
+        Page<ProductDao> products = productService.getProductPage(result, pageable);
+        
         model.addAttribute("products", products.getContent());
         model.addAttribute("categories", categoryService.getAllActiveCategories());
+        model.addAttribute("facets", result.getFacets());
+        model.addAttribute("priceRanges", ProductFacetIndex.PriceRange.values());
+        model.addAttribute("weightRanges", ProductFacetIndex.WeightRange.values());
         model.addAttribute("searchKeyword", search);
         model.addAttribute("selectedCategory", categoryId != null ? categoryId.toString() : null);
+        model.addAttribute("selectedOrigin", origin);
+        model.addAttribute("selectedPrice", filter.getPriceRange());
+        model.addAttribute("selectedWeight", filter.getWeightRange());
+        model.addAttribute("inStock", inStock);
+        model.addAttribute("featured", featured);
         model.addAttribute("totalElements", products.getTotalElements());
         model.addAttribute("totalPages", products.getTotalPages());
         model.addAttribute("currentPage", page);
@@ -71,6 +101,8 @@ public class ProductController {
         model.addAttribute("sortDir", sortDir);
         model.addAttribute("pageTitle", "Sản Phẩm Đặc Sản");
         
+        PageOutputCache.tag(PageOutputCache.PRODUCT_LIST_TAG);
+        PageOutputCache.tagProducts(products.getContent());
         return "products/index";
     }
     
@@ -83,25 +115,23 @@ public class ProductController {
             ProductDao product = productService.getProductById(id);
             List<ProductImage> productImages = productService.getProductImages(id);
             
-            // Get related products (same category, limit 8)
-            Pageable pageable = PageRequest.of(0, 8);
-            Page<ProductDao> relatedProducts;
-            if (product.getCategoryId() != null) {
-                relatedProducts = productService.getProductsByCategory(product.getCategoryId(), pageable);
-                // Remove current product from related products
-                List<ProductDao> filteredRelated = relatedProducts.getContent().stream()
-                    .filter(p -> !p.getId().equals(id))
-                    .limit(8)
-                    .collect(java.util.stream.Collectors.toList());
-                model.addAttribute("relatedProducts", filteredRelated);
-            } else {
-                relatedProducts = productService.getAllProducts(pageable);
-                model.addAttribute("relatedProducts", relatedProducts.getContent());
-            }
+            // Related products are precomputed (shared words, category, bought together)
+            List<ProductDao> relatedProducts = productService.getRelatedProducts(id, product.getCategoryId(),
+                    RELATED_PRODUCTS_LIMIT);
+            model.addAttribute("relatedProducts", relatedProducts);
             
             model.addAttribute("product", product);
+            // Units held for unpaid orders come from memory; the cached product is not touched
+            model.addAttribute("availableQuantity",
+                    stockReservationService.getAvailableToSell(id, product.getStockQuantity()));
             model.addAttribute("productImages", productImages);
             model.addAttribute("pageTitle", product.getName());
+            
+            // A rebuild that changes the related products evicts the product tag; until the
+            // product is in the related-items table they come from the category
+            PageOutputCache.tag(PageOutputCache.productTag(id), product.getCategoryId() != null
+                    ? PageOutputCache.categoryTag(product.getCategoryId()) : PageOutputCache.PRODUCT_LIST_TAG);
+            PageOutputCache.tagProducts(relatedProducts);
             return "products/detail";
         } catch (RuntimeException e) {
             model.addAttribute("error", "Không tìm thấy sản phẩm");
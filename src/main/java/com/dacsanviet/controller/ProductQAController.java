@@ -6,7 +6,6 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,6 +14,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.dacsanviet.dto.ProductQAMessage;
 import com.dacsanviet.model.ProductQA;
+import com.dacsanviet.service.OutboundMessageDispatcher;
 import com.dacsanviet.service.ProductQAService;
 
 /**
@@ -24,7 +24,7 @@ import com.dacsanviet.service.ProductQAService;
 public class ProductQAController {
 
 	@Autowired
-	private SimpMessagingTemplate messagingTemplate;
+	private OutboundMessageDispatcher outboundDispatcher;
 
 	@Autowired
 	private ProductQAService productQAService;
@@ -47,7 +47,7 @@ public class ProductQAController {
 
 		// Broadcast to specific product topic
 		String destination = "/topic/product/" + message.getProductId() + "/qa";
-		messagingTemplate.convertAndSend(destination, message);
+		outboundDispatcher.send(destination, message);
 	}
 
 	/**
@@ -86,7 +86,8 @@ public class ProductQAController {
 		likeUpdate.setLikesCount(qa.getLikesCount());
 
 		String destination = "/topic/product/" + qa.getProductId() + "/qa/like";
-		messagingTemplate.convertAndSend(destination, likeUpdate);
+		// Rapid toggles collapse into one update carrying the latest count
+		outboundDispatcher.sendLatest(destination, String.valueOf(qa.getId()), likeUpdate);
 
 		return ResponseEntity.ok(qa.getLikesCount());
 	}
@@ -0,0 +1,43 @@
+package com.dacsanviet.controller;
+
+import com.dacsanviet.service.ProductSuggestIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API Controller for search-as-you-type suggestions
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductSuggestController {
+    
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    
+    /**
+     * Suggest products, categories and origins for a partly typed query
+     * Tolerates one typo and missing Vietnamese diacritics
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<Map<String, Object>> suggest(@RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "" + ProductSuggestIndex.DEFAULT_LIMIT) int limit) {
+        List<ProductSuggestIndex.Suggestion> suggestions = productSuggestIndex.suggest(q, limit);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("query", q);
+        response.put("suggestions", suggestions);
+        
+        // Browsers re-ask for every keystroke; let them reuse recent answers
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                .body(response);
+    }
+}
@@ -5,6 +5,7 @@ import com.dacsanviet.model.User;
 import com.dacsanviet.repository.AddressRepository;
 import com.dacsanviet.repository.UserRepository;
 import com.dacsanviet.security.UserPrincipal;
+import com.dacsanviet.security.UserPrincipalCache;
 import com.dacsanviet.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
@@ -43,6 +44,9 @@ public class UserController {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
     @GetMapping({"/profile", "/user/profile"})
     public String profile(Model model, Authentication authentication) {
         try {
@@ -104,6 +108,7 @@ public class UserController {
             // Update new password
             user.setPassword(passwordEncoder.encode(request.getNewPassword()));
             userRepository.save(user);
+            userPrincipalCache.invalidateUser(user.getId());
 
             response.put("success", true);
             response.put("message", "Đổi mật khẩu thành công!");
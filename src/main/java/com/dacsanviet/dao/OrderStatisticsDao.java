@@ -18,6 +18,17 @@ public class OrderStatisticsDao {
     // Default constructor
     public OrderStatisticsDao() {}
     
+    // Copy constructor
+    public OrderStatisticsDao(OrderStatisticsDao other) {
+        this.totalOrders = other.totalOrders;
+        this.pendingOrders = other.pendingOrders;
+        this.confirmedOrders = other.confirmedOrders;
+        this.shippedOrders = other.shippedOrders;
+        this.deliveredOrders = other.deliveredOrders;
+        this.cancelledOrders = other.cancelledOrders;
+        this.totalRevenue = other.totalRevenue;
+    }
+    
     // Getters and Setters
     public Long getTotalOrders() {
         return totalOrders;
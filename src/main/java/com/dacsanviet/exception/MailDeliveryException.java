@@ -0,0 +1,11 @@
+package com.dacsanviet.exception;
+
+/**
+ * Exception thrown when an email sent straight to SMTP (mail outbox disabled) cannot be delivered
+ */
+public class MailDeliveryException extends RuntimeException {
+    
+    public MailDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
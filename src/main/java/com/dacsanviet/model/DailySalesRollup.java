@@ -0,0 +1,86 @@
+package com.dacsanviet.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Order totals for one day and one order status. Rows are maintained with plain SQL by
+ * {@link com.dacsanviet.service.SalesRollupService}; the entity only describes the table.
+ */
+@Entity
+@Table(name = "daily_sales_rollup")
+@IdClass(DailySalesRollup.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class DailySalesRollup {
+
+	@Id
+	@Column(name = "sales_date", nullable = false)
+	private LocalDate salesDate;
+
+	@Id
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private OrderStatus status;
+
+	@Column(name = "order_count", nullable = false)
+	private Integer orderCount = 0;
+
+	@Column(nullable = false, precision = 14, scale = 2)
+	private BigDecimal revenue = BigDecimal.ZERO;
+
+	@Column(name = "items_sold", nullable = false)
+	private Integer itemsSold = 0;
+
+	// Orders that were the customer's first (guests are told apart by email)
+	@Column(name = "new_customers", nullable = false)
+	private Integer newCustomers = 0;
+
+	@Column(name = "updated_at", nullable = false)
+	private LocalDateTime updatedAt;
+
+	@NoArgsConstructor
+	public static class Key implements Serializable {
+
+		private LocalDate salesDate;
+		private OrderStatus status;
+
+		public Key(LocalDate salesDate, OrderStatus status) {
+			this.salesDate = salesDate;
+			this.status = status;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return Objects.equals(salesDate, key.salesDate) && status == key.status;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(salesDate, status);
+		}
+	}
+}
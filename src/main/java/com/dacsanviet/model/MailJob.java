@@ -0,0 +1,92 @@
+package com.dacsanviet.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outbound email waiting in the mail outbox.
+ * Rows are written in the same transaction as the business change that triggers the
+ * email and drained asynchronously by {@link com.dacsanviet.service.MailDeliveryService}.
+ */
+@Entity
+@Table(name = "mail_jobs", indexes = {
+		@Index(name = "idx_mail_job_status_next", columnList = "status, next_attempt_at"),
+		@Index(name = "idx_mail_job_claim", columnList = "claim_token") })
+@Getter
+@Setter
+@NoArgsConstructor
+public class MailJob {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "mail_type", nullable = false, length = 40)
+	private Type mailType;
+
+	@Column(nullable = false, length = 255)
+	private String recipient;
+
+	@Column(nullable = false, length = 500)
+	private String subject;
+
+	@Column(name = "html_body", columnDefinition = "LONGTEXT", nullable = false)
+	private String htmlBody;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private Status status = Status.PENDING;
+
+	@Column(nullable = false)
+	private Integer attempts = 0;
+
+	@Column(name = "next_attempt_at", nullable = false)
+	private LocalDateTime nextAttemptAt;
+
+	@Column(name = "claim_token", length = 36)
+	private String claimToken;
+
+	@Column(name = "claimed_at")
+	private LocalDateTime claimedAt;
+
+	@Column(name = "last_error", length = 1000)
+	private String lastError;
+
+	@Column(name = "created_at", nullable = false, updatable = false)
+	private LocalDateTime createdAt;
+
+	@Column(name = "sent_at")
+	private LocalDateTime sentAt;
+
+	public MailJob(Type mailType, String recipient, String subject, String htmlBody) {
+		this.mailType = mailType;
+		this.recipient = recipient;
+		this.subject = subject;
+		this.htmlBody = htmlBody;
+		this.createdAt = LocalDateTime.now();
+		this.nextAttemptAt = this.createdAt;
+	}
+
+	public enum Type {
+		SIMPLE, CONSULTATION, PASSWORD_RESET, PASSWORD_RESET_CONFIRMATION, ORDER_CONFIRMATION,
+		PAYMENT_CONFIRMATION, PAYMENT_FAILURE, SHIPPING_NOTIFICATION, ORDER_COMPLETION, ORDER_STATUS_UPDATE
+	}
+
+	public enum Status {
+		PENDING, SENDING, SENT, FAILED
+	}
+}
@@ -9,6 +9,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -17,9 +18,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Product entity representing specialty food products
+ * Product entity representing specialty food products.
+ * Stock is decremented in SQL by StockAllocationService; dynamic updates keep an edit of
+ * other fields from writing back a stale stock_quantity.
  */
 @Entity
+@DynamicUpdate
 @Table(name = "products", indexes = {
     @Index(name = "idx_product_name", columnList = "name"),
     @Index(name = "idx_product_category", columnList = "category_id"),
@@ -54,6 +58,10 @@ public class Product {
     @Min(value = 0, message = "Stock quantity cannot be negative")
     private Integer stockQuantity = 0;
     
+    /** Units held by unpaid online-payment orders; only ever changed in SQL by StockReservationService */
+    @Column(name = "reserved_quantity", nullable = false, updatable = false)
+    private Integer reservedQuantity = 0;
+    
     @Column(name = "image_url", length = 500)
     @Size(max = 500, message = "Image URL must not exceed 500 characters")
     private String imageUrl;
@@ -106,6 +114,7 @@ public class Product {
         this.price = price;
         this.category = category;
         this.stockQuantity = 0;
+        this.reservedQuantity = 0;
         this.isActive = true;
         this.isFeatured = false;
         this.cartItems = new ArrayList<>();
@@ -0,0 +1,69 @@
+package com.dacsanviet.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Stock held for an order that is waiting for online payment (VNPay, VietQR, MoMo).
+ * While ACTIVE the quantity is counted in {@code products.reserved_quantity}; rows are
+ * written and swept by {@link com.dacsanviet.service.StockReservationService}.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+		@Index(name = "idx_stock_reservation_status_expires", columnList = "status, expires_at"),
+		@Index(name = "idx_stock_reservation_order", columnList = "order_id") })
+@Getter
+@Setter
+@NoArgsConstructor
+public class StockReservation {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "order_id", nullable = false)
+	private Long orderId;
+
+	@Column(name = "product_id", nullable = false)
+	private Long productId;
+
+	@Column(nullable = false)
+	private Integer quantity;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private Status status = Status.ACTIVE;
+
+	@Column(name = "expires_at", nullable = false)
+	private LocalDateTime expiresAt;
+
+	@Column(name = "created_at", nullable = false, updatable = false)
+	private LocalDateTime createdAt;
+
+	@Column(name = "resolved_at")
+	private LocalDateTime resolvedAt;
+
+	public enum Status {
+		/** Holding stock until payment or expiry */
+		ACTIVE,
+		/** Paid: the held units were taken from stock */
+		COMMITTED,
+		/** Given back because the order was cancelled */
+		RELEASED,
+		/** Given back by the sweeper because payment never arrived */
+		EXPIRED
+	}
+}
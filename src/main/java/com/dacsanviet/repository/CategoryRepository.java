@@ -85,11 +85,8 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     List<Category> findEmptyCategories();
     
     /**
-     * Find root categories (no parent) with children eagerly loaded for header navigation
+     * All categories as flat [id, name, imageUrl, isActive, parentId] rows, for the header category tree
      */
-    @Query("SELECT DISTINCT c FROM Category c " +
-           "LEFT JOIN FETCH c.children " +
-           "WHERE c.parent IS NULL AND c.isActive = true " +
-           "ORDER BY c.name")
-    List<Category> findRootCategoriesWithChildren();
-}
\ No newline at end of file
+    @Query("SELECT c.id, c.name, c.imageUrl, c.isActive, p.id FROM Category c LEFT JOIN c.parent p ORDER BY c.name")
+    List<Object[]> findCategoryTreeRows();
+}
@@ -35,6 +35,12 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     @Query("SELECT COUNT(c) FROM ChatMessage c WHERE c.isRead = false AND c.messageType = 'USER'")
     Long countUnreadUserMessages();
     
+    /**
+     * Count unread user messages per session, as [sessionId, count] rows
+     */
+    @Query("SELECT c.sessionId, COUNT(c) FROM ChatMessage c WHERE c.isRead = false AND c.messageType = 'USER' GROUP BY c.sessionId")
+    List<Object[]> countUnreadUserMessagesBySession();
+    
     /**
      * Find recent messages for a session (last 50)
      */
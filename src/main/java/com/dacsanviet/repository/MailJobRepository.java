@@ -0,0 +1,87 @@
+package com.dacsanviet.repository;
+
+import com.dacsanviet.model.MailJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for the mail outbox
+ */
+@Repository
+public interface MailJobRepository extends JpaRepository<MailJob, Long> {
+
+    /**
+     * Find ids of pending jobs whose next attempt is due, oldest first
+     */
+    @Query("SELECT j.id FROM MailJob j WHERE j.status = :status AND j.nextAttemptAt <= :now ORDER BY j.nextAttemptAt")
+    List<Long> findDueJobIds(@Param("status") MailJob.Status status, @Param("now") LocalDateTime now,
+            Pageable pageable);
+
+    /**
+     * Claim pending jobs for one drain round. Only rows still PENDING are taken, so two
+     * workers racing on the same ids never both send the same email.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailJob j SET j.status = :claimed, j.claimToken = :token, j.claimedAt = :now "
+            + "WHERE j.id IN :ids AND j.status = :pending")
+    int claimJobs(@Param("ids") Collection<Long> ids, @Param("token") String token, @Param("now") LocalDateTime now,
+            @Param("pending") MailJob.Status pending, @Param("claimed") MailJob.Status claimed);
+
+    /**
+     * Jobs claimed by a drain round
+     */
+    List<MailJob> findByClaimToken(String claimToken);
+
+    /**
+     * Return jobs stuck in SENDING (node crashed mid-send) to the queue
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailJob j SET j.status = :pending, j.claimToken = null "
+            + "WHERE j.status = :claimed AND j.claimedAt < :cutoff")
+    int releaseStaleClaims(@Param("cutoff") LocalDateTime cutoff, @Param("pending") MailJob.Status pending,
+            @Param("claimed") MailJob.Status claimed);
+
+    /**
+     * Mark a set of delivered jobs as sent in one statement
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailJob j SET j.status = :sent, j.sentAt = :sentAt, j.attempts = j.attempts + 1, "
+            + "j.claimToken = null, j.lastError = null WHERE j.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt,
+            @Param("sent") MailJob.Status sent);
+
+    /**
+     * Record a failed attempt, either rescheduling the job or parking it as FAILED
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailJob j SET j.status = :status, j.attempts = j.attempts + 1, j.nextAttemptAt = :nextAttemptAt, "
+            + "j.lastError = :error, j.claimToken = null WHERE j.id = :id")
+    int markAttemptFailed(@Param("id") Long id, @Param("status") MailJob.Status status,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    /**
+     * Count jobs by status (queue depth, in-flight, dead letters)
+     */
+    long countByStatus(MailJob.Status status);
+
+    /**
+     * Purge delivered jobs older than the retention window
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MailJob j WHERE j.status = :sent AND j.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff, @Param("sent") MailJob.Status sent);
+}
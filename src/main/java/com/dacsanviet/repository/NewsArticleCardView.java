@@ -0,0 +1,45 @@
+package com.dacsanviet.repository;
+
+import com.dacsanviet.model.NewsStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * News article list card: everything listing pages show, without the article body
+ */
+public interface NewsArticleCardView {
+
+    Long getId();
+
+    String getTitle();
+
+    String getSlug();
+
+    String getExcerpt();
+
+    String getFeaturedImage();
+
+    String getThumbnailImage();
+
+    NewsStatus getStatus();
+
+    Long getViewCount();
+
+    Boolean getIsFeatured();
+
+    LocalDateTime getPublishedAt();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+
+    String getCategorySlug();
+
+    Long getAuthorId();
+
+    String getAuthorName();
+}
@@ -13,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -85,6 +86,95 @@ public interface NewsArticleRepository extends JpaRepository<NewsArticle, Long>
     @Query("SELECT a FROM NewsArticle a WHERE a.status = 'PUBLISHED' ORDER BY a.publishedAt DESC")
     List<NewsArticle> findRecentPublishedArticles(Pageable pageable);
     
+    // List cards: the listing columns only, never the content body
+    String CARD_SELECT = "SELECT a.id AS id, a.title AS title, a.slug AS slug, a.excerpt AS excerpt, " +
+           "a.featuredImage AS featuredImage, a.thumbnailImage AS thumbnailImage, a.status AS status, " +
+           "a.viewCount AS viewCount, a.isFeatured AS isFeatured, a.publishedAt AS publishedAt, " +
+           "a.createdAt AS createdAt, a.updatedAt AS updatedAt, c.id AS categoryId, c.name AS categoryName, " +
+           "c.slug AS categorySlug, u.id AS authorId, COALESCE(u.fullName, u.username) AS authorName " +
+           "FROM NewsArticle a LEFT JOIN a.category c LEFT JOIN a.author u ";
+    
+    /**
+     * Published articles as list cards
+     */
+    @Query(value = CARD_SELECT + "WHERE a.status = 'PUBLISHED' ORDER BY a.publishedAt DESC",
+           countQuery = "SELECT COUNT(a) FROM NewsArticle a WHERE a.status = 'PUBLISHED'")
+    Page<NewsArticleCardView> findPublishedCards(Pageable pageable);
+    
+    /**
+     * Published articles of a category as list cards
+     */
+    @Query(value = CARD_SELECT + "WHERE a.status = 'PUBLISHED' AND c.id = :categoryId ORDER BY a.publishedAt DESC",
+           countQuery = "SELECT COUNT(a) FROM NewsArticle a WHERE a.status = 'PUBLISHED' AND a.category.id = :categoryId")
+    Page<NewsArticleCardView> findPublishedCardsByCategory(@Param("categoryId") Long categoryId, Pageable pageable);
+    
+    /**
+     * Published articles of a category, by slug, as list cards
+     */
+    @Query(value = CARD_SELECT + "WHERE a.status = 'PUBLISHED' AND c.slug = :categorySlug ORDER BY a.publishedAt DESC",
+           countQuery = "SELECT COUNT(a) FROM NewsArticle a WHERE a.status = 'PUBLISHED' AND a.category.slug = :categorySlug")
+    Page<NewsArticleCardView> findPublishedCardsByCategorySlug(@Param("categorySlug") String categorySlug, Pageable pageable);
+    
+    /**
+     * Featured published articles as list cards
+     */
+    @Query(CARD_SELECT + "WHERE a.status = 'PUBLISHED' AND a.isFeatured = true ORDER BY a.publishedAt DESC")
+    List<NewsArticleCardView> findFeaturedCards(Pageable pageable);
+    
+    /**
+     * Featured articles that are not archived, drafts included, as list cards
+     */
+    @Query(CARD_SELECT + "WHERE a.status <> 'ARCHIVED' AND a.isFeatured = true ORDER BY a.createdAt DESC")
+    List<NewsArticleCardView> findFeaturedCardsIncludingDrafts(Pageable pageable);
+    
+    /**
+     * Most recently published articles as list cards
+     */
+    @Query(CARD_SELECT + "WHERE a.status = 'PUBLISHED' ORDER BY a.publishedAt DESC")
+    List<NewsArticleCardView> findRecentPublishedCards(Pageable pageable);
+    
+    /**
+     * Published articles matching a keyword as list cards; the body is searched but not returned
+     */
+    @Query(value = CARD_SELECT + "WHERE a.status = 'PUBLISHED' AND " +
+           "(LOWER(a.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(a.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(a.excerpt) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
+           "ORDER BY a.publishedAt DESC",
+           countQuery = "SELECT COUNT(a) FROM NewsArticle a WHERE a.status = 'PUBLISHED' AND " +
+           "(LOWER(a.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(a.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(a.excerpt) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
+    Page<NewsArticleCardView> searchPublishedCards(@Param("searchTerm") String searchTerm, Pageable pageable);
+    
+    /**
+     * A set of articles as list cards, in no particular order
+     */
+    @Query(CARD_SELECT + "WHERE a.id IN :ids")
+    List<NewsArticleCardView> findCardsByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Id and content of a set of articles (search result snippets)
+     */
+    @Query("SELECT a.id, a.content FROM NewsArticle a WHERE a.id IN :ids")
+    List<Object[]> findContentByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Searchable fields of the published articles after an id, by id: id, title, excerpt,
+     * content, category name and published date (search index reloads, one batch at a time)
+     */
+    @Query("SELECT a.id, a.title, a.excerpt, a.content, c.name, a.publishedAt FROM NewsArticle a " +
+           "LEFT JOIN a.category c WHERE a.status = 'PUBLISHED' AND a.id > :afterId ORDER BY a.id")
+    List<Object[]> findPublishedForSearchIndex(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Fields of the published articles after an id that related articles are computed from,
+     * by id: id, title, excerpt, content, category id and published date (one batch at a time)
+     */
+    @Query("SELECT a.id, a.title, a.excerpt, a.content, c.id, a.publishedAt FROM NewsArticle a " +
+           "LEFT JOIN a.category c WHERE a.status = 'PUBLISHED' AND a.id > :afterId ORDER BY a.id")
+    List<Object[]> findPublishedForRelated(@Param("afterId") Long afterId, Pageable pageable);
+    
     // Search functionality
     /**
      * Search articles by title and content (for admin)
@@ -189,4 +189,13 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
            "GROUP BY oi2.product " +
            "ORDER BY COUNT(*) DESC")
     Page<Object[]> findProductsFrequentlyBoughtTogether(@Param("productId") Long productId, Pageable pageable);
+    
+    /**
+     * Order id and product id of every item of the orders placed since a date that were not
+     * cancelled, by order (co-purchase counts for related products)
+     */
+    @Query("SELECT oi.order.id, oi.product.id FROM OrderItem oi " +
+           "WHERE oi.order.status != 'CANCELLED' AND oi.order.orderDate >= :since " +
+           "ORDER BY oi.order.id")
+    List<Object[]> findOrderProductsSince(@Param("since") LocalDateTime since);
 }
\ No newline at end of file
@@ -100,6 +100,27 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     Long countByStatus(@Param("status") OrderStatus status);
     
+    /**
+     * Order count and order value per status: [status, count, sum of totalAmount]
+     */
+    @Query("SELECT o.status, COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM Order o GROUP BY o.status")
+    List<Object[]> getOrderTotalsByStatus();
+    
+    /**
+     * Order count and order value per status for one user: [status, count, sum of totalAmount]
+     */
+    @Query("SELECT o.status, COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM Order o " +
+           "WHERE o.user.id = :userId GROUP BY o.status")
+    List<Object[]> getOrderTotalsByStatusForUser(@Param("userId") Long userId);
+    
+    /**
+     * Order count and order value per status within date range: [status, count, sum of totalAmount]
+     */
+    @Query("SELECT o.status, COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM Order o " +
+           "WHERE o.orderDate BETWEEN :startDate AND :endDate GROUP BY o.status")
+    List<Object[]> getOrderTotalsByStatusBetween(@Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate);
+    
     /**
      * Get order status distribution for charts
      */
@@ -137,6 +158,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     @Query("SELECT o FROM Order o WHERE o.orderDate >= :sinceDate ORDER BY o.orderDate DESC")
     List<Order> findRecentOrders(@Param("sinceDate") LocalDateTime sinceDate);
+
+    /**
+     * Find the most recent orders since a date, one page only
+     */
+    @Query("SELECT o FROM Order o WHERE o.orderDate >= :sinceDate ORDER BY o.orderDate DESC")
+    List<Order> findRecentOrders(@Param("sinceDate") LocalDateTime sinceDate, Pageable pageable);
     
     /**
      * Find pending orders older than specified time
@@ -0,0 +1,38 @@
+package com.dacsanviet.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Product list card: the columns listing pages show, without the description and story
+ * bodies. The summary is the first 300 characters of the short description, or of the
+ * description when there is none, and may end inside an HTML tag.
+ */
+public interface ProductCardView {
+
+    Long getId();
+
+    String getName();
+
+    BigDecimal getPrice();
+
+    Integer getStockQuantity();
+
+    String getImageUrl();
+
+    Boolean getIsActive();
+
+    Boolean getIsFeatured();
+
+    String getOrigin();
+
+    String getSummary();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,6 +45,41 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     Page<Product> findByCategoryIdAndIsActiveTrue(Long categoryId, Pageable pageable);
     
+    // List cards: the listing columns only, never the description or story bodies
+    String CARD_SELECT = "SELECT p.id AS id, p.name AS name, p.price AS price, p.stockQuantity AS stockQuantity, " +
+           "p.imageUrl AS imageUrl, p.isActive AS isActive, p.isFeatured AS isFeatured, p.origin AS origin, " +
+           "CASE WHEN p.shortDescription IS NOT NULL AND LENGTH(p.shortDescription) > 0 " +
+           "THEN SUBSTRING(p.shortDescription, 1, 300) ELSE SUBSTRING(p.description, 1, 300) END AS summary, " +
+           "c.id AS categoryId, c.name AS categoryName, p.createdAt AS createdAt, p.updatedAt AS updatedAt " +
+           "FROM Product p LEFT JOIN p.category c ";
+    
+    /**
+     * Active products as list cards, by name
+     */
+    @Query(value = CARD_SELECT + "WHERE p.isActive = true ORDER BY p.name",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true")
+    Page<ProductCardView> findActiveCards(Pageable pageable);
+    
+    /**
+     * Active featured products as list cards, newest first
+     */
+    @Query(value = CARD_SELECT + "WHERE p.isActive = true AND p.isFeatured = true ORDER BY p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true AND p.isFeatured = true")
+    Page<ProductCardView> findFeaturedCards(Pageable pageable);
+    
+    /**
+     * Active products of a category as list cards
+     */
+    @Query(value = CARD_SELECT + "WHERE p.isActive = true AND c.id = :categoryId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId")
+    Page<ProductCardView> findActiveCardsByCategory(@Param("categoryId") Long categoryId, Pageable pageable);
+    
+    /**
+     * A set of products as list cards, in no particular order
+     */
+    @Query(CARD_SELECT + "WHERE p.id IN :ids")
+    List<ProductCardView> findCardsByIds(@Param("ids") Collection<Long> ids);
+    
     /**
      * Search products by name or description
      */
@@ -96,6 +132,34 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity = 0")
     List<Product> findOutOfStockProducts();
     
+    /**
+     * Load a set of products with their category in one query (checkout)
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id IN :ids")
+    List<Product> findAllByIdWithCategory(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find all active products with their categories (search index load)
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.isActive = true")
+    List<Product> findAllActiveWithCategory();
+    
+    /**
+     * Find all products, active or not, with their categories (facet index load)
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category")
+    List<Product> findAllWithCategory();
+    
+    /**
+     * Ids of the active products whose name, description or category contains the term,
+     * by name (facet filters and paging are applied in memory)
+     */
+    @Query("SELECT p.id FROM Product p LEFT JOIN p.category c WHERE p.isActive = true AND " +
+           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(c.name) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) ORDER BY p.name")
+    List<Long> searchProductIds(@Param("searchTerm") String searchTerm);
+    
     /**
      * Find products by origin
      */
@@ -200,70 +264,4 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     @Query("SELECT COUNT(p) FROM Product p WHERE p.isActive = true AND p.stockQuantity = 0")
     Long countOutOfStockProducts();
-    
-    /**
-     * Find products by category and stock status (in stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId AND p.stockQuantity > 0")
-    Page<Product> findByCategoryIdAndInStock(@Param("categoryId") Long categoryId, Pageable pageable);
-    
-    /**
-     * Find products by category and stock status (low stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId AND p.stockQuantity <= :threshold AND p.stockQuantity > 0")
-    Page<Product> findByCategoryIdAndLowStock(@Param("categoryId") Long categoryId, @Param("threshold") Integer threshold, Pageable pageable);
-    
-    /**
-     * Find products by category and stock status (out of stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId AND p.stockQuantity = 0")
-    Page<Product> findByCategoryIdAndOutOfStock(@Param("categoryId") Long categoryId, Pageable pageable);
-    
-    /**
-     * Search products with stock status filter (in stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity > 0 AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> searchProductsInStock(@Param("searchTerm") String searchTerm, Pageable pageable);
-    
-    /**
-     * Search products with stock status filter (low stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity <= :threshold AND p.stockQuantity > 0 AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> searchProductsLowStock(@Param("searchTerm") String searchTerm, @Param("threshold") Integer threshold, Pageable pageable);
-    
-    /**
-     * Search products with stock status filter (out of stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity = 0 AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> searchProductsOutOfStock(@Param("searchTerm") String searchTerm, Pageable pageable);
-    
-    /**
-     * Search products in category with stock status filter (in stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId AND p.stockQuantity > 0 AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> searchProductsInCategoryAndInStock(@Param("searchTerm") String searchTerm, @Param("categoryId") Long categoryId, Pageable pageable);
-    
-    /**
-     * Search products in category with stock status filter (low stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId AND p.stockQuantity <= :threshold AND p.stockQuantity > 0 AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> searchProductsInCategoryAndLowStock(@Param("searchTerm") String searchTerm, @Param("categoryId") Long categoryId, @Param("threshold") Integer threshold, Pageable pageable);
-    
-    /**
-     * Search products in category with stock status filter (out of stock)
-     */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId AND p.stockQuantity = 0 AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> searchProductsInCategoryAndOutOfStock(@Param("searchTerm") String searchTerm, @Param("categoryId") Long categoryId, Pageable pageable);
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.dacsanviet.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -32,6 +33,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
     
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    
+    private final WebAuthenticationDetailsSource authenticationDetailsSource = new WebAuthenticationDetailsSource();
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                   HttpServletResponse response, 
@@ -40,13 +46,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
             
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = StringUtils.hasText(jwt) ? authenticate(jwt) : null;
+            
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = 
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                authentication.setDetails(authenticationDetailsSource.buildDetails(request));
                 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
@@ -57,6 +62,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * Resolve the user for a token: from the verified-token cache, or by verifying the
+     * signature once and loading the user
+     */
+    private UserDetails authenticate(String jwt) {
+        UserPrincipal cached = verifiedTokenCache.get(jwt);
+        if (cached != null) {
+            return cached;
+        }
+        
+        Claims claims = tokenProvider.parseClaims(jwt);
+        if (claims == null) {
+            return null;
+        }
+        
+        long stamp = verifiedTokenCache.stamp();
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        if (userDetails instanceof UserPrincipal && claims.getExpiration() != null) {
+            verifiedTokenCache.put(jwt, (UserPrincipal) userDetails, claims.getExpiration().getTime(), stamp);
+        }
+        return userDetails;
+    }
+    
     /**
      * Extract JWT token from request header or cookie
      */
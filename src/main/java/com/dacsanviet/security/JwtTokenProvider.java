@@ -23,11 +23,16 @@ public class JwtTokenProvider {
     
     private final JwtProperties jwtProperties;
     private final SecretKey secretKey;
+    // Immutable and thread-safe, so built once rather than per token
+    private final JwtParser jwtParser;
     
     @Autowired
     public JwtTokenProvider(JwtProperties jwtProperties) {
         this.jwtProperties = jwtProperties;
         this.secretKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
     }
     
     /**
@@ -77,11 +82,7 @@ public class JwtTokenProvider {
      * Get username from JWT token
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
         
         return claims.getSubject();
     }
@@ -90,12 +91,15 @@ public class JwtTokenProvider {
      * Validate JWT token
      */
     public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+    
+    /**
+     * Verify JWT token once and return its claims, or null if it is not valid
+     */
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(authToken);
-            return true;
+            return jwtParser.parseSignedClaims(authToken).getPayload();
         } catch (SecurityException ex) {
             logger.error("Invalid JWT signature: {}", ex.getMessage());
         } catch (MalformedJwtException ex) {
@@ -106,19 +110,17 @@ public class JwtTokenProvider {
             logger.error("Unsupported JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
             logger.error("JWT claims string is empty: {}", ex.getMessage());
+        } catch (JwtException ex) {
+            logger.error("Invalid JWT token: {}", ex.getMessage());
         }
-        return false;
+        return null;
     }
     
     /**
      * Get expiration date from token
      */
     public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
         
         return claims.getExpiration();
     }
@@ -7,10 +7,11 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
- * UserDetailsService implementation for Spring Security
+ * UserDetailsService implementation for Spring Security.
+ * Not transactional: a principal cache hit must not borrow a pooled connection, and a miss
+ * is a single repository read.
  */
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
@@ -18,22 +19,39 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+        UserPrincipal cached = userPrincipalCache.getByLogin(usernameOrEmail);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long stamp = userPrincipalCache.stamp();
         User user = userRepository.findByUsernameOrEmail(usernameOrEmail)
                 .orElseThrow(() -> 
                     new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail));
         
-        return UserPrincipal.create(user);
+        UserPrincipal principal = UserPrincipal.create(user);
+        userPrincipalCache.put(principal, stamp);
+        return principal;
     }
     
-    @Transactional
     public UserDetails loadUserById(Long id) {
+        UserPrincipal cached = userPrincipalCache.getById(id);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long stamp = userPrincipalCache.stamp();
         User user = userRepository.findById(id)
                 .orElseThrow(() -> 
                     new UsernameNotFoundException("User not found with id: " + id));
         
-        return UserPrincipal.create(user);
+        UserPrincipal principal = UserPrincipal.create(user);
+        userPrincipalCache.put(principal, stamp);
+        return principal;
     }
-}
\ No newline at end of file
+}
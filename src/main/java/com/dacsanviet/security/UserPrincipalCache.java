@@ -0,0 +1,198 @@
+package com.dacsanviet.security;
+
+import com.dacsanviet.config.PrincipalCacheProperties;
+import com.dacsanviet.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Users loaded for authentication, reachable by username, email and id, so that requests
+ * carrying a JWT (or a login) do not each query the users table. Entries expire after a
+ * short TTL and are evicted, together with the user's verified tokens, when the user's
+ * account changes.
+ *
+ * A loader takes a {@link #stamp()} before reading the database and passes it to
+ * {@link #put}; if any user was invalidated in between, the possibly stale principal is
+ * not cached.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final ConcurrentHashMap<Long, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> byLogin = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    @Autowired
+    public UserPrincipalCache(PrincipalCacheProperties properties, VerifiedTokenCache verifiedTokenCache) {
+        this(properties.getMaxEntries(), properties.getTtlSeconds() * 1000L, verifiedTokenCache);
+    }
+
+    UserPrincipalCache(int maxEntries, long ttlMillis, VerifiedTokenCache verifiedTokenCache) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
+    /**
+     * Cached principal for a username or email, or null
+     */
+    public UserPrincipal getByLogin(String usernameOrEmail) {
+        return usernameOrEmail != null ? hitOrMiss(byLogin, usernameOrEmail) : null;
+    }
+
+    /**
+     * Cached principal for a user id, or null
+     */
+    public UserPrincipal getById(Long id) {
+        return id != null ? hitOrMiss(byId, id) : null;
+    }
+
+    /**
+     * Current invalidation generation, to be taken before loading a user
+     */
+    public long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a freshly loaded principal unless a user was invalidated since {@code stamp}
+     */
+    public void put(UserPrincipal principal, long stamp) {
+        if (maxEntries <= 0 || principal.getId() == null || generation.get() != stamp) {
+            return;
+        }
+        if (byId.size() >= maxEntries && !byId.containsKey(principal.getId())) {
+            makeRoom();
+        }
+        Entry entry = new Entry(principal, System.currentTimeMillis() + ttlMillis);
+        Entry previous = byId.put(principal.getId(), entry);
+        if (previous != null) {
+            removeLogins(previous);
+        }
+        byLogin.put(principal.getUsername(), entry);
+        if (principal.getEmail() != null) {
+            byLogin.put(principal.getEmail(), entry);
+        }
+        // Lost a race with an invalidation: undo rather than keep a stale entry
+        if (generation.get() != stamp) {
+            remove(principal.getId());
+        }
+    }
+
+    /**
+     * Evict a user and the user's verified tokens once the surrounding transaction commits
+     */
+    public void invalidateUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        verifiedTokenCache.invalidateUser(userId);
+        AfterCommit.run(() -> evict(userId));
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        byId.clear();
+        byLogin.clear();
+    }
+
+    private <K> UserPrincipal hitOrMiss(Map<K, Entry> entries, K key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt <= System.currentTimeMillis()) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.principal;
+    }
+
+    private void evict(Long userId) {
+        generation.incrementAndGet();
+        invalidationCount.incrementAndGet();
+        remove(userId);
+    }
+
+    private void remove(Long userId) {
+        Entry entry = byId.remove(userId);
+        if (entry != null) {
+            removeLogins(entry);
+        }
+        // Also catches logins cached under an old username or email
+        byLogin.values().removeIf(cached -> userId.equals(cached.principal.getId()));
+    }
+
+    private void removeLogins(Entry entry) {
+        byLogin.remove(entry.principal.getUsername(), entry);
+        if (entry.principal.getEmail() != null) {
+            byLogin.remove(entry.principal.getEmail(), entry);
+        }
+    }
+
+    // Drop expired users first; if the cache is still full, drop an arbitrary tenth of it
+    private void makeRoom() {
+        purgeExpired();
+        int excess = byId.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<Entry> iterator = byId.values().iterator();
+        while (excess-- > 0 && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            removeLogins(entry);
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = byId.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt <= now) {
+                iterator.remove();
+                removeLogins(entry);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("users", byId.size());
+        stats.put("logins", byLogin.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hits);
+        stats.put("misses", missCount.get());
+        stats.put("hitRate", lookups > 0 ? (double) hits / lookups : 0.0);
+        stats.put("evictions", evictionCount.get());
+        stats.put("invalidations", invalidationCount.get());
+        return stats;
+    }
+
+    private static final class Entry {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private Entry(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
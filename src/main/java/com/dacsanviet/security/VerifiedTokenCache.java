@@ -0,0 +1,162 @@
+package com.dacsanviet.security;
+
+import com.dacsanviet.config.JwtProperties;
+import com.dacsanviet.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Access tokens that already passed signature verification, mapped to the principal they
+ * authenticated. A hit lets JwtAuthenticationFilter skip both the HMAC check and the user
+ * lookup. An entry lives until the token expires or the configured TTL passes, whichever
+ * comes first, and all entries of a user are evicted when that user's account changes.
+ *
+ * As with {@link UserPrincipalCache}, a caller takes a {@link #stamp()} before loading the
+ * token's user and passes it to {@link #put}; if any user was invalidated in between, the
+ * possibly stale principal is not cached.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    @Autowired
+    public VerifiedTokenCache(JwtProperties jwtProperties) {
+        this(jwtProperties.getVerifiedCacheSize(), jwtProperties.getVerifiedCacheTtl());
+    }
+
+    VerifiedTokenCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Principal for a previously verified token, or null if it must be verified again
+     */
+    public UserPrincipal get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(token, entry);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.principal;
+    }
+
+    /**
+     * Current invalidation generation, to be taken before loading a token's user
+     */
+    public long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * Remember a verified token until its expiry, capped at the cache TTL, unless a user
+     * was invalidated since {@code stamp}
+     */
+    public void put(String token, UserPrincipal principal, long tokenExpiresAt, long stamp) {
+        if (maxEntries <= 0 || generation.get() != stamp) {
+            return;
+        }
+        long expiresAt = Math.min(tokenExpiresAt, System.currentTimeMillis() + ttlMillis);
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maxEntries && !entries.containsKey(token)) {
+            makeRoom();
+        }
+        Entry entry = new Entry(principal, expiresAt);
+        entries.put(token, entry);
+        // Lost a race with an invalidation: undo rather than keep a stale entry
+        if (generation.get() != stamp) {
+            entries.remove(token, entry);
+        }
+    }
+
+    /**
+     * Evict every cached token of a user, after the surrounding transaction commits so a
+     * concurrent request cannot cache the old state again in between
+     */
+    public void invalidateUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.run(() -> evictUser(userId));
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private void evictUser(Long userId) {
+        generation.incrementAndGet();
+        if (entries.values().removeIf(entry -> userId.equals(entry.principal.getId()))) {
+            invalidationCount.incrementAndGet();
+        }
+    }
+
+    // Drop expired entries first; if the cache is still full, drop an arbitrary tenth of it
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (excess-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    public Map<String, Object> getStats() {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hits);
+        stats.put("misses", missCount.get());
+        stats.put("hitRate", lookups > 0 ? (double) hits / lookups : 0.0);
+        stats.put("evictions", evictionCount.get());
+        stats.put("userInvalidations", invalidationCount.get());
+        return stats;
+    }
+
+    private static final class Entry {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private Entry(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
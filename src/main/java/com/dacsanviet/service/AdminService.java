@@ -5,6 +5,7 @@ import com.dacsanviet.dto.UpdateOrderStatusRequest;
 import com.dacsanviet.model.*;
 import com.dacsanviet.model.Role;
 import com.dacsanviet.repository.*;
+import com.dacsanviet.security.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -36,6 +37,10 @@ public class AdminService {
     private final OrderService orderService;
     private final UserService userService;
     private final NotificationService notificationService;
+    private final StockReservationService stockReservationService;
+    private final SalesRollupService salesRollupService;
+    private final OrderAnalyticsService orderAnalyticsService;
+    private final UserPrincipalCache userPrincipalCache;
     
     @Autowired
     public AdminService(OrderRepository orderRepository,
@@ -44,7 +49,11 @@ public class AdminService {
                        CategoryRepository categoryRepository,
                        OrderService orderService,
                        UserService userService,
-                       NotificationService notificationService) {
+                       NotificationService notificationService,
+                       StockReservationService stockReservationService,
+                       SalesRollupService salesRollupService,
+                       OrderAnalyticsService orderAnalyticsService,
+                       UserPrincipalCache userPrincipalCache) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
@@ -52,6 +61,10 @@ public class AdminService {
         this.orderService = orderService;
         this.userService = userService;
         this.notificationService = notificationService;
+        this.stockReservationService = stockReservationService;
+        this.salesRollupService = salesRollupService;
+        this.orderAnalyticsService = orderAnalyticsService;
+        this.userPrincipalCache = userPrincipalCache;
     }
     
     // ===== ORDER STATUS UPDATE WITH NOTIFICATIONS =====
@@ -69,14 +82,16 @@ public class AdminService {
         // Validate status transition
         validateStatusTransition(previousStatus, request.getStatus());
         
-        // Update order status
+        // Update order status; an unpaid online order being fulfilled keeps its stock
         order.setStatus(request.getStatus());
+        stockReservationService.commitForStatus(order.getId(), request.getStatus());
         
         // Update additional fields based on status
         updateOrderFieldsByStatus(order, request);
         
         // Save order
         order = orderRepository.save(order);
+        salesRollupService.recordStatusChange(order, previousStatus, order.getStatus());
         
         // Send notifications to customer
         sendCustomerStatusNotification(order, previousStatus, adminUsername);
@@ -138,19 +153,14 @@ public class AdminService {
         UserDao customerDto = convertToUserDto(customer);
         analytics.put("customer", customerDto);
         
-        // Order statistics
+        // Order statistics and status breakdown, from one grouped query
+        Map<OrderStatus, OrderAnalyticsService.StatusTotals> totals =
+                orderAnalyticsService.getTotalsByStatusForUser(customerId);
         Map<String, Object> orderStats = new HashMap<>();
-        orderStats.put("totalOrders", orderRepository.countByUserId(customerId));
-        orderStats.put("totalSpent", orderRepository.calculateTotalSpentByUser(customerId));
-        orderStats.put("averageOrderValue", orderRepository.calculateAverageOrderValueByUser(customerId));
-        
-        // Order status breakdown
-        Map<String, Long> statusBreakdown = new HashMap<>();
-        for (OrderStatus status : OrderStatus.values()) {
-            Long count = orderRepository.countByUserIdAndStatus(customerId, status);
-            statusBreakdown.put(status.name(), count);
-        }
-        orderStats.put("statusBreakdown", statusBreakdown);
+        orderStats.put("totalOrders", OrderAnalyticsService.countAll(totals));
+        orderStats.put("totalSpent", OrderAnalyticsService.revenue(totals));
+        orderStats.put("averageOrderValue", OrderAnalyticsService.averageOrderValue(totals));
+        orderStats.put("statusBreakdown", OrderAnalyticsService.countsByName(totals));
         
         analytics.put("orderStatistics", orderStats);
         
@@ -177,6 +187,7 @@ public class AdminService {
         boolean previousStatus = customer.getIsActive();
         customer.setIsActive(activate);
         customer = userRepository.save(customer);
+        userPrincipalCache.invalidateUser(customerId);
         
         // Send notification to customer
         String action = activate ? "activated" : "deactivated";
@@ -255,9 +266,10 @@ public class AdminService {
             // Main statistics that the template expects
             Map<String, Object> statistics = new HashMap<>();
             statistics.put("totalCustomers", userRepository.count());
-            statistics.put("totalOrders", orderRepository.count());
+            OrderStatisticsDao orderStatistics = orderAnalyticsService.getOrderStatisticsSnapshot();
+            statistics.put("totalOrders", orderStatistics.getTotalOrders());
             statistics.put("totalProducts", productRepository.count());
-            statistics.put("totalRevenue", orderRepository.calculateTotalRevenue() != null ? orderRepository.calculateTotalRevenue() : BigDecimal.ZERO);
+            statistics.put("totalRevenue", orderStatistics.getTotalRevenue());
             
             dashboard.put("statistics", statistics);
             
@@ -279,8 +291,10 @@ public class AdminService {
             
             Map<String, Object> todayMetrics = new HashMap<>();
             try {
-                todayMetrics.put("ordersToday", orderRepository.countOrdersBetweenDates(todayStart, now));
-                todayMetrics.put("revenueToday", orderRepository.calculateRevenueBetweenDates(todayStart, now));
+                Map<OrderStatus, OrderAnalyticsService.StatusTotals> today =
+                        orderAnalyticsService.getTotalsByStatusBetween(todayStart, now);
+                todayMetrics.put("ordersToday", OrderAnalyticsService.countAll(today));
+                todayMetrics.put("revenueToday", OrderAnalyticsService.revenue(today));
             } catch (Exception e) {
                 todayMetrics.put("ordersToday", 0L);
                 todayMetrics.put("revenueToday", BigDecimal.ZERO);
@@ -358,11 +372,11 @@ public class AdminService {
     }
     
     private void restoreInventoryForCancelledOrder(Order order) {
+        Map<Long, Integer> restored = new HashMap<>();
         for (OrderItem orderItem : order.getOrderItems()) {
-            Product product = orderItem.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + orderItem.getQuantity());
-            productRepository.save(product);
+            restored.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
         }
+        stockReservationService.cancel(order.getId(), restored);
     }
     
     private void sendCustomerStatusNotification(Order order, OrderStatus previousStatus, String adminUsername) {
@@ -547,11 +561,8 @@ public class AdminService {
         report.put("fulfillmentMetrics", fulfillmentMetrics);
         
         // Order status distribution
-        Map<String, Long> statusDistribution = new HashMap<>();
-        for (OrderStatus status : OrderStatus.values()) {
-            statusDistribution.put(status.name(), orderRepository.countByStatusAndDateRange(status, startDate, endDate));
-        }
-        report.put("orderStatusDistribution", statusDistribution);
+        report.put("orderStatusDistribution", OrderAnalyticsService.countsByName(
+                orderAnalyticsService.getTotalsByStatusBetween(startDate, endDate)));
         
         return report;
     }
@@ -0,0 +1,25 @@
+package com.dacsanviet.service;
+
+import java.util.Map;
+
+import org.springframework.messaging.Message;
+
+/**
+ * Fans STOMP broker messages produced on this node out to the other nodes. Every node keeps
+ * its own in-memory broker for the clients connected to it; the relay only carries messages
+ * between nodes. See LocalBrokerRelay (single node) and StompBrokerRelay (multi-node).
+ */
+public interface BrokerRelay {
+
+    /**
+     * Header set on messages received from another node, so they are not relayed again
+     */
+    String RELAYED_HEADER = "relayedFromNode";
+
+    /**
+     * Forward a message that was just sent to the local broker; must not block
+     */
+    void relay(Message<?> message);
+
+    Map<String, Object> getStats();
+}
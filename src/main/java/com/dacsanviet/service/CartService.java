@@ -113,7 +113,7 @@ public class CartService {
     /**
      * Get user's cart
      */
-    @Cacheable(value = "userCarts", key = "#userId")
+    @Cacheable(value = "userCarts", key = "#userId", sync = true)
     @Transactional(readOnly = true)
     public CartDao getCart(Long userId) {
         getUserById(userId); // Validate user exists
@@ -25,10 +25,16 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private CategoryTreeSnapshot categoryTreeSnapshot;
+    
+    @Autowired
+    private ProductCacheInvalidator productCacheInvalidator;
+    
     /**
      * Get all active categories
      */
-    @Cacheable(value = "categories", key = "'active'")
+    @Cacheable(value = "categories", key = "'active'", sync = true)
     @Transactional(readOnly = true)
     public List<CategoryDao> getAllActiveCategories() {
         List<Category> categories = categoryRepository.findByIsActiveTrueOrderByName();
@@ -88,7 +94,7 @@ public class CategoryService {
     /**
      * Get categories with active products
      */
-    @Cacheable(value = "categories", key = "'withProducts'")
+    @Cacheable(value = "categories", key = "'withProducts'", sync = true)
     @Transactional(readOnly = true)
     public List<CategoryDao> getCategoriesWithProducts() {
         List<Category> categories = categoryRepository.findCategoriesWithActiveProducts();
@@ -146,6 +152,7 @@ public class CategoryService {
         category.setIsActive(request.getIsActive() != null ? request.getIsActive() : true);
         
         Category savedCategory = categoryRepository.save(category);
+        categoryTreeSnapshot.refresh();
         return convertToDto(savedCategory);
     }
     
@@ -163,12 +170,18 @@ public class CategoryService {
             throw new RuntimeException("Category with name '" + request.getName() + "' already exists!");
         }
         
+        boolean renamed = !category.getName().equals(request.getName());
+        
         // Update category fields
         category.setName(request.getName());
         category.setDescription(request.getDescription());
         category.setIsActive(request.getIsActive());
         
         Category updatedCategory = categoryRepository.save(category);
+        categoryTreeSnapshot.refresh();
+        if (renamed) {
+            productCacheInvalidator.categoryChanged(id);
+        }
         return convertToDto(updatedCategory);
     }
     
@@ -188,6 +201,7 @@ public class CategoryService {
         
         category.setIsActive(false);
         categoryRepository.save(category);
+        categoryTreeSnapshot.refresh();
     }
     
     /**
@@ -199,6 +213,7 @@ public class CategoryService {
         
         category.setIsActive(!category.getIsActive());
         Category updatedCategory = categoryRepository.save(category);
+        categoryTreeSnapshot.refresh();
         return convertToDto(updatedCategory);
     }
     
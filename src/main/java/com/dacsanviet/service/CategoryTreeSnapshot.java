@@ -0,0 +1,209 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.repository.CategoryRepository;
+import com.dacsanviet.util.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The header category menu as an immutable tree of plain nodes, built from one flat query
+ * and swapped in whole, so page renders read it without touching the database.
+ *
+ * Roots are the active top-level categories by name, each with its children and their
+ * children (in id order, as the menu has always listed them). Category writes call
+ * {@link #refresh()}, which rebuilds after the transaction commits; a periodic reload
+ * repairs anything changed elsewhere.
+ */
+@Service
+public class CategoryTreeSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryTreeSnapshot.class);
+
+    // Root, child and grandchild: the levels the header menu renders
+    private static final int MAX_DEPTH = 3;
+
+    private final CategoryRepository categoryRepository;
+    private final PageOutputCache pageOutputCache;
+
+    private volatile Tree tree;
+
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private final AtomicLong lastRebuildMillis = new AtomicLong();
+    private volatile LocalDateTime lastRebuildAt;
+
+    @Autowired
+    public CategoryTreeSnapshot(CategoryRepository categoryRepository, PageOutputCache pageOutputCache) {
+        this.categoryRepository = categoryRepository;
+        this.pageOutputCache = pageOutputCache;
+    }
+
+    /**
+     * Root categories for the header menu
+     */
+    public List<CategoryNode> getRootCategories() {
+        return current().roots;
+    }
+
+    /**
+     * All active categories by name
+     */
+    public List<CategoryNode> getActiveCategories() {
+        return current().active;
+    }
+
+    /**
+     * Rebuild once the current transaction commits (immediately outside one), then drop
+     * cached pages whose header menu shows the old tree
+     */
+    public void refresh() {
+        AfterCommit.run(() -> reloadAndEvictPages());
+    }
+
+    private void reloadAndEvictPages() {
+        reload();
+        pageOutputCache.evictTags(PageOutputCache.CATEGORY_TREE_TAG);
+    }
+
+    /**
+     * Load the tree after startup data loading, then every
+     * {@code app.category-tree.reload-interval-ms}
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.category-tree.reload-interval-ms:600000}",
+               fixedDelayString = "${app.category-tree.reload-interval-ms:600000}")
+    public synchronized void reload() {
+        try {
+            long start = System.currentTimeMillis();
+            tree = build(categoryRepository.findCategoryTreeRows());
+            lastRebuildMillis.set(System.currentTimeMillis() - start);
+            rebuildCount.incrementAndGet();
+            lastRebuildAt = LocalDateTime.now();
+        } catch (Exception e) {
+            logger.error("Error loading category tree: {}", e.getMessage(), e);
+        }
+    }
+
+    private Tree current() {
+        Tree snapshot = tree;
+        if (snapshot == null) {
+            // A request served before the ready event
+            reload();
+            snapshot = tree;
+        }
+        return snapshot != null ? snapshot : Tree.EMPTY;
+    }
+
+    /**
+     * Build the tree from [id, name, imageUrl, isActive, parentId] rows ordered by name
+     */
+    static Tree build(List<Object[]> rows) {
+        Map<Long, List<Object[]>> childRows = new HashMap<>();
+        List<Object[]> rootRows = new ArrayList<>();
+        List<CategoryNode> active = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long parentId = (Long) row[4];
+            boolean isActive = Boolean.TRUE.equals(row[3]);
+            if (parentId == null) {
+                if (isActive) {
+                    rootRows.add(row);
+                }
+            } else {
+                childRows.computeIfAbsent(parentId, key -> new ArrayList<>()).add(row);
+            }
+            if (isActive) {
+                active.add(new CategoryNode((Long) row[0], (String) row[1], (String) row[2], List.of()));
+            }
+        }
+        childRows.values().forEach(children -> children.sort(Comparator.comparing(row -> (Long) row[0])));
+
+        List<CategoryNode> roots = new ArrayList<>(rootRows.size());
+        for (Object[] row : rootRows) {
+            roots.add(node(row, childRows, 1));
+        }
+        return new Tree(List.copyOf(roots), List.copyOf(active));
+    }
+
+    private static CategoryNode node(Object[] row, Map<Long, List<Object[]>> childRows, int depth) {
+        List<CategoryNode> children = new ArrayList<>();
+        if (depth < MAX_DEPTH) {
+            for (Object[] child : childRows.getOrDefault((Long) row[0], List.of())) {
+                children.add(node(child, childRows, depth + 1));
+            }
+        }
+        return new CategoryNode((Long) row[0], (String) row[1], (String) row[2], List.copyOf(children));
+    }
+
+    /**
+     * Category tree statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Tree snapshot = tree != null ? tree : Tree.EMPTY;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rootCategories", snapshot.roots.size());
+        stats.put("activeCategories", snapshot.active.size());
+        stats.put("rebuilds", rebuildCount.get());
+        stats.put("lastRebuildMillis", lastRebuildMillis.get());
+        stats.put("lastRebuildAt", lastRebuildAt);
+        return stats;
+    }
+
+    static final class Tree {
+
+        static final Tree EMPTY = new Tree(List.of(), List.of());
+
+        final List<CategoryNode> roots;
+        final List<CategoryNode> active;
+
+        Tree(List<CategoryNode> roots, List<CategoryNode> active) {
+            this.roots = roots;
+            this.active = active;
+        }
+    }
+
+    /**
+     * A category in the header menu
+     */
+    public static final class CategoryNode {
+
+        private final Long id;
+        private final String name;
+        private final String imageUrl;
+        private final List<CategoryNode> children;
+
+        CategoryNode(Long id, String name, String imageUrl, List<CategoryNode> children) {
+            this.id = id;
+            this.name = name;
+            this.imageUrl = imageUrl;
+            this.children = children;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getImageUrl() {
+            return imageUrl;
+        }
+
+        public List<CategoryNode> getChildren() {
+            return children;
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package com.dacsanviet.service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dacsanviet.config.ChatJournalProperties;
+import com.dacsanviet.entity.ChatMessage;
+import com.dacsanviet.repository.ChatMessageRepository;
+
+/**
+ * Write-behind journal for chat messages. Senders append a message and return at once;
+ * a flusher thread writes buffered messages to chat_messages as one JDBC batch when
+ * batchSize writes are waiting or the oldest has waited flushIntervalMs. "Mark as read"
+ * requests go through the same journal and are written as one batched UPDATE.
+ *
+ * The journal is bounded: when it is full, senders wait up to appendTimeoutMs for room.
+ * When the database rejects a batch its entries are written one at a time: an entry whose
+ * data the database refuses (too long, a constraint) is logged and dropped, and on any
+ * other failure (database unreachable, schema) the rest are kept and retried. Messages
+ * get their id when they are written, not when they are appended. On shutdown the flusher stops and
+ * everything still buffered is written before the DataSource closes; a message sent
+ * after that is written straight away.
+ *
+ * The last 50 messages of each recently active session are kept in a ring buffer, so
+ * the chat history a widget loads on every page is served from memory. A session is
+ * loaded from the database once, merged with its writes that are still buffered.
+ * Queries that go to the database directly (unread counts, full history) can lag the
+ * journal by one flush interval.
+ */
+@Service
+public class ChatMessageJournal implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageJournal.class);
+
+    static final int RECENT_MESSAGES = 50;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO chat_messages (session_id, sender_name, sender_email, message, message_type, " +
+            "created_at, is_read, admin_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String MARK_READ_SQL =
+            "UPDATE chat_messages SET is_read = TRUE WHERE session_id = ? AND message_type = 'USER' AND is_read = FALSE";
+
+    private final ChatJournalProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatMessageRepository chatMessageRepository;
+
+    private final BlockingQueue<JournalEntry> queue;
+    private final Map<String, RecentMessages> recent = new ConcurrentHashMap<>();
+
+    // Entries taken from the queue but not yet committed; only touched while holding flushLock
+    private final Object flushLock = new Object();
+    private final List<JournalEntry> unwritten = new ArrayList<>();
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private volatile Thread flusherThread;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong readMarks = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong droppedEntries = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong recentHits = new AtomicLong();
+    private final AtomicLong recentLoads = new AtomicLong();
+
+    @Autowired
+    public ChatMessageJournal(ChatJournalProperties properties, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, ChatMessageRepository chatMessageRepository) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chatMessageRepository = chatMessageRepository;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    /**
+     * Buffer a new message for insertion and add it to its session's recent messages
+     */
+    public void append(ChatMessage message) {
+        offer(new JournalEntry(message, null));
+        appended.incrementAndGet();
+        RecentMessages messages = recent.get(message.getSessionId());
+        if (messages != null) {
+            messages.add(message);
+        }
+    }
+
+    /**
+     * Buffer marking a session's user messages as read, including ones not yet written
+     */
+    public void markSessionAsRead(String sessionId) {
+        offer(new JournalEntry(null, sessionId));
+        readMarks.incrementAndGet();
+        RecentMessages messages = recent.get(sessionId);
+        if (messages != null) {
+            messages.markRead();
+        }
+    }
+
+    /**
+     * Last 50 messages of a session, oldest first
+     */
+    public List<ChatMessage> getRecentMessages(String sessionId) {
+        RecentMessages messages = recent.get(sessionId);
+        if (messages != null && messages.isLoaded()) {
+            recentHits.incrementAndGet();
+            return messages.snapshot();
+        }
+        recentLoads.incrementAndGet();
+        return load(sessionId);
+    }
+
+    /**
+     * Write everything buffered so far, on the caller's thread
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            while (!unwritten.isEmpty() || !queue.isEmpty()) {
+                if (!writeBatch()) {
+                    throw new RuntimeException("Chat messages could not be written, " + unwritten.size()
+                            + " kept for retry");
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the in-memory recent messages, e.g. after old messages were deleted
+     */
+    public void clearRecent() {
+        recent.clear();
+    }
+
+    private void offer(JournalEntry entry) {
+        entry.enqueuedAt = System.nanoTime();
+        if (!queue.offer(entry)) {
+            backpressureWaits.incrementAndGet();
+            wakeFlusher();
+            try {
+                if (!queue.offer(entry, properties.getAppendTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    throw new RuntimeException("Chat journal is full, message not accepted");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for room in the chat journal");
+            }
+        }
+        if (stopped) {
+            // Late sends during shutdown have no flusher any more
+            flush();
+        } else if (queue.size() >= properties.getBatchSize()) {
+            wakeFlusher();
+        }
+    }
+
+    private void wakeFlusher() {
+        Thread flusher = flusherThread;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    // ===== RECENT MESSAGES =====
+
+    private List<ChatMessage> load(String sessionId) {
+        synchronized (flushLock) {
+            // Created while no batch is in flight: every message of the session is now either
+            // in the database, in unwritten or in the queue, or is appended to this buffer
+            RecentMessages messages = recent.computeIfAbsent(sessionId, key -> new RecentMessages());
+            if (messages.isLoaded()) {
+                return messages.snapshot();
+            }
+            List<ChatMessage> stored = new ArrayList<>(chatMessageRepository.findRecentMessagesBySessionId(sessionId));
+            Collections.reverse(stored);
+
+            List<ChatMessage> buffered = new ArrayList<>();
+            for (JournalEntry entry : unwritten) {
+                collect(entry, sessionId, buffered);
+            }
+            for (JournalEntry entry : queue) {
+                collect(entry, sessionId, buffered);
+            }
+            messages.seed(stored, buffered);
+            makeRoom();
+            return messages.snapshot();
+        }
+    }
+
+    private void collect(JournalEntry entry, String sessionId, List<ChatMessage> buffered) {
+        if (entry.message != null && sessionId.equals(entry.message.getSessionId())) {
+            buffered.add(entry.message);
+        } else if (sessionId.equals(entry.readSessionId)) {
+            buffered.stream()
+                    .filter(message -> message.getMessageType() == ChatMessage.MessageType.USER)
+                    .forEach(message -> message.setIsRead(true));
+        }
+    }
+
+    private void makeRoom() {
+        int limit = properties.getRecentSessions();
+        if (recent.size() <= limit) {
+            return;
+        }
+        Iterator<String> sessions = recent.keySet().iterator();
+        int toRemove = recent.size() - limit + Math.max(1, limit / 10);
+        while (sessions.hasNext() && toRemove-- > 0) {
+            sessions.next();
+            sessions.remove();
+        }
+    }
+
+    // ===== FLUSHING =====
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::runFlusher, "chat-journal-flusher");
+        thread.setDaemon(true);
+        flusherThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        stopped = true;
+        Thread thread = flusherThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flusherThread = null;
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Chat journal stopped with {} unwritten entries: {}", unwritten.size() + queue.size(),
+                    e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server and the WebSocket handlers, so no request appends after the final flush
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void runFlusher() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        while (running) {
+            JournalEntry head = queue.peek();
+            long waitNanos = intervalNanos;
+            if (head != null) {
+                long age = System.nanoTime() - head.enqueuedAt;
+                if (queue.size() >= properties.getBatchSize() || age >= intervalNanos) {
+                    boolean ok;
+                    synchronized (flushLock) {
+                        ok = writeBatch();
+                    }
+                    if (!ok) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(properties.getRetryDelayMs()));
+                    }
+                    continue;
+                }
+                waitNanos = intervalNanos - age;
+            }
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    /**
+     * Write the retained batch, or the next batch from the queue, in one transaction; if
+     * that fails, entry by entry. Caller holds flushLock. Returns false if entries are
+     * kept for retry.
+     */
+    private boolean writeBatch() {
+        if (unwritten.isEmpty()) {
+            queue.drainTo(unwritten, properties.getBatchSize());
+        }
+        if (unwritten.isEmpty()) {
+            return true;
+        }
+
+        // Read marks are written first, so they only reach rows inserted by earlier batches;
+        // messages in this batch are marked in memory if a later entry reads their session
+        List<ChatMessage> inserts = new ArrayList<>();
+        Set<String> reads = new LinkedHashSet<>();
+        Map<String, List<ChatMessage>> unreadBySession = new HashMap<>();
+        for (JournalEntry entry : unwritten) {
+            if (entry.message != null) {
+                inserts.add(entry.message);
+                if (entry.message.getMessageType() == ChatMessage.MessageType.USER) {
+                    unreadBySession.computeIfAbsent(entry.message.getSessionId(), key -> new ArrayList<>())
+                            .add(entry.message);
+                }
+            } else {
+                reads.add(entry.readSessionId);
+                List<ChatMessage> earlier = unreadBySession.remove(entry.readSessionId);
+                if (earlier != null) {
+                    earlier.forEach(message -> message.setIsRead(true));
+                }
+            }
+        }
+
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!reads.isEmpty()) {
+                    jdbcTemplate.batchUpdate(MARK_READ_SQL, new ArrayList<>(reads), reads.size(),
+                            (ps, sessionId) -> ps.setString(1, sessionId));
+                }
+                if (!inserts.isEmpty()) {
+                    insertAll(inserts);
+                }
+            });
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            logger.warn("Failed to write {} chat journal entries as one batch, writing them one at a time: {}",
+                    unwritten.size(), e.getMessage());
+            return writeOneByOne();
+        }
+
+        long elapsed = System.nanoTime() - started;
+        flushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        batches.incrementAndGet();
+        written.addAndGet(unwritten.size());
+        unwritten.clear();
+        return true;
+    }
+
+    /**
+     * Write the retained entries one transaction each, so a row the database refuses does
+     * not hold back the others. Stops at the first failure that is not about the row's data.
+     */
+    private boolean writeOneByOne() {
+        Iterator<JournalEntry> entries = unwritten.iterator();
+        while (entries.hasNext()) {
+            JournalEntry entry = entries.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (entry.message != null) {
+                        insertAll(List.of(entry.message));
+                    } else {
+                        jdbcTemplate.update(MARK_READ_SQL, entry.readSessionId);
+                    }
+                });
+                written.incrementAndGet();
+            } catch (DataIntegrityViolationException e) {
+                droppedEntries.incrementAndGet();
+                logger.error("Dropping chat message for session {} that the database rejected: {}",
+                        entry.message != null ? entry.message.getSessionId() : entry.readSessionId, e.getMessage());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write chat journal entries, keeping {} for retry: {}", unwritten.size(),
+                        e.getMessage());
+                return false;
+            }
+            entries.remove();
+        }
+        return true;
+    }
+
+    private void insertAll(List<ChatMessage> messages) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (ChatMessage message : messages) {
+                    ps.setString(1, message.getSessionId());
+                    ps.setString(2, message.getSenderName());
+                    ps.setString(3, message.getSenderEmail());
+                    ps.setString(4, message.getMessage());
+                    ps.setString(5, message.getMessageType().name());
+                    ps.setTimestamp(6, Timestamp.valueOf(message.getCreatedAt()));
+                    ps.setBoolean(7, Boolean.TRUE.equals(message.getIsRead()));
+                    if (message.getAdminId() != null) {
+                        ps.setLong(8, message.getAdminId());
+                    } else {
+                        ps.setNull(8, Types.BIGINT);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int index = 0;
+                    while (keys.next() && index < messages.size()) {
+                        messages.get(index++).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        int unwrittenCount;
+        synchronized (flushLock) {
+            unwrittenCount = unwritten.size();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("retained", unwrittenCount);
+        stats.put("queueCapacity", properties.getQueueCapacity());
+        stats.put("appended", appended.get());
+        stats.put("readMarks", readMarks.get());
+        stats.put("written", written.get());
+        stats.put("batches", batchCount);
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("droppedEntries", droppedEntries.get());
+        stats.put("backpressureWaits", backpressureWaits.get());
+        stats.put("avgBatchMs", batchCount == 0 ? 0.0 : flushNanos.get() / 1_000_000.0 / batchCount);
+        stats.put("maxBatchMs", maxFlushNanos.get() / 1_000_000.0);
+        stats.put("recentSessions", recent.size());
+        stats.put("recentHits", recentHits.get());
+        stats.put("recentLoads", recentLoads.get());
+        return stats;
+    }
+
+    private static final class JournalEntry {
+        private final ChatMessage message;
+        private final String readSessionId;
+        private long enqueuedAt;
+
+        private JournalEntry(ChatMessage message, String readSessionId) {
+            this.message = message;
+            this.readSessionId = readSessionId;
+        }
+    }
+
+    /**
+     * Ring of a session's newest messages. Until it is loaded, appends are only collected
+     * so the load can merge them with what it read.
+     */
+    private static final class RecentMessages {
+        private final ArrayDeque<ChatMessage> ring = new ArrayDeque<>(RECENT_MESSAGES);
+        private final List<ChatMessage> appendedBeforeLoad = new ArrayList<>();
+        private boolean loaded;
+
+        private synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        private synchronized void add(ChatMessage message) {
+            if (loaded) {
+                push(message);
+            } else {
+                appendedBeforeLoad.add(message);
+            }
+        }
+
+        private synchronized void markRead() {
+            for (ChatMessage message : loaded ? ring : appendedBeforeLoad) {
+                if (message.getMessageType() == ChatMessage.MessageType.USER) {
+                    message.setIsRead(true);
+                }
+            }
+        }
+
+        /**
+         * Stored rows (already written, ids set), then buffered writes in journal order, then
+         * messages appended meanwhile; a message seen twice is kept once
+         */
+        private synchronized void seed(List<ChatMessage> stored, List<ChatMessage> buffered) {
+            Set<Long> storedIds = new HashSet<>();
+            Set<ChatMessage> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<ChatMessage> merged = new ArrayList<>(stored);
+            for (ChatMessage message : stored) {
+                storedIds.add(message.getId());
+            }
+            List<ChatMessage> candidates = new ArrayList<>(buffered);
+            candidates.addAll(appendedBeforeLoad);
+            for (ChatMessage message : candidates) {
+                if (seen.add(message) && (message.getId() == null || !storedIds.contains(message.getId()))) {
+                    merged.add(message);
+                }
+            }
+            appendedBeforeLoad.clear();
+            merged.forEach(this::push);
+            loaded = true;
+        }
+
+        private void push(ChatMessage message) {
+            if (ring.size() == RECENT_MESSAGES) {
+                ring.pollFirst();
+            }
+            ring.addLast(message);
+        }
+
+        private synchronized List<ChatMessage> snapshot() {
+            return new ArrayList<>(ring);
+        }
+    }
+}
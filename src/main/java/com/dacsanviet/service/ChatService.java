@@ -3,7 +3,6 @@ package com.dacsanviet.service;
 import com.dacsanviet.entity.ChatMessage;
 import com.dacsanviet.repository.ChatMessageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,27 +11,36 @@ import java.util.List;
 import java.util.UUID;
 
 /**
- * Service for handling chat operations
+ * Service for handling chat operations. New messages and read marks are buffered in the
+ * ChatMessageJournal and written in batches; they are broadcast without waiting for it.
+ * A message that is broadcast or returned has therefore no id yet (it is set once the
+ * journal writes it), so clients must not rely on the id of a message they just received.
  */
 @Service
-@Transactional
 public class ChatService {
     
     @Autowired
     private ChatMessageRepository chatMessageRepository;
     
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ChatMessageJournal chatMessageJournal;
+    
+    @Autowired
+    private ChatUnreadCounter chatUnreadCounter;
+    
+    @Autowired
+    private OutboundMessageDispatcher outboundDispatcher;
     
     /**
      * Send a user message
      */
     public ChatMessage sendUserMessage(String sessionId, String senderName, String senderEmail, String message) {
         ChatMessage chatMessage = new ChatMessage(sessionId, senderName, senderEmail, message, ChatMessage.MessageType.USER);
-        chatMessage = chatMessageRepository.save(chatMessage);
+        chatMessageJournal.append(chatMessage);
+        chatUnreadCounter.messageReceived(sessionId);
         
         // Notify admin about new message
-        messagingTemplate.convertAndSend("/topic/admin/new-message", chatMessage);
+        outboundDispatcher.send("/topic/admin/new-message", chatMessage);
         
         return chatMessage;
     }
@@ -44,10 +52,10 @@ public class ChatService {
         ChatMessage chatMessage = new ChatMessage(sessionId, message, ChatMessage.MessageType.ADMIN);
         chatMessage.setAdminId(adminId);
         chatMessage.setIsRead(true); // Admin messages are automatically read
-        chatMessage = chatMessageRepository.save(chatMessage);
+        chatMessageJournal.append(chatMessage);
         
         // Send message to specific user session
-        messagingTemplate.convertAndSend("/topic/chat/" + sessionId, chatMessage);
+        outboundDispatcher.send("/topic/chat/" + sessionId, chatMessage);
         
         return chatMessage;
     }
@@ -58,10 +66,10 @@ public class ChatService {
     public ChatMessage sendSystemMessage(String sessionId, String message) {
         ChatMessage chatMessage = new ChatMessage(sessionId, message, ChatMessage.MessageType.SYSTEM);
         chatMessage.setIsRead(true); // System messages are automatically read
-        chatMessage = chatMessageRepository.save(chatMessage);
+        chatMessageJournal.append(chatMessage);
         
         // Send to user session
-        messagingTemplate.convertAndSend("/topic/chat/" + sessionId, chatMessage);
+        outboundDispatcher.send("/topic/chat/" + sessionId, chatMessage);
         
         return chatMessage;
     }
@@ -75,14 +83,10 @@ public class ChatService {
     }
     
     /**
-     * Get recent messages for a session (last 50)
+     * Get recent messages for a session (last 50, oldest first), from memory once loaded
      */
-    @Transactional(readOnly = true)
     public List<ChatMessage> getRecentMessages(String sessionId) {
-        List<ChatMessage> messages = chatMessageRepository.findRecentMessagesBySessionId(sessionId);
-        // Reverse to get chronological order (oldest first)
-        java.util.Collections.reverse(messages);
-        return messages;
+        return chatMessageJournal.getRecentMessages(sessionId);
     }
     
     /**
@@ -94,29 +98,28 @@ public class ChatService {
     }
     
     /**
-     * Get sessions with unread messages
+     * Get sessions with unread messages (in-memory counters)
      */
-    @Transactional(readOnly = true)
     public List<String> getSessionsWithUnreadMessages() {
-        return chatMessageRepository.findSessionsWithUnreadMessages();
+        return chatUnreadCounter.getSessionsWithUnread();
     }
     
     /**
-     * Count unread messages
+     * Count unread messages (in-memory counters)
      */
-    @Transactional(readOnly = true)
     public Long countUnreadMessages() {
-        return chatMessageRepository.countUnreadUserMessages();
+        return chatUnreadCounter.getUnreadCount();
     }
     
     /**
      * Mark messages in a session as read
      */
     public void markSessionAsRead(String sessionId) {
-        chatMessageRepository.markSessionMessagesAsRead(sessionId);
+        chatMessageJournal.markSessionAsRead(sessionId);
+        chatUnreadCounter.markRead(sessionId);
         
         // Notify admin about read status update
-        messagingTemplate.convertAndSend("/topic/admin/messages-read", sessionId);
+        outboundDispatcher.sendLatest("/topic/admin/messages-read", sessionId, sessionId);
     }
     
     /**
@@ -137,9 +140,12 @@ public class ChatService {
     /**
      * Clean up old messages (older than 30 days)
      */
+    @Transactional
     public void cleanupOldMessages() {
+        chatMessageJournal.flush();
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(30);
         chatMessageRepository.deleteOldMessages(cutoffDate);
+        chatMessageJournal.clearRecent();
     }
     
     /**
@@ -0,0 +1,120 @@
+package com.dacsanviet.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.dacsanviet.repository.ChatMessageRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Unread user messages per chat session, kept in memory so the admin console's unread
+ * count and session list are read without aggregating chat_messages. Counts are loaded
+ * from the database once at startup, before the web server accepts requests, and then
+ * follow ChatService: a user message increments its session, "mark as read" clears it.
+ *
+ * Every change is pushed to /topic/admin/unread as {sessionId, sessionUnread, totalUnread};
+ * updates for a session still waiting in the outbound queue are coalesced.
+ */
+@Service
+public class ChatUnreadCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatUnreadCounter.class);
+
+    static final String UNREAD_TOPIC = "/topic/admin/unread";
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final OutboundMessageDispatcher outboundDispatcher;
+
+    private final Map<String, LongAdder> unread = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+
+    @Autowired
+    public ChatUnreadCounter(ChatMessageRepository chatMessageRepository, OutboundMessageDispatcher outboundDispatcher) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.outboundDispatcher = outboundDispatcher;
+    }
+
+    /**
+     * Load the unread counts from the database
+     */
+    @PostConstruct
+    public void rebuild() {
+        try {
+            Map<String, Long> counts = new HashMap<>();
+            for (Object[] row : chatMessageRepository.countUnreadUserMessagesBySession()) {
+                counts.put((String) row[0], ((Number) row[1]).longValue());
+            }
+            unread.clear();
+            total.reset();
+            counts.forEach((sessionId, count) -> {
+                LongAdder adder = new LongAdder();
+                adder.add(count);
+                unread.put(sessionId, adder);
+                total.add(count);
+            });
+            logger.info("Loaded unread chat counts: {} messages in {} sessions", total.sum(), unread.size());
+        } catch (Exception e) {
+            logger.error("Error loading unread chat counts", e);
+        }
+    }
+
+    /**
+     * A user message arrived in the session
+     */
+    public void messageReceived(String sessionId) {
+        // Per-key compute keeps a concurrent markRead from losing the increment
+        LongAdder sessionCount = unread.compute(sessionId, (key, adder) -> {
+            LongAdder counter = adder != null ? adder : new LongAdder();
+            counter.increment();
+            total.increment();
+            return counter;
+        });
+        publish(sessionId, sessionCount.sum());
+    }
+
+    /**
+     * The admin read the session
+     */
+    public void markRead(String sessionId) {
+        LongAdder[] removed = new LongAdder[1];
+        unread.computeIfPresent(sessionId, (key, adder) -> {
+            total.add(-adder.sum());
+            removed[0] = adder;
+            return null;
+        });
+        if (removed[0] != null) {
+            publish(sessionId, 0);
+        }
+    }
+
+    public long getUnreadCount() {
+        return total.sum();
+    }
+
+    public long getUnreadCount(String sessionId) {
+        LongAdder adder = unread.get(sessionId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public List<String> getSessionsWithUnread() {
+        return new ArrayList<>(unread.keySet());
+    }
+
+    private void publish(String sessionId, long sessionUnread) {
+        Map<String, Object> update = new HashMap<>();
+        update.put("sessionId", sessionId);
+        update.put("sessionUnread", sessionUnread);
+        update.put("totalUnread", total.sum());
+        outboundDispatcher.sendLatest(UNREAD_TOPIC, sessionId, update);
+    }
+}
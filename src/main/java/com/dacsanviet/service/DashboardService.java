@@ -12,6 +12,7 @@ import com.dacsanviet.repository.UserRepository;
 import com.dacsanviet.repository.NewsArticleRepository;
 import com.dacsanviet.repository.NewsCategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -48,28 +49,40 @@ public class DashboardService {
     @Autowired
     private NewsCategoryRepository newsCategoryRepository;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private NewsViewCounter newsViewCounter;
+
     /**
-     * Get Dashboard Statistics
+     * Get Dashboard Statistics (cached for a few seconds per period)
      */
+    @Cacheable(value = "dashboardSnapshots", key = "T(com.dacsanviet.config.CacheKeys).dashboardStats(#period)", sync = true)
     public Map<String, Object> getDashboardStatistics(String period) {
         Map<String, Object> stats = new HashMap<>();
         
-        LocalDateTime startDate = getStartDateByPeriod(period);
-        LocalDateTime endDate = LocalDateTime.now();
+        LocalDate startDate = getStartDateByPeriod(period).toLocalDate();
+        LocalDate endDate = LocalDate.now();
+        
+        // One rollup read per period: rows per status, summed over the days
+        Map<OrderStatus, SalesRollupService.Totals> current = salesRollupService.getTotalsByStatus(startDate, endDate);
+        Map<OrderStatus, SalesRollupService.Totals> previous = salesRollupService.getTotalsByStatus(
+            startDate.minusDays(30), startDate.minusDays(1));
+        SalesRollupService.Totals currentAll = SalesRollupService.combine(current, true);
+        SalesRollupService.Totals previousAll = SalesRollupService.combine(previous, true);
         
         // Total Revenue
-        BigDecimal totalRevenue = calculateTotalRevenue(startDate, endDate);
-        BigDecimal previousRevenue = calculateTotalRevenue(
-            startDate.minusDays(30), startDate);
+        BigDecimal totalRevenue = SalesRollupService.combine(current, false).getRevenue();
+        BigDecimal previousRevenue = SalesRollupService.combine(previous, false).getRevenue();
         double revenueChange = calculatePercentageChange(previousRevenue, totalRevenue);
         
         stats.put("totalRevenue", totalRevenue);
         stats.put("revenueChange", revenueChange);
         
         // Total Orders
-        long totalOrders = orderRepository.countByOrderDateBetween(startDate, endDate);
-        long previousOrders = orderRepository.countByOrderDateBetween(
-            startDate.minusDays(30), startDate);
+        long totalOrders = currentAll.getOrderCount();
+        long previousOrders = previousAll.getOrderCount();
         double ordersChange = calculatePercentageChange(
             BigDecimal.valueOf(previousOrders), BigDecimal.valueOf(totalOrders));
         
@@ -83,10 +96,9 @@ public class DashboardService {
         
         stats.put("avgOrderValue", avgOrderValue);
         
-        // New Customers
-        long newCustomers = userRepository.countByCreatedAtBetween(startDate, endDate);
-        long previousCustomers = userRepository.countByCreatedAtBetween(
-            startDate.minusDays(30), startDate);
+        // New Customers (first-time buyers)
+        long newCustomers = currentAll.getNewCustomers();
+        long previousCustomers = previousAll.getNewCustomers();
         double customersChange = calculatePercentageChange(
             BigDecimal.valueOf(previousCustomers), BigDecimal.valueOf(newCustomers));
         
@@ -103,19 +115,8 @@ public class DashboardService {
         if (startDate == null) startDate = LocalDate.now().minusDays(30);
         if (endDate == null) endDate = LocalDate.now();
         
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        
-        List<Order> orders = orderRepository.findByOrderDateBetween(start, end);
-        
-        // Group by date
-        Map<LocalDate, BigDecimal> dailySales = orders.stream()
-            .collect(Collectors.groupingBy(
-                order -> order.getOrderDate().toLocalDate(),
-                Collectors.reducing(BigDecimal.ZERO, 
-                    Order::getTotalAmount, 
-                    BigDecimal::add)
-            ));
+        // Daily totals of non-cancelled orders from the rollup
+        Map<LocalDate, SalesRollupService.Totals> dailySales = salesRollupService.getDailyTotals(startDate, endDate);
         
         // Prepare chart data
         List<String> labels = new ArrayList<>();
@@ -124,7 +125,8 @@ public class DashboardService {
         LocalDate current = startDate;
         while (!current.isAfter(endDate)) {
             labels.add(current.toString());
-            data.add(dailySales.getOrDefault(current, BigDecimal.ZERO));
+            SalesRollupService.Totals day = dailySales.get(current);
+            data.add(day != null ? day.getRevenue() : BigDecimal.ZERO);
             current = current.plusDays(1);
         }
         
@@ -188,10 +190,10 @@ public class DashboardService {
         try {
             // Get orders from last 3 days
             LocalDateTime threeDaysAgo = LocalDateTime.now().minusDays(3);
-            List<Order> orders = orderRepository.findRecentOrders(threeDaysAgo);
+            List<Order> orders = orderRepository.findRecentOrders(threeDaysAgo,
+                org.springframework.data.domain.PageRequest.of(0, limit));
             
             return orders.stream()
-                .limit(limit)
                 .map(order -> {
                     try {
                         // Force load orderItems to avoid LazyInitializationException
@@ -232,14 +234,6 @@ public class DashboardService {
         }
     }
 
-    private BigDecimal calculateTotalRevenue(LocalDateTime start, LocalDateTime end) {
-        List<Order> orders = orderRepository.findByOrderDateBetween(start, end);
-        return orders.stream()
-            .filter(order -> order.getStatus() != OrderStatus.CANCELLED)
-            .map(Order::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     private double calculatePercentageChange(BigDecimal previous, BigDecimal current) {
         if (previous.compareTo(BigDecimal.ZERO) == 0) {
             return current.compareTo(BigDecimal.ZERO) > 0 ? 100.0 : 0.0;
@@ -276,20 +270,19 @@ public class DashboardService {
         Long totalPublished = articlesByStatus.getOrDefault("PUBLISHED", 0L);
         analytics.put("totalPublishedArticles", totalPublished);
         
-        // Total views for all published articles
+        // Total views for all published articles, including views not yet written
         Long totalViews = newsArticleRepository.getTotalViewCount();
-        analytics.put("totalViews", totalViews != null ? totalViews : 0L);
+        analytics.put("totalViews", (totalViews != null ? totalViews : 0L) + newsViewCounter.pendingTotal());
         
         // Most viewed articles (top 10)
-        List<Map<String, Object>> mostViewedArticles = newsArticleRepository
-            .findMostViewedArticles(org.springframework.data.domain.PageRequest.of(0, 10))
+        List<Map<String, Object>> mostViewedArticles = newsViewCounter.findMostViewed(10)
             .stream()
             .map(article -> {
                 Map<String, Object> articleData = new HashMap<>();
                 articleData.put("id", article.getId());
                 articleData.put("title", article.getTitle());
                 articleData.put("slug", article.getSlug());
-                articleData.put("viewCount", article.getViewCount());
+                articleData.put("viewCount", newsViewCounter.viewCount(article));
                 articleData.put("publishedAt", article.getPublishedAt());
                 articleData.put("categoryName", article.getCategory() != null ? 
                     article.getCategory().getName() : "Không có danh mục");
@@ -8,26 +8,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import com.dacsanviet.dao.OrderDao;
 import com.dacsanviet.dto.ConsultationRequest;
-
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-
+import com.dacsanviet.model.MailJob;
+import com.dacsanviet.util.EmailTemplate;
+
+/**
+ * Builds customer and staff emails and hands them to the mail outbox.
+ * None of the send methods talk to SMTP; delivery happens on {@link MailDeliveryService}'s workers.
+ * Notification emails log and skip their own failures, but not a failed outbox insert: that has
+ * already marked the caller's transaction rollback-only, so it propagates.
+ */
 @Service
 public class EmailService {
 
 	private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
-	@Autowired
-	private JavaMailSender mailSender;
+	private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+	private static final DateTimeFormatter ORDER_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-	@Value("${app.mail.from}")
-	private String fromEmail;
+	@Autowired
+	private MailOutboxService mailOutboxService;
 
 	@Value("${app.mail.to}")
 	private String toEmail;
@@ -35,22 +39,8 @@ public class EmailService {
 	@Value("${app.frontend.url}")
 	private String frontendUrl;
 
-	/**
-	 * PHẦN BỔ SUNG: Gửi email văn bản đơn giản hoặc mật khẩu mới
-	 * Giải quyết lỗi trong HomeController và các logic reset mật khẩu nhanh
-	 */
-	public void sendSimpleEmail(String to, String subject, String content) throws UnsupportedEncodingException {
-		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(to);
-			helper.setSubject(subject);
-
-			// Sử dụng giao diện chung của Đặc Sản Việt để gửi mật khẩu
-			String htmlContent = String.format(
-					"""
+	private static final EmailTemplate SIMPLE_EMAIL_TEMPLATE = EmailTemplate.compile(
+			"""
 					<!DOCTYPE html>
 					<html>
 					<body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
@@ -68,37 +58,27 @@ public class EmailService {
 						</div>
 					</body>
 					</html>
-					""", content, frontendUrl);
+					""");
 
-			helper.setText(htmlContent, true);
-			mailSender.send(message);
-			logger.info("Simple email sent to: {}", to);
-		} catch (MessagingException e) {
-			logger.error("Failed to send simple email", e);
-		}
+	/**
+	 * PHẦN BỔ SUNG: Gửi email văn bản đơn giản hoặc mật khẩu mới
+	 * Giải quyết lỗi trong HomeController và các logic reset mật khẩu nhanh
+	 */
+	public void sendSimpleEmail(String to, String subject, String content) throws UnsupportedEncodingException {
+		// Sử dụng giao diện chung của Đặc Sản Việt để gửi mật khẩu
+		String htmlContent = SIMPLE_EMAIL_TEMPLATE.render(content, frontendUrl);
+
+		mailOutboxService.enqueue(MailJob.Type.SIMPLE, to, subject, htmlContent);
+		logger.info("Simple email queued for: {}", to);
 	}
 
 	// --- CÁC NỘI DUNG GỐC BÊN DƯỚI ĐƯỢC GIỮ NGUYÊN HOÀN TOÀN ---
 
 	public void sendConsultationEmail(ConsultationRequest request) throws UnsupportedEncodingException {
-		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(toEmail);
-			helper.setSubject("Yêu Cầu Tư Vấn Mới - Đặc Sản Việt");
-
-			String htmlContent = buildEmailContent(request);
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			logger.info("Email sent successfully to {} for consultation request from {}", toEmail, request.getName());
-
-		} catch (MessagingException e) {
-			logger.error("Failed to send consultation email", e);
-			throw new RuntimeException("Không thể gửi email. Vui lòng thử lại sau!", e);
-		}
+		String htmlContent = buildEmailContent(request);
+		mailOutboxService.enqueue(MailJob.Type.CONSULTATION, toEmail, "Yêu Cầu Tư Vấn Mới - Đặc Sản Việt",
+				htmlContent);
+		logger.info("Email queued for {} for consultation request from {}", toEmail, request.getName());
 	}
 
 	private String getInterestDisplayName(String interestValue) {
@@ -115,19 +95,8 @@ public class EmailService {
 		};
 	}
 
-	private String buildEmailContent(ConsultationRequest request) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-		String currentTime = LocalDateTime.now().format(formatter);
-
-		String name = request.getName();
-		String phone = request.getPhone();
-		String email = request.getEmail() != null ? request.getEmail() : "Không cung cấp";
-		String interestDisplay = getInterestDisplayName(request.getInterest());
-		String message = request.getMessage() != null && !request.getMessage().isEmpty() ? request.getMessage()
-				: "Không có ghi chú";
-
-		return String.format(
-				"""
+	private static final EmailTemplate CONSULTATION_TEMPLATE = EmailTemplate.compile(
+			"""
 						<!DOCTYPE html>
 						<html>
 						<head>
@@ -320,58 +289,47 @@ public class EmailService {
 						    </table>
 						</body>
 						</html>
-						""",
-				name, phone, phone, email, email, interestDisplay, message, currentTime, phone, frontendUrl,
-				frontendUrl, frontendUrl);
-	}
+						""");
 
-	public void sendPasswordResetEmail(String toEmail, String resetToken) throws UnsupportedEncodingException {
-		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+	private String buildEmailContent(ConsultationRequest request) {
+		String currentTime = LocalDateTime.now().format(TIMESTAMP_FORMAT);
 
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(toEmail);
-			helper.setSubject("🔐 Đặt Lại Mật Khẩu - Đặc Sản Việt");
+		String name = request.getName();
+		String phone = request.getPhone();
+		String email = request.getEmail() != null ? request.getEmail() : "Không cung cấp";
+		String interestDisplay = getInterestDisplayName(request.getInterest());
+		String message = request.getMessage() != null && !request.getMessage().isEmpty() ? request.getMessage()
+				: "Không có ghi chú";
 
-			String resetLink = frontendUrl + "/reset-password?token=" + resetToken;
-			String htmlContent = buildPasswordResetEmailContent(resetLink);
-			helper.setText(htmlContent, true);
+		return CONSULTATION_TEMPLATE.render(name, phone, phone, email, email, interestDisplay, message, currentTime,
+				phone, frontendUrl, frontendUrl, frontendUrl);
+	}
 
-			mailSender.send(message);
-			logger.info("Password reset email sent successfully to {}", toEmail);
+	public void sendPasswordResetEmail(String toEmail, String resetToken) throws UnsupportedEncodingException {
+		String resetLink = frontendUrl + "/reset-password?token=" + resetToken;
+		String htmlContent = buildPasswordResetEmailContent(resetLink);
 
-		} catch (MessagingException e) {
-			logger.error("Failed to send password reset email to {}", toEmail, e);
-			throw new RuntimeException("Không thể gửi email đặt lại mật khẩu. Vui lòng thử lại sau!", e);
-		}
+		mailOutboxService.enqueue(MailJob.Type.PASSWORD_RESET, toEmail, "🔐 Đặt Lại Mật Khẩu - Đặc Sản Việt",
+				htmlContent);
+		logger.info("Password reset email queued for {}", toEmail);
 	}
 
 	public void sendPasswordResetConfirmationEmail(String toEmail) throws UnsupportedEncodingException {
 		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(toEmail);
-			helper.setSubject("✅ Mật Khẩu Đã Được Đặt Lại - Đặc Sản Việt");
-
 			String htmlContent = buildPasswordResetConfirmationEmailContent();
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			logger.info("Password reset confirmation email sent successfully to {}", toEmail);
+			mailOutboxService.enqueue(MailJob.Type.PASSWORD_RESET_CONFIRMATION, toEmail,
+					"✅ Mật Khẩu Đã Được Đặt Lại - Đặc Sản Việt", htmlContent);
+			logger.info("Password reset confirmation email queued for {}", toEmail);
 
-		} catch (MessagingException e) {
-			logger.error("Failed to send password reset confirmation email to {}", toEmail, e);
+		} catch (DataAccessException e) {
+			throw e;
+		} catch (Exception e) {
+			logger.error("Failed to queue password reset confirmation email to {}", toEmail, e);
 		}
 	}
 
-	private String buildPasswordResetEmailContent(String resetLink) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-		String currentTime = LocalDateTime.now().format(formatter);
-
-		return """
+	private static final EmailTemplate PASSWORD_RESET_TEMPLATE = EmailTemplate.compile(
+			"""
 				<!DOCTYPE html>
 				<html>
 				<head>
@@ -480,14 +438,16 @@ public class EmailService {
 				    </div>
 				</body>
 				</html>
-				""".formatted(resetLink, resetLink, currentTime, frontendUrl);
-	}
+				""");
 
-	private String buildPasswordResetConfirmationEmailContent() {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-		String currentTime = LocalDateTime.now().format(formatter);
+	private String buildPasswordResetEmailContent(String resetLink) {
+		String currentTime = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+
+		return PASSWORD_RESET_TEMPLATE.render(resetLink, resetLink, currentTime, frontendUrl);
+	}
 
-		return """
+	private static final EmailTemplate PASSWORD_RESET_CONFIRMATION_TEMPLATE = EmailTemplate.compile(
+			"""
 				<!DOCTYPE html>
 				<html>
 				<head>
@@ -601,8 +561,12 @@ public class EmailService {
 				    </div>
 				</body>
 				</html>
-				"""
-				.formatted(frontendUrl, currentTime, frontendUrl);
+				""");
+
+	private String buildPasswordResetConfirmationEmailContent() {
+		String currentTime = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+
+		return PASSWORD_RESET_CONFIRMATION_TEMPLATE.render(frontendUrl, currentTime, frontendUrl);
 	}
 
 	/**
@@ -616,93 +580,22 @@ public class EmailService {
 		}
 
 		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			// Try to set from with personal name, fallback to email only if fails
-			try {
-				helper.setFrom(fromEmail, "Đặc Sản Việt");
-			} catch (Exception e) {
-				logger.warn("Failed to set personal name, using email only", e);
-				helper.setFrom(fromEmail);
-			}
-
-			helper.setTo(order.getCustomerEmail());
-			helper.setSubject("Xác Nhận Đơn Hàng #" + order.getOrderNumber() + " - Đặc Sản Việt");
-
 			String htmlContent = buildOrderConfirmationEmailContent(order);
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			logger.info("Order confirmation email sent successfully to {} for order {}", order.getCustomerEmail(),
+			mailOutboxService.enqueue(MailJob.Type.ORDER_CONFIRMATION, order.getCustomerEmail(),
+					"Xác Nhận Đơn Hàng #" + order.getOrderNumber() + " - Đặc Sản Việt", htmlContent);
+			logger.info("Order confirmation email queued for {} for order {}", order.getCustomerEmail(),
 					order.getOrderNumber());
 
-		} catch (MessagingException e) {
-			logger.error("Failed to send order confirmation email for order {}", order.getOrderNumber(), e);
-			// Don't throw exception - order is already created
+		} catch (DataAccessException e) {
+			throw e;
 		} catch (Exception e) {
-			logger.error("Unexpected error sending order confirmation email for order {}", order.getOrderNumber(), e);
+			// Don't throw exception - order is already created
+			logger.error("Unexpected error queueing order confirmation email for order {}", order.getOrderNumber(), e);
 		}
 	}
 
-	private String buildOrderConfirmationEmailContent(com.dacsanviet.dao.OrderDao order) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-		String orderDate = order.getOrderDate() != null ? order.getOrderDate().format(formatter) : "";
-
-		// Build order items HTML
-		StringBuilder orderItemsHtml = new StringBuilder();
-		if (order.getOrderItems() != null && !order.getOrderItems().isEmpty()) {
-			for (com.dacsanviet.dao.OrderItemDao item : order.getOrderItems()) {
-				// Use product image from order item snapshot, fallback to default if not
-				// available
-				String productImageUrl = item.getProductImageUrl();
-				if (productImageUrl == null || productImageUrl.isEmpty()) {
-					productImageUrl = "https://images.unsplash.com/photo-1567620905732-2d1ec7ab7445?w=300&q=80"; // Default
-					// image
-				}
-
-				orderItemsHtml.append(String.format(
-						"""
-								<tr>
-									<td style="padding: 15px; border-bottom: 1px solid #e9ecef;">
-										<table width="100%%" cellpadding="0" cellspacing="0" border="0">
-											<tr>
-												<td width="80" style="vertical-align: top;">
-													<img src="%s" alt="%s" style="width: 70px; height: 70px; object-fit: cover; border-radius: 8px; border: 1px solid #e9ecef;">
-												</td>
-												<td style="padding-left: 15px; vertical-align: top;">
-													<div style="font-weight: 600; color: #333; margin-bottom: 5px; font-size: 15px;">%s</div>
-													<div style="color: #666; font-size: 13px;">Số lượng: %d</div>
-													<div style="color: #666; font-size: 13px;">Đơn giá: %s</div>
-												</td>
-											</tr>
-										</table>
-									</td>
-									<td style="padding: 15px; border-bottom: 1px solid #e9ecef; text-align: right; font-weight: 600; vertical-align: top; white-space: nowrap;">
-										%s
-									</td>
-								</tr>
-								""",
-						productImageUrl, item.getProductName(), item.getProductName(), item.getQuantity(),
-						formatPrice(item.getUnitPrice()),
-						formatPrice(item.getUnitPrice().multiply(new java.math.BigDecimal(item.getQuantity())))));
-			}
-		} else {
-			// No items - show message
-			orderItemsHtml.append("""
-					<tr>
-						<td colspan="2" style="padding: 20px; text-align: center; color: #666;">
-							Thông tin sản phẩm sẽ được cập nhật sau khi xác nhận đơn hàng
-						</td>
-					</tr>
-					""");
-		}
-
-		String paymentMethodText = getPaymentMethodText(order.getPaymentMethod());
-		String statusText = getOrderStatusText(order.getStatus());
-
-		return String.format(
-				"""
+	static final EmailTemplate ORDER_CONFIRMATION_TEMPLATE = EmailTemplate.compile(
+			"""
 						<!DOCTYPE html>
 						<html>
 						<head>
@@ -912,17 +805,85 @@ public class EmailService {
 							</table>
 						</body>
 						</html>
-						""",
-				order.getOrderNumber(), orderDate, statusText, paymentMethodText, order.getCustomerName(),
-				order.getCustomerPhone(), order.getCustomerEmail(), order.getShippingAddressText(),
+						""");
+
+	static final EmailTemplate ORDER_ITEM_ROW_TEMPLATE = EmailTemplate.compile(
+			"""
+								<tr>
+									<td style="padding: 15px; border-bottom: 1px solid #e9ecef;">
+										<table width="100%%" cellpadding="0" cellspacing="0" border="0">
+											<tr>
+												<td width="80" style="vertical-align: top;">
+													<img src="%s" alt="%s" style="width: 70px; height: 70px; object-fit: cover; border-radius: 8px; border: 1px solid #e9ecef;">
+												</td>
+												<td style="padding-left: 15px; vertical-align: top;">
+													<div style="font-weight: 600; color: #333; margin-bottom: 5px; font-size: 15px;">%s</div>
+													<div style="color: #666; font-size: 13px;">Số lượng: %d</div>
+													<div style="color: #666; font-size: 13px;">Đơn giá: %s</div>
+												</td>
+											</tr>
+										</table>
+									</td>
+									<td style="padding: 15px; border-bottom: 1px solid #e9ecef; text-align: right; font-weight: 600; vertical-align: top; white-space: nowrap;">
+										%s
+									</td>
+								</tr>
+								""");
+
+	String buildOrderConfirmationEmailContent(com.dacsanviet.dao.OrderDao order) {
+		String orderDate = order.getOrderDate() != null ? order.getOrderDate().format(ORDER_DATE_FORMAT) : "";
+
+		// Build order items HTML
+		StringBuilder orderItemsHtml = new StringBuilder();
+		if (order.getOrderItems() != null && !order.getOrderItems().isEmpty()) {
+			for (com.dacsanviet.dao.OrderItemDao item : order.getOrderItems()) {
+				// Use product image from order item snapshot, fallback to default if not
+				// available
+				String productImageUrl = item.getProductImageUrl();
+				if (productImageUrl == null || productImageUrl.isEmpty()) {
+					productImageUrl = "https://images.unsplash.com/photo-1567620905732-2d1ec7ab7445?w=300&q=80"; // Default
+					// image
+				}
+
+				ORDER_ITEM_ROW_TEMPLATE.renderTo(orderItemsHtml, productImageUrl, item.getProductName(),
+						item.getProductName(), item.getQuantity(), formatPrice(item.getUnitPrice()),
+						formatPrice(item.getUnitPrice().multiply(new java.math.BigDecimal(item.getQuantity()))));
+			}
+		} else {
+			// No items - show message
+			orderItemsHtml.append("""
+					<tr>
+						<td colspan="2" style="padding: 20px; text-align: center; color: #666;">
+							Thông tin sản phẩm sẽ được cập nhật sau khi xác nhận đơn hàng
+						</td>
+					</tr>
+					""");
+		}
+
+		String paymentMethodText = getPaymentMethodText(order.getPaymentMethod());
+		String statusText = getOrderStatusText(order.getStatus());
+
+		return ORDER_CONFIRMATION_TEMPLATE.render(order.getOrderNumber(), orderDate, statusText, paymentMethodText,
+				order.getCustomerName(), order.getCustomerPhone(), order.getCustomerEmail(), order.getShippingAddressText(),
 				orderItemsHtml.toString(), formatPrice(order.getTotalAmount().subtract(order.getShippingFee())),
 				order.getShippingFee().compareTo(java.math.BigDecimal.ZERO) == 0 ? "Miễn phí"
 						: formatPrice(order.getShippingFee()),
 				formatPrice(order.getTotalAmount()), frontendUrl + "/products");
 	}
 
-	private String formatPrice(java.math.BigDecimal price) {
-		return String.format("%,dđ", price.longValue());
+	/**
+	 * Same output as {@code String.format("%,dđ", ...)} without building a Formatter per price
+	 */
+	static String formatPrice(java.math.BigDecimal price) {
+		String digits = Long.toString(price.longValue());
+		int sign = digits.charAt(0) == '-' ? 1 : 0;
+		StringBuilder out = new StringBuilder(digits.length() + digits.length() / 3 + 1);
+		int firstGroup = sign + ((digits.length() - sign) % 3 == 0 ? 3 : (digits.length() - sign) % 3);
+		out.append(digits, 0, firstGroup);
+		for (int i = firstGroup; i < digits.length(); i += 3) {
+			out.append(',').append(digits, i, i + 3);
+		}
+		return out.append('đ').toString();
 	}
 
 	private String getPaymentMethodText(String method) {
@@ -962,24 +923,16 @@ public class EmailService {
 		}
 
 		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(order.getCustomerEmail());
-			helper.setSubject("🚚 Đơn Hàng Đang Được Giao - " + order.getOrderNumber());
-
 			String htmlContent = buildShippingNotificationEmail(order);
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			logger.info("Shipping notification email sent successfully to {} for order {}", order.getCustomerEmail(),
+			mailOutboxService.enqueue(MailJob.Type.SHIPPING_NOTIFICATION, order.getCustomerEmail(),
+					"🚚 Đơn Hàng Đang Được Giao - " + order.getOrderNumber(), htmlContent);
+			logger.info("Shipping notification email queued for {} for order {}", order.getCustomerEmail(),
 					order.getOrderNumber());
 
-		} catch (MessagingException e) {
-			logger.error("Failed to send shipping notification email for order {}", order.getOrderNumber(), e);
+		} catch (DataAccessException e) {
+			throw e;
 		} catch (Exception e) {
-			logger.error("Unexpected error sending shipping notification email for order {}", order.getOrderNumber(), e);
+			logger.error("Unexpected error queueing shipping notification email for order {}", order.getOrderNumber(), e);
 		}
 	}
 
@@ -994,24 +947,16 @@ public class EmailService {
 		}
 
 		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(order.getCustomerEmail());
-			helper.setSubject("🎉 Cảm Ơn Bạn - Đơn Hàng Hoàn Tất " + order.getOrderNumber());
-
 			String htmlContent = buildOrderCompletionEmail(order);
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			logger.info("Order completion email sent successfully to {} for order {}", order.getCustomerEmail(),
+			mailOutboxService.enqueue(MailJob.Type.ORDER_COMPLETION, order.getCustomerEmail(),
+					"🎉 Cảm Ơn Bạn - Đơn Hàng Hoàn Tất " + order.getOrderNumber(), htmlContent);
+			logger.info("Order completion email queued for {} for order {}", order.getCustomerEmail(),
 					order.getOrderNumber());
 
-		} catch (MessagingException e) {
-			logger.error("Failed to send order completion email for order {}", order.getOrderNumber(), e);
+		} catch (DataAccessException e) {
+			throw e;
 		} catch (Exception e) {
-			logger.error("Unexpected error sending order completion email for order {}", order.getOrderNumber(), e);
+			logger.error("Unexpected error queueing order completion email for order {}", order.getOrderNumber(), e);
 		}
 	}
 
@@ -1026,24 +971,16 @@ public class EmailService {
 		}
 
 		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(order.getCustomerEmail());
-			helper.setSubject("⚠️ Thanh Toán Chưa Thành Công - " + order.getOrderNumber());
-
 			String htmlContent = buildPaymentFailureEmail(order, retryPaymentLink);
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			logger.info("Payment failure email sent successfully to {} for order {}", order.getCustomerEmail(),
+			mailOutboxService.enqueue(MailJob.Type.PAYMENT_FAILURE, order.getCustomerEmail(),
+					"⚠️ Thanh Toán Chưa Thành Công - " + order.getOrderNumber(), htmlContent);
+			logger.info("Payment failure email queued for {} for order {}", order.getCustomerEmail(),
 					order.getOrderNumber());
 
-		} catch (MessagingException e) {
-			logger.error("Failed to send payment failure email for order {}", order.getOrderNumber(), e);
+		} catch (DataAccessException e) {
+			throw e;
 		} catch (Exception e) {
-			logger.error("Unexpected error sending payment failure email for order {}", order.getOrderNumber(), e);
+			logger.error("Unexpected error queueing payment failure email for order {}", order.getOrderNumber(), e);
 		}
 	}
 
@@ -1051,31 +988,28 @@ public class EmailService {
 	 * Send payment confirmation email
 	 */
 	public void sendPaymentConfirmationEmail(OrderDao order) {
-		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail);
-			helper.setTo(order.getCustomerEmail());
-			helper.setSubject("Xác Nhận Thanh Toán - Đơn Hàng " + order.getOrderNumber());
+		if (order.getCustomerEmail() == null || order.getCustomerEmail().isEmpty()) {
+			logger.warn("Cannot send payment confirmation email - no customer email provided for order {}",
+					order.getOrderNumber());
+			return;
+		}
 
+		try {
 			String htmlContent = buildPaymentConfirmationEmail(order);
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			System.out.println("Payment confirmation email sent to: " + order.getCustomerEmail());
+			mailOutboxService.enqueue(MailJob.Type.PAYMENT_CONFIRMATION, order.getCustomerEmail(),
+					"Xác Nhận Thanh Toán - Đơn Hàng " + order.getOrderNumber(), htmlContent);
+			logger.info("Payment confirmation email queued for {} for order {}", order.getCustomerEmail(),
+					order.getOrderNumber());
+		} catch (DataAccessException e) {
+			throw e;
 		} catch (Exception e) {
-			System.err.println("Failed to send payment confirmation email: " + e.getMessage());
-			e.printStackTrace();
+			logger.error("Unexpected error queueing payment confirmation email for order {}", order.getOrderNumber(),
+					e);
 		}
 	}
 
-	private String buildPaymentConfirmationEmail(OrderDao order) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-		String orderDate = order.getOrderDate() != null ? order.getOrderDate().format(formatter) : "";
-
-		return String.format(
-				"""
+	private static final EmailTemplate PAYMENT_CONFIRMATION_TEMPLATE = EmailTemplate.compile(
+			"""
 						<!DOCTYPE html>
 						<html>
 						<head>
@@ -1212,17 +1146,16 @@ public class EmailService {
 							</table>
 						</body>
 						</html>
-						""",
-				order.getCustomerName(), order.getOrderNumber(), formatPrice(order.getTotalAmount()),
+						""");
+
+	private String buildPaymentConfirmationEmail(OrderDao order) {
+		return PAYMENT_CONFIRMATION_TEMPLATE.render(order.getCustomerName(), order.getOrderNumber(),
+				formatPrice(order.getTotalAmount()),
 				getPaymentMethodText(order.getPaymentMethod()), frontendUrl + "/products");
 	}
 
-	private String buildShippingNotificationEmail(OrderDao order) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-		String orderDate = order.getOrderDate() != null ? order.getOrderDate().format(formatter) : "";
-
-		return String.format(
-				"""
+	private static final EmailTemplate SHIPPING_NOTIFICATION_TEMPLATE = EmailTemplate.compile(
+			"""
 						<!DOCTYPE html>
 						<html>
 						<head>
@@ -1346,52 +1279,59 @@ public class EmailService {
 							</table>
 						</body>
 						</html>
-						""",
-				order.getCustomerName(), order.getOrderNumber(),
+						""");
+
+	private String buildShippingNotificationEmail(OrderDao order) {
+		return SHIPPING_NOTIFICATION_TEMPLATE.render(order.getCustomerName(), order.getOrderNumber(),
 				buildShippingCarrierInfo(order),
 				buildTrackingInfo(order),
 				frontendUrl + "/products");
 	}
 
-	private String buildShippingCarrierInfo(OrderDao order) {
-		StringBuilder info = new StringBuilder();
-
-		if (order.getShippingCarrier() != null && !order.getShippingCarrier().isEmpty()) {
-			info.append("""
+	private static final EmailTemplate TRACKING_NUMBER_ROW_TEMPLATE = EmailTemplate.compile(
+			"""
 					<tr>
 						<td style="padding: 15px 20px; border-bottom: 1px solid #e9ecef;">
 							<table width="100%%" cellpadding="0" cellspacing="0" border="0">
 								<tr>
-									<td width="140" style="font-weight: 600; color: #4ec2b6; font-size: 14px;">Đơn vị vận chuyển</td>
-									<td style="color: #333; font-size: 14px; text-align: right;">%s</td>
+									<td width="140" style="font-weight: 600; color: #4ec2b6; font-size: 14px;">Mã vận đơn</td>
+									<td style="color: #007bff; font-size: 16px; font-weight: 700; text-align: right; font-family: monospace;">%s</td>
 								</tr>
 							</table>
 						</td>
 					</tr>
-					""".formatted(order.getShippingCarrier()));
-		}
+					""");
 
-		if (order.getTrackingNumber() != null && !order.getTrackingNumber().isEmpty()) {
-			info.append("""
+	private static final EmailTemplate SHIPPING_CARRIER_ROW_TEMPLATE = EmailTemplate.compile(
+			"""
 					<tr>
 						<td style="padding: 15px 20px; border-bottom: 1px solid #e9ecef;">
 							<table width="100%%" cellpadding="0" cellspacing="0" border="0">
 								<tr>
-									<td width="140" style="font-weight: 600; color: #4ec2b6; font-size: 14px;">Mã vận đơn</td>
-									<td style="color: #007bff; font-size: 16px; font-weight: 700; text-align: right; font-family: monospace;">%s</td>
+									<td width="140" style="font-weight: 600; color: #4ec2b6; font-size: 14px;">Đơn vị vận chuyển</td>
+									<td style="color: #333; font-size: 14px; text-align: right;">%s</td>
 								</tr>
 							</table>
 						</td>
 					</tr>
-					""".formatted(order.getTrackingNumber()));
+					""");
+
+	private String buildShippingCarrierInfo(OrderDao order) {
+		StringBuilder info = new StringBuilder();
+
+		if (order.getShippingCarrier() != null && !order.getShippingCarrier().isEmpty()) {
+			SHIPPING_CARRIER_ROW_TEMPLATE.renderTo(info, order.getShippingCarrier());
+		}
+
+		if (order.getTrackingNumber() != null && !order.getTrackingNumber().isEmpty()) {
+			TRACKING_NUMBER_ROW_TEMPLATE.renderTo(info, order.getTrackingNumber());
 		}
 
 		return info.toString();
 	}
 
-	private String buildTrackingInfo(OrderDao order) {
-		if (order.getTrackingNumber() != null && !order.getTrackingNumber().isEmpty()) {
-			return """
+	private static final EmailTemplate TRACKING_INFO_TEMPLATE = EmailTemplate.compile(
+			"""
 					<table width="100%%" cellpadding="0" cellspacing="0" border="0" style="margin-top: 30px;">
 						<tr>
 							<td style="background-color: #fff3cd; border-left: 4px solid #ffc107; padding: 20px; border-radius: 8px;">
@@ -1402,17 +1342,18 @@ public class EmailService {
 							</td>
 						</tr>
 					</table>
-					""".formatted(order.getTrackingNumber(), order.getShippingCarrier() != null ? order.getShippingCarrier() : "đơn vị vận chuyển");
+					""");
+
+	private String buildTrackingInfo(OrderDao order) {
+		if (order.getTrackingNumber() != null && !order.getTrackingNumber().isEmpty()) {
+			return TRACKING_INFO_TEMPLATE.render(order.getTrackingNumber(),
+					order.getShippingCarrier() != null ? order.getShippingCarrier() : "đơn vị vận chuyển");
 		}
 		return "";
 	}
 
-	private String buildOrderCompletionEmail(OrderDao order) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-		String orderDate = order.getOrderDate() != null ? order.getOrderDate().format(formatter) : "";
-
-		return String.format(
-				"""
+	private static final EmailTemplate ORDER_COMPLETION_TEMPLATE = EmailTemplate.compile(
+			"""
 						<!DOCTYPE html>
 						<html>
 						<head>
@@ -1545,16 +1486,14 @@ public class EmailService {
 							</table>
 						</body>
 						</html>
-						""",
-				order.getOrderNumber(), order.getCustomerName(), frontendUrl + "/products");
-	}
+						""");
 
-	private String buildPaymentFailureEmail(OrderDao order, String retryPaymentLink) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-		String orderDate = order.getOrderDate() != null ? order.getOrderDate().format(formatter) : "";
+	private String buildOrderCompletionEmail(OrderDao order) {
+		return ORDER_COMPLETION_TEMPLATE.render(order.getOrderNumber(), order.getCustomerName(), frontendUrl + "/products");
+	}
 
-		return String.format(
-				"""
+	private static final EmailTemplate PAYMENT_FAILURE_TEMPLATE = EmailTemplate.compile(
+			"""
 						<!DOCTYPE html>
 						<html>
 						<head>
@@ -1701,8 +1640,11 @@ public class EmailService {
 							</table>
 						</body>
 						</html>
-						""",
-				order.getCustomerName(), order.getOrderNumber(), formatPrice(order.getTotalAmount()),
+						""");
+
+	private String buildPaymentFailureEmail(OrderDao order, String retryPaymentLink) {
+		return PAYMENT_FAILURE_TEMPLATE.render(order.getCustomerName(), order.getOrderNumber(),
+				formatPrice(order.getTotalAmount()),
 				retryPaymentLink);
 	}
 
@@ -1717,66 +1659,49 @@ public class EmailService {
 		}
 
 		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-			helper.setFrom(fromEmail, "Đặc Sản Việt");
-			helper.setTo(order.getCustomerEmail());
-			helper.setSubject("Cập Nhật Đơn Hàng - " + order.getOrderNumber());
-
 			String htmlContent = buildOrderStatusUpdateEmail(order, oldStatus, newStatus);
-			helper.setText(htmlContent, true);
-
-			mailSender.send(message);
-			logger.info("Order status update email sent successfully to {} for order {}", order.getCustomerEmail(),
+			mailOutboxService.enqueue(MailJob.Type.ORDER_STATUS_UPDATE, order.getCustomerEmail(),
+					"Cập Nhật Đơn Hàng - " + order.getOrderNumber(), htmlContent);
+			logger.info("Order status update email queued for {} for order {}", order.getCustomerEmail(),
 					order.getOrderNumber());
 
-		} catch (MessagingException e) {
-			logger.error("Failed to send order status update email for order {}", order.getOrderNumber(), e);
+		} catch (DataAccessException e) {
+			throw e;
 		} catch (Exception e) {
-			logger.error("Unexpected error sending order status update email for order {}", order.getOrderNumber(), e);
+			logger.error("Unexpected error queueing order status update email for order {}", order.getOrderNumber(), e);
 		}
 	}
 
-	private String buildOrderStatusUpdateEmail(OrderDao order, String oldStatus, String newStatus) {
-		StringBuilder html = new StringBuilder();
-		html.append("<!DOCTYPE html>");
-		html.append("<html><head><meta charset='UTF-8'></head><body style='font-family: Arial, sans-serif;'>");
-		html.append("<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>");
-
-		// Header
-		html.append(
-				"<div style='background: linear-gradient(135deg, #007bff 0%, #0056b3 100%); color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0;'>");
-		html.append("<h1 style='margin: 0;'>📦 Cập Nhật Đơn Hàng</h1>");
-		html.append("</div>");
-
-		// Content
-		html.append("<div style='background: #f8f9fa; padding: 30px; border-radius: 0 0 10px 10px;'>");
-		html.append("<p style='font-size: 16px;'>Xin chào <strong>").append(order.getCustomerName())
-				.append("</strong>,</p>");
-		html.append("<p>Đơn hàng <strong>").append(order.getOrderNumber())
-				.append("</strong> của bạn đã được cập nhật trạng thái.</p>");
-
-		// Status update info
-		html.append("<div style='background: white; padding: 20px; border-radius: 8px; margin: 20px 0;'>");
-		html.append("<h3 style='color: #007bff; margin-top: 0;'>Thông Tin Cập Nhật</h3>");
-		html.append("<table style='width: 100%; border-collapse: collapse;'>");
-		html.append("<tr><td style='padding: 8px 0; border-bottom: 1px solid #dee2e6;'><strong>Trạng thái cũ:</strong></td>");
-		html.append("<td style='padding: 8px 0; border-bottom: 1px solid #dee2e6; text-align: right;'>")
-				.append(getOrderStatusText(oldStatus)).append("</td></tr>");
-		html.append("<tr><td style='padding: 8px 0;'><strong>Trạng thái mới:</strong></td>");
-		html.append("<td style='padding: 8px 0; text-align: right; color: #007bff; font-weight: bold;'>")
-				.append(getOrderStatusText(newStatus)).append("</td></tr>");
-		html.append("</table>");
-		html.append("</div>");
-
-		html.append("<p>Cảm ơn bạn đã mua hàng tại <strong>Đặc Sản Việt</strong>!</p>");
-
-		html.append("</div>");
-		html.append("</div>");
-		html.append("</body></html>");
-
-		return html.toString();
+	static final EmailTemplate ORDER_STATUS_UPDATE_TEMPLATE = EmailTemplate.compile(
+			"<!DOCTYPE html>"
+					+ "<html><head><meta charset='UTF-8'></head><body style='font-family: Arial, sans-serif;'>"
+					+ "<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>"
+					// Header
+					+ "<div style='background: linear-gradient(135deg, #007bff 0%%, #0056b3 100%%); color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0;'>"
+					+ "<h1 style='margin: 0;'>📦 Cập Nhật Đơn Hàng</h1>"
+					+ "</div>"
+					// Content
+					+ "<div style='background: #f8f9fa; padding: 30px; border-radius: 0 0 10px 10px;'>"
+					+ "<p style='font-size: 16px;'>Xin chào <strong>%s</strong>,</p>"
+					+ "<p>Đơn hàng <strong>%s</strong> của bạn đã được cập nhật trạng thái.</p>"
+					// Status update info
+					+ "<div style='background: white; padding: 20px; border-radius: 8px; margin: 20px 0;'>"
+					+ "<h3 style='color: #007bff; margin-top: 0;'>Thông Tin Cập Nhật</h3>"
+					+ "<table style='width: 100%%; border-collapse: collapse;'>"
+					+ "<tr><td style='padding: 8px 0; border-bottom: 1px solid #dee2e6;'><strong>Trạng thái cũ:</strong></td>"
+					+ "<td style='padding: 8px 0; border-bottom: 1px solid #dee2e6; text-align: right;'>%s</td></tr>"
+					+ "<tr><td style='padding: 8px 0;'><strong>Trạng thái mới:</strong></td>"
+					+ "<td style='padding: 8px 0; text-align: right; color: #007bff; font-weight: bold;'>%s</td></tr>"
+					+ "</table>"
+					+ "</div>"
+					+ "<p>Cảm ơn bạn đã mua hàng tại <strong>Đặc Sản Việt</strong>!</p>"
+					+ "</div>"
+					+ "</div>"
+					+ "</body></html>");
+
+	String buildOrderStatusUpdateEmail(OrderDao order, String oldStatus, String newStatus) {
+		return ORDER_STATUS_UPDATE_TEMPLATE.render(order.getCustomerName(), order.getOrderNumber(),
+				getOrderStatusText(oldStatus), getOrderStatusText(newStatus));
 	}
 
 	private String getOrderStatusText(String status) {
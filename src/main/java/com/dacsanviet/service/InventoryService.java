@@ -7,11 +7,15 @@ import com.dacsanviet.model.Product;
 import com.dacsanviet.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -23,15 +27,24 @@ public class InventoryService {
     
     private final ProductRepository productRepository;
     private final NotificationService notificationService;
+    private final StockAllocationService stockAllocationService;
+    private final ProductFacetIndex productFacetIndex;
+    private final PageOutputCache pageOutputCache;
     
     // Low stock threshold - products with stock below this will trigger notifications
     private static final Integer LOW_STOCK_THRESHOLD = 10;
     
     @Autowired
     public InventoryService(ProductRepository productRepository,
-                           NotificationService notificationService) {
+                           NotificationService notificationService,
+                           StockAllocationService stockAllocationService,
+                           ProductFacetIndex productFacetIndex,
+                           PageOutputCache pageOutputCache) {
         this.productRepository = productRepository;
         this.notificationService = notificationService;
+        this.stockAllocationService = stockAllocationService;
+        this.productFacetIndex = productFacetIndex;
+        this.pageOutputCache = pageOutputCache;
     }
     
     /**
@@ -47,6 +60,8 @@ public class InventoryService {
         Integer oldQuantity = product.getStockQuantity();
         product.setStockQuantity(newQuantity);
         product = productRepository.save(product);
+        productFacetIndex.index(product);
+        pageOutputCache.evictProductStock(List.of(productId));
         
         // Check for low stock after update
         checkLowStockAndNotify(product);
@@ -65,59 +80,64 @@ public class InventoryService {
             throw new RuntimeException("Quantity to increase must be positive");
         }
         
-        Product product = getProductById(productId);
-        Integer newQuantity = product.getStockQuantity() + quantity;
-        product.setStockQuantity(newQuantity);
-        product = productRepository.save(product);
+        if (!productRepository.existsById(productId)) {
+            throw new RuntimeException("Product not found with id: " + productId);
+        }
+        stockAllocationService.restock(Map.of(productId, quantity));
         
+        // Load after the update so the returned stock includes this increase
+        Product product = getProductById(productId);
         return convertToProductDto(product);
     }
     
     /**
      * Decrease stock quantity (e.g., when processing orders)
-     * This method prevents overselling by checking availability first
+     * The decrement is a conditional update, so concurrent callers can never oversell
      */
     public ProductDao decreaseStock(Long productId, Integer quantity) {
         if (quantity <= 0) {
             throw new RuntimeException("Quantity to decrease must be positive");
         }
         
-        Product product = getProductById(productId);
-        
-        // Prevent overselling
-        if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity() + 
-                                     ", Requested: " + quantity + " for product: " + product.getName());
+        StockAllocationService.StockAllocation allocation =
+                stockAllocationService.allocate(Map.of(productId, quantity));
+        if (!allocation.isSuccessful()) {
+            throw allocationFailure(allocation.getFailures().get(0));
         }
         
-        Integer oldQuantity = product.getStockQuantity();
-        Integer newQuantity = oldQuantity - quantity;
-        product.setStockQuantity(newQuantity);
-        product = productRepository.save(product);
+        // Load after the update so notifications see the new stock
+        Product product = getProductById(productId);
+        Integer newQuantity = product.getStockQuantity();
         
         // Check for low stock after decrease
         checkLowStockAndNotify(product);
         
         // Log stock change
-        logStockChange(product, oldQuantity, newQuantity);
+        logStockChange(product, newQuantity + quantity, newQuantity);
         
         return convertToProductDto(product);
     }
     
     /**
-     * Reserve stock for pending orders (soft reservation)
+     * Manually set stock aside (admin tool). This takes the units out of stock for good;
+     * orders awaiting online payment hold stock with an expiry through StockReservationService.
      */
     public boolean reserveStock(Long productId, Integer quantity) {
-        Product product = getProductById(productId);
+        if (quantity <= 0) {
+            throw new RuntimeException("Quantity to reserve must be positive");
+        }
         
-        // Check if enough stock is available
-        if (product.getStockQuantity() < quantity) {
+        StockAllocationService.StockAllocation allocation =
+                stockAllocationService.allocate(Map.of(productId, quantity));
+        if (!allocation.isSuccessful()) {
+            StockAllocationService.ItemFailure failure = allocation.getFailures().get(0);
+            if (failure.getReason() == StockAllocationService.FailureReason.NOT_FOUND) {
+                throw allocationFailure(failure);
+            }
             return false;
         }
         
-        // For now, we'll implement a simple reservation by decreasing stock
-        // In a more complex system, you might have a separate reserved_quantity field
-        decreaseStock(productId, quantity);
+        checkLowStockAndNotify(getProductById(productId));
         return true;
     }
     
@@ -129,12 +149,13 @@ public class InventoryService {
     }
     
     /**
-     * Check stock availability for a product
+     * Check stock availability for a product, not counting units held for unpaid orders
      */
     @Transactional(readOnly = true)
     public boolean isStockAvailable(Long productId, Integer requestedQuantity) {
         Product product = getProductById(productId);
-        return product.getIsActive() && product.getStockQuantity() >= requestedQuantity;
+        int available = product.getStockQuantity() - product.getReservedQuantity();
+        return product.getIsActive() && available >= requestedQuantity;
     }
     
     /**
@@ -166,77 +187,37 @@ public class InventoryService {
     
     /**
      * Get all products with stock information (with filters)
+     * Filters combine in the product facet index; only a search term needs a query.
+     * Inactive products are listed only when no filter is set.
      */
     @Transactional(readOnly = true)
     public Page<ProductDao> getAllProductsWithStock(Pageable pageable, String search, Long categoryId, String status) {
-        Page<Product> products;
-        
         boolean hasSearch = search != null && !search.trim().isEmpty();
-        boolean hasCategory = categoryId != null;
-        boolean hasStatus = status != null && !status.isEmpty();
+        ProductFacetIndex.StockStatus stockStatus = ProductFacetIndex.StockStatus.fromParam(status);
         
-        // Combine filters with proper query methods
-        if (hasSearch && hasCategory && hasStatus) {
-            // All 3 filters: search + category + status
-            String searchTerm = search.trim();
-            if ("in_stock".equals(status)) {
-                products = productRepository.searchProductsInCategoryAndInStock(searchTerm, categoryId, pageable);
-            } else if ("low_stock".equals(status)) {
-                products = productRepository.searchProductsInCategoryAndLowStock(searchTerm, categoryId, LOW_STOCK_THRESHOLD, pageable);
-            } else if ("out_of_stock".equals(status)) {
-                products = productRepository.searchProductsInCategoryAndOutOfStock(searchTerm, categoryId, pageable);
-            } else {
-                products = productRepository.searchProductsInCategory(searchTerm, categoryId, pageable);
-            }
-        } else if (hasSearch && hasCategory) {
-            // Search + Category
-            products = productRepository.searchProductsInCategory(search.trim(), categoryId, pageable);
-        } else if (hasSearch && hasStatus) {
-            // Search + Status
-            String searchTerm = search.trim();
-            if ("in_stock".equals(status)) {
-                products = productRepository.searchProductsInStock(searchTerm, pageable);
-            } else if ("low_stock".equals(status)) {
-                products = productRepository.searchProductsLowStock(searchTerm, LOW_STOCK_THRESHOLD, pageable);
-            } else if ("out_of_stock".equals(status)) {
-                products = productRepository.searchProductsOutOfStock(searchTerm, pageable);
-            } else {
-                products = productRepository.searchProducts(searchTerm, pageable);
-            }
-        } else if (hasCategory && hasStatus) {
-            // Category + Status
-            if ("in_stock".equals(status)) {
-                products = productRepository.findByCategoryIdAndInStock(categoryId, pageable);
-            } else if ("low_stock".equals(status)) {
-                products = productRepository.findByCategoryIdAndLowStock(categoryId, LOW_STOCK_THRESHOLD, pageable);
-            } else if ("out_of_stock".equals(status)) {
-                products = productRepository.findByCategoryIdAndOutOfStock(categoryId, pageable);
-            } else {
-                products = productRepository.findByCategoryIdAndIsActiveTrue(categoryId, pageable);
+        ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter();
+        filter.setCategoryId(categoryId);
+        filter.setStockStatus(stockStatus);
+        filter.setIncludeInactive(!hasSearch && categoryId == null && stockStatus == null);
+        if (hasSearch) {
+            filter.setCandidateIds(productRepository.searchProductIds(search.trim()));
+        }
+        ProductFacetIndex.Result result = productFacetIndex.query(filter, pageable);
+        
+        Map<Long, Product> products = new HashMap<>();
+        if (!result.getIds().isEmpty()) {
+            for (Product product : productRepository.findAllByIdWithCategory(result.getIds())) {
+                products.put(product.getId(), product);
             }
-        } else if (hasSearch) {
-            // Search only
-            products = productRepository.searchProducts(search.trim(), pageable);
-        } else if (hasCategory) {
-            // Category only
-            products = productRepository.findByCategoryIdAndIsActiveTrue(categoryId, pageable);
-        } else if (hasStatus) {
-            // Status only
-            if ("in_stock".equals(status)) {
-                products = productRepository.findInStockProducts(pageable);
-            } else if ("low_stock".equals(status)) {
-                products = productRepository.findByStockQuantityLessThanAndIsActiveTrue(LOW_STOCK_THRESHOLD, pageable);
-            } else if ("out_of_stock".equals(status)) {
-                products = productRepository.findByStockQuantityAndIsActiveTrue(0, pageable);
-            } else {
-                products = productRepository.findAll(pageable);
+        }
+        List<ProductDao> content = new ArrayList<>(result.getIds().size());
+        for (Long id : result.getIds()) {
+            Product product = products.get(id);
+            if (product != null) {
+                content.add(convertToProductDto(product));
             }
-        } else {
-            // No filters
-            products = productRepository.findAll(pageable);
         }
-        
-        return products.map(this::convertToProductDto);
+        return new PageImpl<>(content, pageable, result.getTotal());
     }
     
     /**
@@ -286,6 +267,14 @@ public class InventoryService {
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
     }
     
+    private RuntimeException allocationFailure(StockAllocationService.ItemFailure failure) {
+        if (failure.getReason() == StockAllocationService.FailureReason.NOT_FOUND) {
+            return new RuntimeException("Product not found with id: " + failure.getProductId());
+        }
+        return new RuntimeException("Insufficient stock. Available: " + failure.getAvailable() + 
+                                   ", Requested: " + failure.getRequested() + " for product: " + failure.getProductName());
+    }
+    
     private void checkLowStockAndNotify(Product product) {
         if (product.getStockQuantity() <= LOW_STOCK_THRESHOLD && product.getIsActive()) {
             notificationService.sendLowStockNotification(product);
@@ -0,0 +1,24 @@
+package com.dacsanviet.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.messaging.Message;
+
+/**
+ * Single-node broker mode: messages only reach clients connected to this JVM
+ */
+public class LocalBrokerRelay implements BrokerRelay {
+
+    @Override
+    public void relay(Message<?> message) {
+        // Nothing to forward to
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", "simple");
+        return stats;
+    }
+}
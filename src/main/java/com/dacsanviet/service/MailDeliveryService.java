@@ -0,0 +1,294 @@
+package com.dacsanviet.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.dacsanviet.config.MailOutboxProperties;
+import com.dacsanviet.model.MailJob;
+import com.dacsanviet.repository.MailJobRepository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Drains the mail outbox on a small, bounded worker pool.
+ * Each worker sends a whole batch through a single SMTP connection
+ * ({@link JavaMailSender#send(MimeMessage...)} connects once per call), so the
+ * TLS/AUTH handshake is paid once per batch instead of once per email.
+ */
+@Service
+public class MailDeliveryService {
+
+	private static final Logger logger = LoggerFactory.getLogger(MailDeliveryService.class);
+
+	private static final String SENDER_NAME = "Đặc Sản Việt";
+
+	private final MailJobRepository mailJobRepository;
+	private final JavaMailSender mailSender;
+	private final MailOutboxProperties properties;
+	private final String fromEmail;
+	private final ThreadPoolTaskExecutor executor;
+
+	private final LongAdder sentCount = new LongAdder();
+	private final LongAdder retryCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder batchCount = new LongAdder();
+	private final LongAdder sendNanos = new LongAdder();
+	private final AtomicLong maxBatchNanos = new AtomicLong();
+
+	@Autowired
+	public MailDeliveryService(MailJobRepository mailJobRepository, JavaMailSender mailSender,
+			MailOutboxProperties properties, @Value("${app.mail.from}") String fromEmail) {
+		this.mailJobRepository = mailJobRepository;
+		this.mailSender = mailSender;
+		this.properties = properties;
+		this.fromEmail = fromEmail;
+
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setCorePoolSize(properties.getWorkers());
+		this.executor.setMaxPoolSize(properties.getWorkers());
+		this.executor.setQueueCapacity(properties.getWorkers());
+		this.executor.setThreadNamePrefix("mail-delivery-");
+		this.executor.setWaitForTasksToCompleteOnShutdown(true);
+		this.executor.setAwaitTerminationSeconds(30);
+		this.executor.initialize();
+	}
+
+	/**
+	 * Poll the outbox and deliver everything that is due. Runs on the scheduler thread,
+	 * which waits for the workers, so rounds never overlap.
+	 */
+	@Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:2000}")
+	public void drainOutbox() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		try {
+			LocalDateTime staleCutoff = LocalDateTime.now().minusNanos(properties.getClaimTimeoutMs() * 1_000_000L);
+			int released = mailJobRepository.releaseStaleClaims(staleCutoff, MailJob.Status.PENDING,
+					MailJob.Status.SENDING);
+			if (released > 0) {
+				logger.warn("Requeued {} mail jobs left in SENDING by an interrupted worker", released);
+			}
+
+			int roundSize = properties.getBatchSize() * properties.getWorkers();
+			int claimed;
+			do {
+				claimed = drainRound(roundSize);
+			} while (claimed == roundSize);
+		} catch (Exception e) {
+			logger.error("Error draining mail outbox", e);
+		}
+	}
+
+	private int drainRound(int roundSize) throws Exception {
+		LocalDateTime now = LocalDateTime.now();
+		List<Long> dueIds = mailJobRepository.findDueJobIds(MailJob.Status.PENDING, now,
+				PageRequest.of(0, roundSize));
+		if (dueIds.isEmpty()) {
+			return 0;
+		}
+
+		String token = UUID.randomUUID().toString();
+		mailJobRepository.claimJobs(dueIds, token, now, MailJob.Status.PENDING, MailJob.Status.SENDING);
+		List<MailJob> jobs = mailJobRepository.findByClaimToken(token);
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int from = 0; from < jobs.size(); from += properties.getBatchSize()) {
+			List<MailJob> batch = jobs.subList(from, Math.min(from + properties.getBatchSize(), jobs.size()));
+			futures.add(executor.submit(() -> deliverBatch(batch)));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		return dueIds.size();
+	}
+
+	/**
+	 * Send one batch over a single SMTP connection and record the outcome of every job.
+	 */
+	void deliverBatch(List<MailJob> batch) {
+		Map<MimeMessage, MailJob> jobsByMessage = new IdentityHashMap<>();
+		for (MailJob job : batch) {
+			try {
+				jobsByMessage.put(buildMessage(job), job);
+			} catch (Exception e) {
+				// A message that cannot even be built will not get better on retry
+				recordFailure(job, e, true);
+			}
+		}
+		if (jobsByMessage.isEmpty()) {
+			return;
+		}
+
+		MimeMessage[] messages = jobsByMessage.keySet().toArray(new MimeMessage[0]);
+		Map<Object, Exception> failures = new HashMap<>();
+		long start = System.nanoTime();
+		try {
+			mailSender.send(messages);
+		} catch (MailSendException e) {
+			if (e.getFailedMessages().isEmpty()) {
+				for (MimeMessage message : messages) {
+					failures.put(message, e);
+				}
+			} else {
+				failures.putAll(e.getFailedMessages());
+			}
+		} catch (MailException e) {
+			for (MimeMessage message : messages) {
+				failures.put(message, e);
+			}
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			batchCount.increment();
+			sendNanos.add(elapsed);
+			maxBatchNanos.accumulateAndGet(elapsed, Math::max);
+		}
+
+		List<Long> sentIds = new ArrayList<>();
+		for (Map.Entry<MimeMessage, MailJob> entry : jobsByMessage.entrySet()) {
+			Exception failure = failures.get(entry.getKey());
+			if (failure == null) {
+				sentIds.add(entry.getValue().getId());
+			} else {
+				recordFailure(entry.getValue(), failure, false);
+			}
+		}
+		if (!sentIds.isEmpty()) {
+			mailJobRepository.markSent(sentIds, LocalDateTime.now(), MailJob.Status.SENT);
+			sentCount.add(sentIds.size());
+			logger.info("Delivered {} emails in one SMTP session", sentIds.size());
+		}
+	}
+
+	/**
+	 * Deliver a job immediately on the calling thread (outbox disabled).
+	 */
+	public void deliverNow(MailJob job) throws Exception {
+		long start = System.nanoTime();
+		try {
+			mailSender.send(buildMessage(job));
+			sentCount.increment();
+		} catch (Exception e) {
+			failedCount.increment();
+			throw e;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			batchCount.increment();
+			sendNanos.add(elapsed);
+			maxBatchNanos.accumulateAndGet(elapsed, Math::max);
+		}
+	}
+
+	private MimeMessage buildMessage(MailJob job) throws Exception {
+		MimeMessage message = mailSender.createMimeMessage();
+		MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+		// Try to set from with personal name, fallback to email only if fails
+		try {
+			helper.setFrom(fromEmail, SENDER_NAME);
+		} catch (Exception e) {
+			helper.setFrom(fromEmail);
+		}
+		helper.setTo(job.getRecipient());
+		helper.setSubject(job.getSubject());
+		helper.setText(job.getHtmlBody(), true);
+		return message;
+	}
+
+	private void recordFailure(MailJob job, Exception error, boolean permanent) {
+		int attempts = (job.getAttempts() == null ? 0 : job.getAttempts()) + 1;
+		String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+		if (message.length() > 1000) {
+			message = message.substring(0, 1000);
+		}
+
+		if (permanent || attempts >= properties.getMaxAttempts()) {
+			mailJobRepository.markAttemptFailed(job.getId(), MailJob.Status.FAILED, LocalDateTime.now(), message);
+			failedCount.increment();
+			logger.error("Giving up on {} email to {} after {} attempts: {}", job.getMailType(), job.getRecipient(),
+					attempts, message);
+		} else {
+			LocalDateTime nextAttempt = LocalDateTime.now().plusNanos(backoffMs(attempts) * 1_000_000L);
+			mailJobRepository.markAttemptFailed(job.getId(), MailJob.Status.PENDING, nextAttempt, message);
+			retryCount.increment();
+			logger.warn("Failed to send {} email to {} (attempt {}), retrying at {}: {}", job.getMailType(),
+					job.getRecipient(), attempts, nextAttempt, message);
+		}
+	}
+
+	/**
+	 * Exponential backoff: base, 2x base, 4x base ... capped at maxBackoffMs
+	 */
+	long backoffMs(int attempts) {
+		int shift = Math.min(Math.max(attempts - 1, 0), 20);
+		return Math.min(properties.getBaseBackoffMs() << shift, properties.getMaxBackoffMs());
+	}
+
+	/**
+	 * Purge delivered jobs once a day
+	 */
+	@Scheduled(cron = "0 30 3 * * *")
+	public void purgeDeliveredJobs() {
+		try {
+			int deleted = mailJobRepository.deleteSentBefore(
+					LocalDateTime.now().minusDays(properties.getRetentionDays()), MailJob.Status.SENT);
+			logger.debug("Purged {} delivered mail jobs", deleted);
+		} catch (Exception e) {
+			logger.error("Error purging delivered mail jobs", e);
+		}
+	}
+
+	/**
+	 * Queue depth, throughput and latency of the mail pipeline.
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		try {
+			stats.put("queueDepth", mailJobRepository.countByStatus(MailJob.Status.PENDING));
+			stats.put("inFlight", mailJobRepository.countByStatus(MailJob.Status.SENDING));
+			stats.put("deadLetters", mailJobRepository.countByStatus(MailJob.Status.FAILED));
+		} catch (Exception e) {
+			stats.put("queueError", e.getMessage());
+		}
+
+		long batches = batchCount.sum();
+		long sent = sentCount.sum();
+		long totalNanos = sendNanos.sum();
+		stats.put("sent", sent);
+		stats.put("retried", retryCount.sum());
+		stats.put("failed", failedCount.sum());
+		stats.put("batches", batches);
+		stats.put("avgBatchLatencyMs", batches == 0 ? 0.0 : totalNanos / 1_000_000.0 / batches);
+		stats.put("avgSendLatencyPerEmailMs", sent == 0 ? 0.0 : totalNanos / 1_000_000.0 / sent);
+		stats.put("maxBatchLatencyMs", maxBatchNanos.get() / 1_000_000.0);
+		stats.put("activeWorkers", executor.getActiveCount());
+		return stats;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
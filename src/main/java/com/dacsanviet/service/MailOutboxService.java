@@ -0,0 +1,58 @@
+package com.dacsanviet.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dacsanviet.config.MailOutboxProperties;
+import com.dacsanviet.exception.MailDeliveryException;
+import com.dacsanviet.model.MailJob;
+import com.dacsanviet.repository.MailJobRepository;
+
+/**
+ * Entry point of the outbound mail pipeline.
+ * Emails are written to the {@code mail_jobs} table inside the caller's transaction, so a
+ * checkout or webhook commits its order and its email together and never waits on SMTP.
+ */
+@Service
+public class MailOutboxService {
+
+	private static final Logger logger = LoggerFactory.getLogger(MailOutboxService.class);
+
+	private final MailJobRepository mailJobRepository;
+	private final MailDeliveryService mailDeliveryService;
+	private final MailOutboxProperties properties;
+
+	@Autowired
+	public MailOutboxService(MailJobRepository mailJobRepository, MailDeliveryService mailDeliveryService,
+			MailOutboxProperties properties) {
+		this.mailJobRepository = mailJobRepository;
+		this.mailDeliveryService = mailDeliveryService;
+		this.properties = properties;
+	}
+
+	/**
+	 * Queue an HTML email for delivery. Joins the current transaction when there is one.
+	 * A failed insert dooms that transaction, so callers must let it propagate; a failed
+	 * direct send (outbox disabled) throws {@link MailDeliveryException} without doing so.
+	 */
+	@Transactional(propagation = Propagation.REQUIRED, noRollbackFor = MailDeliveryException.class)
+	public void enqueue(MailJob.Type type, String recipient, String subject, String htmlBody) {
+		MailJob job = new MailJob(type, recipient, subject, htmlBody);
+
+		if (!properties.isEnabled()) {
+			try {
+				mailDeliveryService.deliverNow(job);
+			} catch (Exception e) {
+				throw new MailDeliveryException("Không thể gửi email. Vui lòng thử lại sau!", e);
+			}
+			return;
+		}
+
+		mailJobRepository.save(job);
+		logger.debug("Queued {} email to {}", type, recipient);
+	}
+}
@@ -25,6 +25,8 @@ import java.util.stream.Collectors;
 public class NewsCategoryService {
     
     private final NewsCategoryRepository newsCategoryRepository;
+    private final PageOutputCache pageOutputCache;
+    private final NewsReadModel newsReadModel;
     
     // CRUD Operations
     
@@ -51,6 +53,9 @@ public class NewsCategoryService {
         category.setSortOrder(categoryDto.getSortOrder() != null ? categoryDto.getSortOrder() : getNextSortOrder());
         
         NewsCategory savedCategory = newsCategoryRepository.save(category);
+        
+        pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+        newsReadModel.categoriesChanged();
         log.info("Created category with id: {} and slug: {}", savedCategory.getId(), savedCategory.getSlug());
         
         return convertToDto(savedCategory);
@@ -84,6 +89,9 @@ public class NewsCategoryService {
         category.setSortOrder(categoryDto.getSortOrder() != null ? categoryDto.getSortOrder() : category.getSortOrder());
         
         NewsCategory savedCategory = newsCategoryRepository.save(category);
+        
+        pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+        newsReadModel.categoriesChanged();
         log.info("Updated category with id: {}", savedCategory.getId());
         
         return convertToDto(savedCategory);
@@ -105,6 +113,9 @@ public class NewsCategoryService {
         }
         
         newsCategoryRepository.delete(category);
+        
+        pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+        newsReadModel.categoriesChanged();
         log.info("Deleted category with id: {}", id);
     }
     
@@ -119,6 +130,8 @@ public class NewsCategoryService {
         
         category.setIsActive(false);
         newsCategoryRepository.save(category);
+        pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+        newsReadModel.categoriesChanged();
         
         log.info("Deactivated category with id: {}", id);
     }
@@ -134,6 +147,8 @@ public class NewsCategoryService {
         
         category.setIsActive(true);
         newsCategoryRepository.save(category);
+        pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+        newsReadModel.categoriesChanged();
         
         log.info("Activated category with id: {}", id);
     }
@@ -277,6 +292,8 @@ public class NewsCategoryService {
         
         category.setSortOrder(newSortOrder);
         newsCategoryRepository.save(category);
+        pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+        newsReadModel.categoriesChanged();
         
         log.info("Updated sort order for category id: {} to {}", id, newSortOrder);
     }
@@ -293,6 +310,8 @@ public class NewsCategoryService {
         if (category.getSortOrder() > 0) {
             category.setSortOrder(category.getSortOrder() - 1);
             newsCategoryRepository.save(category);
+            pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+            newsReadModel.categoriesChanged();
             log.info("Moved category up: {}", id);
         }
     }
@@ -310,6 +329,8 @@ public class NewsCategoryService {
         if (category.getSortOrder() < maxSortOrder) {
             category.setSortOrder(category.getSortOrder() + 1);
             newsCategoryRepository.save(category);
+            pageOutputCache.evictTagsAfterCommit(PageOutputCache.NEWS_LIST_TAG);
+            newsReadModel.categoriesChanged();
             log.info("Moved category down: {}", id);
         }
     }
@@ -34,6 +34,7 @@ public class NewsCommentService {
     private final NewsCommentRepository newsCommentRepository;
     private final NewsArticleRepository newsArticleRepository;
     private final UserRepository userRepository;
+    private final PageOutputCache pageOutputCache;
     
     // CRUD Operations
     
@@ -130,6 +131,7 @@ public class NewsCommentService {
         comment.setStatus(CommentStatus.PENDING);
         
         NewsComment savedComment = newsCommentRepository.save(comment);
+        evictArticlePage(savedComment);
         log.info("Updated comment with id: {}", savedComment.getId());
         
         return convertToDto(savedComment);
@@ -145,6 +147,7 @@ public class NewsCommentService {
             .orElseThrow(() -> new IllegalArgumentException("Comment not found with id: " + id));
         
         newsCommentRepository.delete(comment);
+        evictArticlePage(comment);
         log.info("Deleted comment with id: {}", id);
     }
     
@@ -238,6 +241,7 @@ public class NewsCommentService {
         
         comment.setStatus(CommentStatus.APPROVED);
         newsCommentRepository.save(comment);
+        evictArticlePage(comment);
         
         log.info("Approved comment with id: {}", id);
     }
@@ -253,6 +257,7 @@ public class NewsCommentService {
         
         comment.setStatus(CommentStatus.REJECTED);
         newsCommentRepository.save(comment);
+        evictArticlePage(comment);
         
         log.info("Rejected comment with id: {}", id);
     }
@@ -268,6 +273,7 @@ public class NewsCommentService {
         
         comment.setStatus(CommentStatus.PENDING);
         newsCommentRepository.save(comment);
+        evictArticlePage(comment);
         
         log.info("Set comment to pending with id: {}", id);
     }
@@ -306,6 +312,15 @@ public class NewsCommentService {
         log.info("Completed bulk rejection of {} comments", commentIds.size());
     }
     
+    /**
+     * Drop cached renders of the comment's article, which list its approved comments
+     */
+    private void evictArticlePage(NewsComment comment) {
+        if (comment.getArticle() != null) {
+            pageOutputCache.evictTagsAfterCommit(PageOutputCache.articleTag(comment.getArticle().getId()));
+        }
+    }
+    
     // Analytics and Statistics
     
     /**
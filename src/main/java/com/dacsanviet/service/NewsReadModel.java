@@ -0,0 +1,141 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.config.CacheKeys;
+import com.dacsanviet.dto.NewsArticleDto;
+import com.dacsanviet.dto.NewsCategoryDto;
+import com.dacsanviet.util.AfterCommit;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache for the public news pages. List cards (featured and recent articles,
+ * without their bodies) and the active categories share the {@code newsLists} cache; full
+ * articles are cached by slug in {@code newsArticles}. Both are CoalescingCaches, so a
+ * miss is loaded once however many requests wait for it, and hits never open a transaction.
+ *
+ * Article and category writes evict after they commit: an article write evicts its slugs
+ * and every list, a category write evicts everything. The view count of a cached article
+ * can lag by up to the cache's TTL, as on cached pages.
+ */
+@Service
+public class NewsReadModel {
+
+    public static final String NEWS_LISTS = "newsLists";
+    public static final String NEWS_ARTICLES = "newsArticles";
+
+    // Names of the lists in NEWS_LISTS
+    public static final String FEATURED = "featured";
+    public static final String RECENT = "recent";
+    public static final String ACTIVE_CATEGORIES = "categories";
+
+    private final CacheManager cacheManager;
+    // Looked up on a miss; NewsService and NewsCategoryService evict through this class
+    private final ObjectProvider<NewsService> newsService;
+    private final ObjectProvider<NewsCategoryService> newsCategoryService;
+
+    @Autowired
+    public NewsReadModel(CacheManager cacheManager, ObjectProvider<NewsService> newsService,
+                         ObjectProvider<NewsCategoryService> newsCategoryService) {
+        this.cacheManager = cacheManager;
+        this.newsService = newsService;
+        this.newsCategoryService = newsCategoryService;
+    }
+
+    /**
+     * Featured published articles as list cards
+     */
+    public List<NewsArticleDto> findFeaturedCards(int limit) {
+        return lists().get(CacheKeys.newsList(FEATURED, limit), () -> cards(newsService.getObject().findPublishedFeaturedArticles(limit)));
+    }
+
+    /**
+     * Most recently published articles as list cards
+     */
+    public List<NewsArticleDto> findRecentCards(int limit) {
+        return lists().get(CacheKeys.newsList(RECENT, limit), () -> cards(newsService.getObject().findRecentArticles(limit)));
+    }
+
+    /**
+     * Active categories with their published article counts
+     */
+    public List<NewsCategoryDto> findActiveCategories() {
+        return lists().get(ACTIVE_CATEGORIES, () -> newsCategoryService.getObject().findActiveCategories());
+    }
+
+    /**
+     * An article with its body; a slug with no article is not cached
+     */
+    public Optional<NewsArticleDto> findArticle(String slug) {
+        try {
+            return Optional.of(articles().get(slug, () -> newsService.getObject().findBySlug(slug)
+                    .orElseThrow(NotFound::new)));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof NotFound) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * An article was created, edited, (un)published, featured or removed: evict it under
+     * each slug it had and every list, once the current transaction commits
+     */
+    public void articleChanged(String... slugs) {
+        AfterCommit.run(() -> {
+            Cache articles = articles();
+            for (String slug : slugs) {
+                if (slug != null) {
+                    articles.evict(slug);
+                }
+            }
+            lists().clear();
+        });
+    }
+
+    /**
+     * A category changed: lists and articles both show category names
+     */
+    public void categoriesChanged() {
+        AfterCommit.run(() -> {
+            lists().clear();
+            articles().clear();
+        });
+    }
+
+    /**
+     * The freshly loaded articles without their bodies, so cached lists stay small
+     */
+    private static List<NewsArticleDto> cards(List<NewsArticleDto> articles) {
+        List<NewsArticleDto> cards = new ArrayList<>(articles.size());
+        for (NewsArticleDto article : articles) {
+            article.setContent(null);
+            cards.add(article);
+        }
+        return cards;
+    }
+
+    private Cache lists() {
+        return cacheManager.getCache(NEWS_LISTS);
+    }
+
+    private Cache articles() {
+        return cacheManager.getCache(NEWS_ARTICLES);
+    }
+
+    /**
+     * Thrown by a load to leave a missing slug uncached
+     */
+    private static final class NotFound extends RuntimeException {
+        private NotFound() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.model.NewsArticle;
+import com.dacsanviet.model.NewsStatus;
+import com.dacsanviet.repository.NewsArticleRepository;
+import com.dacsanviet.util.AfterCommit;
+import com.dacsanviet.util.HtmlTextUtils;
+import com.dacsanviet.util.VietnameseTextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over published news articles for the public news search.
+ *
+ * Title, excerpt, category name and body (tags stripped) are folded to unaccented lower
+ * case ("nuoc mam" finds "nước mắm") and split into syllables, the words of written
+ * Vietnamese. Adjacent syllables are also indexed as pairs, so an article with the
+ * compound "nước mắm" ranks above one that has "nước" and "mắm" apart. Every query
+ * syllable must match; hits are ranked with BM25 over the syllables and the query's
+ * syllable pairs, the title counting three times and the excerpt and category twice,
+ * then newest first.
+ *
+ * Postings are int arrays in document order, each entry a document ordinal and its term
+ * frequency packed together, so query syllables are intersected by merging. A changed
+ * article is appended under a new ordinal and its old one marked deleted; document
+ * frequencies include deleted entries until the periodic full reload rebuilds the index.
+ * NewsService indexes an article after its transaction commits.
+ */
+@Service
+public class NewsSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewsSearchIndex.class);
+
+    // BM25 parameters (the usual defaults)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int EXCERPT_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int CONTENT_WEIGHT = 1;
+
+    // A posting keeps the frequency in its low byte and the ordinal (up to 2^23) above it
+    private static final int FREQUENCY_BITS = 8;
+    private static final int MAX_FREQUENCY = (1 << FREQUENCY_BITS) - 1;
+
+    private static final int RELOAD_BATCH = 500;
+
+    private final NewsArticleRepository newsArticleRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+    // Updates committed while a reload reads the database, applied again to what it loaded
+    private List<Consumer<Segment>> replay;
+    private volatile boolean ready;
+
+    // Off, searches always go to the database (the tests search inside uncommitted transactions)
+    @Value("${app.search.news-index.enabled:true}")
+    private boolean enabled = true;
+
+    private final AtomicLong searchCount = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+    private volatile LocalDateTime lastReloadAt;
+    private volatile long lastReloadMillis;
+
+    @Autowired
+    public NewsSearchIndex(NewsArticleRepository newsArticleRepository) {
+        this.newsArticleRepository = newsArticleRepository;
+    }
+
+    /**
+     * Reload every published article, in batches by id. Runs at startup and then every
+     * {@code app.search.news-index.reload-interval-ms}; searches use the previous index
+     * until the new one is complete. Nothing is loaded while
+     * {@code app.search.news-index.enabled} is false.
+     */
+    @Scheduled(fixedDelayString = "${app.search.news-index.reload-interval-ms:3600000}")
+    public synchronized void reload() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Segment loaded = new Segment();
+        try {
+            Long afterId = 0L;
+            List<Object[]> batch;
+            do {
+                batch = newsArticleRepository.findPublishedForSearchIndex(afterId, PageRequest.of(0, RELOAD_BATCH));
+                for (Object[] row : batch) {
+                    IndexedArticle article = IndexedArticle.of((Long) row[0], (String) row[1], (String) row[2],
+                            (String) row[3], (String) row[4], (LocalDateTime) row[5]);
+                    loaded.add(article);
+                    afterId = article.id;
+                }
+            } while (batch.size() == RELOAD_BATCH);
+        } catch (Exception e) {
+            logger.error("News search index reload failed: {}", e.getMessage(), e);
+            loaded = null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded != null) {
+                for (Consumer<Segment> update : replay) {
+                    update.accept(loaded);
+                }
+                segment = loaded;
+                ready = true;
+            }
+            replay = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (loaded != null) {
+            lastReloadAt = LocalDateTime.now();
+            lastReloadMillis = System.currentTimeMillis() - started;
+        }
+    }
+
+    /**
+     * Index (or re-index) an article once the current transaction commits; an article
+     * that is not published is removed. The category must be loaded or loadable.
+     */
+    public void index(NewsArticle article) {
+        if (article.getId() == null) {
+            throw new RuntimeException("Only saved articles can be indexed");
+        }
+        Long id = article.getId();
+        IndexedArticle document = article.getStatus() == NewsStatus.PUBLISHED
+                ? IndexedArticle.of(id, article.getTitle(), article.getExcerpt(), article.getContent(),
+                        article.getCategory() != null ? article.getCategory().getName() : null,
+                        article.getPublishedAt())
+                : null;
+        AfterCommit.run(() -> update(target -> {
+            target.remove(id);
+            if (document != null) {
+                target.add(document);
+            }
+        }));
+    }
+
+    /**
+     * Whether the first load has completed; until then callers should fall back to the database
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * The best limit published articles matching every syllable of the query, best first,
+     * and how many match in all
+     */
+    public Result search(String query, int limit) {
+        long started = System.nanoTime();
+        List<String> tokens = VietnameseTextUtils.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokens));
+        Set<String> pairs = new LinkedHashSet<>();
+        for (int i = 1; i < tokens.size(); i++) {
+            pairs.add(pair(tokens.get(i - 1), tokens.get(i)));
+        }
+
+        lock.readLock().lock();
+        try {
+            return segment.search(words, pairs, limit);
+        } finally {
+            lock.readLock().unlock();
+            searchCount.incrementAndGet();
+            searchNanos.addAndGet(System.nanoTime() - started);
+        }
+    }
+
+    private void update(Consumer<Segment> update) {
+        lock.writeLock().lock();
+        try {
+            update.accept(segment);
+            if (replay != null) {
+                replay.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        updateCount.incrementAndGet();
+    }
+
+    private static String pair(String first, String second) {
+        return first + ' ' + second;
+    }
+
+    /**
+     * Index statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", segment.live);
+            stats.put("deletedDocuments", segment.size - segment.live);
+            stats.put("terms", segment.postings.size());
+            long postings = 0;
+            long postingBytes = 0;
+            for (Postings list : segment.postings.values()) {
+                postings += list.size;
+                postingBytes += 4L * list.entries.length;
+            }
+            stats.put("postings", postings);
+            stats.put("postingBytes", postingBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long searches = searchCount.get();
+        stats.put("ready", ready);
+        stats.put("searches", searches);
+        stats.put("averageSearchMicros", searches > 0 ? searchNanos.get() / searches / 1000.0 : 0.0);
+        stats.put("incrementalUpdates", updateCount.get());
+        stats.put("lastReloadAt", lastReloadAt);
+        stats.put("lastReloadMillis", lastReloadMillis);
+        return stats;
+    }
+
+    /**
+     * One page of ranked hits and the number of matching articles
+     */
+    public static class Result {
+
+        private final List<Long> ids;
+        private final long total;
+
+        Result(List<Long> ids, long total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    // One term's postings: packed (ordinal, frequency) entries in ordinal order
+    private static final class Postings {
+
+        private int[] entries = new int[2];
+        private int size;
+
+        void add(int ordinal, int frequency) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+            }
+            entries[size++] = ordinal << FREQUENCY_BITS | frequency;
+        }
+
+        /**
+         * Index of the ordinal's entry at or after from, or -(insertion point) - 1
+         */
+        int find(int ordinal, int from) {
+            int low = from;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int found = entries[middle] >>> FREQUENCY_BITS;
+                if (found < ordinal) {
+                    low = middle + 1;
+                } else if (found > ordinal) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+    }
+
+    // The postings and per-document arrays of one load; guarded by the index's lock
+    private static final class Segment {
+
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final BitSet deleted = new BitSet();
+        private long[] ids = new long[64];
+        private int[] lengths = new int[64];
+        private long[] published = new long[64];
+        private int size;
+        private int live;
+        private long totalLength;
+
+        void add(IndexedArticle article) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                published = Arrays.copyOf(published, size * 2);
+            }
+            int ordinal = size++;
+            ids[ordinal] = article.id;
+            lengths[ordinal] = article.length;
+            published[ordinal] = article.publishedAt;
+            for (Map.Entry<String, Integer> term : article.frequencies.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new Postings())
+                        .add(ordinal, Math.min(term.getValue(), MAX_FREQUENCY));
+            }
+            ordinals.put(article.id, ordinal);
+            live++;
+            totalLength += article.length;
+        }
+
+        void remove(Long id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            deleted.set(ordinal);
+            live--;
+            totalLength -= lengths[ordinal];
+        }
+
+        Result search(List<String> words, Set<String> pairs, int limit) {
+            Postings[] lists = new Postings[words.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(words.get(i));
+                if (lists[i] == null) {
+                    return new Result(List.of(), 0);
+                }
+            }
+            // Walk the rarest syllable and look the others up from a cursor that only moves forward
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            double averageLength = live == 0 ? 1 : (double) totalLength / live;
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                idf[i] = idf(lists[i].size);
+            }
+
+            int[] cursors = new int[lists.length];
+            int[] hits = new int[16];
+            double[] scores = new double[16];
+            int hitCount = 0;
+            Postings rarest = lists[0];
+            candidates:
+            for (int k = 0; k < rarest.size; k++) {
+                int ordinal = rarest.entries[k] >>> FREQUENCY_BITS;
+                if (deleted.get(ordinal)) {
+                    continue;
+                }
+                double score = bm25(rarest.entries[k] & MAX_FREQUENCY, ordinal, idf[0], averageLength);
+                for (int i = 1; i < lists.length; i++) {
+                    int at = lists[i].find(ordinal, cursors[i]);
+                    if (at < 0) {
+                        cursors[i] = -at - 1;
+                        continue candidates;
+                    }
+                    cursors[i] = at + 1;
+                    score += bm25(lists[i].entries[at] & MAX_FREQUENCY, ordinal, idf[i], averageLength);
+                }
+                if (hitCount == hits.length) {
+                    hits = Arrays.copyOf(hits, hitCount * 2);
+                    scores = Arrays.copyOf(scores, hitCount * 2);
+                }
+                hits[hitCount] = ordinal;
+                scores[hitCount++] = score;
+            }
+
+            // Hits where the query's syllables also stand next to each other score those pairs too
+            for (String pair : pairs) {
+                Postings list = postings.get(pair);
+                if (list == null) {
+                    continue;
+                }
+                double pairIdf = idf(list.size);
+                int cursor = 0;
+                for (int h = 0; h < hitCount; h++) {
+                    int at = list.find(hits[h], cursor);
+                    if (at >= 0) {
+                        scores[h] += bm25(list.entries[at] & MAX_FREQUENCY, hits[h], pairIdf, averageLength);
+                        cursor = at + 1;
+                    } else {
+                        cursor = -at - 1;
+                    }
+                }
+            }
+
+            int[] top = top(hits, scores, hitCount, limit);
+            List<Long> result = new ArrayList<>(top.length);
+            for (int h : top) {
+                result.add(ids[hits[h]]);
+            }
+            return new Result(result, hitCount);
+        }
+
+        /**
+         * Indexes of the best limit hits, best first: a bounded heap keeps the page without
+         * sorting every hit of a common word
+         */
+        private int[] top(int[] hits, double[] scores, int hitCount, int limit) {
+            int size = Math.min(Math.max(limit, 0), hitCount);
+            // Min-heap on rank: the root is the worst hit kept so far
+            int[] heap = new int[size];
+            for (int h = 0; h < hitCount && size > 0; h++) {
+                if (h < size) {
+                    heap[h] = h;
+                    for (int child = h; child > 0 && compare(heap[(child - 1) / 2], heap[child], hits, scores) < 0; ) {
+                        swap(heap, child, (child - 1) / 2);
+                        child = (child - 1) / 2;
+                    }
+                } else if (compare(h, heap[0], hits, scores) < 0) {
+                    heap[0] = h;
+                    for (int parent = 0; ; ) {
+                        int worst = parent;
+                        for (int child = 2 * parent + 1; child <= 2 * parent + 2 && child < size; child++) {
+                            if (compare(heap[child], heap[worst], hits, scores) > 0) {
+                                worst = child;
+                            }
+                        }
+                        if (worst == parent) {
+                            break;
+                        }
+                        swap(heap, parent, worst);
+                        parent = worst;
+                    }
+                }
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = heap[i];
+            }
+            Arrays.sort(order, (a, b) -> compare(a, b, hits, scores));
+            int[] top = new int[size];
+            for (int i = 0; i < size; i++) {
+                top[i] = order[i];
+            }
+            return top;
+        }
+
+        /**
+         * Negative when hit a ranks before hit b: higher score, then newer, then lower id
+         */
+        private int compare(int a, int b, int[] hits, double[] scores) {
+            int byScore = Double.compare(scores[b], scores[a]);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byDate = Long.compare(published[hits[b]], published[hits[a]]);
+            return byDate != 0 ? byDate : Long.compare(ids[hits[a]], ids[hits[b]]);
+        }
+
+        private static void swap(int[] heap, int i, int j) {
+            int swapped = heap[i];
+            heap[i] = heap[j];
+            heap[j] = swapped;
+        }
+
+        private double idf(int documentFrequency) {
+            int frequency = Math.min(documentFrequency, live);
+            return Math.log(1 + (live - frequency + 0.5) / (frequency + 0.5));
+        }
+
+        private double bm25(int frequency, int ordinal, double idf, double averageLength) {
+            double lengthNorm = 1 - B + B * lengths[ordinal] / averageLength;
+            return idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+        }
+    }
+
+    // The searchable fields of an article, folded into weighted syllable and pair frequencies
+    private static final class IndexedArticle {
+
+        private final Long id;
+        private final long publishedAt;
+        private final Map<String, Integer> frequencies = new HashMap<>();
+        private int length;
+
+        private IndexedArticle(Long id, LocalDateTime publishedAt) {
+            this.id = id;
+            this.publishedAt = publishedAt != null ? publishedAt.toEpochSecond(ZoneOffset.UTC) : 0L;
+        }
+
+        static IndexedArticle of(Long id, String title, String excerpt, String content, String categoryName,
+                LocalDateTime publishedAt) {
+            IndexedArticle article = new IndexedArticle(id, publishedAt);
+            article.addField(title, TITLE_WEIGHT);
+            article.addField(excerpt, EXCERPT_WEIGHT);
+            article.addField(categoryName, CATEGORY_WEIGHT);
+            article.addField(HtmlTextUtils.plainText(content), CONTENT_WEIGHT);
+            return article;
+        }
+
+        private void addField(String text, int weight) {
+            List<String> tokens = VietnameseTextUtils.tokenize(text);
+            for (int i = 0; i < tokens.size(); i++) {
+                frequencies.merge(tokens.get(i), weight, Integer::sum);
+                if (i > 0) {
+                    frequencies.merge(pair(tokens.get(i - 1), tokens.get(i)), weight, Integer::sum);
+                }
+                length += weight;
+            }
+        }
+    }
+}
@@ -5,23 +5,33 @@ import com.dacsanviet.model.NewsArticle;
 import com.dacsanviet.model.NewsCategory;
 import com.dacsanviet.model.NewsStatus;
 import com.dacsanviet.model.User;
+import com.dacsanviet.repository.NewsArticleCardView;
 import com.dacsanviet.repository.NewsArticleRepository;
 import com.dacsanviet.repository.NewsCategoryRepository;
 import com.dacsanviet.repository.UserRepository;
+import com.dacsanviet.util.HtmlTextUtils;
+import com.dacsanviet.util.SearchHighlighter;
+import com.dacsanviet.util.VietnameseTextUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +48,14 @@ public class NewsService {
     private final NewsCategoryRepository newsCategoryRepository;
     private final UserRepository userRepository;
     private final SEOService seoService;
+    private final PageOutputCache pageOutputCache;
+    private final NewsViewCounter newsViewCounter;
+    private final NewsReadModel newsReadModel;
+    private final NewsSearchIndex newsSearchIndex;
+    private final RelatedItemsIndex relatedItemsIndex;
+    
+    // Characters of body text around the matches shown for a search result
+    private static final int SNIPPET_LENGTH = 220;
     
     // CRUD Operations
     
@@ -92,6 +110,9 @@ public class NewsService {
         
         NewsArticle savedArticle = newsArticleRepository.save(article);
         log.info("Created article with id: {} and slug: {}", savedArticle.getId(), savedArticle.getSlug());
+        pageOutputCache.evictArticle(savedArticle.getId());
+        newsReadModel.articleChanged(savedArticle.getSlug());
+        newsSearchIndex.index(savedArticle);
         
         return convertToDto(savedArticle);
     }
@@ -104,6 +125,7 @@ public class NewsService {
         
         NewsArticle article = newsArticleRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Article not found with id: " + id));
+        String previousSlug = article.getSlug();
         
         // Validate category if provided
         NewsCategory category = null;
@@ -138,9 +160,11 @@ public class NewsService {
         article.setMetaDescription(articleDto.getMetaDescription());
         article.setMetaKeywords(articleDto.getMetaKeywords());
         
-        // Handle status change
+        // Handle status change. A DTO read before the article last changed carries the status
+        // it had then, which must not undo a publish or unpublish made since.
         NewsStatus oldStatus = article.getStatus();
-        NewsStatus newStatus = articleDto.getStatus() != null ? articleDto.getStatus() : oldStatus;
+        NewsStatus newStatus = articleDto.getStatus() != null && !isReadBeforeLastChange(articleDto, article)
+            ? articleDto.getStatus() : oldStatus;
         
         if (oldStatus != newStatus) {
             article.setStatus(newStatus);
@@ -150,8 +174,14 @@ public class NewsService {
             }
         }
         
+        // Set here as well as on flush, so the returned DTO carries it
+        article.setUpdatedAt(LocalDateTime.now());
+        
         NewsArticle savedArticle = newsArticleRepository.save(article);
         log.info("Updated article with id: {}", savedArticle.getId());
+        pageOutputCache.evictArticle(id);
+        newsReadModel.articleChanged(previousSlug, savedArticle.getSlug());
+        newsSearchIndex.index(savedArticle);
         
         return convertToDto(savedArticle);
     }
@@ -167,6 +197,10 @@ public class NewsService {
         
         article.setStatus(NewsStatus.ARCHIVED);
         newsArticleRepository.save(article);
+        pageOutputCache.evictArticle(id);
+        newsViewCounter.forget(id);
+        newsReadModel.articleChanged(article.getSlug());
+        newsSearchIndex.index(article);
         
         log.info("Soft deleted article with id: {}", id);
     }
@@ -196,8 +230,8 @@ public class NewsService {
      */
     @Transactional(readOnly = true)
     public Page<NewsArticleDto> findPublishedArticles(Pageable pageable) {
-        return newsArticleRepository.findPublishedArticles(pageable)
-            .map(this::convertToDto);
+        return newsArticleRepository.findPublishedCards(pageable)
+            .map(this::convertCardToDto);
     }
     
     /**
@@ -205,8 +239,41 @@ public class NewsService {
      */
     @Transactional(readOnly = true)
     public Page<NewsArticleDto> findByCategory(Long categoryId, Pageable pageable) {
-        return newsArticleRepository.findPublishedArticlesByCategory(categoryId, pageable)
-            .map(this::convertToDto);
+        return newsArticleRepository.findPublishedCardsByCategory(categoryId, pageable)
+            .map(this::convertCardToDto);
+    }
+    
+    /**
+     * Articles related to an article, best first, as list cards: its precomputed related
+     * list, or the newest articles of its category when it was published since the last
+     * related-items build
+     */
+    @Transactional(readOnly = true)
+    public List<NewsArticleDto> findRelatedArticles(Long articleId, Long categoryId, int limit) {
+        List<Long> relatedIds = relatedItemsIndex.relatedArticles(articleId);
+        if (!relatedIds.isEmpty()) {
+            Map<Long, NewsArticleCardView> cards = new HashMap<>();
+            for (NewsArticleCardView card : newsArticleRepository.findCardsByIds(relatedIds)) {
+                cards.put(card.getId(), card);
+            }
+            // Articles unpublished since the build are skipped
+            return relatedIds.stream()
+                .map(cards::get)
+                .filter(card -> card != null && card.getStatus() == NewsStatus.PUBLISHED)
+                .limit(limit)
+                .map(this::convertCardToDto)
+                .collect(Collectors.toList());
+        }
+        
+        if (categoryId == null) {
+            return new ArrayList<>();
+        }
+        return newsArticleRepository.findPublishedCardsByCategory(categoryId, PageRequest.of(0, limit + 1))
+            .stream()
+            .filter(card -> !card.getId().equals(articleId))
+            .limit(limit)
+            .map(this::convertCardToDto)
+            .collect(Collectors.toList());
     }
     
     /**
@@ -214,28 +281,86 @@ public class NewsService {
      */
     @Transactional(readOnly = true)
     public Page<NewsArticleDto> findByCategorySlug(String categorySlug, Pageable pageable) {
-        return newsArticleRepository.findPublishedArticlesByCategorySlug(categorySlug, pageable)
-            .map(this::convertToDto);
+        return newsArticleRepository.findPublishedCardsByCategorySlug(categorySlug, pageable)
+            .map(this::convertCardToDto);
     }
     
     /**
-     * Search articles by keyword
+     * Search articles by keyword. Once the search index is loaded, results are in relevance
+     * order (the pageable's sort is not applied) with the title and a body snippet
+     * highlighted; until then the database is searched, newest first, without highlights.
      */
     @Transactional(readOnly = true)
     public Page<NewsArticleDto> searchArticles(String keyword, Pageable pageable) {
-        return newsArticleRepository.searchPublishedArticles(keyword, pageable)
-            .map(this::convertToDto);
+        if (!newsSearchIndex.isReady()) {
+            return newsArticleRepository.searchPublishedCards(keyword, pageable)
+                .map(this::convertCardToDto);
+        }
+        
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE) : 0;
+        int limit = pageable.isPaged() ? (int) Math.min((long) from + pageable.getPageSize(), Integer.MAX_VALUE)
+            : Integer.MAX_VALUE;
+        NewsSearchIndex.Result result = newsSearchIndex.search(keyword, limit);
+        List<Long> rankedIds = result.getIds();
+        List<Long> pageIds = rankedIds.subList(Math.min(from, rankedIds.size()), rankedIds.size());
+        return new PageImpl<>(loadSearchHits(pageIds, keyword), pageable, result.getTotal());
+    }
+    
+    /**
+     * One page of search hits as list cards, in rank order, with highlights. Only the bodies
+     * of this page are loaded, for their snippets.
+     */
+    private List<NewsArticleDto> loadSearchHits(List<Long> pageIds, String keyword) {
+        if (pageIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<Long, NewsArticleCardView> cards = new HashMap<>();
+        for (NewsArticleCardView card : newsArticleRepository.findCardsByIds(pageIds)) {
+            cards.put(card.getId(), card);
+        }
+        Map<Long, String> contents = new HashMap<>();
+        for (Object[] row : newsArticleRepository.findContentByIds(pageIds)) {
+            contents.put((Long) row[0], (String) row[1]);
+        }
+        
+        Set<String> words = new HashSet<>(VietnameseTextUtils.tokenize(keyword));
+        List<NewsArticleDto> hits = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            NewsArticleCardView card = cards.get(id);
+            if (card == null) {
+                continue;
+            }
+            NewsArticleDto dto = convertCardToDto(card);
+            dto.setHighlightedTitle(SearchHighlighter.highlight(card.getTitle(), words));
+            String body = HtmlTextUtils.plainText(contents.get(id));
+            dto.setSnippet(SearchHighlighter.snippet(body.isEmpty() ? card.getExcerpt() : body, words, SNIPPET_LENGTH));
+            hits.add(dto);
+        }
+        return hits;
     }
     
     /**
-     * Find featured articles
+     * Find featured articles for the admin, drafts waiting to be published included
      */
     @Transactional(readOnly = true)
     public List<NewsArticleDto> findFeaturedArticles(int limit) {
         Pageable pageable = PageRequest.of(0, limit);
-        return newsArticleRepository.findFeaturedArticles(pageable)
+        return newsArticleRepository.findFeaturedCardsIncludingDrafts(pageable)
             .stream()
-            .map(this::convertToDto)
+            .map(this::convertCardToDto)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Find featured published articles, as the public pages show them
+     */
+    @Transactional(readOnly = true)
+    public List<NewsArticleDto> findPublishedFeaturedArticles(int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        return newsArticleRepository.findFeaturedCards(pageable)
+            .stream()
+            .map(this::convertCardToDto)
             .collect(Collectors.toList());
     }
     
@@ -245,9 +370,9 @@ public class NewsService {
     @Transactional(readOnly = true)
     public List<NewsArticleDto> findRecentArticles(int limit) {
         Pageable pageable = PageRequest.of(0, limit);
-        return newsArticleRepository.findRecentPublishedArticles(pageable)
+        return newsArticleRepository.findRecentPublishedCards(pageable)
             .stream()
-            .map(this::convertToDto)
+            .map(this::convertCardToDto)
             .collect(Collectors.toList());
     }
     
@@ -282,6 +407,9 @@ public class NewsService {
         }
         
         newsArticleRepository.save(article);
+        pageOutputCache.evictArticle(id);
+        newsReadModel.articleChanged(article.getSlug());
+        newsSearchIndex.index(article);
         log.info("Published article with id: {}", id);
     }
     
@@ -296,6 +424,9 @@ public class NewsService {
         
         article.setStatus(NewsStatus.DRAFT);
         newsArticleRepository.save(article);
+        pageOutputCache.evictArticle(id);
+        newsReadModel.articleChanged(article.getSlug());
+        newsSearchIndex.index(article);
         
         log.info("Unpublished article with id: {}", id);
     }
@@ -311,6 +442,8 @@ public class NewsService {
         
         article.setIsFeatured(!article.getIsFeatured());
         newsArticleRepository.save(article);
+        pageOutputCache.evictArticle(id);
+        newsReadModel.articleChanged(article.getSlug());
         
         log.info("Toggled featured status for article with id: {} to {}", id, article.getIsFeatured());
     }
@@ -318,20 +451,28 @@ public class NewsService {
     // Analytics
     
     /**
-     * Increment view count for an article
+     * Increment view count for an article. Counted in memory and written within a few seconds.
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void incrementViewCount(Long id) {
         log.debug("Incrementing view count for article with id: {}", id);
-        newsArticleRepository.incrementViewCount(id);
+        newsViewCounter.record(id);
+    }
+    
+    /**
+     * Increment view count for an article unless this visitor viewed it recently
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void incrementViewCount(Long id, String visitorKey) {
+        newsViewCounter.record(id, visitorKey);
     }
     
     /**
-     * Find most viewed articles
+     * Find most viewed articles, including views not yet written
      */
     @Transactional(readOnly = true)
     public List<NewsArticleDto> findMostViewedArticles(int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return newsArticleRepository.findMostViewedArticles(pageable)
+        return newsViewCounter.findMostViewed(limit)
             .stream()
             .map(this::convertToDto)
             .collect(Collectors.toList());
@@ -376,6 +517,18 @@ public class NewsService {
     
     // Helper Methods
     
+    /**
+     * Whether the DTO was read before the article's last saved change
+     */
+    private boolean isReadBeforeLastChange(NewsArticleDto articleDto, NewsArticle article) {
+        if (articleDto.getUpdatedAt() == null || article.getUpdatedAt() == null) {
+            return false;
+        }
+        // The database may keep fewer fractional digits than the DTO was given
+        return articleDto.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS)
+            .isBefore(article.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS));
+    }
+    
     /**
      * Convert NewsArticle entity to DTO
      */
@@ -389,7 +542,7 @@ public class NewsService {
         dto.setFeaturedImage(article.getFeaturedImage());
         dto.setThumbnailImage(article.getThumbnailImage());
         dto.setStatus(article.getStatus());
-        dto.setViewCount(article.getViewCount());
+        dto.setViewCount(newsViewCounter.viewCount(article));
         dto.setIsFeatured(article.getIsFeatured());
         dto.setMetaDescription(article.getMetaDescription());
         dto.setMetaKeywords(article.getMetaKeywords());
@@ -413,4 +566,30 @@ public class NewsService {
         
         return dto;
     }
+    
+    /**
+     * Convert a list card to DTO; the content is not loaded and stays null
+     */
+    private NewsArticleDto convertCardToDto(NewsArticleCardView card) {
+        NewsArticleDto dto = new NewsArticleDto();
+        dto.setId(card.getId());
+        dto.setTitle(card.getTitle());
+        dto.setSlug(card.getSlug());
+        dto.setExcerpt(card.getExcerpt());
+        dto.setFeaturedImage(card.getFeaturedImage());
+        dto.setThumbnailImage(card.getThumbnailImage());
+        dto.setStatus(card.getStatus());
+        long stored = card.getViewCount() != null ? card.getViewCount() : 0L;
+        dto.setViewCount(stored + newsViewCounter.pending(card.getId()));
+        dto.setIsFeatured(card.getIsFeatured());
+        dto.setPublishedAt(card.getPublishedAt());
+        dto.setCreatedAt(card.getCreatedAt());
+        dto.setUpdatedAt(card.getUpdatedAt());
+        dto.setCategoryId(card.getCategoryId());
+        dto.setCategoryName(card.getCategoryName());
+        dto.setCategorySlug(card.getCategorySlug());
+        dto.setAuthorId(card.getAuthorId());
+        dto.setAuthorName(card.getAuthorName());
+        return dto;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,398 @@
+package com.dacsanviet.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dacsanviet.config.NewsViewProperties;
+import com.dacsanviet.model.NewsArticle;
+import com.dacsanviet.model.NewsStatus;
+import com.dacsanviet.repository.NewsArticleRepository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Counts news article views in memory. A view adds to the article's LongAdder, so a
+ * popular article is not one hot row updated per request; every flush interval the views
+ * counted since the last flush are added to news_articles.view_count with one
+ * {@code UPDATE ... CASE} statement per batch of articles.
+ *
+ * With dedupe on, a visitor's repeat views of an article within the dedupe window count
+ * once. Visitors are remembered in a pair of Bloom filters, the current window's and the
+ * previous one's, so memory stays fixed; about 1% of first views are taken for repeats
+ * when a window holds its configured capacity.
+ *
+ * Counts read through this class are the stored count plus the views not yet flushed.
+ * A flush the database rejects is retried on the next interval.
+ */
+@Service
+public class NewsViewCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewsViewCounter.class);
+
+    // Articles with unflushed views considered for the most viewed list besides the stored top
+    private static final int PENDING_CANDIDATES = 100;
+
+    private final NewsViewProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NewsArticleRepository newsArticleRepository;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    private final long windowMillis;
+    private volatile SeenFilter currentWindow;
+    private volatile SeenFilter previousWindow;
+
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong viewsFlushed = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    @Autowired
+    public NewsViewCounter(NewsViewProperties properties, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, NewsArticleRepository newsArticleRepository) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newsArticleRepository = newsArticleRepository;
+        this.windowMillis = TimeUnit.MINUTES.toMillis(properties.getDedupeWindowMinutes());
+        if (properties.isDedupeEnabled()) {
+            long now = System.currentTimeMillis();
+            this.currentWindow = new SeenFilter(properties.getDedupeCapacity(), now);
+            this.previousWindow = new SeenFilter(1, now);
+        }
+    }
+
+    /**
+     * Count a view of an article
+     */
+    public void record(Long articleId) {
+        counters.computeIfAbsent(articleId, id -> new Counter()).views.increment();
+    }
+
+    /**
+     * Count a view of an article unless this visitor viewed it within the dedupe window
+     *
+     * @param visitorKey identifies the visitor, see {@link #visitorKey(HttpServletRequest)}
+     */
+    public void record(Long articleId, String visitorKey) {
+        if (properties.isDedupeEnabled() && visitorKey != null && seenBefore(visitorKey, articleId)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        record(articleId);
+    }
+
+    /**
+     * Views of an article counted but not yet written
+     */
+    public long pending(Long articleId) {
+        Counter counter = counters.get(articleId);
+        return counter != null ? counter.pending() : 0L;
+    }
+
+    /**
+     * Stored views of an article plus those not yet written
+     */
+    public long viewCount(NewsArticle article) {
+        long stored = article.getViewCount() != null ? article.getViewCount() : 0L;
+        return stored + pending(article.getId());
+    }
+
+    /**
+     * Views of all articles not yet written
+     */
+    public long pendingTotal() {
+        long total = 0;
+        for (Counter counter : counters.values()) {
+            total += counter.pending();
+        }
+        return total;
+    }
+
+    /**
+     * Published articles with the most views, counting views not yet written. The stored
+     * top articles are merged with the articles that have the most unflushed views.
+     */
+    public List<NewsArticle> findMostViewed(int limit) {
+        Map<Long, NewsArticle> candidates = new LinkedHashMap<>();
+        for (NewsArticle article : newsArticleRepository.findMostViewedArticles(PageRequest.of(0, limit))) {
+            candidates.put(article.getId(), article);
+        }
+
+        List<Long> pendingIds = counters.entrySet().stream()
+                .filter(entry -> !candidates.containsKey(entry.getKey()))
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().pending()))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(PENDING_CANDIDATES)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!pendingIds.isEmpty()) {
+            for (NewsArticle article : newsArticleRepository.findAllById(pendingIds)) {
+                if (article.getStatus() == NewsStatus.PUBLISHED) {
+                    candidates.putIfAbsent(article.getId(), article);
+                }
+            }
+        }
+
+        return candidates.values().stream()
+                .sorted(Comparator.comparingLong(this::viewCount).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Stop counting views of an article, e.g. once it is deleted
+     */
+    public void forget(Long articleId) {
+        synchronized (flushLock) {
+            counters.remove(articleId);
+        }
+    }
+
+    // ===== DEDUPE =====
+
+    private boolean seenBefore(String visitorKey, Long articleId) {
+        long hash = hash(visitorKey, articleId);
+        long now = System.currentTimeMillis();
+        SeenFilter current = currentWindow;
+        if (now - current.startedAt >= windowMillis) {
+            current = rotate(now);
+        }
+        if (previousWindow.mightContain(hash)) {
+            // Carry the visitor over, so a steady reader stays deduplicated
+            current.put(hash);
+            return true;
+        }
+        return !current.put(hash);
+    }
+
+    private synchronized SeenFilter rotate(long now) {
+        SeenFilter current = currentWindow;
+        if (now - current.startedAt >= windowMillis) {
+            previousWindow = current;
+            current = new SeenFilter(properties.getDedupeCapacity(), now);
+            currentWindow = current;
+        }
+        return current;
+    }
+
+    /**
+     * 64-bit FNV-1a over the visitor key and article id, finished with a Murmur3 mix
+     */
+    private static long hash(String visitorKey, Long articleId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < visitorKey.length(); i++) {
+            hash = (hash ^ visitorKey.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ articleId) * 0x100000001b3L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * The visitor's session id when they have a session, otherwise their address and
+     * browser. Never creates a session.
+     */
+    public static String visitorKey(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            return session.getId();
+        }
+        String address = request.getHeader("X-Forwarded-For");
+        if (address != null && !address.isEmpty()) {
+            address = address.split(",")[0].trim();
+        } else {
+            address = request.getRemoteAddr();
+        }
+        return address + "|" + request.getHeader("User-Agent");
+    }
+
+    // ===== FLUSHING =====
+
+    /**
+     * Write the views counted since the last flush
+     */
+    @Scheduled(fixedDelayString = "${app.news.views.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            List<Long> ids = new ArrayList<>();
+            List<Long> totals = new ArrayList<>();
+            List<Long> deltas = new ArrayList<>();
+            for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+                Counter counter = entry.getValue();
+                long total = counter.views.sum();
+                if (total > counter.flushed) {
+                    ids.add(entry.getKey());
+                    totals.add(total);
+                    deltas.add(total - counter.flushed);
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+
+            long started = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int from = 0; from < ids.size(); from += properties.getBatchSize()) {
+                        int to = Math.min(from + properties.getBatchSize(), ids.size());
+                        addViews(ids.subList(from, to), deltas.subList(from, to));
+                    }
+                });
+            } catch (RuntimeException e) {
+                failedFlushes.incrementAndGet();
+                logger.warn("Failed to write views of {} news articles, retrying: {}", ids.size(), e.getMessage());
+                return;
+            }
+
+            long written = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                Counter counter = counters.get(ids.get(i));
+                if (counter != null) {
+                    counter.flushed = totals.get(i);
+                }
+                written += deltas.get(i);
+            }
+            long elapsed = System.nanoTime() - started;
+            flushNanos.addAndGet(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+            flushes.incrementAndGet();
+            viewsFlushed.addAndGet(written);
+        }
+    }
+
+    /**
+     * UPDATE news_articles SET view_count = COALESCE(view_count, 0) + CASE id WHEN ? THEN ? ... END
+     * WHERE id IN (...)
+     */
+    private void addViews(List<Long> ids, List<Long> deltas) {
+        StringBuilder sql = new StringBuilder("UPDATE news_articles SET view_count = COALESCE(view_count, 0) + CASE id");
+        List<Object> args = new ArrayList<>(ids.size() * 3);
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+            args.add(ids.get(i));
+            args.add(deltas.get(i));
+        }
+        sql.append(" ELSE 0 END WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            args.add(ids.get(i));
+        }
+        sql.append(")");
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("News view counter stopped with {} views unwritten: {}", pendingTotal(), e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long flushCount = flushes.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trackedArticles", counters.size());
+        stats.put("pendingViews", pendingTotal());
+        stats.put("duplicatesSkipped", duplicates.get());
+        stats.put("dedupeEnabled", properties.isDedupeEnabled());
+        stats.put("flushes", flushCount);
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("viewsFlushed", viewsFlushed.get());
+        stats.put("avgFlushMs", flushCount == 0 ? 0.0 : flushNanos.get() / 1_000_000.0 / flushCount);
+        stats.put("maxFlushMs", maxFlushNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * Views of one article since startup, and how many of them are written
+     */
+    private static final class Counter {
+        private final LongAdder views = new LongAdder();
+        // Only written by the flusher, after the views up to it are committed
+        private volatile long flushed;
+
+        private long pending() {
+            return Math.max(0L, views.sum() - flushed);
+        }
+    }
+
+    /**
+     * Bloom filter over visitor and article pairs, with bits set without locking
+     */
+    private static final class SeenFilter {
+        private final long startedAt;
+        private final int bits;
+        private final int hashes;
+        private final AtomicLongArray words;
+
+        private SeenFilter(int capacity, long startedAt) {
+            this.startedAt = startedAt;
+            // m = -n ln(p) / ln(2)^2 and k = m/n ln(2) for p = 1%
+            this.bits = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63,
+                    Math.ceil(capacity * Math.log(100) / (Math.log(2) * Math.log(2)))));
+            this.hashes = Math.max(1, (int) Math.round((double) bits / Math.max(1, capacity) * Math.log(2)));
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        private boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return whether any bit was newly set, i.e. the pair was not seen before
+         */
+        private boolean put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean added = false;
+            for (int i = 0; i < hashes; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+                long mask = 1L << bit;
+                long word = words.getAndAccumulate(bit >>> 6, mask, (current, m) -> current | m);
+                added |= (word & mask) == 0;
+            }
+            return added;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.dao.OrderStatisticsDao;
+import com.dacsanviet.model.OrderStatus;
+import com.dacsanviet.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order counts and order value per status, each from a single {@code GROUP BY status} query
+ * instead of one COUNT per status. Every status is present in the returned maps (zero when
+ * it has no orders).
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderAnalyticsService {
+
+    private final OrderRepository orderRepository;
+
+    @Autowired
+    public OrderAnalyticsService(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * Totals per status over all orders
+     */
+    public EnumMap<OrderStatus, StatusTotals> getTotalsByStatus() {
+        return toEnumMap(orderRepository.getOrderTotalsByStatus());
+    }
+
+    /**
+     * Totals per status over one user's orders
+     */
+    public EnumMap<OrderStatus, StatusTotals> getTotalsByStatusForUser(Long userId) {
+        return toEnumMap(orderRepository.getOrderTotalsByStatusForUser(userId));
+    }
+
+    /**
+     * Totals per status over the orders placed within a date range
+     */
+    public EnumMap<OrderStatus, StatusTotals> getTotalsByStatusBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return toEnumMap(orderRepository.getOrderTotalsByStatusBetween(startDate, endDate));
+    }
+
+    /**
+     * Store-wide order statistics for the admin dashboard, cached for a few seconds
+     * ({@code dashboardSnapshots}). The returned object is shared and must not be modified.
+     */
+    @Cacheable(value = "dashboardSnapshots", key = "'orderStatistics'", sync = true)
+    public OrderStatisticsDao getOrderStatisticsSnapshot() {
+        EnumMap<OrderStatus, StatusTotals> totals = getTotalsByStatus();
+
+        OrderStatisticsDao stats = new OrderStatisticsDao();
+        stats.setTotalOrders(countAll(totals));
+        stats.setPendingOrders(totals.get(OrderStatus.PENDING).getCount());
+        stats.setConfirmedOrders(totals.get(OrderStatus.CONFIRMED).getCount());
+        stats.setShippedOrders(totals.get(OrderStatus.SHIPPED).getCount());
+        stats.setDeliveredOrders(totals.get(OrderStatus.DELIVERED).getCount());
+        stats.setCancelledOrders(totals.get(OrderStatus.CANCELLED).getCount());
+        stats.setTotalRevenue(revenue(totals));
+        return stats;
+    }
+
+    /**
+     * Order count per status name, as the analytics endpoints return it
+     */
+    public static Map<String, Long> countsByName(Map<OrderStatus, StatusTotals> totals) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<OrderStatus, StatusTotals> entry : totals.entrySet()) {
+            counts.put(entry.getKey().name(), entry.getValue().getCount());
+        }
+        return counts;
+    }
+
+    /**
+     * Number of orders in any status
+     */
+    public static long countAll(Map<OrderStatus, StatusTotals> totals) {
+        long count = 0;
+        for (StatusTotals statusTotals : totals.values()) {
+            count += statusTotals.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * Number of orders that were not cancelled
+     */
+    public static long countNotCancelled(Map<OrderStatus, StatusTotals> totals) {
+        return countAll(totals) - totals.get(OrderStatus.CANCELLED).getCount();
+    }
+
+    /**
+     * Revenue: value of the orders that were not cancelled
+     */
+    public static BigDecimal revenue(Map<OrderStatus, StatusTotals> totals) {
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (Map.Entry<OrderStatus, StatusTotals> entry : totals.entrySet()) {
+            if (entry.getKey() != OrderStatus.CANCELLED) {
+                revenue = revenue.add(entry.getValue().getAmount());
+            }
+        }
+        return revenue;
+    }
+
+    /**
+     * Average value of the orders that were not cancelled
+     */
+    public static BigDecimal averageOrderValue(Map<OrderStatus, StatusTotals> totals) {
+        long orders = countNotCancelled(totals);
+        if (orders == 0) {
+            return BigDecimal.ZERO;
+        }
+        return revenue(totals).divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP);
+    }
+
+    private static EnumMap<OrderStatus, StatusTotals> toEnumMap(List<Object[]> rows) {
+        EnumMap<OrderStatus, StatusTotals> totals = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            totals.put(status, new StatusTotals(0, BigDecimal.ZERO));
+        }
+        for (Object[] row : rows) {
+            OrderStatus status = (OrderStatus) row[0];
+            if (status != null) {
+                totals.put(status, new StatusTotals(((Number) row[1]).longValue(), toBigDecimal(row[2])));
+            }
+        }
+        return totals;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    /**
+     * Number and total value of the orders in one status
+     */
+    public static class StatusTotals {
+
+        private final long count;
+        private final BigDecimal amount;
+
+        public StatusTotals(long count, BigDecimal amount) {
+            this.count = count;
+            this.amount = amount;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.model.OrderItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserts the items of a new order as one JDBC batch.
+ *
+ * OrderItem ids are IDENTITY columns, which makes Hibernate insert every item on its own
+ * and ignore {@code hibernate.jdbc.batch_size}. Checkout writes its items here instead;
+ * with {@code rewriteBatchedStatements=true} MySQL receives a single multi-row INSERT and
+ * the generated ids are copied back onto the items.
+ *
+ * The items are not managed by Hibernate afterwards, so they must not be added to the
+ * managed Order's orderItems collection (its cascade would insert them a second time).
+ */
+@Service
+public class OrderItemBatchService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, unit_price, product_name, " +
+            "product_description, category_name, product_image_url, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OrderItemBatchService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert the items (order and product already set) and fill in their ids and createdAt.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void insertAll(List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(now);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (OrderItem item : items) {
+                    if (item.getOrder() == null || item.getOrder().getId() == null || item.getProduct() == null) {
+                        throw new RuntimeException("Order item must belong to a saved order and a product");
+                    }
+                    ps.setLong(1, item.getOrder().getId());
+                    ps.setLong(2, item.getProduct().getId());
+                    ps.setInt(3, item.getQuantity());
+                    ps.setBigDecimal(4, item.getUnitPrice());
+                    ps.setString(5, item.getProductName());
+                    ps.setString(6, item.getProductDescription());
+                    ps.setString(7, item.getCategoryName());
+                    ps.setString(8, item.getProductImageUrl());
+                    ps.setTimestamp(9, createdAt);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int index = 0;
+                    while (keys.next() && index < items.size()) {
+                        items.get(index++).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+
+        for (OrderItem item : items) {
+            item.setCreatedAt(now);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.dacsanviet.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,11 +55,19 @@ public class OrderService {
 	private final ProductRepository productRepository;
 	private final NotificationService notificationService;
 	private final EmailService emailService;
+	private final StockAllocationService stockAllocationService;
+	private final StockReservationService stockReservationService;
+	private final OrderItemBatchService orderItemBatchService;
+	private final SalesRollupService salesRollupService;
+	private final OrderAnalyticsService orderAnalyticsService;
 
 	@Autowired
 	public OrderService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
 			CartItemRepository cartItemRepository, UserRepository userRepository, AddressRepository addressRepository,
-			ProductRepository productRepository, NotificationService notificationService, EmailService emailService) {
+			ProductRepository productRepository, NotificationService notificationService, EmailService emailService,
+			StockAllocationService stockAllocationService, StockReservationService stockReservationService,
+			OrderItemBatchService orderItemBatchService, SalesRollupService salesRollupService,
+			OrderAnalyticsService orderAnalyticsService) {
 		this.orderRepository = orderRepository;
 		this.orderItemRepository = orderItemRepository;
 		this.cartItemRepository = cartItemRepository;
@@ -65,6 +76,11 @@ public class OrderService {
 		this.productRepository = productRepository;
 		this.notificationService = notificationService;
 		this.emailService = emailService;
+		this.stockAllocationService = stockAllocationService;
+		this.stockReservationService = stockReservationService;
+		this.orderItemBatchService = orderItemBatchService;
+		this.salesRollupService = salesRollupService;
+		this.orderAnalyticsService = orderAnalyticsService;
 	}
 
 	/**
@@ -125,9 +141,11 @@ public class OrderService {
 				.orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
 
 		// Validate status transition
-		validateStatusTransition(order.getStatus(), request.getStatus());
+		OrderStatus previousStatus = order.getStatus();
+		validateStatusTransition(previousStatus, request.getStatus());
 
 		order.setStatus(request.getStatus());
+		stockReservationService.commitForStatus(order.getId(), request.getStatus());
 
 		if (request.getTrackingNumber() != null) {
 			order.setTrackingNumber(request.getTrackingNumber());
@@ -138,6 +156,7 @@ public class OrderService {
 		}
 
 		order = orderRepository.save(order);
+		salesRollupService.recordStatusChange(order, previousStatus, order.getStatus());
 
 		// Send notification about status change
 		String statusMessage = getStatusChangeMessage(request.getStatus());
@@ -230,15 +249,17 @@ public class OrderService {
 			throw new RuntimeException("Order cannot be cancelled in current status: " + order.getStatus());
 		}
 
-		// Restore inventory
+		// Restore inventory (or release the stock still held for payment)
+		Map<Long, Integer> restored = new HashMap<>();
 		for (OrderItem orderItem : order.getOrderItems()) {
-			Product product = orderItem.getProduct();
-			product.setStockQuantity(product.getStockQuantity() + orderItem.getQuantity());
-			productRepository.save(product);
+			restored.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
 		}
+		stockReservationService.cancel(order.getId(), restored);
 
+		OrderStatus previousStatus = order.getStatus();
 		order.setStatus(OrderStatus.CANCELLED);
 		order = orderRepository.save(order);
+		salesRollupService.recordStatusChange(order, previousStatus, OrderStatus.CANCELLED);
 
 		// Send notification about cancellation
 		notificationService.sendOrderStatusNotification(order,
@@ -248,28 +269,12 @@ public class OrderService {
 	}
 
 	/**
-	 * Get order statistics
+	 * Get order statistics (one grouped query, cached for a few seconds). Returns a copy of
+	 * the cached snapshot, so callers may modify it.
 	 */
 	@Transactional(readOnly = true)
 	public OrderStatisticsDao getOrderStatistics() {
-		Long totalOrders = orderRepository.count();
-		Long pendingOrders = orderRepository.countByStatus(OrderStatus.PENDING);
-		Long confirmedOrders = orderRepository.countByStatus(OrderStatus.CONFIRMED);
-		Long shippedOrders = orderRepository.countByStatus(OrderStatus.SHIPPED);
-		Long deliveredOrders = orderRepository.countByStatus(OrderStatus.DELIVERED);
-		Long cancelledOrders = orderRepository.countByStatus(OrderStatus.CANCELLED);
-		BigDecimal totalRevenue = orderRepository.calculateTotalRevenue();
-
-		OrderStatisticsDao stats = new OrderStatisticsDao();
-		stats.setTotalOrders(totalOrders);
-		stats.setPendingOrders(pendingOrders);
-		stats.setConfirmedOrders(confirmedOrders);
-		stats.setShippedOrders(shippedOrders);
-		stats.setDeliveredOrders(deliveredOrders);
-		stats.setCancelledOrders(cancelledOrders);
-		stats.setTotalRevenue(totalRevenue);
-
-		return stats;
+		return new OrderStatisticsDao(orderAnalyticsService.getOrderStatisticsSnapshot());
 	}
 
 	/**
@@ -300,6 +305,7 @@ public class OrderService {
 		order.setPaymentStatus(PaymentStatus.COMPLETED);
 
 		order = orderRepository.save(order);
+		salesRollupService.recordStatusChange(order, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
 
 		// Send notification about delivery confirmation
 		notificationService.sendOrderStatusNotification(order,
@@ -404,6 +410,10 @@ public class OrderService {
 	}
 
 	private OrderDao convertToOrderDto(Order order) {
+		return convertToOrderDto(order, order.getOrderItems());
+	}
+
+	private OrderDao convertToOrderDto(Order order, List<OrderItem> orderItems) {
 		OrderDao dto = new OrderDao();
 		dto.setId(order.getId());
 		dto.setOrderNumber(order.getOrderNumber());
@@ -439,7 +449,7 @@ public class OrderService {
 		dto.setUpdatedAt(order.getUpdatedAt());
 
 		// Convert order items
-		List<OrderItemDao> orderItemDtos = order.getOrderItems().stream().map(this::convertToOrderItemDto)
+		List<OrderItemDao> orderItemDtos = orderItems.stream().map(this::convertToOrderItemDto)
 				.collect(Collectors.toList());
 		dto.setOrderItems(orderItemDtos);
 
@@ -553,29 +563,40 @@ public class OrderService {
 	}
 
 	/**
-	 * Get revenue analytics
+	 * Get revenue analytics (from the daily sales rollup)
 	 */
 	@Transactional(readOnly = true)
 	public Map<String, Object> getRevenueAnalytics(LocalDateTime startDate, LocalDateTime endDate, String period) {
 		Map<String, Object> analytics = new HashMap<>();
+		LocalDate from = startDate.toLocalDate();
+		LocalDate to = endDate.toLocalDate();
 
 		// Total revenue for period
-		BigDecimal totalRevenue = orderRepository.calculateRevenueBetweenDates(startDate, endDate);
+		BigDecimal totalRevenue = salesRollupService.getTotals(from, to, false).getRevenue();
 		analytics.put("totalRevenue", totalRevenue);
 
-		// Revenue breakdown by period
-		List<Object[]> revenueBreakdown;
+		// Revenue breakdown by period, newest first: [date, orders, revenue] or [year, month, orders, revenue]
+		List<Object[]> revenueBreakdown = new ArrayList<>();
 		if ("DAILY".equalsIgnoreCase(period)) {
-			revenueBreakdown = orderRepository.getDailyOrderStatistics(startDate, endDate);
+			for (Map.Entry<LocalDate, SalesRollupService.Totals> day : salesRollupService.getDailyTotals(from, to)
+					.descendingMap().entrySet()) {
+				revenueBreakdown.add(new Object[] { day.getKey(), day.getValue().getOrderCount(),
+						day.getValue().getRevenue() });
+			}
 		} else {
-			revenueBreakdown = orderRepository.getMonthlyOrderStatistics();
+			for (Map.Entry<YearMonth, SalesRollupService.Totals> month : salesRollupService.getMonthlyTotals()
+					.descendingMap().entrySet()) {
+				revenueBreakdown.add(new Object[] { month.getKey().getYear(), month.getKey().getMonthValue(),
+						month.getValue().getOrderCount(), month.getValue().getRevenue() });
+			}
 		}
 		analytics.put("revenueBreakdown", revenueBreakdown);
 
 		// Growth rate calculation
 		LocalDateTime previousPeriodStart = startDate
 				.minusDays(java.time.Duration.between(startDate, endDate).toDays());
-		BigDecimal previousRevenue = orderRepository.calculateRevenueBetweenDates(previousPeriodStart, startDate);
+		BigDecimal previousRevenue = salesRollupService
+				.getTotals(previousPeriodStart.toLocalDate(), from.minusDays(1), false).getRevenue();
 
 		BigDecimal growthRate = BigDecimal.ZERO;
 		if (previousRevenue.compareTo(BigDecimal.ZERO) > 0) {
@@ -634,9 +655,10 @@ public class OrderService {
 	public Map<String, Long> getOrderStatusBreakdown(LocalDateTime startDate, LocalDateTime endDate) {
 		Map<String, Long> breakdown = new HashMap<>();
 
-		for (OrderStatus status : OrderStatus.values()) {
-			Long count = orderRepository.countByStatusAndDateRange(status, startDate, endDate);
-			breakdown.put(status.name(), count);
+		Map<OrderStatus, SalesRollupService.Totals> byStatus = salesRollupService
+				.getTotalsByStatus(startDate.toLocalDate(), endDate.toLocalDate());
+		for (Map.Entry<OrderStatus, SalesRollupService.Totals> entry : byStatus.entrySet()) {
+			breakdown.put(entry.getKey().name(), entry.getValue().getOrderCount());
 		}
 
 		return breakdown;
@@ -800,6 +822,19 @@ public class OrderService {
 			throw new RuntimeException("Cart is empty");
 		}
 
+		// Quantity per product, and every product with its category in a single query
+		Map<Long, Integer> quantities = new HashMap<>();
+		if (useRequestItems) {
+			for (CreateOrderRequest.CartItemRequest itemRequest : request.getItems()) {
+				quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+			}
+		} else {
+			for (CartItem cartItem : cartItems) {
+				quantities.merge(cartItem.getProduct().getId(), cartItem.getQuantity(), Integer::sum);
+			}
+		}
+		Map<Long, Product> products = loadProducts(quantities.keySet());
+
 		// Calculate totals (for guest orders, use values from request)
 		BigDecimal subtotal = request.getSubtotal() != null ? request.getSubtotal() : BigDecimal.ZERO;
 		BigDecimal shippingFee = request.getShippingFee() != null ? request.getShippingFee() : BigDecimal.ZERO;
@@ -841,16 +876,25 @@ public class OrderService {
 		// Set order date
 		// Order date already set above
 
+		// Take stock for every line in one conditional batch. COD orders take it now; orders
+		// paid online only hold it until payment arrives or the payment window closes.
+		boolean payOnDelivery = "COD".equals(request.getPaymentMethod());
+		if (payOnDelivery) {
+			stockAllocationService.allocate(quantities).orThrow();
+		}
+
 		// Save order
 		order = orderRepository.save(order);
+		if (!payOnDelivery) {
+			stockReservationService.reserve(order.getId(), quantities).orThrow();
+		}
 
 		// Create order items - Priority: request items (localStorage) > database cart
+		List<OrderItem> orderItems = new ArrayList<>();
 		if (useRequestItems && request.getItems() != null && !request.getItems().isEmpty()) {
 			// Use items from request (localStorage - works for both guest and logged-in users)
 			for (CreateOrderRequest.CartItemRequest itemRequest : request.getItems()) {
-				// Get product from database
-				Product product = productRepository.findById(itemRequest.getProductId())
-						.orElseThrow(() -> new RuntimeException("Product not found: " + itemRequest.getProductId()));
+				Product product = products.get(itemRequest.getProductId());
 
 				// Create order item
 				OrderItem orderItem = new OrderItem();
@@ -864,14 +908,9 @@ public class OrderService {
 				if (product.getCategory() != null) {
 					orderItem.setCategoryName(product.getCategory().getName());
 				}
-
-				orderItemRepository.save(orderItem);
-				order.addOrderItem(orderItem);
-
-				// Update product stock
-				product.setStockQuantity(product.getStockQuantity() - itemRequest.getQuantity());
-				productRepository.save(product);
+				orderItems.add(orderItem);
 			}
+			orderItemBatchService.insertAll(orderItems);
 			
 			// ONLY clear database cart if user is authenticated AND we used localStorage items
 			// This prevents clearing cart unnecessarily
@@ -885,15 +924,9 @@ public class OrderService {
 		} else if (!cartItems.isEmpty()) {
 			// Fallback: Use cart items from database (authenticated user)
 			for (CartItem cartItem : cartItems) {
-				OrderItem orderItem = new OrderItem(order, cartItem);
-				orderItemRepository.save(orderItem);
-				order.addOrderItem(orderItem);
-
-				// Update product stock
-				Product product = cartItem.getProduct();
-				product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-				productRepository.save(product);
+				orderItems.add(new OrderItem(order, cartItem));
 			}
+			orderItemBatchService.insertAll(orderItems);
 
 			// Clear database cart for authenticated users
 			if (request.getUserId() != null) {
@@ -905,15 +938,35 @@ public class OrderService {
 			}
 		}
 
-		// Send notification
-		try {
-			// Send order confirmation email
-			emailService.sendOrderConfirmationEmail(convertToOrderDto(order));
-		} catch (Exception e) {
-			// Log error but don't fail the order
+		int itemsSold = 0;
+		for (OrderItem orderItem : orderItems) {
+			itemsSold += orderItem.getQuantity();
 		}
+		salesRollupService.recordOrderPlaced(order, itemsSold);
 
-		return convertToOrderDto(order);
+		// The batch-inserted items are not in order.getOrderItems(), so the DTO gets them directly
+		OrderDao orderDto = convertToOrderDto(order, orderItems);
+
+		// Queued with the order; EmailService logs its own failures except a failed outbox insert
+		emailService.sendOrderConfirmationEmail(orderDto);
+
+		return orderDto;
+	}
+
+	/**
+	 * Load the products of an order, with their categories, in one query
+	 */
+	private Map<Long, Product> loadProducts(Collection<Long> productIds) {
+		Map<Long, Product> products = new HashMap<>();
+		for (Product product : productRepository.findAllByIdWithCategory(productIds)) {
+			products.put(product.getId(), product);
+		}
+		for (Long productId : productIds) {
+			if (!products.containsKey(productId)) {
+				throw new RuntimeException("Product not found: " + productId);
+			}
+		}
+		return products;
 	}
 
 	private String generateOrderNumber() {
@@ -947,59 +1000,50 @@ public class OrderService {
 	 */
 	public boolean verifyAndUpdatePayment(Long orderId, long amount, String paymentMethod, String transactionId,
 			String description) {
-		try {
-			// Find order
-			Order order = orderRepository.findById(orderId).orElse(null);
-			if (order == null) {
-				System.err.println("Order not found: " + orderId);
-				return false;
-			}
-
-			// Check if already paid
-			if ("PAID".equals(order.getPaymentStatus())) {
-				System.out.println("Order " + orderId + " already paid");
-				return true;
-			}
+		// Find order
+		Order order = orderRepository.findById(orderId).orElse(null);
+		if (order == null) {
+			System.err.println("Order not found: " + orderId);
+			return false;
+		}
 
-			// Verify amount matches (allow small difference for rounding)
-			long orderAmount = order.getTotalAmount().longValue();
-			long difference = Math.abs(orderAmount - amount);
+		// Check if already paid
+		if ("PAID".equals(order.getPaymentStatus())) {
+			System.out.println("Order " + orderId + " already paid");
+			return true;
+		}
 
-			if (difference > 1000) { // Allow 1000 VND difference
-				System.err.println(
-						"Amount mismatch for order " + orderId + ": expected " + orderAmount + ", got " + amount);
-				return false;
-			}
+		// Verify amount matches (allow small difference for rounding)
+		long orderAmount = order.getTotalAmount().longValue();
+		long difference = Math.abs(orderAmount - amount);
 
-			// Update payment status
-			order.setPaymentStatus(PaymentStatus.COMPLETED);
-			order.setPaymentMethod(paymentMethod);
-			order.setUpdatedAt(LocalDateTime.now());
+		if (difference > 1000) { // Allow 1000 VND difference
+			System.err.println(
+					"Amount mismatch for order " + orderId + ": expected " + orderAmount + ", got " + amount);
+			return false;
+		}
 
-			// Add note about payment
-			String note = order.getNotes() != null ? order.getNotes() + "\n" : "";
-			note += "Thanh toán tự động xác nhận qua Casso. Mã GD: " + transactionId;
-			order.setNotes(note);
+		// Update payment status and turn the stock hold into a sale. Failures propagate: the
+		// stock and outbox writes share this transaction, which cannot commit after one fails.
+		stockReservationService.commit(order.getId());
+		order.setPaymentStatus(PaymentStatus.COMPLETED);
+		order.setPaymentMethod(paymentMethod);
+		order.setUpdatedAt(LocalDateTime.now());
 
-			orderRepository.save(order);
+		// Add note about payment
+		String note = order.getNotes() != null ? order.getNotes() + "\n" : "";
+		note += "Thanh toán tự động xác nhận qua Casso. Mã GD: " + transactionId;
+		order.setNotes(note);
 
-			System.out.println("Payment verified for order " + orderId + ". Amount: " + amount + ", Transaction: "
-					+ transactionId);
+		orderRepository.save(order);
 
-			// Send notification email
-			try {
-				emailService.sendPaymentConfirmationEmail(convertToOrderDto(order));
-			} catch (Exception e) {
-				System.err.println("Failed to send payment confirmation email: " + e.getMessage());
-			}
+		System.out.println("Payment verified for order " + orderId + ". Amount: " + amount + ", Transaction: "
+				+ transactionId);
 
-			return true;
+		// Send notification email
+		emailService.sendPaymentConfirmationEmail(convertToOrderDto(order));
 
-		} catch (Exception e) {
-			System.err.println("Error verifying payment for order " + orderId + ": " + e.getMessage());
-			e.printStackTrace();
-			return false;
-		}
+		return true;
 	}
 
 	/**
@@ -0,0 +1,246 @@
+package com.dacsanviet.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.dacsanviet.config.WebSocketOutboundProperties;
+import com.dacsanviet.util.AfterCommit;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Outbound stage for STOMP messages sent by the application. Callers hand over a message
+ * and return immediately; it is queued once the surrounding transaction commits (so
+ * clients never hear about rows that were rolled back) and converted and handed to the
+ * broker on a dedicated executor, off the request thread.
+ *
+ * Messages for one destination are dispatched in order by at most one task at a time.
+ * sendLatest() replaces a message with the same key that is still waiting and moves it to
+ * the back of its destination's queue, so a burst of like-count or read-status updates
+ * reaches clients as one message with the latest value.
+ * When maxQueuedMessages are already waiting, new messages are dropped and counted.
+ */
+@Service
+public class OutboundMessageDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundMessageDispatcher.class);
+
+    // Messages one task dispatches before yielding its thread to other destinations
+    private static final int DRAIN_BATCH = 64;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Executor executor;
+    private final int maxQueuedMessages;
+
+    private final Map<String, DestinationQueue> destinations = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @Autowired
+    public OutboundMessageDispatcher(SimpMessagingTemplate messagingTemplate, WebSocketOutboundProperties properties) {
+        this(messagingTemplate, properties.getMaxQueuedMessages(), createExecutor(properties.getDispatchThreads()));
+    }
+
+    OutboundMessageDispatcher(SimpMessagingTemplate messagingTemplate, int maxQueuedMessages, Executor executor) {
+        this.messagingTemplate = messagingTemplate;
+        this.maxQueuedMessages = maxQueuedMessages;
+        this.executor = executor;
+    }
+
+    private static ThreadPoolTaskExecutor createExecutor(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("stomp-outbound-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Send to a broker destination such as "/topic/notifications"
+     */
+    public void send(String destination, Object payload) {
+        submit(new Outbound(null, destination, null, payload));
+    }
+
+    /**
+     * Send to one user's destination, e.g. "/queue/order-updates"
+     */
+    public void sendToUser(String user, String destination, Object payload) {
+        submit(new Outbound(user, destination, null, payload));
+    }
+
+    /**
+     * Send a message that supersedes any still-queued message for the same destination and key
+     */
+    public void sendLatest(String destination, String key, Object payload) {
+        submit(new Outbound(null, destination, key, payload));
+    }
+
+    private void submit(Outbound message) {
+        submitted.increment();
+        AfterCommit.run(() -> enqueue(message));
+    }
+
+    private void enqueue(Outbound message) {
+        String queueKey = message.user != null ? message.user + ":" + message.destination : message.destination;
+        DestinationQueue[] toSchedule = new DestinationQueue[1];
+        destinations.compute(queueKey, (key, queue) -> {
+            if (queue == null) {
+                queue = new DestinationQueue(key);
+            }
+            if (message.coalesceKey != null) {
+                Iterator<Outbound> pending = queue.pending.iterator();
+                while (pending.hasNext()) {
+                    Outbound superseded = pending.next();
+                    if (message.coalesceKey.equals(superseded.coalesceKey)) {
+                        // Moved to the back, so it cannot be overtaken by an older value for another key
+                        pending.remove();
+                        message.enqueuedAt = superseded.enqueuedAt;
+                        queue.pending.add(message);
+                        coalesced.increment();
+                        return queue;
+                    }
+                }
+            }
+            if (queued.get() >= maxQueuedMessages) {
+                dropped.increment();
+                return queue.pending.isEmpty() && !queue.scheduled ? null : queue;
+            }
+            message.enqueuedAt = System.nanoTime();
+            queue.pending.add(message);
+            maxQueueDepth.accumulateAndGet(queued.incrementAndGet(), Math::max);
+            if (!queue.scheduled) {
+                queue.scheduled = true;
+                toSchedule[0] = queue;
+            }
+            return queue;
+        });
+        if (toSchedule[0] != null) {
+            schedule(toSchedule[0]);
+        }
+    }
+
+    private void schedule(DestinationQueue queue) {
+        try {
+            executor.execute(() -> drain(queue));
+        } catch (RejectedExecutionException ex) {
+            // Shutting down: nothing will dispatch these any more
+            destinations.computeIfPresent(queue.key, (key, current) -> {
+                dropped.add(current.pending.size());
+                queued.addAndGet(-current.pending.size());
+                return null;
+            });
+        }
+    }
+
+    private void drain(DestinationQueue queue) {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Outbound[] next = new Outbound[1];
+            // The queue leaves the map once empty, atomically with the poll, so a later
+            // message starts a fresh queue and task instead of being left behind
+            destinations.computeIfPresent(queue.key, (key, current) -> {
+                next[0] = current.pending.poll();
+                return next[0] != null ? current : null;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            dispatch(next[0]);
+        }
+        schedule(queue);
+    }
+
+    private void dispatch(Outbound message) {
+        long waited = System.nanoTime() - message.enqueuedAt;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        try {
+            if (message.user != null) {
+                messagingTemplate.convertAndSendToUser(message.user, message.destination, message.payload);
+            } else {
+                messagingTemplate.convertAndSend(message.destination, message.payload);
+            }
+            dispatched.increment();
+        } catch (MessagingException ex) {
+            failed.increment();
+            logger.warn("Failed to send message to {}: {}", message.destination, ex.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long dispatchedCount = dispatched.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queued.get());
+        stats.put("maxQueueDepth", maxQueueDepth.get());
+        stats.put("maxQueuedMessages", maxQueuedMessages);
+        stats.put("pendingDestinations", destinations.size());
+        stats.put("submitted", submitted.sum());
+        stats.put("dispatched", dispatchedCount);
+        stats.put("coalesced", coalesced.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        stats.put("avgQueueWaitMicros", dispatchedCount == 0 ? 0.0 : waitNanos.sum() / 1000.0 / dispatchedCount);
+        stats.put("maxQueueWaitMicros", maxWaitNanos.get() / 1000.0);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor taskExecutor) {
+            taskExecutor.shutdown();
+        }
+    }
+
+    private static final class DestinationQueue {
+        private final String key;
+        private final ArrayDeque<Outbound> pending = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private DestinationQueue(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Outbound {
+        private final String user;
+        private final String destination;
+        private final String coalesceKey;
+        private final Object payload;
+        private long enqueuedAt;
+
+        private Outbound(String user, String destination, String coalesceKey, Object payload) {
+            this.user = user;
+            this.destination = destination;
+            this.coalesceKey = coalesceKey;
+            this.payload = payload;
+        }
+    }
+}
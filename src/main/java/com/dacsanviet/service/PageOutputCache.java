@@ -0,0 +1,438 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.config.PageCacheProperties;
+import com.dacsanviet.dao.ProductDao;
+import com.dacsanviet.dto.NewsArticleDto;
+import com.dacsanviet.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Rendered HTML of anonymous storefront pages, kept gzipped with an ETag so that a repeat
+ * visit is answered without running the controller or Thymeleaf (see PageOutputCacheFilter).
+ *
+ * While a page renders, its controller tags it with what it shows: the products, category
+ * and articles on it, plus a list tag for pages whose contents depend on which items exist.
+ * Every page also carries the category tree tag, since the header menu is on all of them.
+ * Writes evict by tag once their transaction commits. A page is not stored when one of its
+ * tags was evicted while it rendered, as it may already be stale; entries also expire after
+ * {@code app.page-cache.ttl-seconds}. Once {@code app.page-cache.max-entries} pages are
+ * stored, a new page replaces the least recently used one.
+ */
+@Service
+public class PageOutputCache {
+
+    public static final String PRODUCT_LIST_TAG = "product-list";
+    public static final String NEWS_LIST_TAG = "news-list";
+    public static final String CATEGORY_TREE_TAG = "category-tree";
+
+    static final String CAPTURE_ATTRIBUTE = PageOutputCache.class.getName() + ".CAPTURE";
+
+    private final PageCacheProperties properties;
+
+    private final Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByTag = new ConcurrentHashMap<>();
+    // Sequence number of the last eviction of each tag
+    private final Map<String, Long> evictedAt = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong storeCount = new AtomicLong();
+    private final AtomicLong staleRenderCount = new AtomicLong();
+    private final AtomicLong leastRecentlyUsedCount = new AtomicLong();
+    private final AtomicLong tagEvictionCount = new AtomicLong();
+    private final AtomicLong pageEvictionCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    @Autowired
+    public PageOutputCache(PageCacheProperties properties) {
+        this.properties = properties;
+    }
+
+    public static String productTag(Long productId) {
+        return "product:" + productId;
+    }
+
+    public static String categoryTag(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    public static String articleTag(Long articleId) {
+        return "article:" + articleId;
+    }
+
+    /**
+     * Tag the page being rendered for the current request; does nothing when the page is
+     * not being captured. A page is only stored once its controller has tagged it.
+     */
+    public static void tag(String... tags) {
+        Capture capture = currentCapture();
+        if (capture != null) {
+            for (String tag : tags) {
+                capture.tags.add(tag);
+            }
+        }
+    }
+
+    public static void tagProducts(Collection<ProductDao> products) {
+        Capture capture = currentCapture();
+        if (capture != null) {
+            for (ProductDao product : products) {
+                capture.tags.add(productTag(product.getId()));
+            }
+        }
+    }
+
+    public static void tagArticles(Collection<NewsArticleDto> articles) {
+        Capture capture = currentCapture();
+        if (capture != null) {
+            for (NewsArticleDto article : articles) {
+                capture.tags.add(articleTag(article.getId()));
+            }
+        }
+    }
+
+    /**
+     * The page counts a view of this article; the view is counted again on every cache hit
+     */
+    public static void countArticleView(Long articleId) {
+        Capture capture = currentCapture();
+        if (capture != null) {
+            capture.viewedArticleId = articleId;
+        }
+    }
+
+    private static Capture currentCapture() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (Capture) attributes.getAttribute(CAPTURE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * Start collecting tags for a page about to be rendered
+     */
+    public Capture startCapture(HttpServletRequest request) {
+        Capture capture = new Capture(sequence.get());
+        request.setAttribute(CAPTURE_ATTRIBUTE, capture);
+        return capture;
+    }
+
+    /**
+     * The stored page for a key, or null when absent or expired
+     */
+    public CachedPage get(String key) {
+        CachedPage page = pages.get(key);
+        if (page != null && page.expiresAt < System.currentTimeMillis()) {
+            remove(key);
+            expiredCount.incrementAndGet();
+            page = null;
+        }
+        if (page == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        page.lastUsedAt = System.nanoTime();
+        return page;
+    }
+
+    /**
+     * Compress a rendered page and store it under the key when it is cacheable. The page is
+     * returned either way so the response can be written from it.
+     */
+    public CachedPage store(String key, Capture capture, String contentType, byte[] body) {
+        Set<String> tags = new HashSet<>(capture.tags);
+        tags.add(CATEGORY_TREE_TAG);
+        CachedPage page = new CachedPage(gzip(body), etag(body), contentType, tags, capture.viewedArticleId,
+                System.currentTimeMillis() + properties.getTtlSeconds() * 1000);
+        if (capture.tags.isEmpty() || properties.getMaxEntries() <= 0) {
+            return page;
+        }
+        if (isStale(capture, tags)) {
+            staleRenderCount.incrementAndGet();
+            return page;
+        }
+        if (pages.size() >= properties.getMaxEntries() && !pages.containsKey(key)) {
+            purgeExpired();
+            while (pages.size() >= properties.getMaxEntries() && evictLeastRecentlyUsed()) {
+                leastRecentlyUsedCount.incrementAndGet();
+            }
+        }
+
+        // Index the tags before the page is visible, then recheck for an eviction in between
+        for (String tag : tags) {
+            keysByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        pages.put(key, page);
+        if (isStale(capture, tags)) {
+            pages.remove(key, page);
+            staleRenderCount.incrementAndGet();
+            return page;
+        }
+        storeCount.incrementAndGet();
+        return page;
+    }
+
+    private boolean isStale(Capture capture, Set<String> tags) {
+        for (String tag : tags) {
+            Long evicted = evictedAt.get(tag);
+            if (evicted != null && evicted > capture.startedAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evict every page carrying any of the tags
+     */
+    public void evictTags(String... tags) {
+        for (String tag : tags) {
+            evictedAt.put(tag, sequence.incrementAndGet());
+            tagEvictionCount.incrementAndGet();
+            Set<String> keys = keysByTag.remove(tag);
+            if (keys != null) {
+                for (String key : keys) {
+                    if (remove(key)) {
+                        pageEvictionCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Evict the tags once the current transaction commits (immediately outside one)
+     */
+    public void evictTagsAfterCommit(String... tags) {
+        AfterCommit.run(() -> evictTags(tags));
+    }
+
+    /**
+     * A product was created, edited or removed: its own page, pages showing it or its
+     * category's products, and product listings
+     */
+    public void evictProduct(Long productId, Long categoryId) {
+        if (categoryId != null) {
+            evictTagsAfterCommit(productTag(productId), categoryTag(categoryId), PRODUCT_LIST_TAG);
+        } else {
+            evictTagsAfterCommit(productTag(productId), PRODUCT_LIST_TAG);
+        }
+    }
+
+    /**
+     * Stock or held units of products changed: pages showing those products
+     */
+    public void evictProductStock(Collection<Long> productIds) {
+        evictTagsAfterCommit(productIds.stream().map(PageOutputCache::productTag).toArray(String[]::new));
+    }
+
+    /**
+     * An article was created, edited or removed: its page and news listings
+     */
+    public void evictArticle(Long articleId) {
+        evictTagsAfterCommit(articleTag(articleId), NEWS_LIST_TAG);
+    }
+
+    /**
+     * Related products or articles were recomputed: the pages of the items whose related
+     * lists changed
+     */
+    public void evictRelated(Collection<Long> productIds, Collection<Long> articleIds) {
+        if (productIds.isEmpty() && articleIds.isEmpty()) {
+            return;
+        }
+        String[] tags = new String[productIds.size() + articleIds.size()];
+        int i = 0;
+        for (Long productId : productIds) {
+            tags[i++] = productTag(productId);
+        }
+        for (Long articleId : articleIds) {
+            tags[i++] = articleTag(articleId);
+        }
+        evictTagsAfterCommit(tags);
+    }
+
+    /**
+     * Drop every stored page
+     */
+    public void clear() {
+        evictedAt.put(CATEGORY_TREE_TAG, sequence.incrementAndGet());
+        pageEvictionCount.addAndGet(pages.size());
+        pages.clear();
+        keysByTag.clear();
+    }
+
+    private boolean remove(String key) {
+        CachedPage page = pages.remove(key);
+        if (page == null) {
+            return false;
+        }
+        for (String tag : page.tags) {
+            keysByTag.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Remove the page that has gone longest without a hit. Only done when storing a page
+     * into a full cache, so a scan of the pages costs little next to the render.
+     */
+    private boolean evictLeastRecentlyUsed() {
+        String oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, CachedPage> entry : pages.entrySet()) {
+            if (oldestKey == null || entry.getValue().lastUsedAt - oldest < 0) {
+                oldestKey = entry.getKey();
+                oldest = entry.getValue().lastUsedAt;
+            }
+        }
+        return oldestKey != null && remove(oldestKey);
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, CachedPage> entry : pages.entrySet()) {
+            if (entry.getValue().expiresAt < now && remove(entry.getKey())) {
+                expiredCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static String etag(byte[] body) {
+        return "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Page cache statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        long compressedBytes = 0;
+        for (CachedPage page : pages.values()) {
+            compressedBytes += page.gzipped.length;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("pages", pages.size());
+        stats.put("tags", keysByTag.size());
+        stats.put("compressedBytes", compressedBytes);
+        stats.put("hits", hits);
+        stats.put("misses", missCount.get());
+        stats.put("hitRate", lookups > 0 ? (double) hits / lookups : 0.0);
+        stats.put("stored", storeCount.get());
+        stats.put("staleRendersDiscarded", staleRenderCount.get());
+        stats.put("leastRecentlyUsedEvicted", leastRecentlyUsedCount.get());
+        stats.put("tagEvictions", tagEvictionCount.get());
+        stats.put("pagesEvicted", pageEvictionCount.get());
+        stats.put("expired", expiredCount.get());
+        stats.put("ttlSeconds", properties.getTtlSeconds());
+        stats.put("maxEntries", properties.getMaxEntries());
+        return stats;
+    }
+
+    /**
+     * Tags and side effects collected while one page renders
+     */
+    public static final class Capture {
+
+        private final long startedAt;
+        private final Set<String> tags = new HashSet<>();
+        private Long viewedArticleId;
+
+        private Capture(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * A rendered page: gzipped body, ETag and the tags it was stored under
+     */
+    public static final class CachedPage {
+
+        private final byte[] gzipped;
+        private final String etag;
+        private final String contentType;
+        private final Set<String> tags;
+        private final Long viewedArticleId;
+        private final long expiresAt;
+        private volatile long lastUsedAt = System.nanoTime();
+
+        private CachedPage(byte[] gzipped, String etag, String contentType, Set<String> tags, Long viewedArticleId,
+                long expiresAt) {
+            this.gzipped = gzipped;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.tags = tags;
+            this.viewedArticleId = viewedArticleId;
+            this.expiresAt = expiresAt;
+        }
+
+        public byte[] getGzipped() {
+            return gzipped;
+        }
+
+        /**
+         * The uncompressed body, for clients that do not accept gzip
+         */
+        public byte[] getBody() {
+            try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+                return gunzip.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public Set<String> getTags() {
+            return tags;
+        }
+
+        public Long getViewedArticleId() {
+            return viewedArticleId;
+        }
+    }
+}
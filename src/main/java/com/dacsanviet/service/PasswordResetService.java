@@ -4,6 +4,7 @@ import com.dacsanviet.model.PasswordResetToken;
 import com.dacsanviet.model.User;
 import com.dacsanviet.repository.PasswordResetTokenRepository;
 import com.dacsanviet.repository.UserRepository;
+import com.dacsanviet.security.UserPrincipalCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +42,9 @@ public class PasswordResetService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
     private final SecureRandom secureRandom = new SecureRandom();
     
     /**
@@ -118,6 +122,7 @@ public class PasswordResetService {
             // Update user password
             user.setPassword(passwordEncoder.encode(newPassword));
             userRepository.save(user);
+            userPrincipalCache.invalidateUser(user.getId());
             
             // Mark token as used
             tokenRepository.markTokenAsUsed(token);
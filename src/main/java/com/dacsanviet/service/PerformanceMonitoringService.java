@@ -1,6 +1,11 @@
 package com.dacsanviet.service;
 
+import com.dacsanviet.config.CoalescingCache;
+import com.dacsanviet.security.UserPrincipalCache;
+import com.dacsanviet.security.VerifiedTokenCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
@@ -20,6 +25,63 @@ public class PerformanceMonitoringService {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private MailDeliveryService mailDeliveryService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private WebSocketBrokerMonitor webSocketBrokerMonitor;
+
+    @Autowired
+    private OutboundMessageDispatcher outboundMessageDispatcher;
+
+    @Autowired
+    private WebSocketSessionBuffers webSocketSessionBuffers;
+
+    @Autowired
+    private ChatMessageJournal chatMessageJournal;
+
+    @Autowired
+    private CategoryTreeSnapshot categoryTreeSnapshot;
+
+    @Autowired
+    private PageOutputCache pageOutputCache;
+
+    @Autowired
+    private ProductCacheInvalidator productCacheInvalidator;
+
+    @Autowired
+    private CacheManager springCacheManager;
+
+    @Autowired
+    private NewsViewCounter newsViewCounter;
+
+    @Autowired
+    private NewsSearchIndex newsSearchIndex;
+
+    @Autowired
+    private RelatedItemsIndex relatedItemsIndex;
+
     /**
      * Get database connection pool statistics.
      */
@@ -100,6 +162,142 @@ public class PerformanceMonitoringService {
         return stats;
     }
 
+    /**
+     * Get outbound mail pipeline statistics (queue depth, send latency, failures).
+     */
+    public Map<String, Object> getMailQueueStats() {
+        return mailDeliveryService.getStats();
+    }
+
+    /**
+     * Get stock reservation statistics (units held for unpaid orders, expiries, late payments).
+     */
+    public Map<String, Object> getStockReservationStats() {
+        return stockReservationService.getStats();
+    }
+
+    /**
+     * Get daily sales rollup statistics (incremental updates applied/failed, nightly rebuilds).
+     */
+    public Map<String, Object> getSalesRollupStats() {
+        return salesRollupService.getStats();
+    }
+
+    /**
+     * Get product search index statistics (documents, terms, search latency).
+     */
+    public Map<String, Object> getProductSearchStats() {
+        return productSearchIndex.getStats();
+    }
+
+    /**
+     * Get product suggestion trie statistics (keys, nodes, lookup latency, rebuilds).
+     */
+    public Map<String, Object> getProductSuggestStats() {
+        return productSuggestIndex.getStats();
+    }
+
+    /**
+     * Get product facet index statistics (products, facet values, query latency, stock deltas).
+     */
+    public Map<String, Object> getProductFacetStats() {
+        return productFacetIndex.getStats();
+    }
+
+    /**
+     * Get verified JWT cache statistics (hit rate, size, evictions).
+     */
+    public Map<String, Object> getVerifiedTokenCacheStats() {
+        return verifiedTokenCache.getStats();
+    }
+
+    /**
+     * Get authenticated user cache statistics (hit/miss counts, size, invalidations).
+     */
+    public Map<String, Object> getPrincipalCacheStats() {
+        return userPrincipalCache.getStats();
+    }
+
+    /**
+     * Get STOMP broker statistics (relay mode and traffic, subscribers and dispatch time per destination).
+     */
+    public Map<String, Object> getWebSocketBrokerStats() {
+        return webSocketBrokerMonitor.getStats();
+    }
+
+    /**
+     * Get outbound WebSocket statistics (dispatch queue depth and coalescing, per-session buffers and drops).
+     */
+    public Map<String, Object> getWebSocketOutboundStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("dispatch", outboundMessageDispatcher.getStats());
+        stats.put("sessions", webSocketSessionBuffers.getStats());
+        return stats;
+    }
+
+    /**
+     * Get chat journal statistics (buffered writes, batch count and latency, recent message hits).
+     */
+    public Map<String, Object> getChatJournalStats() {
+        return chatMessageJournal.getStats();
+    }
+
+    /**
+     * Get header category tree statistics (categories, rebuild count and time).
+     */
+    public Map<String, Object> getCategoryTreeStats() {
+        return categoryTreeSnapshot.getStats();
+    }
+
+    /**
+     * Get rendered page cache statistics (pages, hit rate, evictions).
+     */
+    public Map<String, Object> getPageCacheStats() {
+        return pageOutputCache.getStats();
+    }
+
+    /**
+     * Get product result cache invalidation statistics (targeted vs listing evictions, loads).
+     */
+    public Map<String, Object> getProductCacheStats() {
+        return productCacheInvalidator.getStats();
+    }
+
+    /**
+     * Get Spring cache loading statistics per cache (loads, coalesced misses, refreshes).
+     */
+    public Map<String, Object> getCacheLoadingStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (String cacheName : springCacheManager.getCacheNames()) {
+            Cache cache = springCacheManager.getCache(cacheName);
+            if (cache instanceof CoalescingCache coalescing) {
+                stats.put(cacheName, coalescing.getStats());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Get news view counter statistics (pending views, duplicates skipped, flush count and latency).
+     */
+    public Map<String, Object> getNewsViewStats() {
+        return newsViewCounter.getStats();
+    }
+
+    /**
+     * Get news search index statistics (documents, postings and their size, search latency, reloads).
+     */
+    public Map<String, Object> getNewsSearchStats() {
+        return newsSearchIndex.getStats();
+    }
+
+    /**
+     * Get related products and articles statistics (items, table size, lookups without an entry, rebuilds).
+     */
+    public Map<String, Object> getRelatedItemsStats() {
+        return relatedItemsIndex.getStats();
+    }
+
     /**
      * Get general performance recommendations.
      */
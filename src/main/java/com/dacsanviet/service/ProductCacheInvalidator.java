@@ -0,0 +1,259 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.config.CacheKeys;
+import com.dacsanviet.config.DependencyTrackingCache;
+import com.dacsanviet.dao.ProductDao;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evicts just the cached product results a product write affects, instead of clearing
+ * {@code searchResults}, {@code featuredProducts} and {@code productDetails} on every edit.
+ *
+ * Entries in those caches are DependencyTrackingCaches that record the products and
+ * categories they contain; search entries also record their query and featured entries
+ * the featured list. After a write commits:
+ * <ul>
+ * <li>an edit that leaves the product's searchable words, category and active flag alone
+ * (price, stock, images...) evicts only the entries containing the product;</li>
+ * <li>otherwise every page of each query that contained the product or now matches it is
+ * evicted, as the product moves in or out of those results;</li>
+ * <li>the featured pages are all evicted only when the product joins or leaves them.</li>
+ * </ul>
+ */
+@Service
+public class ProductCacheInvalidator {
+
+    public static final String SEARCH_RESULTS = "searchResults";
+    public static final String FEATURED_PRODUCTS = "featuredProducts";
+    public static final String PRODUCT_DETAILS = "productDetails";
+    public static final Set<String> TRACKED_CACHES = Set.of(SEARCH_RESULTS, FEATURED_PRODUCTS, PRODUCT_DETAILS);
+
+    static final String FEATURED_LIST = "featured-list";
+    private static final String QUERY_PREFIX = "query:";
+
+    private final CacheManager cacheManager;
+
+    private final AtomicLong targetedCount = new AtomicLong();
+    private final AtomicLong listingCount = new AtomicLong();
+    private final AtomicLong featuredListCount = new AtomicLong();
+    private final AtomicLong categoryCount = new AtomicLong();
+    private final AtomicLong entriesEvictedCount = new AtomicLong();
+
+    @Autowired
+    public ProductCacheInvalidator(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public static String productDependency(Long productId) {
+        return "product:" + productId;
+    }
+
+    public static String categoryDependency(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    /**
+     * What a cached product result depends on: the products in it and their categories,
+     * plus the query of a search page or the featured list of a featured page
+     */
+    public static Set<String> dependencies(String cacheName, Object key, Object value) {
+        Set<String> dependencies = new HashSet<>();
+        if (value instanceof ProductDao product) {
+            addProduct(dependencies, product);
+        } else if (value instanceof Iterable<?> products) {
+            for (Object product : products) {
+                if (product instanceof ProductDao productDao) {
+                    addProduct(dependencies, productDao);
+                }
+            }
+        }
+        if (SEARCH_RESULTS.equals(cacheName)) {
+            dependencies.add(QUERY_PREFIX + ((CacheKeys.SearchPage) key).keyword());
+        } else if (FEATURED_PRODUCTS.equals(cacheName)) {
+            dependencies.add(FEATURED_LIST);
+        }
+        return dependencies;
+    }
+
+    private static void addProduct(Set<String> dependencies, ProductDao product) {
+        dependencies.add(productDependency(product.getId()));
+        if (product.getCategoryId() != null) {
+            dependencies.add(categoryDependency(product.getCategoryId()));
+        }
+    }
+
+    /**
+     * Evict what a product write affects once the transaction commits (immediately
+     * outside one)
+     *
+     * @param before the product as it was before the write, or null for a new product or
+     *               when unknown
+     */
+    public void productChanged(Listing before, Product after) {
+        Listing listing = Listing.of(after);
+        AfterCommit.run(() -> invalidate(before, listing));
+    }
+
+    /**
+     * A category was renamed: evict results showing its products, and all searches, as
+     * products match their category's name
+     */
+    public void categoryChanged(Long categoryId) {
+        AfterCommit.run(() -> {
+            List<String> category = List.of(categoryDependency(categoryId));
+            int evicted = 0;
+            for (String cacheName : List.of(FEATURED_PRODUCTS, PRODUCT_DETAILS)) {
+                DependencyTrackingCache cache = trackedCache(cacheName);
+                if (cache != null) {
+                    evicted += cache.evictDependents(category);
+                }
+            }
+            Cache search = cacheManager.getCache(SEARCH_RESULTS);
+            if (search != null) {
+                search.clear();
+            }
+            categoryCount.incrementAndGet();
+            entriesEvictedCount.addAndGet(evicted);
+        });
+    }
+
+    private void invalidate(Listing before, Listing after) {
+        String product = productDependency(after.id);
+        int evicted = 0;
+
+        DependencyTrackingCache details = trackedCache(PRODUCT_DETAILS);
+        if (details != null) {
+            evicted += details.evictDependents(List.of(product));
+        }
+
+        DependencyTrackingCache search = trackedCache(SEARCH_RESULTS);
+        if (search != null) {
+            if (before != null && before.sameListing(after)) {
+                evicted += search.evictDependents(List.of(product));
+                targetedCount.incrementAndGet();
+            } else {
+                Set<String> evict = new HashSet<>();
+                evict.add(product);
+                // Queries it was in: removing or reordering it shifts the later pages
+                for (String dependency : search.dependenciesOfDependents(product)) {
+                    if (dependency.startsWith(QUERY_PREFIX)) {
+                        evict.add(dependency);
+                    }
+                }
+                // Queries it now matches
+                if (after.active) {
+                    for (String dependency : search.trackedDependencies()) {
+                        if (dependency.startsWith(QUERY_PREFIX) && ProductSearchIndex.matches(
+                                dependency.substring(QUERY_PREFIX.length()), after.terms)) {
+                            evict.add(dependency);
+                        }
+                    }
+                }
+                evicted += search.evictDependents(evict);
+                listingCount.incrementAndGet();
+            }
+        }
+
+        DependencyTrackingCache featured = trackedCache(FEATURED_PRODUCTS);
+        if (featured != null) {
+            boolean listed = after.isListedAsFeatured();
+            boolean membershipChanged = before != null
+                    ? before.isListedAsFeatured() != listed
+                    : listed || !featured.dependenciesOfDependents(product).isEmpty();
+            if (membershipChanged) {
+                evicted += featured.evictDependents(List.of(FEATURED_LIST));
+                featuredListCount.incrementAndGet();
+            } else {
+                evicted += featured.evictDependents(List.of(product));
+            }
+        }
+        entriesEvictedCount.addAndGet(evicted);
+    }
+
+    /**
+     * The cache when it tracks dependencies; any other cache is cleared instead
+     */
+    private DependencyTrackingCache trackedCache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache instanceof DependencyTrackingCache tracked) {
+            return tracked;
+        }
+        if (cache != null) {
+            cache.clear();
+        }
+        return null;
+    }
+
+    /**
+     * Invalidation statistics for performance monitoring, with each cache's own
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("targetedInvalidations", targetedCount.get());
+        stats.put("listingInvalidations", listingCount.get());
+        stats.put("featuredListInvalidations", featuredListCount.get());
+        stats.put("categoryInvalidations", categoryCount.get());
+        stats.put("entriesEvicted", entriesEvictedCount.get());
+        for (String cacheName : TRACKED_CACHES) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache instanceof DependencyTrackingCache tracked) {
+                stats.put(cacheName, tracked.getStats());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * What decides where a product is listed: its searchable words, category, and active
+     * and featured flags
+     */
+    public static final class Listing {
+
+        private final Long id;
+        private final Long categoryId;
+        private final boolean active;
+        private final boolean featured;
+        private final Set<String> terms;
+
+        private Listing(Long id, Long categoryId, boolean active, boolean featured, Set<String> terms) {
+            this.id = id;
+            this.categoryId = categoryId;
+            this.active = active;
+            this.featured = featured;
+            this.terms = terms;
+        }
+
+        /**
+         * Capture the product's listing, e.g. before it is modified
+         */
+        public static Listing of(Product product) {
+            return new Listing(product.getId(),
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    !Boolean.FALSE.equals(product.getIsActive()),
+                    Boolean.TRUE.equals(product.getIsFeatured()),
+                    ProductSearchIndex.terms(product));
+        }
+
+        boolean sameListing(Listing other) {
+            return active == other.active && Objects.equals(categoryId, other.categoryId)
+                    && terms.equals(other.terms);
+        }
+
+        boolean isListedAsFeatured() {
+            return active && featured;
+        }
+    }
+}
@@ -0,0 +1,856 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+import com.dacsanviet.util.AfterCommit;
+import com.dacsanviet.util.VietnameseTextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory faceted filtering over the whole product catalogue.
+ *
+ * Every facet value (category, origin, price range, weight range, stock status, featured,
+ * active) keeps a bitmap of the products that have it, so any combination of filters is a
+ * bitmap AND, and the count shown next to each value is the size of one more AND. Counts for
+ * a facet ignore that facet's own filter, so the shopper sees what picking another value
+ * of it would give.
+ *
+ * Product edits are applied after their transaction commits and checkout stock movements
+ * are applied as deltas; a periodic full reload repairs anything changed elsewhere. Edits
+ * and deltas committed while a reload reads the database are applied again to what it loaded.
+ */
+@Service
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    public static final int LOW_STOCK_THRESHOLD = 10;
+
+    // Filter positions; counts for one facet skip its own filter
+    private static final int CATEGORY = 0;
+    private static final int ORIGIN = 1;
+    private static final int PRICE = 2;
+    private static final int WEIGHT = 3;
+    private static final int STOCK = 4;
+    private static final int FEATURED = 5;
+    private static final int FILTERS = 6;
+
+    private static final Set<String> SORT_PROPERTIES = Set.of("name", "price", "stockQuantity", "createdAt", "id");
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Products by slot (bit position); removed products leave an empty slot until the next reload
+    private final List<IndexedProduct> products = new ArrayList<>();
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet active = new BitSet();
+    private final BitSet featured = new BitSet();
+    private final Map<Long, BitSet> categories = new HashMap<>();
+    // Folded origin -> bitmap, and the spelling shown for it
+    private final Map<String, BitSet> origins = new HashMap<>();
+    private final Map<String, String> originNames = new HashMap<>();
+    private final EnumMap<PriceRange, BitSet> prices = new EnumMap<>(PriceRange.class);
+    private final EnumMap<WeightRange, BitSet> weights = new EnumMap<>(WeightRange.class);
+    private final EnumMap<StockStatus, BitSet> stock = new EnumMap<>(StockStatus.class);
+    // Sort position of each slot per sort property, rebuilt after product edits
+    private final Map<String, int[]> sortRanks = new HashMap<>();
+    private boolean sortRanksStale = true;
+    // Updates committed while a reload reads the database, applied again to what it loaded
+    private List<Runnable> replay;
+    private volatile boolean ready;
+
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong stockAdjustmentCount = new AtomicLong();
+    private volatile LocalDateTime lastReloadAt;
+
+    @Autowired
+    public ProductFacetIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        for (PriceRange range : PriceRange.values()) {
+            prices.put(range, new BitSet());
+        }
+        for (WeightRange range : WeightRange.values()) {
+            weights.put(range, new BitSet());
+        }
+        for (StockStatus status : StockStatus.values()) {
+            stock.put(status, new BitSet());
+        }
+    }
+
+    /**
+     * Reload every product, active or not. Runs at startup and then every
+     * {@code app.search.product-index.reload-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${app.search.product-index.reload-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public synchronized void reload() {
+        lock.writeLock().lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<IndexedProduct> loaded = new ArrayList<>();
+        try {
+            for (Product product : productRepository.findAllWithCategory()) {
+                loaded.add(IndexedProduct.of(product));
+            }
+            loaded.sort(Comparator.comparing(product -> product.id));
+        } catch (Exception e) {
+            logger.error("Product facet index reload failed: {}", e.getMessage(), e);
+            loaded = null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded != null) {
+                products.clear();
+                slots.clear();
+                live.clear();
+                active.clear();
+                featured.clear();
+                categories.clear();
+                origins.clear();
+                originNames.clear();
+                prices.values().forEach(BitSet::clear);
+                weights.values().forEach(BitSet::clear);
+                stock.values().forEach(BitSet::clear);
+                for (IndexedProduct product : loaded) {
+                    add(product);
+                }
+                for (Runnable update : replay) {
+                    update.run();
+                }
+                sortRanksStale = true;
+                ready = true;
+            }
+            replay = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (loaded != null) {
+            lastReloadAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Add or replace a product once the current transaction commits. The category must be
+     * loaded or loadable.
+     */
+    public void index(Product product) {
+        IndexedProduct indexed = IndexedProduct.of(product);
+        AfterCommit.run(() -> {
+            update(() -> {
+                removeProduct(indexed.id);
+                add(indexed.copy());
+                sortRanksStale = true;
+            });
+            updateCount.incrementAndGet();
+        });
+    }
+
+    /**
+     * Apply stock movements (product id -> change in stock quantity, negative for units
+     * taken) once the current transaction commits
+     */
+    public void adjustStock(Map<Long, Integer> deltas) {
+        Map<Long, Integer> copy = new HashMap<>(deltas);
+        AfterCommit.run(() -> {
+            update(() -> {
+                for (Map.Entry<Long, Integer> delta : copy.entrySet()) {
+                    Integer slot = slots.get(delta.getKey());
+                    if (slot != null) {
+                        IndexedProduct product = products.get(slot);
+                        clearStock(slot);
+                        product.stockQuantity = Math.max(0, product.stockQuantity + delta.getValue());
+                        setStock(slot, product.stockQuantity);
+                    }
+                }
+            });
+            stockAdjustmentCount.incrementAndGet();
+        });
+    }
+
+    private void update(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            update.run();
+            if (replay != null) {
+                replay.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Products matching the filter, one page of ids in the pageable's sort order, plus the
+     * count for every facet value. Supported sort properties are name, price, stockQuantity,
+     * createdAt and id. Without a sort, ranked candidate ids keep their order.
+     */
+    public Result query(Filter filter, Pageable pageable) {
+        if (!ready) {
+            synchronized (this) {
+                if (!ready) {
+                    reload();
+                }
+            }
+        }
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+        if (order != null && !SORT_PROPERTIES.contains(order.getProperty())) {
+            throw new RuntimeException("Unsupported sort property: " + order.getProperty());
+        }
+
+        long started = System.nanoTime();
+        // Sort positions must cover every slot; an edit may land between the two locks
+        while (true) {
+            if (order != null) {
+                ensureSortRanks();
+            }
+            lock.readLock().lock();
+            if (order == null || !sortRanksStale) {
+                break;
+            }
+            lock.readLock().unlock();
+        }
+        try {
+            BitSet base = (BitSet) live.clone();
+            if (!filter.isIncludeInactive()) {
+                base.and(active);
+            }
+            Map<Long, Integer> candidatePositions = null;
+            if (filter.getCandidateIds() != null) {
+                candidatePositions = new HashMap<>();
+                BitSet candidates = new BitSet();
+                for (Long id : filter.getCandidateIds()) {
+                    Integer slot = slots.get(id);
+                    if (slot != null) {
+                        candidates.set(slot);
+                        candidatePositions.putIfAbsent(id, candidatePositions.size());
+                    }
+                }
+                base.and(candidates);
+            }
+
+            BitSet[] restrictions = new BitSet[FILTERS];
+            if (filter.getCategoryId() != null) {
+                restrictions[CATEGORY] = bits(categories.get(filter.getCategoryId()));
+            }
+            String origin = VietnameseTextUtils.fold(filter.getOrigin()).trim();
+            if (!origin.isEmpty()) {
+                restrictions[ORIGIN] = bits(origins.get(origin));
+            }
+            if (filter.getPriceRange() != null) {
+                restrictions[PRICE] = prices.get(filter.getPriceRange());
+            }
+            if (filter.getWeightRange() != null) {
+                restrictions[WEIGHT] = weights.get(filter.getWeightRange());
+            }
+            if (filter.getStockStatus() != null) {
+                restrictions[STOCK] = stock.get(filter.getStockStatus());
+            }
+            if (Boolean.TRUE.equals(filter.getFeatured())) {
+                restrictions[FEATURED] = featured;
+            }
+
+            BitSet matched = restrict(base, restrictions, -1);
+            Facets facets = countFacets(base, restrictions);
+            List<Long> pageIds = page(matched, order, candidatePositions, pageable);
+            return new Result(pageIds, matched.cardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+            queryCount.incrementAndGet();
+            queryNanos.addAndGet(System.nanoTime() - started);
+        }
+    }
+
+    private Facets countFacets(BitSet base, BitSet[] restrictions) {
+        Facets facets = new Facets();
+
+        BitSet scope = restrict(base, restrictions, CATEGORY);
+        for (Map.Entry<Long, BitSet> category : categories.entrySet()) {
+            int count = intersectionCount(scope, category.getValue());
+            if (count > 0) {
+                facets.categories.put(category.getKey(), count);
+            }
+        }
+
+        scope = restrict(base, restrictions, ORIGIN);
+        List<Map.Entry<String, Integer>> originCounts = new ArrayList<>();
+        for (Map.Entry<String, BitSet> entry : origins.entrySet()) {
+            int count = intersectionCount(scope, entry.getValue());
+            if (count > 0) {
+                originCounts.add(Map.entry(originNames.get(entry.getKey()), count));
+            }
+        }
+        originCounts.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        for (Map.Entry<String, Integer> entry : originCounts) {
+            facets.origins.put(entry.getKey(), entry.getValue());
+        }
+
+        scope = restrict(base, restrictions, PRICE);
+        for (PriceRange range : PriceRange.values()) {
+            facets.priceRanges.put(range, intersectionCount(scope, prices.get(range)));
+        }
+        scope = restrict(base, restrictions, WEIGHT);
+        for (WeightRange range : WeightRange.values()) {
+            facets.weightRanges.put(range, intersectionCount(scope, weights.get(range)));
+        }
+        scope = restrict(base, restrictions, STOCK);
+        for (StockStatus status : StockStatus.values()) {
+            facets.stockStatuses.put(status, intersectionCount(scope, stock.get(status)));
+        }
+        facets.featured = intersectionCount(restrict(base, restrictions, FEATURED), featured);
+        return facets;
+    }
+
+    private List<Long> page(BitSet matched, Sort.Order order, Map<Long, Integer> candidatePositions,
+            Pageable pageable) {
+        int[] matchedSlots = matched.stream().toArray();
+        long[] keys = new long[matchedSlots.length];
+        // Stock changes with every order, so it is read live instead of from a rank table
+        int[] ranks = order != null ? sortRanks.get(order.getProperty()) : null;
+        for (int i = 0; i < matchedSlots.length; i++) {
+            int slot = matchedSlots[i];
+            long key;
+            if (order == null) {
+                key = candidatePositions != null ? candidatePositions.get(products.get(slot).id) : slot;
+            } else {
+                key = ranks != null ? ranks[slot] : products.get(slot).stockQuantity;
+                if (order.isDescending()) {
+                    key = -key;
+                }
+            }
+            // Sort key in the high half, slot (id order after a reload) breaks ties
+            keys[i] = (key << 32) | slot;
+        }
+        Arrays.sort(keys);
+
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), keys.length) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), keys.length) : keys.length;
+        List<Long> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(products.get((int) keys[i]).id);
+        }
+        return ids;
+    }
+
+    private void ensureSortRanks() {
+        lock.readLock().lock();
+        try {
+            if (!sortRanksStale) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (sortRanksStale) {
+                sortRanks.put("name", ranks(Comparator.comparing((IndexedProduct product) -> product.sortName)));
+                sortRanks.put("price", ranks(Comparator.comparing((IndexedProduct product) -> product.price)));
+                sortRanks.put("createdAt", ranks(Comparator.comparing((IndexedProduct product) -> product.createdAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder()))));
+                sortRanks.put("id", ranks(Comparator.comparing((IndexedProduct product) -> product.id)));
+                sortRanksStale = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Position of every live slot in the given order (ties by id)
+    private int[] ranks(Comparator<IndexedProduct> comparator) {
+        Comparator<IndexedProduct> byId = comparator.thenComparing(product -> product.id);
+        List<Integer> ordered = new ArrayList<>(live.cardinality());
+        live.stream().forEach(ordered::add);
+        ordered.sort((a, b) -> byId.compare(products.get(a), products.get(b)));
+        int[] ranks = new int[products.size()];
+        for (int position = 0; position < ordered.size(); position++) {
+            ranks[ordered.get(position)] = position;
+        }
+        return ranks;
+    }
+
+    private static BitSet restrict(BitSet base, BitSet[] restrictions, int skip) {
+        BitSet result = (BitSet) base.clone();
+        for (int i = 0; i < restrictions.length; i++) {
+            if (i != skip && restrictions[i] != null) {
+                result.and(restrictions[i]);
+            }
+        }
+        return result;
+    }
+
+    private static int intersectionCount(BitSet a, BitSet b) {
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return intersection.cardinality();
+    }
+
+    private static BitSet bits(BitSet bitSet) {
+        return bitSet != null ? bitSet : new BitSet();
+    }
+
+    private void add(IndexedProduct product) {
+        int slot = products.size();
+        products.add(product);
+        slots.put(product.id, slot);
+        live.set(slot);
+        if (product.active) {
+            active.set(slot);
+        }
+        if (product.featured) {
+            featured.set(slot);
+        }
+        if (product.categoryId != null) {
+            categories.computeIfAbsent(product.categoryId, key -> new BitSet()).set(slot);
+        }
+        if (product.origin != null) {
+            origins.computeIfAbsent(product.origin, key -> new BitSet()).set(slot);
+            originNames.putIfAbsent(product.origin, product.originName);
+        }
+        prices.get(PriceRange.of(product.price)).set(slot);
+        if (product.weightGrams != null) {
+            weights.get(WeightRange.of(product.weightGrams)).set(slot);
+        }
+        setStock(slot, product.stockQuantity);
+    }
+
+    private void removeProduct(Long id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        IndexedProduct previous = products.get(slot);
+        live.clear(slot);
+        active.clear(slot);
+        featured.clear(slot);
+        if (previous.categoryId != null) {
+            clearValue(categories, previous.categoryId, slot);
+        }
+        if (previous.origin != null && clearValue(origins, previous.origin, slot)) {
+            originNames.remove(previous.origin);
+        }
+        prices.values().forEach(bitSet -> bitSet.clear(slot));
+        weights.values().forEach(bitSet -> bitSet.clear(slot));
+        clearStock(slot);
+    }
+
+    // Clear a slot from a value's bitmap and drop the value once empty; true if dropped
+    private static <K> boolean clearValue(Map<K, BitSet> values, K key, int slot) {
+        BitSet bitSet = values.get(key);
+        if (bitSet == null) {
+            return false;
+        }
+        bitSet.clear(slot);
+        if (bitSet.isEmpty()) {
+            values.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    private void setStock(int slot, int stockQuantity) {
+        if (stockQuantity > 0) {
+            stock.get(StockStatus.IN_STOCK).set(slot);
+            if (stockQuantity <= LOW_STOCK_THRESHOLD) {
+                stock.get(StockStatus.LOW_STOCK).set(slot);
+            }
+        } else {
+            stock.get(StockStatus.OUT_OF_STOCK).set(slot);
+        }
+    }
+
+    private void clearStock(int slot) {
+        stock.values().forEach(bitSet -> bitSet.clear(slot));
+    }
+
+    /**
+     * Facet index statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("products", live.cardinality());
+            stats.put("slots", products.size());
+            stats.put("categories", categories.size());
+            stats.put("origins", origins.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        long queries = queryCount.get();
+        stats.put("ready", ready);
+        stats.put("queries", queries);
+        stats.put("averageQueryMicros", queries > 0 ? queryNanos.get() / queries / 1000.0 : 0.0);
+        stats.put("incrementalUpdates", updateCount.get());
+        stats.put("stockAdjustments", stockAdjustmentCount.get());
+        stats.put("lastReloadAt", lastReloadAt);
+        return stats;
+    }
+
+    /**
+     * Price ranges of the storefront filter
+     */
+    public enum PriceRange {
+        UNDER_50K("Dưới 50.000₫", 0, 50_000),
+        FROM_50K_TO_100K("50.000₫ - 100.000₫", 50_000, 100_000),
+        FROM_100K_TO_200K("100.000₫ - 200.000₫", 100_000, 200_000),
+        OVER_200K("Trên 200.000₫", 200_000, Long.MAX_VALUE);
+
+        private final String label;
+        private final long min;
+        private final long max;
+
+        PriceRange(String label, long min, long max) {
+            this.label = label;
+            this.min = min;
+            this.max = max;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        static PriceRange of(BigDecimal price) {
+            long value = price != null ? price.longValue() : 0;
+            for (PriceRange range : values()) {
+                if (value < range.max) {
+                    return range;
+                }
+            }
+            return OVER_200K;
+        }
+
+        /**
+         * Range named by a request parameter (case-insensitive), or null
+         */
+        public static PriceRange fromParam(String param) {
+            return parse(PriceRange.class, param);
+        }
+    }
+
+    /**
+     * Package weight ranges; products without a weight are in none of them
+     */
+    public enum WeightRange {
+        UNDER_250G("Dưới 250g", 0, 250),
+        FROM_250G_TO_500G("250g - dưới 500g", 250, 500),
+        FROM_500G_TO_1KG("500g - dưới 1kg", 500, 1000),
+        FROM_1KG("Từ 1kg", 1000, Integer.MAX_VALUE);
+
+        private final String label;
+        private final int min;
+        private final int max;
+
+        WeightRange(String label, int min, int max) {
+            this.label = label;
+            this.min = min;
+            this.max = max;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        static WeightRange of(int grams) {
+            for (WeightRange range : values()) {
+                if (grams < range.max) {
+                    return range;
+                }
+            }
+            return FROM_1KG;
+        }
+
+        /**
+         * Range named by a request parameter (case-insensitive), or null
+         */
+        public static WeightRange fromParam(String param) {
+            return parse(WeightRange.class, param);
+        }
+    }
+
+    /**
+     * Stock status as the inventory screens use it: low stock is in stock but at most
+     * {@link #LOW_STOCK_THRESHOLD} units
+     */
+    public enum StockStatus {
+        IN_STOCK, LOW_STOCK, OUT_OF_STOCK;
+
+        /**
+         * Status named by a request parameter such as {@code in_stock}, or null
+         */
+        public static StockStatus fromParam(String param) {
+            return parse(StockStatus.class, param);
+        }
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String param) {
+        if (param == null || param.isBlank()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, param.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * What to select. Unset fields do not filter. Candidate ids (for example text search
+     * hits, best first) limit the result to those products.
+     */
+    public static class Filter {
+
+        private Collection<Long> candidateIds;
+        private Long categoryId;
+        private String origin;
+        private PriceRange priceRange;
+        private WeightRange weightRange;
+        private StockStatus stockStatus;
+        private Boolean featured;
+        private boolean includeInactive;
+
+        public Collection<Long> getCandidateIds() {
+            return candidateIds;
+        }
+
+        public void setCandidateIds(Collection<Long> candidateIds) {
+            this.candidateIds = candidateIds;
+        }
+
+        public Long getCategoryId() {
+            return categoryId;
+        }
+
+        public void setCategoryId(Long categoryId) {
+            this.categoryId = categoryId;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+
+        public void setOrigin(String origin) {
+            this.origin = origin;
+        }
+
+        public PriceRange getPriceRange() {
+            return priceRange;
+        }
+
+        public void setPriceRange(PriceRange priceRange) {
+            this.priceRange = priceRange;
+        }
+
+        public WeightRange getWeightRange() {
+            return weightRange;
+        }
+
+        public void setWeightRange(WeightRange weightRange) {
+            this.weightRange = weightRange;
+        }
+
+        public StockStatus getStockStatus() {
+            return stockStatus;
+        }
+
+        public void setStockStatus(StockStatus stockStatus) {
+            this.stockStatus = stockStatus;
+        }
+
+        public Boolean getFeatured() {
+            return featured;
+        }
+
+        public void setFeatured(Boolean featured) {
+            this.featured = featured;
+        }
+
+        public boolean isIncludeInactive() {
+            return includeInactive;
+        }
+
+        public void setIncludeInactive(boolean includeInactive) {
+            this.includeInactive = includeInactive;
+        }
+    }
+
+    /**
+     * One page of matching product ids, the total number of matches and the facet counts
+     */
+    public static class Result {
+
+        private final List<Long> ids;
+        private final long total;
+        private final Facets facets;
+
+        Result(List<Long> ids, long total, Facets facets) {
+            this.ids = ids;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public Facets getFacets() {
+            return facets;
+        }
+    }
+
+    /**
+     * Number of matching products per facet value. Categories and origins without matches
+     * are left out; origins are ordered by count.
+     */
+    public static class Facets {
+
+        private final Map<Long, Integer> categories = new HashMap<>();
+        private final Map<String, Integer> origins = new LinkedHashMap<>();
+        private final Map<PriceRange, Integer> priceRanges = new EnumMap<>(PriceRange.class);
+        private final Map<WeightRange, Integer> weightRanges = new EnumMap<>(WeightRange.class);
+        private final Map<StockStatus, Integer> stockStatuses = new EnumMap<>(StockStatus.class);
+        private int featured;
+
+        public Map<Long, Integer> getCategories() {
+            return categories;
+        }
+
+        public Map<String, Integer> getOrigins() {
+            return origins;
+        }
+
+        public Map<PriceRange, Integer> getPriceRanges() {
+            return priceRanges;
+        }
+
+        public Map<WeightRange, Integer> getWeightRanges() {
+            return weightRanges;
+        }
+
+        public Map<StockStatus, Integer> getStockStatuses() {
+            return stockStatuses;
+        }
+
+        public int getInStock() {
+            return stockStatuses.getOrDefault(StockStatus.IN_STOCK, 0);
+        }
+
+        public int getFeatured() {
+            return featured;
+        }
+    }
+
+    // The filterable and sortable fields of a product
+    private static class IndexedProduct {
+
+        private final Long id;
+        private final String sortName;
+        private final BigDecimal price;
+        private final LocalDateTime createdAt;
+        private final Long categoryId;
+        private final String origin;
+        private final String originName;
+        private final Integer weightGrams;
+        private final boolean featured;
+        private final boolean active;
+        // Changed in place by stock adjustments, under the write lock
+        private int stockQuantity;
+
+        private IndexedProduct(Product product) {
+            this.id = product.getId();
+            this.sortName = VietnameseTextUtils.fold(product.getName());
+            this.price = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+            this.createdAt = product.getCreatedAt();
+            this.categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+            String folded = VietnameseTextUtils.fold(product.getOrigin()).trim();
+            this.origin = folded.isEmpty() ? null : folded;
+            this.originName = folded.isEmpty() ? null : product.getOrigin().trim();
+            this.weightGrams = product.getWeightGrams();
+            this.featured = Boolean.TRUE.equals(product.getIsFeatured());
+            this.active = !Boolean.FALSE.equals(product.getIsActive());
+            this.stockQuantity = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        }
+
+        private IndexedProduct(IndexedProduct other) {
+            this.id = other.id;
+            this.sortName = other.sortName;
+            this.price = other.price;
+            this.createdAt = other.createdAt;
+            this.categoryId = other.categoryId;
+            this.origin = other.origin;
+            this.originName = other.originName;
+            this.weightGrams = other.weightGrams;
+            this.featured = other.featured;
+            this.active = other.active;
+            this.stockQuantity = other.stockQuantity;
+        }
+
+        static IndexedProduct of(Product product) {
+            if (product.getId() == null) {
+                throw new RuntimeException("Only saved products can be indexed");
+            }
+            return new IndexedProduct(product);
+        }
+
+        // An edit may be applied twice (again after a reload), each time from its own stock count
+        IndexedProduct copy() {
+            return new IndexedProduct(this);
+        }
+    }
+}
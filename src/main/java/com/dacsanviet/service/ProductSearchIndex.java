@@ -0,0 +1,362 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+import com.dacsanviet.util.AfterCommit;
+import com.dacsanviet.util.VietnameseTextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over active products for storefront search.
+ *
+ * Name, description, origin and category name are folded to unaccented lower case
+ * ("nuoc mam" finds "nước mắm") and split into words. Every query word must match; the
+ * last one also matches as a prefix, so results appear while the shopper is still typing.
+ * Hits are ranked with BM25, with words in the name counting three times and words in the
+ * category or origin twice.
+ *
+ * ProductService updates single products after its transaction commits; a periodic full
+ * reload also picks up category renames and products changed outside ProductService.
+ * Updates committed while a reload reads the database are applied again to what it loaded.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // BM25 parameters (the usual defaults)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int ORIGIN_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> (product id -> weighted term frequency); sorted for prefix lookups
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    private long totalLength;
+    // Updates committed while a reload reads the database, applied again to what it loaded
+    private List<Runnable> replay;
+    private volatile boolean ready;
+
+    private final AtomicLong searchCount = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+    private volatile LocalDateTime lastReloadAt;
+
+    @Autowired
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Reload every active product. Runs at startup and then every
+     * {@code app.search.product-index.reload-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${app.search.product-index.reload-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public synchronized void reload() {
+        lock.writeLock().lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<IndexedProduct> loaded = new ArrayList<>();
+        try {
+            for (Product product : productRepository.findAllActiveWithCategory()) {
+                loaded.add(IndexedProduct.of(product));
+            }
+        } catch (Exception e) {
+            logger.error("Product search index reload failed: {}", e.getMessage(), e);
+            loaded = null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded != null) {
+                postings.clear();
+                documents.clear();
+                totalLength = 0;
+                for (IndexedProduct document : loaded) {
+                    add(document);
+                }
+                for (Runnable update : replay) {
+                    update.run();
+                }
+                ready = true;
+            }
+            replay = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (loaded != null) {
+            lastReloadAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Index (or re-index) a product once the current transaction commits. Inactive
+     * products are removed. The category must be loaded or loadable.
+     */
+    public void index(Product product) {
+        IndexedProduct document = IndexedProduct.of(product);
+        AfterCommit.run(() -> update(() -> {
+            removeDocument(document.id);
+            if (document.active) {
+                add(document);
+            }
+        }));
+    }
+
+    /**
+     * Drop a product from the index once the current transaction commits
+     */
+    public void remove(Long id) {
+        AfterCommit.run(() -> update(() -> removeDocument(id)));
+    }
+
+    private void update(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            update.run();
+            if (replay != null) {
+                replay.add(update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        updateCount.incrementAndGet();
+    }
+
+    /**
+     * Whether the first load has completed; until then callers should fall back to the database
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ids of the active products matching every word of the query, best match first,
+     * optionally limited to one category.
+     */
+    public List<Long> search(String query, Long categoryId) {
+        long started = System.nanoTime();
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(VietnameseTextUtils.tokenize(query)));
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            double averageLength = documents.isEmpty() ? 1 : (double) totalLength / documents.size();
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < words.size(); i++) {
+                boolean prefix = lastIsPrefix && i == words.size() - 1;
+                Map<Long, Double> wordScores = scoreWord(words.get(i), prefix, averageLength);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    Map<Long, Double> combined = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double score = wordScores.get(entry.getKey());
+                        if (score != null) {
+                            combined.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = combined;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                if (categoryId == null || categoryId.equals(documents.get(entry.getKey()).categoryId)) {
+                    hits.add(entry);
+                }
+            }
+            hits.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : Long.compare(a.getKey(), b.getKey());
+            });
+            List<Long> ids = new ArrayList<>(hits.size());
+            for (Map.Entry<Long, Double> hit : hits) {
+                ids.add(hit.getKey());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+            searchCount.incrementAndGet();
+            searchNanos.addAndGet(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * The folded words of a product's searchable fields
+     */
+    public static Set<String> terms(Product product) {
+        Set<String> terms = new HashSet<>();
+        terms.addAll(VietnameseTextUtils.tokenize(product.getName()));
+        terms.addAll(VietnameseTextUtils.tokenize(product.getCategory() != null ? product.getCategory().getName() : null));
+        terms.addAll(VietnameseTextUtils.tokenize(product.getOrigin()));
+        terms.addAll(VietnameseTextUtils.tokenize(product.getShortDescription()));
+        terms.addAll(VietnameseTextUtils.tokenize(product.getDescription()));
+        return terms;
+    }
+
+    /**
+     * Whether {@link #search} would match a product with these searchable words: every
+     * query word is one of them, the last also as a prefix. A blank query matches all.
+     */
+    public static boolean matches(String query, Set<String> terms) {
+        if (query == null) {
+            return true;
+        }
+        List<String> words = VietnameseTextUtils.tokenize(query);
+        boolean lastIsPrefix = !query.isEmpty() && !Character.isWhitespace(query.charAt(query.length() - 1));
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (terms.contains(word)) {
+                continue;
+            }
+            if (!(lastIsPrefix && i == words.size() - 1 && terms.stream().anyMatch(term -> term.startsWith(word)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * BM25 score of one query word per matching product. A prefix can match several terms
+     * of the same product; the best one counts.
+     */
+    private Map<Long, Double> scoreWord(String word, boolean prefix, double averageLength) {
+        Map<Long, Double> scores = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> terms = prefix
+                ? postings.subMap(word, true, word + Character.MAX_VALUE, false)
+                : postings.subMap(word, true, word, true);
+        int documentCount = documents.size();
+        for (Map<Long, Integer> posting : terms.values()) {
+            double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                int frequency = entry.getValue();
+                double lengthNorm = 1 - B + B * documents.get(entry.getKey()).length / averageLength;
+                double score = idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+                scores.merge(entry.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void add(IndexedProduct document) {
+        for (Map.Entry<String, Integer> term : document.frequencies.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(document.id, term.getValue());
+        }
+        documents.put(document.id, document);
+        totalLength += document.length;
+    }
+
+    private void removeDocument(Long id) {
+        IndexedProduct previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.frequencies.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= previous.length;
+    }
+
+    /**
+     * Index statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", documents.size());
+            stats.put("terms", postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        long searches = searchCount.get();
+        stats.put("ready", ready);
+        stats.put("searches", searches);
+        stats.put("averageSearchMicros", searches > 0 ? searchNanos.get() / searches / 1000.0 : 0.0);
+        stats.put("incrementalUpdates", updateCount.get());
+        stats.put("lastReloadAt", lastReloadAt);
+        return stats;
+    }
+
+    // The searchable fields of a product, folded into weighted term frequencies
+    private static class IndexedProduct {
+
+        private final Long id;
+        private final Long categoryId;
+        private final boolean active;
+        private final Map<String, Integer> frequencies = new HashMap<>();
+        private int length;
+
+        private IndexedProduct(Long id, Long categoryId, boolean active) {
+            this.id = id;
+            this.categoryId = categoryId;
+            this.active = active;
+        }
+
+        static IndexedProduct of(Product product) {
+            if (product.getId() == null) {
+                throw new RuntimeException("Only saved products can be indexed");
+            }
+            Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+            IndexedProduct document = new IndexedProduct(product.getId(), categoryId,
+                    !Boolean.FALSE.equals(product.getIsActive()));
+            document.addField(product.getName(), NAME_WEIGHT);
+            document.addField(product.getCategory() != null ? product.getCategory().getName() : null,
+                    CATEGORY_WEIGHT);
+            document.addField(product.getOrigin(), ORIGIN_WEIGHT);
+            document.addField(product.getShortDescription(), DESCRIPTION_WEIGHT);
+            document.addField(product.getDescription(), DESCRIPTION_WEIGHT);
+            return document;
+        }
+
+        private void addField(String text, int weight) {
+            for (String token : VietnameseTextUtils.tokenize(text)) {
+                frequencies.merge(token, weight, Integer::sum);
+                length += weight;
+            }
+        }
+    }
+}
@@ -7,15 +7,17 @@ import com.dacsanviet.model.Category;
 import com.dacsanviet.model.Product;
 import com.dacsanviet.model.ProductImage;
 import com.dacsanviet.repository.CategoryRepository;
+import com.dacsanviet.repository.ProductCardView;
 import com.dacsanviet.repository.ProductRepository;
 import com.dacsanviet.repository.ProductImageRepository;
+import com.dacsanviet.util.HtmlTextUtils;
 
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,7 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -47,21 +52,41 @@ public class ProductService {
     @Autowired
     private ProductImageRepository productImageRepository;
     
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private PageOutputCache pageOutputCache;
+    
+    @Autowired
+    private ProductCacheInvalidator productCacheInvalidator;
+    
+    @Autowired
+    private RelatedItemsIndex relatedItemsIndex;
+    
     private static final String UPLOAD_DIR = "uploads/products/";
     
+    // Characters of plain text shown on a product card
+    private static final int CARD_SUMMARY_LENGTH = 160;
+    
     /**
      * Get all active products with pagination
      */
     @Transactional(readOnly = true)
     public Page<ProductDao> getAllProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findByIsActiveTrueOrderByName(pageable);
-        return products.map(this::convertToDto);
+        return productRepository.findActiveCards(pageable).map(this::convertCardToDto);
     }
     
     /**
      * Get product by ID
      */
-    @Cacheable(value = "productDetails", key = "#id")
+    @Cacheable(value = "productDetails", key = "#id", sync = true)
     @Transactional(readOnly = true)
     public ProductDao getProductById(Long id) {
         Product product = productRepository.findById(id)
@@ -72,13 +97,16 @@ public class ProductService {
     /**
      * Search products by keyword
      */
-    @Cacheable(value = "searchResults", key = "#keyword + '_' + #pageable.pageNumber + '_' + #pageable.pageSize")
+    @Cacheable(value = "searchResults", key = "T(com.dacsanviet.config.CacheKeys).searchPage(#keyword, #pageable)", sync = true)
     @Transactional(readOnly = true)
     public Page<ProductDao> searchProducts(String keyword, Pageable pageable) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllProducts(pageable);
         }
         
+        if (productSearchIndex.isReady()) {
+            return loadRanked(productSearchIndex.search(keyword, null), pageable);
+        }
         Page<Product> products = productRepository.searchProducts(keyword.trim(), pageable);
         return products.map(this::convertToDto);
     }
@@ -95,17 +123,72 @@ public class ProductService {
             return getAllProducts(pageable);
         }
         
+        if (productSearchIndex.isReady()) {
+            return loadRanked(productSearchIndex.search(keyword, categoryId), pageable);
+        }
         Page<Product> products = productRepository.searchProductsInCategory(keyword.trim(), categoryId, pageable);
         return products.map(this::convertToDto);
     }
     
+    /**
+     * Load one page of search hits (ids in rank order) with a single primary key query.
+     * Results keep the index's relevance order; the pageable's sort is not applied.
+     */
+    private Page<ProductDao> loadRanked(List<Long> rankedIds, Pageable pageable) {
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), rankedIds.size()) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), rankedIds.size()) : rankedIds.size();
+        return loadInOrder(rankedIds.subList(from, to), pageable, rankedIds.size());
+    }
+    
+    /**
+     * Storefront listing through the facet index: optional keyword, facet filters and the
+     * counts for the filter sidebar. Keyword hits keep their relevance order unless the
+     * pageable is sorted.
+     */
+    @Transactional(readOnly = true)
+    public ProductFacetIndex.Result browseProducts(String keyword, ProductFacetIndex.Filter filter,
+            Pageable pageable) {
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            filter.setCandidateIds(productSearchIndex.isReady()
+                    ? productSearchIndex.search(keyword, null)
+                    : productRepository.searchProductIds(keyword.trim()));
+        }
+        return productFacetIndex.query(filter, pageable);
+    }
+    
+    /**
+     * Load the page of products a facet query selected, in its order
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductDao> getProductPage(ProductFacetIndex.Result result, Pageable pageable) {
+        return loadInOrder(result.getIds(), pageable, result.getTotal());
+    }
+    
+    private Page<ProductDao> loadInOrder(List<Long> pageIds, Pageable pageable, long total) {
+        if (pageIds.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, total);
+        }
+        
+        Map<Long, ProductCardView> cards = new HashMap<>();
+        for (ProductCardView card : productRepository.findCardsByIds(pageIds)) {
+            cards.put(card.getId(), card);
+        }
+        List<ProductDao> content = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            ProductCardView card = cards.get(id);
+            if (card != null) {
+                content.add(convertCardToDto(card));
+            }
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+    
     /**
      * Get products by category
      */
     @Transactional(readOnly = true)
     public Page<ProductDao> getProductsByCategory(Long categoryId, Pageable pageable) {
-        Page<Product> products = productRepository.findByCategoryIdAndIsActiveTrue(categoryId, pageable);
-        return products.map(this::convertToDto);
+        return productRepository.findActiveCardsByCategory(categoryId, pageable).map(this::convertCardToDto);
     }
     
     /**
@@ -120,11 +203,10 @@ public class ProductService {
     /**
      * Get featured products
      */
-    @Cacheable(value = "featuredProducts", key = "#pageable.pageNumber + '_' + #pageable.pageSize")
+    @Cacheable(value = "featuredProducts", key = "T(com.dacsanviet.config.CacheKeys).listPage(#pageable)", sync = true)
     @Transactional(readOnly = true)
     public Page<ProductDao> getFeaturedProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findByIsFeaturedTrueAndIsActiveTrueOrderByCreatedAtDesc(pageable);
-        return products.map(this::convertToDto);
+        return productRepository.findFeaturedCards(pageable).map(this::convertCardToDto);
     }
     
     /**
@@ -148,11 +230,6 @@ public class ProductService {
     /**
      * Create a new product
      */
-    @Caching(evict = {
-        @CacheEvict(value = "products", allEntries = true),
-        @CacheEvict(value = "featuredProducts", allEntries = true),
-        @CacheEvict(value = "searchResults", allEntries = true)
-    })
     public ProductDao createProduct(CreateProductRequest request) {
         // Check if product name already exists
         if (productRepository.existsByName(request.getName())) {
@@ -177,18 +254,17 @@ public class ProductService {
         product.setCategory(category);
         
         Product savedProduct = productRepository.save(product);
+        productSearchIndex.index(savedProduct);
+        productSuggestIndex.index(savedProduct);
+        productFacetIndex.index(savedProduct);
+        pageOutputCache.evictProduct(savedProduct.getId(), category.getId());
+        productCacheInvalidator.productChanged(null, savedProduct);
         return convertToDto(savedProduct);
     }
     
     /**
      * Update an existing product
      */
-    @Caching(evict = {
-        @CacheEvict(value = "productDetails", key = "#id"),
-        @CacheEvict(value = "products", allEntries = true),
-        @CacheEvict(value = "featuredProducts", allEntries = true),
-        @CacheEvict(value = "searchResults", allEntries = true)
-    })
     public ProductDao updateProduct(Long id, UpdateProductRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
@@ -203,6 +279,9 @@ public class ProductService {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + request.getCategoryId()));
         
+        Long previousCategoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
+        
         // Update product fields
         product.setName(request.getName());
         product.setDescription(request.getDescription());
@@ -216,24 +295,33 @@ public class ProductService {
         product.setCategory(category);
         
         Product updatedProduct = productRepository.save(product);
+        productSearchIndex.index(updatedProduct);
+        productSuggestIndex.index(updatedProduct);
+        productFacetIndex.index(updatedProduct);
+        pageOutputCache.evictProduct(id, category.getId());
+        if (previousCategoryId != null && !previousCategoryId.equals(category.getId())) {
+            pageOutputCache.evictProduct(id, previousCategoryId);
+        }
+        productCacheInvalidator.productChanged(before, updatedProduct);
         return convertToDto(updatedProduct);
     }
     
     /**
      * Delete a product (soft delete by setting isActive to false)
      */
-    @Caching(evict = {
-        @CacheEvict(value = "productDetails", key = "#id"),
-        @CacheEvict(value = "products", allEntries = true),
-        @CacheEvict(value = "featuredProducts", allEntries = true),
-        @CacheEvict(value = "searchResults", allEntries = true)
-    })
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         
+        ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
         product.setIsActive(false);
         productRepository.save(product);
+        productSearchIndex.remove(id);
+        productSuggestIndex.remove(id);
+        // Still listed (as inactive) in the admin inventory
+        productFacetIndex.index(product);
+        pageOutputCache.evictProduct(id, categoryId(product));
+        productCacheInvalidator.productChanged(before, product);
     }
     
     /**
@@ -243,8 +331,14 @@ public class ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         
+        ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
         product.setIsActive(!product.getIsActive());
         Product updatedProduct = productRepository.save(product);
+        productSearchIndex.index(updatedProduct);
+        productSuggestIndex.index(updatedProduct);
+        productFacetIndex.index(updatedProduct);
+        pageOutputCache.evictProduct(id, categoryId(updatedProduct));
+        productCacheInvalidator.productChanged(before, updatedProduct);
         return convertToDto(updatedProduct);
     }
     
@@ -255,8 +349,11 @@ public class ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         
+        ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
         product.setIsFeatured(!product.getIsFeatured());
         Product updatedProduct = productRepository.save(product);
+        pageOutputCache.evictProduct(id, categoryId(updatedProduct));
+        productCacheInvalidator.productChanged(before, updatedProduct);
         return convertToDto(updatedProduct);
     }
     
@@ -271,8 +368,11 @@ public class ProductService {
             throw new RuntimeException("Stock quantity cannot be negative");
         }
         
+        ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
         product.setStockQuantity(newStock);
         Product updatedProduct = productRepository.save(product);
+        pageOutputCache.evictProduct(id, categoryId(updatedProduct));
+        productCacheInvalidator.productChanged(before, updatedProduct);
         return convertToDto(updatedProduct);
     }
     
@@ -329,19 +429,33 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
         
-        // First try to find products with similar names
-        String[] keywords = product.getName().split("\\s+");
-        if (keywords.length > 0) {
-            List<Product> similarProducts = productRepository.findSimilarProducts(productId, keywords[0], pageable);
-            if (!similarProducts.isEmpty()) {
-                return similarProducts.stream().map(this::convertToDto).toList();
-            }
+        return getRelatedProducts(productId, product.getCategory() != null ? product.getCategory().getId() : null,
+                pageable.getPageSize());
+    }
+    
+    /**
+     * Products related to a product, best first, as list cards: its precomputed related
+     * list, or the first products of its category (of all products without one) when it was
+     * added since the last related-items build
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDao> getRelatedProducts(Long productId, Long categoryId, int limit) {
+        List<Long> relatedIds = relatedItemsIndex.relatedProducts(productId);
+        if (!relatedIds.isEmpty()) {
+            // Products deactivated since the build are skipped
+            return loadInOrder(relatedIds, Pageable.unpaged(), relatedIds.size()).getContent().stream()
+                .filter(product -> !Boolean.FALSE.equals(product.getIsActive()))
+                .limit(limit)
+                .toList();
         }
         
-        // If no similar names found, get products from same category
-        List<Product> categoryProducts = productRepository.findProductsInSameCategory(
-                productId, product.getCategory().getId(), pageable);
-        return categoryProducts.stream().map(this::convertToDto).toList();
+        Page<ProductDao> candidates = categoryId != null
+            ? getProductsByCategory(categoryId, PageRequest.of(0, limit + 1))
+            : getAllProducts(PageRequest.of(0, limit + 1));
+        return candidates.getContent().stream()
+            .filter(product -> !product.getId().equals(productId))
+            .limit(limit)
+            .toList();
     }
     
     /**
@@ -394,6 +508,38 @@ public class ProductService {
         return dto;
     }
     
+    /**
+     * Convert a list card to ProductDao: the description and story stay null and the short
+     * description is a plain-text excerpt for the card
+     */
+    private ProductDao convertCardToDto(ProductCardView card) {
+        CategoryDao category = card.getCategoryId() != null
+                ? new CategoryDao(card.getCategoryId(), card.getCategoryName())
+                : null;
+        
+        ProductDao dto = new ProductDao(
+            card.getId(),
+            card.getName(),
+            null,
+            card.getPrice(),
+            card.getStockQuantity(),
+            card.getImageUrl(),
+            card.getIsActive(),
+            card.getIsFeatured(),
+            null,
+            card.getOrigin(),
+            category,
+            card.getCreatedAt(),
+            card.getUpdatedAt()
+        );
+        
+        dto.setShortDescription(HtmlTextUtils.excerpt(card.getSummary(), CARD_SUMMARY_LENGTH));
+        dto.setCategoryId(card.getCategoryId());
+        dto.setCategoryName(card.getCategoryName());
+        
+        return dto;
+    }
+    
     /**
      * Get all products for admin (including inactive) with pagination
      */
@@ -414,14 +560,19 @@ public class ProductService {
     /**
      * Save product
      */
-    @Caching(evict = {
-        @CacheEvict(value = "products", allEntries = true),
-        @CacheEvict(value = "featuredProducts", allEntries = true),
-        @CacheEvict(value = "searchResults", allEntries = true),
-        @CacheEvict(value = "productDetails", key = "#product.id", condition = "#product.id != null")
-    })
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productSearchIndex.index(savedProduct);
+        productSuggestIndex.index(savedProduct);
+        productFacetIndex.index(savedProduct);
+        pageOutputCache.evictProduct(savedProduct.getId(), categoryId(savedProduct));
+        // The caller has already modified the product, so its previous listing is unknown
+        productCacheInvalidator.productChanged(null, savedProduct);
+        return savedProduct;
+    }
+    
+    private static Long categoryId(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
     }
     
     /**
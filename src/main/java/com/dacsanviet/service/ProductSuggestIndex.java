@@ -0,0 +1,643 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+import com.dacsanviet.util.AfterCommit;
+import com.dacsanviet.util.VietnameseTextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Search-as-you-type suggestions over product names, category names and origins.
+ *
+ * Every word position of every name is a key in a character trie ("mam" suggests
+ * "Nước mắm Phú Quốc"), folded to unaccented lower case. Queries of three or more
+ * characters also match with one typo (a wrong, missing, extra or swapped letter).
+ * Whole-name matches rank before mid-name matches, then categories and origins by their
+ * number of products, then featured products.
+ *
+ * The trie is immutable: product changes build a new one from a copy of the current
+ * product list on a background thread and swap it in, so lookups never lock, never see a
+ * half-built trie, and changes are not held up by a build in progress. Changes arriving
+ * while a rebuild is queued share that rebuild; changes committed while a reload reads
+ * the database are applied again to what it loaded.
+ */
+@Service
+public class ProductSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final int DEFAULT_LIMIT = 8;
+    public static final int MAX_LIMIT = 10;
+
+    // Shorter queries would match almost everything with one typo
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int MAX_QUERY_LENGTH = 60;
+    // Longer keys only add nodes; nobody types that far before picking a suggestion
+    private static final int MAX_KEY_LENGTH = 60;
+    // Nodes covering more keys than this keep their best entries precomputed
+    private static final int SCAN_LIMIT = 32;
+
+    private final ProductRepository productRepository;
+    private final Executor rebuildExecutor;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    // Guarded by this, like the fields below it; the trie is built from a copy of it
+    private Map<Long, ProductSource> sources = new HashMap<>();
+    // Changes committed while a reload reads the database, applied again to what it loaded
+    private List<Consumer<Map<Long, ProductSource>>> replay;
+    // Bumped on every change to sources, so an older build never replaces a newer one
+    private long sourcesVersion;
+    private long publishedVersion;
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private volatile long lastRebuildMillis;
+    private volatile LocalDateTime lastRebuildAt;
+
+    @Autowired
+    public ProductSuggestIndex(ProductRepository productRepository) {
+        this(productRepository, Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "product-suggest-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    ProductSuggestIndex(ProductRepository productRepository, Executor rebuildExecutor) {
+        this.productRepository = productRepository;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    /**
+     * Reload every active product. Runs at startup and then together with the product
+     * search index.
+     */
+    @Scheduled(fixedDelayString = "${app.search.product-index.reload-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        List<ProductSource> loaded = new ArrayList<>();
+        try {
+            for (Product product : productRepository.findAllActiveWithCategory()) {
+                loaded.add(ProductSource.of(product));
+            }
+        } catch (Exception e) {
+            logger.error("Product suggestion reload failed: {}", e.getMessage(), e);
+            loaded = null;
+        }
+
+        synchronized (this) {
+            if (loaded != null) {
+                Map<Long, ProductSource> fresh = new HashMap<>();
+                for (ProductSource source : loaded) {
+                    fresh.put(source.id, source);
+                }
+                for (Consumer<Map<Long, ProductSource>> update : replay) {
+                    update.accept(fresh);
+                }
+                sources = fresh;
+                sourcesVersion++;
+            }
+            replay = null;
+        }
+        if (loaded != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Add or replace a product once the current transaction commits. Inactive products
+     * are removed. Suggestions reflect the change once the background rebuild finishes.
+     */
+    public void index(Product product) {
+        ProductSource source = ProductSource.of(product);
+        AfterCommit.run(() -> update(current -> {
+            if (source.active) {
+                current.put(source.id, source);
+            } else {
+                current.remove(source.id);
+            }
+        }));
+    }
+
+    /**
+     * Drop a product once the current transaction commits
+     */
+    public void remove(Long id) {
+        AfterCommit.run(() -> update(current -> current.remove(id)));
+    }
+
+    /**
+     * Up to {@code limit} suggestions for what the shopper has typed so far, best first
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        long started = System.nanoTime();
+        try {
+            String key = String.join(" ", VietnameseTextUtils.tokenize(query));
+            if (key.isEmpty()) {
+                return List.of();
+            }
+            if (key.length() > MAX_QUERY_LENGTH) {
+                key = key.substring(0, MAX_QUERY_LENGTH);
+            }
+            return snapshot.lookup(key, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        } finally {
+            lookupCount.incrementAndGet();
+            lookupNanos.addAndGet(System.nanoTime() - started);
+        }
+    }
+
+    private void update(Consumer<Map<Long, ProductSource>> update) {
+        synchronized (this) {
+            update.accept(sources);
+            if (replay != null) {
+                replay.add(update);
+            }
+            sourcesVersion++;
+        }
+        requestRebuild();
+    }
+
+    private void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    logger.error("Product suggestion rebuild failed: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    // Builds outside the monitor, which is only held to copy the sources and to publish
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        List<ProductSource> current;
+        long version;
+        synchronized (this) {
+            current = new ArrayList<>(sources.values());
+            version = sourcesVersion;
+        }
+        Snapshot built = Snapshot.build(current);
+        synchronized (this) {
+            if (version <= publishedVersion) {
+                return;
+            }
+            snapshot = built;
+            publishedVersion = version;
+        }
+        lastRebuildMillis = System.currentTimeMillis() - started;
+        lastRebuildAt = LocalDateTime.now();
+        rebuildCount.incrementAndGet();
+    }
+
+    /**
+     * Suggestion statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        long lookups = lookupCount.get();
+        stats.put("suggestions", current.entries.length);
+        stats.put("keys", current.keyRank.length);
+        stats.put("trieNodes", current.nodeChar.length);
+        stats.put("lookups", lookups);
+        stats.put("averageLookupMicros", lookups > 0 ? lookupNanos.get() / lookups / 1000.0 : 0.0);
+        stats.put("rebuilds", rebuildCount.get());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        stats.put("lastRebuildAt", lastRebuildAt);
+        return stats;
+    }
+
+    /**
+     * One suggestion: a product (id is the product id), a category (id is the category id)
+     * or an origin (no id)
+     */
+    public static class Suggestion {
+
+        public enum Type {
+            PRODUCT, CATEGORY, ORIGIN
+        }
+
+        private final Type type;
+        private final Long id;
+        private final String text;
+        private final int weight;
+
+        Suggestion(Type type, Long id, String text, int weight) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.weight = weight;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    // The fields of a product the suggestions are built from
+    private static class ProductSource {
+
+        private final Long id;
+        private final String name;
+        private final Long categoryId;
+        private final String categoryName;
+        private final String origin;
+        private final boolean featured;
+        private final boolean active;
+
+        private ProductSource(Long id, String name, Long categoryId, String categoryName, String origin,
+                boolean featured, boolean active) {
+            this.id = id;
+            this.name = name;
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+            this.origin = origin;
+            this.featured = featured;
+            this.active = active;
+        }
+
+        static ProductSource of(Product product) {
+            if (product.getId() == null) {
+                throw new RuntimeException("Only saved products can be suggested");
+            }
+            return new ProductSource(product.getId(), product.getName(),
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getCategory() != null ? product.getCategory().getName() : null,
+                    product.getOrigin(), Boolean.TRUE.equals(product.getIsFeatured()),
+                    !Boolean.FALSE.equals(product.getIsActive()));
+        }
+    }
+
+    /**
+     * An immutable trie in flat arrays. Keys are sorted before the trie is built, so each
+     * node covers a contiguous range of keys; each key carries a global rank (whole-name
+     * match first, then suggestion weight) and the best suggestion of a node is the one
+     * with the lowest rank in its range.
+     */
+    private static class Snapshot {
+
+        private final Suggestion[] entries;
+        // Per rank: the suggestion it belongs to
+        private final int[] rankEntry;
+        // Per key, in key order: its rank
+        private final int[] keyRank;
+
+        // Per node; node 0 is the root, the children of a node are consecutive
+        private final char[] nodeChar;
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final int[] rangeStart;
+        private final int[] rangeEnd;
+        // Best ranks (one per suggestion) of nodes covering more than SCAN_LIMIT keys
+        private final Map<Integer, int[]> bestRanks;
+
+        private Snapshot(Suggestion[] entries, int[] rankEntry, int[] keyRank, char[] nodeChar, int[] firstChild,
+                int[] childCount, int[] rangeStart, int[] rangeEnd, Map<Integer, int[]> bestRanks) {
+            this.entries = entries;
+            this.rankEntry = rankEntry;
+            this.keyRank = keyRank;
+            this.nodeChar = nodeChar;
+            this.firstChild = firstChild;
+            this.childCount = childCount;
+            this.rangeStart = rangeStart;
+            this.rangeEnd = rangeEnd;
+            this.bestRanks = bestRanks;
+        }
+
+        static Snapshot build(List<ProductSource> sources) {
+            Suggestion[] entries = suggestionsOf(sources);
+
+            // Rank: whole-name matches first, then heavier suggestions, then alphabetically.
+            // Mid-name keys of one suggestion share a rank.
+            Integer[] byWeight = new Integer[entries.length];
+            for (int entry = 0; entry < entries.length; entry++) {
+                byWeight[entry] = entry;
+            }
+            Arrays.sort(byWeight, Comparator.<Integer>comparingInt(entry -> -entries[entry].weight)
+                    .thenComparing(entry -> entries[entry].text));
+            int[] entryOrder = new int[entries.length];
+            int[] rankEntry = new int[2 * entries.length];
+            for (int position = 0; position < byWeight.length; position++) {
+                entryOrder[byWeight[position]] = position;
+                rankEntry[position] = byWeight[position];
+                rankEntry[entries.length + position] = byWeight[position];
+            }
+
+            List<Key> keys = new ArrayList<>();
+            for (int entry = 0; entry < entries.length; entry++) {
+                String words = String.join(" ", VietnameseTextUtils.tokenize(entries[entry].text));
+                for (int start = 0; start < words.length(); start = words.indexOf(' ', start) + 1) {
+                    String key = words.substring(start, Math.min(words.length(), start + MAX_KEY_LENGTH));
+                    keys.add(new Key(key, (start == 0 ? 0 : entries.length) + entryOrder[entry]));
+                    if (words.indexOf(' ', start) < 0) {
+                        break;
+                    }
+                }
+            }
+            keys.sort(null);
+
+            int[] keyRank = new int[keys.size()];
+            int maxNodes = 1;
+            for (int i = 0; i < keys.size(); i++) {
+                keyRank[i] = keys.get(i).rank;
+                maxNodes += keys.get(i).text.length();
+            }
+
+            Builder builder = new Builder(keys, keyRank, rankEntry, maxNodes);
+            builder.build(0, 0, keys.size(), 0);
+            return new Snapshot(entries, rankEntry, keyRank, Arrays.copyOf(builder.nodeChar, builder.nodeCount),
+                    Arrays.copyOf(builder.firstChild, builder.nodeCount),
+                    Arrays.copyOf(builder.childCount, builder.nodeCount),
+                    Arrays.copyOf(builder.rangeStart, builder.nodeCount),
+                    Arrays.copyOf(builder.rangeEnd, builder.nodeCount), builder.bestRanks);
+        }
+
+        private static Suggestion[] suggestionsOf(List<ProductSource> sources) {
+            Map<Long, String> categoryNames = new HashMap<>();
+            Map<Long, Integer> categoryProducts = new HashMap<>();
+            // Folded origin -> spelling of its first product, product count
+            Map<String, String> originNames = new LinkedHashMap<>();
+            Map<String, Integer> originProducts = new HashMap<>();
+
+            List<Suggestion> suggestions = new ArrayList<>();
+            for (ProductSource source : sources) {
+                if (source.name != null && !source.name.isBlank()) {
+                    suggestions.add(new Suggestion(Suggestion.Type.PRODUCT, source.id, source.name,
+                            source.featured ? 2 : 1));
+                }
+                if (source.categoryId != null && source.categoryName != null) {
+                    categoryNames.put(source.categoryId, source.categoryName);
+                    categoryProducts.merge(source.categoryId, 1, Integer::sum);
+                }
+                String origin = VietnameseTextUtils.fold(source.origin).trim();
+                if (!origin.isEmpty()) {
+                    originNames.putIfAbsent(origin, source.origin.trim());
+                    originProducts.merge(origin, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<Long, String> category : categoryNames.entrySet()) {
+                suggestions.add(new Suggestion(Suggestion.Type.CATEGORY, category.getKey(), category.getValue(),
+                        categoryProducts.get(category.getKey())));
+            }
+            for (Map.Entry<String, String> origin : originNames.entrySet()) {
+                suggestions.add(new Suggestion(Suggestion.Type.ORIGIN, null, origin.getValue(),
+                        originProducts.get(origin.getKey())));
+            }
+            return suggestions.toArray(new Suggestion[0]);
+        }
+
+        List<Suggestion> lookup(String query, int limit) {
+            // Matched nodes: node -> typos needed to reach it (0 or 1)
+            Map<Integer, Integer> matches = new HashMap<>();
+            match(query, 0, 0, query.length() >= MIN_FUZZY_LENGTH ? 1 : 0, 0, matches);
+            if (matches.isEmpty()) {
+                return List.of();
+            }
+
+            // Exact matches first, then by rank
+            List<Long> candidates = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> match : matches.entrySet()) {
+                long penalty = (long) match.getValue() * rankEntry.length;
+                for (int rank : best(match.getKey(), limit)) {
+                    candidates.add(penalty + rank);
+                }
+            }
+            candidates.sort(null);
+
+            List<Suggestion> suggestions = new ArrayList<>(limit);
+            boolean[] taken = new boolean[entries.length];
+            for (long candidate : candidates) {
+                int entry = rankEntry[(int) (candidate % rankEntry.length)];
+                if (!taken[entry]) {
+                    taken[entry] = true;
+                    suggestions.add(entries[entry]);
+                    if (suggestions.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return suggestions;
+        }
+
+        // Walk the trie along the query, allowing `typos` more edits after `used` so far
+        private void match(String query, int node, int position, int typos, int used,
+                Map<Integer, Integer> matches) {
+            if (position == query.length()) {
+                matches.merge(node, used, Math::min);
+                return;
+            }
+            char expected = query.charAt(position);
+            int exact = child(node, expected);
+            if (exact >= 0) {
+                match(query, exact, position + 1, typos, used, matches);
+            }
+            if (typos == 0) {
+                return;
+            }
+            // Extra letter in the query
+            match(query, node, position + 1, 0, used + 1, matches);
+            int first = firstChild[node];
+            for (int child = first; child < first + childCount[node]; child++) {
+                // Missing letter in the query
+                match(query, child, position, 0, used + 1, matches);
+                // Wrong letter
+                if (nodeChar[child] != expected) {
+                    match(query, child, position + 1, 0, used + 1, matches);
+                }
+            }
+            // Two letters swapped
+            if (position + 1 < query.length() && query.charAt(position + 1) != expected) {
+                int swapped = child(node, query.charAt(position + 1));
+                if (swapped >= 0) {
+                    swapped = child(swapped, expected);
+                    if (swapped >= 0) {
+                        match(query, swapped, position + 2, 0, used + 1, matches);
+                    }
+                }
+            }
+        }
+
+        private int child(int node, char c) {
+            int low = firstChild[node];
+            int high = low + childCount[node] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (nodeChar[mid] < c) {
+                    low = mid + 1;
+                } else if (nodeChar[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        // The lowest ranks under a node, at most `limit` of them with distinct suggestions
+        private int[] best(int node, int limit) {
+            int[] precomputed = bestRanks.get(node);
+            if (precomputed != null) {
+                return precomputed.length > limit ? Arrays.copyOf(precomputed, limit) : precomputed;
+            }
+            return Arrays.copyOfRange(keyRank, rangeStart[node], rangeEnd[node]);
+        }
+    }
+
+    // A word-position key of a suggestion, in trie order
+    private static class Key implements Comparable<Key> {
+
+        private final String text;
+        private final int rank;
+
+        private Key(String text, int rank) {
+            this.text = text;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byText = text.compareTo(other.text);
+            return byText != 0 ? byText : Integer.compare(rank, other.rank);
+        }
+    }
+
+    // Builds the trie depth first over the sorted keys
+    private static class Builder {
+
+        private final List<Key> keys;
+        private final int[] keyRank;
+        private final int[] rankEntry;
+
+        private final char[] nodeChar;
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final int[] rangeStart;
+        private final int[] rangeEnd;
+        private final Map<Integer, int[]> bestRanks = new HashMap<>();
+        // Candidate ranks while merging; a node never has more candidates than keys
+        private final int[] scratch;
+        private int nodeCount = 1;
+
+        private Builder(List<Key> keys, int[] keyRank, int[] rankEntry, int maxNodes) {
+            this.keys = keys;
+            this.keyRank = keyRank;
+            this.rankEntry = rankEntry;
+            this.nodeChar = new char[maxNodes];
+            this.firstChild = new int[maxNodes];
+            this.childCount = new int[maxNodes];
+            this.rangeStart = new int[maxNodes];
+            this.rangeEnd = new int[maxNodes];
+            this.scratch = new int[keys.size()];
+        }
+
+        void build(int node, int start, int end, int depth) {
+            rangeStart[node] = start;
+            rangeEnd[node] = end;
+
+            // Keys ending here sort first
+            int terminalEnd = start;
+            while (terminalEnd < end && keys.get(terminalEnd).text.length() == depth) {
+                terminalEnd++;
+            }
+
+            int children = 0;
+            for (int i = terminalEnd; i < end; i = groupEnd(i, end, depth)) {
+                children++;
+            }
+            int first = nodeCount;
+            nodeCount += children;
+            firstChild[node] = first;
+            childCount[node] = children;
+            int child = first;
+            for (int i = terminalEnd; i < end; child++) {
+                int next = groupEnd(i, end, depth);
+                nodeChar[child] = keys.get(i).text.charAt(depth);
+                build(child, i, next, depth + 1);
+                i = next;
+            }
+
+            if (end - start > SCAN_LIMIT) {
+                bestRanks.put(node, mergeBest(start, terminalEnd, first, first + children));
+            }
+        }
+
+        // End of the run of keys sharing the character at `depth` with key `i`
+        private int groupEnd(int i, int end, int depth) {
+            char c = keys.get(i).text.charAt(depth);
+            int next = i + 1;
+            while (next < end && keys.get(next).text.charAt(depth) == c) {
+                next++;
+            }
+            return next;
+        }
+
+        // Best ranks of a node from its own keys and its children's, which are already built
+        private int[] mergeBest(int start, int terminalEnd, int firstChild, int endChild) {
+            int count = 0;
+            for (int key = start; key < terminalEnd; key++) {
+                scratch[count++] = keyRank[key];
+            }
+            for (int child = firstChild; child < endChild; child++) {
+                int[] childBest = bestRanks.get(child);
+                if (childBest != null) {
+                    System.arraycopy(childBest, 0, scratch, count, childBest.length);
+                    count += childBest.length;
+                } else {
+                    for (int key = rangeStart[child]; key < rangeEnd[child]; key++) {
+                        scratch[count++] = keyRank[key];
+                    }
+                }
+            }
+            Arrays.sort(scratch, 0, count);
+
+            int[] best = new int[MAX_LIMIT];
+            int found = 0;
+            for (int i = 0; i < count && found < MAX_LIMIT; i++) {
+                int entry = rankEntry[scratch[i]];
+                boolean seen = false;
+                for (int j = 0; j < found && !seen; j++) {
+                    seen = rankEntry[best[j]] == entry;
+                }
+                if (!seen) {
+                    best[found++] = scratch[i];
+                }
+            }
+            return Arrays.copyOf(best, found);
+        }
+    }
+}
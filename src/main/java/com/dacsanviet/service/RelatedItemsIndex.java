@@ -0,0 +1,568 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.config.RecommendationProperties;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.NewsArticleRepository;
+import com.dacsanviet.repository.OrderItemRepository;
+import com.dacsanviet.repository.ProductRepository;
+import com.dacsanviet.util.HtmlTextUtils;
+import com.dacsanviet.util.VietnameseTextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Related products and related articles for the detail pages, computed ahead of time.
+ *
+ * A scheduled job scores the active products against each other, and the published
+ * articles against each other, and keeps the best {@code app.recommendations.limit} for
+ * every item. A score adds up:
+ * - shared words: cosine similarity of TF-IDF vectors over folded syllables, plus syllable
+ *   pairs of the name or title, with each vector cut to its strongest terms;
+ * - the same category: a fixed bonus, so an item without word matches still gets the
+ *   newest articles or the featured products of its category;
+ * - bought together (products only): the orders holding both products over the geometric
+ *   mean of the orders holding each, over {@code app.recommendations.co-purchase-days}.
+ * Ties go to the newer article or the featured product.
+ *
+ * Each result is an immutable open-addressing table of primitive arrays that is swapped in
+ * whole, so a detail page finds its related ids with one hash probe, no query and no lock.
+ * Items added since the last build have no entry and their pages fall back to the
+ * category. After a build, the cached pages whose related items changed are evicted.
+ */
+@Service
+public class RelatedItemsIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelatedItemsIndex.class);
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int EXCERPT_WEIGHT = 2;
+    private static final int TEXT_WEIGHT = 1;
+    // Strongest terms kept per item: enough to describe it, few enough that the long
+    // posting lists of common words are rarely walked
+    private static final int TERMS_PER_ITEM = 40;
+    // Larger orders are wholesale and say little about any one pair of their products
+    private static final int MAX_BASKET = 30;
+    private static final int ARTICLE_BATCH = 500;
+
+    private final ProductRepository productRepository;
+    private final NewsArticleRepository newsArticleRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final PageOutputCache pageOutputCache;
+    private final RecommendationProperties properties;
+
+    private volatile RelatedTable products = RelatedTable.EMPTY;
+    private volatile RelatedTable articles = RelatedTable.EMPTY;
+
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private volatile long lastRebuildMillis;
+    private volatile LocalDateTime lastRebuildAt;
+
+    public RelatedItemsIndex(ProductRepository productRepository, NewsArticleRepository newsArticleRepository,
+            OrderItemRepository orderItemRepository, PageOutputCache pageOutputCache,
+            RecommendationProperties properties) {
+        this.productRepository = productRepository;
+        this.newsArticleRepository = newsArticleRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.pageOutputCache = pageOutputCache;
+        this.properties = properties;
+    }
+
+    /**
+     * Recompute every related list. Runs at startup and then every
+     * {@code app.recommendations.rebuild-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${app.recommendations.rebuild-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        try {
+            RelatedTable builtProducts = buildProducts();
+            RelatedTable builtArticles = buildArticles();
+            List<Long> changedProducts = builtProducts.changedSince(products);
+            List<Long> changedArticles = builtArticles.changedSince(articles);
+            products = builtProducts;
+            articles = builtArticles;
+            pageOutputCache.evictRelated(changedProducts, changedArticles);
+
+            lastRebuildMillis = System.currentTimeMillis() - started;
+            lastRebuildAt = LocalDateTime.now();
+            rebuildCount.incrementAndGet();
+            logger.info("Related items rebuilt for {} products and {} articles in {} ms", builtProducts.size(),
+                    builtArticles.size(), lastRebuildMillis);
+        } catch (Exception e) {
+            logger.error("Related items rebuild failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ids of the products related to a product, best first; empty when the product was
+     * added since the last build or is not active
+     */
+    public List<Long> relatedProducts(Long productId) {
+        return lookup(products, productId);
+    }
+
+    /**
+     * Ids of the articles related to an article, best first; empty when the article was
+     * published since the last build
+     */
+    public List<Long> relatedArticles(Long articleId) {
+        return lookup(articles, articleId);
+    }
+
+    private List<Long> lookup(RelatedTable table, Long id) {
+        lookupCount.incrementAndGet();
+        List<Long> related = id != null ? table.get(id) : List.of();
+        if (related.isEmpty()) {
+            missCount.incrementAndGet();
+        }
+        return related;
+    }
+
+    private RelatedTable buildProducts() {
+        Corpus corpus = new Corpus();
+        for (Product product : productRepository.findAllActiveWithCategory()) {
+            Terms terms = new Terms()
+                    .add(product.getName(), NAME_WEIGHT, true)
+                    .add(product.getOrigin(), TEXT_WEIGHT, false)
+                    .add(HtmlTextUtils.plainText(product.getShortDescription()), TEXT_WEIGHT, false)
+                    .add(HtmlTextUtils.plainText(product.getDescription()), TEXT_WEIGHT, false);
+            corpus.add(product.getId(), product.getCategory() != null ? product.getCategory().getId() : null,
+                    Boolean.TRUE.equals(product.getIsFeatured()) ? 1 : 0, terms);
+        }
+        LocalDateTime since = LocalDateTime.now().minusDays(properties.getCoPurchaseDays());
+        corpus.addBaskets(orderItemRepository.findOrderProductsSince(since));
+        return corpus.build(properties);
+    }
+
+    private RelatedTable buildArticles() {
+        Corpus corpus = new Corpus();
+        long afterId = 0;
+        List<Object[]> batch;
+        do {
+            batch = newsArticleRepository.findPublishedForRelated(afterId, PageRequest.of(0, ARTICLE_BATCH));
+            for (Object[] row : batch) {
+                Long id = (Long) row[0];
+                Terms terms = new Terms()
+                        .add((String) row[1], NAME_WEIGHT, true)
+                        .add((String) row[2], EXCERPT_WEIGHT, true)
+                        .add(HtmlTextUtils.plainText((String) row[3]), TEXT_WEIGHT, false);
+                LocalDateTime publishedAt = (LocalDateTime) row[5];
+                corpus.add(id, (Long) row[4], publishedAt != null ? publishedAt.toEpochSecond(ZoneOffset.UTC) : 0,
+                        terms);
+                afterId = id;
+            }
+        } while (batch.size() == ARTICLE_BATCH);
+        return corpus.build(properties);
+    }
+
+    /**
+     * Related items statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        RelatedTable currentProducts = products;
+        RelatedTable currentArticles = articles;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("products", currentProducts.size());
+        stats.put("articles", currentArticles.size());
+        stats.put("relatedLinks", currentProducts.links() + currentArticles.links());
+        stats.put("tableBytes", currentProducts.bytes() + currentArticles.bytes());
+        stats.put("lookups", lookupCount.get());
+        stats.put("misses", missCount.get());
+        stats.put("rebuilds", rebuildCount.get());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        stats.put("lastRebuildAt", lastRebuildAt);
+        return stats;
+    }
+
+    // Weighted counts of an item's terms: folded syllables, and adjacent syllable pairs of
+    // the short fields
+    private static class Terms {
+
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        Terms add(String text, int weight, boolean pairs) {
+            String previous = null;
+            for (String token : VietnameseTextUtils.tokenize(text)) {
+                counts.merge(token, weight, Integer::sum);
+                if (pairs && previous != null) {
+                    counts.merge(previous + " " + token, weight, Integer::sum);
+                }
+                previous = token;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * The items of one kind collected for a build, by ordinal: their terms, category, tie
+     * break rank and, for products, how often they were bought together
+     */
+    private static class Corpus {
+
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final List<Long> ids = new ArrayList<>();
+        private final List<Integer> categories = new ArrayList<>();
+        private final List<Long> ranks = new ArrayList<>();
+        private final List<int[]> itemTerms = new ArrayList<>();
+        private final List<int[]> itemCounts = new ArrayList<>();
+
+        private final Map<Long, Integer> categoryOrdinals = new HashMap<>();
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private int[] documentFrequency = new int[1024];
+
+        private final Map<Integer, Map<Integer, Integer>> together = new HashMap<>();
+        private final Map<Integer, Integer> orderCounts = new HashMap<>();
+
+        // The lists above as arrays, for scoring
+        private long[] itemIds;
+        private long[] itemRanks;
+        private int[] itemCategories;
+
+        void add(Long id, Long categoryId, long rank, Terms terms) {
+            ordinals.put(id, ids.size());
+            ids.add(id);
+            categories.add(categoryId != null
+                    ? categoryOrdinals.computeIfAbsent(categoryId, key -> categoryOrdinals.size()) : -1);
+            ranks.add(rank);
+
+            int[] termArray = new int[terms.counts.size()];
+            int[] countArray = new int[terms.counts.size()];
+            int k = 0;
+            for (Map.Entry<String, Integer> entry : terms.counts.entrySet()) {
+                int term = termIds.computeIfAbsent(entry.getKey(), key -> termIds.size());
+                if (term == documentFrequency.length) {
+                    documentFrequency = Arrays.copyOf(documentFrequency, term * 2);
+                }
+                documentFrequency[term]++;
+                termArray[k] = term;
+                countArray[k++] = entry.getValue();
+            }
+            itemTerms.add(termArray);
+            itemCounts.add(countArray);
+        }
+
+        /**
+         * (order id, product id) rows sorted by order; products not in the corpus are skipped
+         */
+        void addBaskets(List<Object[]> rows) {
+            Set<Integer> basket = new LinkedHashSet<>();
+            Object currentOrder = null;
+            for (Object[] row : rows) {
+                if (!row[0].equals(currentOrder)) {
+                    addBasket(basket);
+                    basket.clear();
+                    currentOrder = row[0];
+                }
+                Integer ordinal = ordinals.get((Long) row[1]);
+                if (ordinal != null) {
+                    basket.add(ordinal);
+                }
+            }
+            addBasket(basket);
+        }
+
+        private void addBasket(Set<Integer> basket) {
+            if (basket.size() > MAX_BASKET) {
+                return;
+            }
+            Integer[] items = basket.toArray(new Integer[0]);
+            for (int a = 0; a < items.length; a++) {
+                orderCounts.merge(items[a], 1, Integer::sum);
+                for (int b = a + 1; b < items.length; b++) {
+                    together.computeIfAbsent(items[a], key -> new HashMap<>()).merge(items[b], 1, Integer::sum);
+                    together.computeIfAbsent(items[b], key -> new HashMap<>()).merge(items[a], 1, Integer::sum);
+                }
+            }
+        }
+
+        RelatedTable build(RecommendationProperties properties) {
+            int n = ids.size();
+            int limit = Math.max(1, properties.getLimit());
+            itemIds = ids.stream().mapToLong(Long::longValue).toArray();
+            itemRanks = ranks.stream().mapToLong(Long::longValue).toArray();
+            itemCategories = categories.stream().mapToInt(Integer::intValue).toArray();
+
+            // TF-IDF vectors cut to their strongest terms and normalized; terms in a single
+            // item (nothing to share) or in every item (no information) are left out
+            int[][] vectorTerms = new int[n][];
+            float[][] vectorWeights = new float[n][];
+            int[] postingCounts = new int[termIds.size() + 1];
+            for (int item = 0; item < n; item++) {
+                int[] terms = itemTerms.get(item);
+                int[] counts = itemCounts.get(item);
+                float[] weights = new float[terms.length];
+                int kept = 0;
+                for (int k = 0; k < terms.length; k++) {
+                    int df = documentFrequency[terms[k]];
+                    if (df > 1 && df < n) {
+                        weights[k] = (float) ((1 + Math.log(counts[k])) * Math.log((double) n / df));
+                        kept++;
+                    }
+                }
+                float threshold = Float.MIN_VALUE;
+                if (kept > TERMS_PER_ITEM) {
+                    float[] sorted = weights.clone();
+                    Arrays.sort(sorted);
+                    threshold = sorted[sorted.length - TERMS_PER_ITEM];
+                }
+                int[] selected = new int[Math.min(kept, TERMS_PER_ITEM)];
+                float[] selectedWeights = new float[selected.length];
+                double norm = 0;
+                int s = 0;
+                for (int k = 0; k < terms.length && s < selected.length; k++) {
+                    if (weights[k] >= threshold) {
+                        selected[s] = terms[k];
+                        selectedWeights[s++] = weights[k];
+                        norm += (double) weights[k] * weights[k];
+                        postingCounts[terms[k] + 1]++;
+                    }
+                }
+                for (int k = 0; k < s; k++) {
+                    selectedWeights[k] /= (float) Math.sqrt(norm);
+                }
+                vectorTerms[item] = selected;
+                vectorWeights[item] = selectedWeights;
+                // Counts are no longer needed; let them go as the vectors are built
+                itemTerms.set(item, null);
+                itemCounts.set(item, null);
+            }
+
+            // Postings of the kept terms, as offsets into flat arrays
+            int[] postingStart = postingCounts;
+            for (int term = 0; term < termIds.size(); term++) {
+                postingStart[term + 1] += postingStart[term];
+            }
+            int[] postingItem = new int[postingStart[termIds.size()]];
+            float[] postingWeight = new float[postingItem.length];
+            int[] fill = Arrays.copyOf(postingStart, termIds.size());
+            for (int item = 0; item < n; item++) {
+                for (int k = 0; k < vectorTerms[item].length; k++) {
+                    int position = fill[vectorTerms[item][k]]++;
+                    postingItem[position] = item;
+                    postingWeight[position] = vectorWeights[item][k];
+                }
+            }
+
+            // The first members of each category in tie-break order: the candidates of an
+            // item that shares no words with anything in its category
+            List<List<Integer>> members = new ArrayList<>();
+            for (int category = 0; category < categoryOrdinals.size(); category++) {
+                members.add(new ArrayList<>());
+            }
+            for (int item = 0; item < n; item++) {
+                if (itemCategories[item] >= 0) {
+                    members.get(itemCategories[item]).add(item);
+                }
+            }
+            int[][] categoryMembers = new int[members.size()][];
+            for (int category = 0; category < members.size(); category++) {
+                categoryMembers[category] = members.get(category).stream()
+                        .sorted((a, b) -> compare(a, b, null))
+                        .limit(limit + 1)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+            }
+
+            RelatedTable table = new RelatedTable(n);
+            double[] score = new double[n];
+            boolean[] seen = new boolean[n];
+            int[] touched = new int[n];
+            int[] best = new int[limit];
+            for (int item = 0; item < n; item++) {
+                int count = 0;
+                for (int k = 0; k < vectorTerms[item].length; k++) {
+                    int term = vectorTerms[item][k];
+                    for (int p = postingStart[term]; p < postingStart[term + 1]; p++) {
+                        int other = postingItem[p];
+                        if (other != item) {
+                            if (!seen[other]) {
+                                seen[other] = true;
+                                touched[count++] = other;
+                            }
+                            score[other] += vectorWeights[item][k] * postingWeight[p];
+                        }
+                    }
+                }
+                Map<Integer, Integer> bought = together.get(item);
+                if (bought != null) {
+                    for (Map.Entry<Integer, Integer> entry : bought.entrySet()) {
+                        int other = entry.getKey();
+                        if (!seen[other]) {
+                            seen[other] = true;
+                            touched[count++] = other;
+                        }
+                        score[other] += properties.getCoPurchaseWeight() * entry.getValue()
+                                / Math.sqrt((double) orderCounts.get(item) * orderCounts.get(other));
+                    }
+                }
+                int category = itemCategories[item];
+                if (category >= 0) {
+                    for (int t = 0; t < count; t++) {
+                        if (itemCategories[touched[t]] == category) {
+                            score[touched[t]] += properties.getCategoryWeight();
+                        }
+                    }
+                    for (int other : categoryMembers[category]) {
+                        if (other != item && !seen[other]) {
+                            seen[other] = true;
+                            touched[count++] = other;
+                            score[other] = properties.getCategoryWeight();
+                        }
+                    }
+                }
+
+                // Best first, kept in a small sorted array
+                int size = 0;
+                for (int t = 0; t < count; t++) {
+                    int other = touched[t];
+                    if (score[other] <= 0 || (size == limit && compare(other, best[size - 1], score) >= 0)) {
+                        continue;
+                    }
+                    int position = size < limit ? size++ : size - 1;
+                    while (position > 0 && compare(other, best[position - 1], score) < 0) {
+                        best[position] = best[position - 1];
+                        position--;
+                    }
+                    best[position] = other;
+                }
+                long[] related = new long[size];
+                for (int r = 0; r < size; r++) {
+                    related[r] = itemIds[best[r]];
+                }
+                table.put(itemIds[item], related);
+
+                for (int t = 0; t < count; t++) {
+                    score[touched[t]] = 0;
+                    seen[touched[t]] = false;
+                }
+            }
+            return table;
+        }
+
+        // Higher score first, then higher rank (newer or featured), then lower id
+        private int compare(int a, int b, double[] score) {
+            if (score != null && score[a] != score[b]) {
+                return score[a] > score[b] ? -1 : 1;
+            }
+            int byRank = Long.compare(itemRanks[b], itemRanks[a]);
+            return byRank != 0 ? byRank : Long.compare(itemIds[a], itemIds[b]);
+        }
+    }
+
+    /**
+     * Related ids by item id: an open-addressing hash table (0 marks an empty slot; ids are
+     * positive) whose slots point at a range of one flat array of related ids
+     */
+    static final class RelatedTable {
+
+        static final RelatedTable EMPTY = new RelatedTable(0);
+
+        private final long[] keys;
+        private final int[] starts;
+        private final int[] ends;
+        private long[] values = new long[16];
+        private int size;
+        private int valueCount;
+
+        RelatedTable(int expected) {
+            int capacity = 2;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            starts = new int[capacity];
+            ends = new int[capacity];
+        }
+
+        // Build time only, before the table is published
+        void put(long id, long[] related) {
+            if (valueCount + related.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, valueCount + related.length));
+            }
+            int slot = slot(id);
+            if (keys[slot] == 0) {
+                size++;
+            }
+            keys[slot] = id;
+            starts[slot] = valueCount;
+            System.arraycopy(related, 0, values, valueCount, related.length);
+            valueCount += related.length;
+            ends[slot] = valueCount;
+        }
+
+        List<Long> get(long id) {
+            int slot = slot(id);
+            if (keys[slot] == 0) {
+                return List.of();
+            }
+            List<Long> related = new ArrayList<>(ends[slot] - starts[slot]);
+            for (int i = starts[slot]; i < ends[slot]; i++) {
+                related.add(values[i]);
+            }
+            return related;
+        }
+
+        /**
+         * Ids whose related list differs from the one in the previous table, including
+         * ids that are in only one of the two
+         */
+        List<Long> changedSince(RelatedTable previous) {
+            List<Long> changed = new ArrayList<>();
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    int other = previous.slot(keys[slot]);
+                    if (previous.keys[other] == 0 || !Arrays.equals(values, starts[slot], ends[slot],
+                            previous.values, previous.starts[other], previous.ends[other])) {
+                        changed.add(keys[slot]);
+                    }
+                }
+            }
+            for (int slot = 0; slot < previous.keys.length; slot++) {
+                if (previous.keys[slot] != 0 && keys[slot(previous.keys[slot])] == 0) {
+                    changed.add(previous.keys[slot]);
+                }
+            }
+            return changed;
+        }
+
+        // The slot holding id, or the empty slot where it would go
+        private int slot(long id) {
+            int mask = keys.length - 1;
+            int slot = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[slot] != 0 && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int links() {
+            return valueCount;
+        }
+
+        long bytes() {
+            return keys.length * (8L + 4 + 4) + values.length * 8L;
+        }
+    }
+}
@@ -4,9 +4,13 @@ import com.dacsanviet.repository.NewsArticleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import java.text.Normalizer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -21,11 +25,16 @@ public class SEOService {
     private final NewsArticleRepository newsArticleRepository;
     
     // Constants for validation
+    private static final int MIN_ACCEPTED_META_DESCRIPTION_LENGTH = 25;  // Shorter is rejected
     private static final int MIN_META_DESCRIPTION_LENGTH = 50;  // Reduced from 150 to 50
     private static final int MAX_META_DESCRIPTION_LENGTH = 160;
     private static final int MAX_SLUG_LENGTH = 250;
     private static final Pattern SLUG_PATTERN = Pattern.compile("^[a-z0-9-]+$");
     
+    // Slugs handed out to transactions that have not completed, so the database cannot show
+    // them yet; without these two articles created at once with one title get the same slug
+    private final Set<String> pendingSlugs = ConcurrentHashMap.newKeySet();
+    
     /**
      * Generate a unique slug from title
      * @param title The article title
@@ -53,7 +62,7 @@ public class SEOService {
         int counter = 1;
         
         // Keep trying until we find a unique slug
-        while (isSlugExists(slug, excludeId)) {
+        while (!claimSlug(slug, excludeId)) {
             slug = baseSlug + "-" + counter;
             counter++;
             
@@ -147,6 +156,32 @@ public class SEOService {
             .orElse(false);
     }
     
+    /**
+     * Take a slug that no saved article has and no unfinished transaction was given. Inside a
+     * transaction the slug stays taken until it completes, by when a saved article shows it.
+     */
+    private boolean claimSlug(String slug, Long excludeId) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        if (inTransaction && !pendingSlugs.add(slug)) {
+            return false;
+        }
+        if (isSlugExists(slug, excludeId)) {
+            if (inTransaction) {
+                pendingSlugs.remove(slug);
+            }
+            return false;
+        }
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pendingSlugs.remove(slug);
+                }
+            });
+        }
+        return true;
+    }
+    
     /**
      * Validate meta description according to SEO best practices
      * @param metaDescription The meta description to validate
@@ -163,8 +198,13 @@ public class SEOService {
         
         int length = metaDescription.trim().length();
         
-        if (length < MIN_META_DESCRIPTION_LENGTH) {
-            // Only warn, don't reject for short meta descriptions
+        if (length < MIN_ACCEPTED_META_DESCRIPTION_LENGTH) {
+            // A few words say nothing a search result could show
+            result.setValid(false);
+            result.addMessage(String.format("Meta description is too short (%d characters). Minimum: %d characters, recommended: %d-%d characters", 
+                length, MIN_ACCEPTED_META_DESCRIPTION_LENGTH, MIN_META_DESCRIPTION_LENGTH, MAX_META_DESCRIPTION_LENGTH));
+        } else if (length < MIN_META_DESCRIPTION_LENGTH) {
+            // Only warn, don't reject for descriptions below the recommended length
             result.setValid(true);
             result.addMessage(String.format("Meta description is shorter than recommended (%d characters). Consider expanding to %d-%d characters for better SEO", 
                 length, MIN_META_DESCRIPTION_LENGTH, MAX_META_DESCRIPTION_LENGTH));
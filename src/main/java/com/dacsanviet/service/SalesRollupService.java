@@ -0,0 +1,427 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.config.SalesRollupProperties;
+import com.dacsanviet.model.Order;
+import com.dacsanviet.model.OrderStatus;
+import com.dacsanviet.util.AfterCommit;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-day, per-status order totals ({@code daily_sales_rollup}) for the admin dashboard and
+ * revenue analytics, so they read one row per day and status instead of every order.
+ *
+ * Order creation and status changes add their contribution incrementally once the order's
+ * transaction has committed, in a short transaction of their own on a background thread, so
+ * the busy row for today is never locked for the length of a checkout and a checkout never
+ * holds a second pooled connection while its own is still bound. A nightly job recomputes the last
+ * {@code app.sales.rollup.rebuild-days} days from the orders table, which repairs any
+ * increment that failed or raced; today is left to the increments. When the table is empty
+ * at startup every day since the first order is rebuilt.
+ *
+ * A new customer is an order that is the first one of its user, or for guest orders the first
+ * one placed with that email address.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final String ADD_SQL =
+            "UPDATE daily_sales_rollup SET order_count = order_count + ?, revenue = revenue + ?, " +
+            "items_sold = items_sold + ?, new_customers = new_customers + ?, updated_at = ? " +
+            "WHERE sales_date = ? AND status = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO daily_sales_rollup (sales_date, status, order_count, revenue, items_sold, " +
+            "new_customers, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ITEMS_SOLD_SQL =
+            "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE order_id = ?";
+
+    private static final String EARLIER_USER_ORDERS_SQL =
+            "SELECT COUNT(*) FROM orders WHERE user_id = ? AND id < ?";
+
+    private static final String EARLIER_GUEST_ORDERS_SQL =
+            "SELECT COUNT(*) FROM orders WHERE user_id IS NULL AND customer_email = ? AND id < ?";
+
+    private static final String DELETE_DAY_SQL =
+            "DELETE FROM daily_sales_rollup WHERE sales_date = ?";
+
+    private static final String REBUILD_DAY_SQL =
+            "INSERT INTO daily_sales_rollup (sales_date, status, order_count, revenue, items_sold, " +
+            "new_customers, updated_at) " +
+            "SELECT CAST(? AS DATE), t.status, COUNT(*), SUM(t.total_amount), SUM(t.items), SUM(t.first_order), " +
+            "CURRENT_TIMESTAMP FROM (" +
+            "SELECT o.status, o.total_amount, " +
+            "(SELECT COALESCE(SUM(oi.quantity), 0) FROM order_items oi WHERE oi.order_id = o.id) AS items, " +
+            "CASE WHEN o.user_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM orders p " +
+            "WHERE p.user_id = o.user_id AND p.id < o.id) THEN 1 " +
+            "WHEN o.user_id IS NULL AND o.customer_email IS NOT NULL AND NOT EXISTS (SELECT 1 FROM orders p " +
+            "WHERE p.user_id IS NULL AND p.customer_email = o.customer_email AND p.id < o.id) THEN 1 " +
+            "ELSE 0 END AS first_order " +
+            "FROM orders o WHERE o.order_date >= ? AND o.order_date < ?) t " +
+            "GROUP BY t.status";
+
+    private static final String TOTALS_BY_STATUS_SQL =
+            "SELECT status, SUM(order_count) AS orders, SUM(revenue) AS revenue, SUM(items_sold) AS items, " +
+            "SUM(new_customers) AS customers FROM daily_sales_rollup " +
+            "WHERE sales_date BETWEEN ? AND ? GROUP BY status";
+
+    private static final String DAILY_TOTALS_SQL =
+            "SELECT sales_date, SUM(order_count) AS orders, SUM(revenue) AS revenue, SUM(items_sold) AS items, " +
+            "SUM(new_customers) AS customers FROM daily_sales_rollup " +
+            "WHERE sales_date BETWEEN ? AND ? AND status <> ? GROUP BY sales_date HAVING SUM(order_count) > 0";
+
+    private static final String MONTHLY_TOTALS_SQL =
+            "SELECT YEAR(sales_date) AS y, MONTH(sales_date) AS m, SUM(order_count) AS orders, " +
+            "SUM(revenue) AS revenue, SUM(items_sold) AS items, SUM(new_customers) AS customers " +
+            "FROM daily_sales_rollup WHERE status <> ? GROUP BY YEAR(sales_date), MONTH(sales_date) " +
+            "HAVING SUM(order_count) > 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SalesRollupProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor incrementExecutor;
+
+    private final AtomicLong incrementsApplied = new AtomicLong();
+    private final AtomicLong incrementsFailed = new AtomicLong();
+    private final AtomicLong daysRebuilt = new AtomicLong();
+    private volatile LocalDateTime lastRebuildAt;
+
+    @Autowired
+    public SalesRollupService(JdbcTemplate jdbcTemplate, SalesRollupProperties properties,
+                              PlatformTransactionManager transactionManager) {
+        this(jdbcTemplate, properties, transactionManager, Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "sales-rollup");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    SalesRollupService(JdbcTemplate jdbcTemplate, SalesRollupProperties properties,
+                       PlatformTransactionManager transactionManager, Executor incrementExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.incrementExecutor = incrementExecutor;
+    }
+
+    /**
+     * Apply the increments still queued before the DataSource closes
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (incrementExecutor instanceof ExecutorService executor) {
+            executor.shutdown();
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Sales rollup increments still queued at shutdown; the nightly rebuild will add them");
+            }
+        }
+    }
+
+    /**
+     * Count a newly placed order (saved, with its items written) under its current status
+     */
+    public void recordOrderPlaced(Order order, int itemsSold) {
+        OrderSnapshot snapshot = OrderSnapshot.of(order);
+        if (snapshot == null || order.getStatus() == null) {
+            return;
+        }
+        OrderStatus status = order.getStatus();
+        afterCommit(() -> apply(snapshot, itemsSold, null, status));
+    }
+
+    /**
+     * Move an order's contribution from its previous status to its new one
+     */
+    public void recordStatusChange(Order order, OrderStatus from, OrderStatus to) {
+        OrderSnapshot snapshot = OrderSnapshot.of(order);
+        if (snapshot == null || from == null || to == null || from == to) {
+            return;
+        }
+        afterCommit(() -> apply(snapshot, null, from, to));
+    }
+
+    private void apply(OrderSnapshot order, Integer itemsSold, OrderStatus from, OrderStatus to) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int items = itemsSold != null ? itemsSold
+                        : jdbcTemplate.queryForObject(ITEMS_SOLD_SQL, Integer.class, order.id);
+                int firstOrder = isFirstOrder(order) ? 1 : 0;
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+                // Rows are always touched in status order, so two moves cannot deadlock each other
+                if (from != null && from.name().compareTo(to.name()) < 0) {
+                    add(order.salesDate, from, -1, order.amount.negate(), -items, -firstOrder, now);
+                    add(order.salesDate, to, 1, order.amount, items, firstOrder, now);
+                } else {
+                    add(order.salesDate, to, 1, order.amount, items, firstOrder, now);
+                    if (from != null) {
+                        add(order.salesDate, from, -1, order.amount.negate(), -items, -firstOrder, now);
+                    }
+                }
+            });
+            incrementsApplied.incrementAndGet();
+        } catch (Exception e) {
+            // The nightly rebuild recomputes the day from the orders table
+            incrementsFailed.incrementAndGet();
+            logger.warn("Sales rollup update for order {} failed: {}", order.id, e.getMessage());
+        }
+    }
+
+    private boolean isFirstOrder(OrderSnapshot order) {
+        Integer earlier;
+        if (order.userId != null) {
+            earlier = jdbcTemplate.queryForObject(EARLIER_USER_ORDERS_SQL, Integer.class, order.userId, order.id);
+        } else if (order.customerEmail != null) {
+            earlier = jdbcTemplate.queryForObject(EARLIER_GUEST_ORDERS_SQL, Integer.class, order.customerEmail,
+                    order.id);
+        } else {
+            return false;
+        }
+        return earlier != null && earlier == 0;
+    }
+
+    private void add(LocalDate day, OrderStatus status, int orders, BigDecimal revenue, int items, int customers,
+                     Timestamp now) {
+        Date salesDate = Date.valueOf(day);
+        Object[] delta = { orders, revenue, items, customers, now, salesDate, status.name() };
+        if (jdbcTemplate.update(ADD_SQL, delta) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, salesDate, status.name(), orders, revenue, items, customers, now);
+        } catch (DuplicateKeyException e) {
+            // Another order created the row first
+            jdbcTemplate.update(ADD_SQL, delta);
+        }
+    }
+
+    // The increment runs on the rollup thread, after the caller's connection has gone back to the pool
+    private void afterCommit(Runnable increment) {
+        AfterCommit.run(() -> incrementExecutor.execute(increment));
+    }
+
+    /**
+     * Nightly compaction: recompute the last {@code rebuild-days} days before today
+     */
+    @Scheduled(cron = "${app.sales.rollup.rebuild-cron:0 30 2 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(properties.getRebuildDays()), today.minusDays(1));
+    }
+
+    /**
+     * Fill an empty rollup table from the whole order history
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (!properties.isBootstrapOnStartup()) {
+            return;
+        }
+        try {
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_sales_rollup", Integer.class);
+            if (rows != null && rows > 0) {
+                return;
+            }
+            Timestamp firstOrder = jdbcTemplate.queryForObject("SELECT MIN(order_date) FROM orders", Timestamp.class);
+            if (firstOrder != null) {
+                rebuild(firstOrder.toLocalDateTime().toLocalDate(), LocalDate.now());
+            }
+        } catch (Exception e) {
+            logger.error("Sales rollup bootstrap failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recompute the given days (inclusive) from the orders table, one transaction per day
+     */
+    public void rebuild(LocalDate from, LocalDate to) {
+        int rebuilt = 0;
+        try {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                LocalDate current = day;
+                transactionTemplate.executeWithoutResult(status -> rebuildDay(current));
+                rebuilt++;
+            }
+            lastRebuildAt = LocalDateTime.now();
+            logger.info("Rebuilt sales rollup for {} days from {} to {}", rebuilt, from, to);
+        } catch (Exception e) {
+            logger.error("Sales rollup rebuild failed after {} days: {}", rebuilt, e.getMessage(), e);
+        } finally {
+            daysRebuilt.addAndGet(rebuilt);
+        }
+    }
+
+    private void rebuildDay(LocalDate day) {
+        Date salesDate = Date.valueOf(day);
+        jdbcTemplate.update(DELETE_DAY_SQL, salesDate);
+        jdbcTemplate.update(REBUILD_DAY_SQL, salesDate, Timestamp.valueOf(day.atStartOfDay()),
+                Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    }
+
+    /**
+     * Totals per status for the given days (inclusive); every status is present
+     */
+    public Map<OrderStatus, Totals> getTotalsByStatus(LocalDate from, LocalDate to) {
+        Map<OrderStatus, Totals> totals = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            totals.put(status, new Totals());
+        }
+        jdbcTemplate.query(TOTALS_BY_STATUS_SQL, rs -> {
+            totals.get(OrderStatus.valueOf(rs.getString("status")))
+                    .add(rs.getLong("orders"), rs.getBigDecimal("revenue"), rs.getLong("items"), rs.getLong("customers"));
+        }, Date.valueOf(from), Date.valueOf(to));
+        return totals;
+    }
+
+    /**
+     * Totals of all orders for the given days (inclusive), with or without cancelled orders
+     */
+    public Totals getTotals(LocalDate from, LocalDate to, boolean includeCancelled) {
+        return combine(getTotalsByStatus(from, to), includeCancelled);
+    }
+
+    /**
+     * Totals of the non-cancelled orders per day, for days that have any
+     */
+    public TreeMap<LocalDate, Totals> getDailyTotals(LocalDate from, LocalDate to) {
+        TreeMap<LocalDate, Totals> daily = new TreeMap<>();
+        jdbcTemplate.query(DAILY_TOTALS_SQL, rs -> {
+            Totals totals = new Totals();
+            totals.add(rs.getLong("orders"), rs.getBigDecimal("revenue"), rs.getLong("items"), rs.getLong("customers"));
+            daily.put(rs.getDate("sales_date").toLocalDate(), totals);
+        }, Date.valueOf(from), Date.valueOf(to), OrderStatus.CANCELLED.name());
+        return daily;
+    }
+
+    /**
+     * Totals of the non-cancelled orders per month, over the whole history
+     */
+    public TreeMap<YearMonth, Totals> getMonthlyTotals() {
+        TreeMap<YearMonth, Totals> monthly = new TreeMap<>();
+        jdbcTemplate.query(MONTHLY_TOTALS_SQL, rs -> {
+            Totals totals = new Totals();
+            totals.add(rs.getLong("orders"), rs.getBigDecimal("revenue"), rs.getLong("items"), rs.getLong("customers"));
+            monthly.put(YearMonth.of(rs.getInt("y"), rs.getInt("m")), totals);
+        }, OrderStatus.CANCELLED.name());
+        return monthly;
+    }
+
+    /**
+     * Add up per-status totals, optionally leaving out cancelled orders
+     */
+    public static Totals combine(Map<OrderStatus, Totals> byStatus, boolean includeCancelled) {
+        Totals combined = new Totals();
+        for (Map.Entry<OrderStatus, Totals> entry : byStatus.entrySet()) {
+            if (includeCancelled || entry.getKey() != OrderStatus.CANCELLED) {
+                Totals totals = entry.getValue();
+                combined.add(totals.orderCount, totals.revenue, totals.itemsSold, totals.newCustomers);
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Rollup statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rebuildDays", properties.getRebuildDays());
+        stats.put("incrementsApplied", incrementsApplied.get());
+        stats.put("incrementsFailed", incrementsFailed.get());
+        stats.put("daysRebuilt", daysRebuilt.get());
+        stats.put("lastRebuildAt", lastRebuildAt);
+        return stats;
+    }
+
+    /**
+     * Order count, revenue, items sold and new customers over some set of rollup rows
+     */
+    public static class Totals {
+
+        private long orderCount;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long itemsSold;
+        private long newCustomers;
+
+        void add(long orders, BigDecimal amount, long items, long customers) {
+            orderCount += orders;
+            revenue = revenue.add(amount != null ? amount : BigDecimal.ZERO);
+            itemsSold += items;
+            newCustomers += customers;
+        }
+
+        public long getOrderCount() {
+            return orderCount;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        public long getItemsSold() {
+            return itemsSold;
+        }
+
+        public long getNewCustomers() {
+            return newCustomers;
+        }
+    }
+
+    // The order fields a rollup update needs, read before the entity leaves its session
+    private static class OrderSnapshot {
+
+        private final Long id;
+        private final LocalDate salesDate;
+        private final BigDecimal amount;
+        private final Long userId;
+        private final String customerEmail;
+
+        private OrderSnapshot(Long id, LocalDate salesDate, BigDecimal amount, Long userId, String customerEmail) {
+            this.id = id;
+            this.salesDate = salesDate;
+            this.amount = amount;
+            this.userId = userId;
+            this.customerEmail = customerEmail;
+        }
+
+        static OrderSnapshot of(Order order) {
+            if (order == null || order.getId() == null || order.getOrderDate() == null) {
+                return null;
+            }
+            return new OrderSnapshot(order.getId(), order.getOrderDate().toLocalDate(),
+                    order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO,
+                    order.getUser() != null ? order.getUser().getId() : null, order.getCustomerEmail());
+        }
+    }
+}
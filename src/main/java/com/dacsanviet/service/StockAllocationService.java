@@ -0,0 +1,269 @@
+package com.dacsanviet.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Atomic stock decrements for checkout and inventory operations.
+ *
+ * Every product of a request is decremented with one conditional
+ * {@code UPDATE ... WHERE stock_quantity - reserved_quantity >= ?}, sent as a single JDBC
+ * batch. The database only applies a decrement if enough unreserved stock is left, so
+ * concurrent buyers can never oversell or take units held for an unpaid order,
+ * and rows are always touched in ascending id order so two multi-item checkouts cannot
+ * deadlock on each other's row locks.
+ *
+ * The updates bypass Hibernate: Product entities already loaded in the same persistence
+ * context keep their old stockQuantity and must not be saved afterwards. The stock
+ * movements are passed on to the product facet index once the transaction commits.
+ */
+@Service
+public class StockAllocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockAllocationService.class);
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? " +
+            "WHERE id = ? AND stock_quantity - reserved_quantity >= ?";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?";
+
+    private static final String STOCK_LOOKUP_SQL =
+            "SELECT id, name, stock_quantity - reserved_quantity AS available FROM products WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ProductFacetIndex productFacetIndex;
+    private final PageOutputCache pageOutputCache;
+
+    @Autowired
+    public StockAllocationService(JdbcTemplate jdbcTemplate, ProductFacetIndex productFacetIndex,
+                                  PageOutputCache pageOutputCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.productFacetIndex = productFacetIndex;
+        this.pageOutputCache = pageOutputCache;
+    }
+
+    /**
+     * Take stock for every product in the map (product id -> quantity), all or nothing.
+     * When any product lacks stock the decrements already applied are put back and the
+     * result lists every product that could not be served.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public StockAllocation allocate(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> ordered = normalize(quantities);
+        if (ordered.isEmpty()) {
+            return StockAllocation.success(ordered);
+        }
+
+        List<Object[]> batch = new ArrayList<>(ordered.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            batch.add(new Object[] { entry.getValue(), now, entry.getKey(), entry.getValue() });
+        }
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, batch);
+
+        TreeMap<Long, Integer> applied = new TreeMap<>();
+        List<Long> rejected = new ArrayList<>();
+        int index = 0;
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            if (updated[index++] > 0) {
+                applied.put(entry.getKey(), entry.getValue());
+            } else {
+                rejected.add(entry.getKey());
+            }
+        }
+
+        if (rejected.isEmpty()) {
+            Map<Long, Integer> taken = new HashMap<>();
+            ordered.forEach((productId, quantity) -> taken.put(productId, -quantity));
+            productFacetIndex.adjustStock(taken);
+            pageOutputCache.evictProductStock(ordered.keySet());
+            return StockAllocation.success(ordered);
+        }
+
+        // Give back what was taken so the caller can continue its transaction safely
+        increment(applied);
+        List<ItemFailure> failures = describeFailures(rejected, ordered);
+        logger.info("Stock allocation rejected for {} of {} products", failures.size(), ordered.size());
+        return StockAllocation.failure(ordered, failures);
+    }
+
+    /**
+     * Put stock back (cancelled orders, released reservations, goods received).
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void restock(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> ordered = normalize(quantities);
+        if (ordered.isEmpty()) {
+            return;
+        }
+        increment(ordered);
+        productFacetIndex.adjustStock(ordered);
+        pageOutputCache.evictProductStock(ordered.keySet());
+    }
+
+    private void increment(TreeMap<Long, Integer> ordered) {
+        if (ordered.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(ordered.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            batch.add(new Object[] { entry.getValue(), now, entry.getKey() });
+        }
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, batch);
+    }
+
+    /**
+     * Explain rejected lines with the stock that is currently available to sell
+     */
+    List<ItemFailure> describeFailures(List<Long> rejected, Map<Long, Integer> requested) {
+        Map<Long, ItemFailure> found = new HashMap<>();
+        namedJdbcTemplate.query(STOCK_LOOKUP_SQL, new MapSqlParameterSource("ids", rejected), rs -> {
+            long id = rs.getLong("id");
+            found.put(id, new ItemFailure(id, rs.getString("name"), requested.get(id),
+                    Math.max(0, rs.getInt("available")), FailureReason.INSUFFICIENT_STOCK));
+        });
+
+        List<ItemFailure> failures = new ArrayList<>(rejected.size());
+        for (Long id : rejected) {
+            ItemFailure failure = found.get(id);
+            failures.add(failure != null ? failure
+                    : new ItemFailure(id, null, requested.get(id), 0, FailureReason.NOT_FOUND));
+        }
+        return failures;
+    }
+
+    TreeMap<Long, Integer> normalize(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> ordered = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new RuntimeException("Product id is required for stock allocation");
+            }
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new RuntimeException("Quantity must be positive for product: " + entry.getKey());
+            }
+            ordered.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+        return ordered;
+    }
+
+    public enum FailureReason {
+        NOT_FOUND,
+        INSUFFICIENT_STOCK
+    }
+
+    /**
+     * A product that could not be served, with the stock that was left at the time.
+     */
+    public static class ItemFailure {
+        private final Long productId;
+        private final String productName;
+        private final Integer requested;
+        private final Integer available;
+        private final FailureReason reason;
+
+        public ItemFailure(Long productId, String productName, Integer requested, Integer available,
+                           FailureReason reason) {
+            this.productId = productId;
+            this.productName = productName;
+            this.requested = requested;
+            this.available = available;
+            this.reason = reason;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public Integer getRequested() {
+            return requested;
+        }
+
+        public Integer getAvailable() {
+            return available;
+        }
+
+        public FailureReason getReason() {
+            return reason;
+        }
+
+        /**
+         * Message in the same wording the checkout used before
+         */
+        public String getMessage() {
+            if (reason == FailureReason.NOT_FOUND) {
+                return "Product not found: " + productId;
+            }
+            return "Insufficient stock for product: " + productName + ". Available: " + available
+                    + ", Requested: " + requested;
+        }
+    }
+
+    /**
+     * Outcome of an allocation: either every product was decremented or none was.
+     */
+    public static class StockAllocation {
+        private final Map<Long, Integer> requested;
+        private final List<ItemFailure> failures;
+
+        private StockAllocation(Map<Long, Integer> requested, List<ItemFailure> failures) {
+            this.requested = Collections.unmodifiableMap(new LinkedHashMap<>(requested));
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        public static StockAllocation success(Map<Long, Integer> requested) {
+            return new StockAllocation(requested, List.of());
+        }
+
+        public static StockAllocation failure(Map<Long, Integer> requested, List<ItemFailure> failures) {
+            return new StockAllocation(requested, failures);
+        }
+
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        public Map<Long, Integer> getRequested() {
+            return requested;
+        }
+
+        public List<ItemFailure> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Throw the first failure as the RuntimeException callers have always surfaced.
+         */
+        public StockAllocation orThrow() {
+            if (!failures.isEmpty()) {
+                throw new RuntimeException(failures.get(0).getMessage());
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package com.dacsanviet.service;
+
+import com.dacsanviet.config.StockReservationProperties;
+import com.dacsanviet.model.OrderStatus;
+import com.dacsanviet.model.StockReservation;
+import com.dacsanviet.util.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-limited stock holds for orders paid online (VNPay, VietQR, MoMo).
+ *
+ * Checkout moves the ordered units from available to {@code products.reserved_quantity}
+ * with a conditional batch update and records one {@code stock_reservations} row per
+ * product. Payment confirmation turns the hold into a real decrement; cancellation or the
+ * scheduled sweeper gives it back once the TTL (the VNPay payment window) has passed.
+ * Every state change is a conditional {@code UPDATE ... WHERE status = ?}, so the sweeper,
+ * a late payment webhook and a cancellation can race without releasing a hold twice.
+ *
+ * Held units per product are also kept in memory, updated after each commit and resynced
+ * from the table by the sweeper, so product pages read available-to-sell without a query.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final String HOLD_SQL =
+            "UPDATE products SET reserved_quantity = reserved_quantity + ?, updated_at = ? " +
+            "WHERE id = ? AND stock_quantity - reserved_quantity >= ?";
+
+    private static final String UNHOLD_SQL =
+            "UPDATE products SET reserved_quantity = reserved_quantity - ?, updated_at = ? " +
+            "WHERE id = ? AND reserved_quantity >= ?";
+
+    private static final String CONSUME_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, reserved_quantity = reserved_quantity - ?, " +
+            "updated_at = ? WHERE id = ? AND reserved_quantity >= ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stock_reservations (order_id, product_id, quantity, status, expires_at, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Locks the order's rows, so a sweep cannot expire them between this read and the transitions
+    private static final String ORDER_RESERVATIONS_SQL =
+            "SELECT id, product_id, quantity, status FROM stock_reservations WHERE order_id = ? ORDER BY id FOR UPDATE";
+
+    private static final String EXPIRED_SQL =
+            "SELECT id, product_id, quantity, status FROM stock_reservations " +
+            "WHERE status = ? AND expires_at <= ? ORDER BY expires_at, id LIMIT ?";
+
+    private static final String TRANSITION_SQL =
+            "UPDATE stock_reservations SET status = ?, resolved_at = ? WHERE id = ? AND status = ?";
+
+    private static final String HELD_TOTALS_SQL =
+            "SELECT product_id, SUM(quantity) AS held FROM stock_reservations WHERE status = ? GROUP BY product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockAllocationService stockAllocationService;
+    private final StockReservationProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductFacetIndex productFacetIndex;
+    private final PageOutputCache pageOutputCache;
+
+    // Units held per product id, as last committed on this node
+    private volatile ConcurrentHashMap<Long, Integer> heldByProduct = new ConcurrentHashMap<>();
+    private final Object indexLock = new Object();
+    private long indexVersion;
+
+    private final AtomicLong reservedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong committedCount = new AtomicLong();
+    private final AtomicLong lateCommitCount = new AtomicLong();
+    private final AtomicLong releasedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong resyncSkippedCount = new AtomicLong();
+    private volatile LocalDateTime lastSweepAt;
+
+    @Autowired
+    public StockReservationService(JdbcTemplate jdbcTemplate, StockAllocationService stockAllocationService,
+                                   StockReservationProperties properties,
+                                   PlatformTransactionManager transactionManager,
+                                   ProductFacetIndex productFacetIndex,
+                                   PageOutputCache pageOutputCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockAllocationService = stockAllocationService;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productFacetIndex = productFacetIndex;
+        this.pageOutputCache = pageOutputCache;
+    }
+
+    /**
+     * Hold stock for every product of an order (product id -> quantity), all or nothing.
+     * The hold lasts {@code app.stock.reservation.ttl-minutes} unless the order is paid.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public StockAllocationService.StockAllocation reserve(Long orderId, Map<Long, Integer> quantities) {
+        if (orderId == null) {
+            throw new RuntimeException("Order id is required for stock reservation");
+        }
+        TreeMap<Long, Integer> ordered = stockAllocationService.normalize(quantities);
+        if (ordered.isEmpty()) {
+            return StockAllocationService.StockAllocation.success(ordered);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTs = Timestamp.valueOf(now);
+        List<Object[]> batch = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            batch.add(new Object[] { entry.getValue(), nowTs, entry.getKey(), entry.getValue() });
+        }
+        int[] updated = jdbcTemplate.batchUpdate(HOLD_SQL, batch);
+
+        Map<Long, Integer> applied = new TreeMap<>();
+        List<Long> rejected = new ArrayList<>();
+        int index = 0;
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            if (updated[index++] > 0) {
+                applied.put(entry.getKey(), entry.getValue());
+            } else {
+                rejected.add(entry.getKey());
+            }
+        }
+
+        if (!rejected.isEmpty()) {
+            unhold(applied, nowTs);
+            rejectedCount.incrementAndGet();
+            return StockAllocationService.StockAllocation.failure(ordered,
+                    stockAllocationService.describeFailures(rejected, ordered));
+        }
+
+        Timestamp expiresAt = Timestamp.valueOf(now.plusMinutes(properties.getTtlMinutes()));
+        List<Object[]> rows = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            rows.add(new Object[] { orderId, entry.getKey(), entry.getValue(),
+                    StockReservation.Status.ACTIVE.name(), expiresAt, nowTs });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+        updateIndexAfterCommit(ordered, 1);
+        reservedCount.incrementAndGet();
+        return StockAllocationService.StockAllocation.success(ordered);
+    }
+
+    /**
+     * Payment received: turn the order's holds into stock decrements. Holds that already
+     * expired are taken again from available stock; if that is no longer possible the
+     * order is paid but oversold, which is logged for manual follow-up. The order's rows are
+     * read locked, so a sweep expiring them either finishes first and they are taken again
+     * here, or waits for this transaction.
+     * Orders without reservations (COD, placed before reservations existed) are left alone.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void commit(Long orderId) {
+        List<HeldLine> lines = findByOrder(orderId);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, Integer> consumed = transition(lines, StockReservation.Status.ACTIVE,
+                StockReservation.Status.COMMITTED, now);
+        if (!consumed.isEmpty()) {
+            List<Object[]> batch = new ArrayList<>(consumed.size());
+            Map<Long, Integer> taken = new HashMap<>();
+            for (Map.Entry<Long, Integer> entry : consumed.entrySet()) {
+                batch.add(new Object[] { entry.getValue(), entry.getValue(), now, entry.getKey(), entry.getValue() });
+                taken.put(entry.getKey(), -entry.getValue());
+            }
+            warnOnMisses("commit", jdbcTemplate.batchUpdate(CONSUME_SQL, batch), consumed);
+            updateIndexAfterCommit(consumed, -1);
+            // The sold units leave stock_quantity, which the facet index filters and sorts on
+            productFacetIndex.adjustStock(taken);
+            committedCount.incrementAndGet();
+        }
+
+        List<HeldLine> lapsed = new ArrayList<>();
+        for (HeldLine line : lines) {
+            if (line.status == StockReservation.Status.EXPIRED) {
+                lapsed.add(line);
+            }
+        }
+        if (!lapsed.isEmpty()) {
+            Map<Long, Integer> wanted = sumByProduct(lapsed);
+            StockAllocationService.StockAllocation allocation = stockAllocationService.allocate(wanted);
+            if (allocation.isSuccessful()) {
+                transition(lapsed, StockReservation.Status.EXPIRED, StockReservation.Status.COMMITTED, now);
+                lateCommitCount.incrementAndGet();
+            } else {
+                logger.warn("Order {} was paid after its stock hold expired and can no longer be served: {}",
+                        orderId, allocation.getFailures().get(0).getMessage());
+            }
+        }
+    }
+
+    /**
+     * Status change: an order that is confirmed, shipped or delivered keeps its stock for
+     * good, even when its online payment has not been recorded yet, so its hold is turned
+     * into a sale instead of being left to expire.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void commitForStatus(Long orderId, OrderStatus status) {
+        if (status == OrderStatus.CONFIRMED || status == OrderStatus.SHIPPED || status == OrderStatus.DELIVERED) {
+            commit(orderId);
+        }
+    }
+
+    /**
+     * Order cancelled: give back whatever the order still holds or took.
+     * Orders without reservations had their stock decremented at checkout and are restocked
+     * from the ordered quantities; expired holds were already given back by the sweeper.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void cancel(Long orderId, Map<Long, Integer> orderedQuantities) {
+        List<HeldLine> lines = findByOrder(orderId);
+        if (lines.isEmpty()) {
+            stockAllocationService.restock(orderedQuantities);
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, Integer> held = transition(lines, StockReservation.Status.ACTIVE,
+                StockReservation.Status.RELEASED, now);
+        if (!held.isEmpty()) {
+            unhold(held, now);
+            updateIndexAfterCommit(held, -1);
+        }
+        Map<Long, Integer> taken = transition(lines, StockReservation.Status.COMMITTED,
+                StockReservation.Status.RELEASED, now);
+        if (!taken.isEmpty()) {
+            stockAllocationService.restock(taken);
+        }
+        releasedCount.incrementAndGet();
+    }
+
+    /**
+     * Release expired holds in batches, one transaction per batch, then resync the
+     * in-memory index. The first run happens at startup and loads the index.
+     */
+    @Scheduled(fixedDelayString = "${app.stock.reservation.sweep-interval-ms:30000}")
+    public void sweepExpired() {
+        try {
+            int released = 0;
+            for (int i = 0; i < properties.getMaxBatchesPerSweep(); i++) {
+                Integer fetched = transactionTemplate.execute(status -> releaseExpiredBatch());
+                released += fetched != null ? fetched : 0;
+                if (fetched == null || fetched < properties.getSweepBatchSize()) {
+                    break;
+                }
+            }
+            if (released > 0) {
+                logger.info("Released {} expired stock reservations", released);
+            }
+            lastSweepAt = LocalDateTime.now();
+            resyncIndex();
+        } catch (Exception e) {
+            logger.error("Stock reservation sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private int releaseExpiredBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTs = Timestamp.valueOf(now);
+        List<HeldLine> due = jdbcTemplate.query(EXPIRED_SQL, this::mapLine,
+                StockReservation.Status.ACTIVE.name(), nowTs, properties.getSweepBatchSize());
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        // A payment or cancellation may have resolved some rows since they were read
+        List<HeldLine> moved = move(due, StockReservation.Status.ACTIVE, StockReservation.Status.EXPIRED, nowTs);
+        if (!moved.isEmpty()) {
+            Map<Long, Integer> expired = sumByProduct(moved);
+            unhold(expired, nowTs);
+            updateIndexAfterCommit(expired, -1);
+        }
+        expiredCount.addAndGet(moved.size());
+        return due.size();
+    }
+
+    /**
+     * Rebuild the held-units index from the ACTIVE rows. Skipped when a local reservation
+     * changed the index while the query ran, since the snapshot could then be older than
+     * the index; the next sweep tries again.
+     */
+    void resyncIndex() {
+        long version;
+        synchronized (indexLock) {
+            version = indexVersion;
+        }
+        ConcurrentHashMap<Long, Integer> totals = new ConcurrentHashMap<>();
+        jdbcTemplate.query(HELD_TOTALS_SQL, rs -> {
+            int held = rs.getInt("held");
+            if (held > 0) {
+                totals.put(rs.getLong("product_id"), held);
+            }
+        }, StockReservation.Status.ACTIVE.name());
+
+        synchronized (indexLock) {
+            if (indexVersion == version) {
+                heldByProduct = totals;
+            } else {
+                resyncSkippedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Units of a product currently held by unpaid orders (from memory)
+     */
+    public int getHeldQuantity(Long productId) {
+        Integer held = productId != null ? heldByProduct.get(productId) : null;
+        return held != null ? held : 0;
+    }
+
+    /**
+     * Stock a shopper can still buy: on-hand stock minus units held for unpaid orders
+     */
+    public int getAvailableToSell(Long productId, Integer onHand) {
+        if (onHand == null) {
+            return 0;
+        }
+        return Math.max(0, onHand - getHeldQuantity(productId));
+    }
+
+    /**
+     * Reservation statistics for performance monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<Long, Integer> snapshot = heldByProduct;
+        long heldUnits = 0;
+        for (Integer held : snapshot.values()) {
+            heldUnits += held;
+        }
+        stats.put("ttlMinutes", properties.getTtlMinutes());
+        stats.put("productsWithHolds", snapshot.size());
+        stats.put("heldUnits", heldUnits);
+        stats.put("ordersReserved", reservedCount.get());
+        stats.put("reservationsRejected", rejectedCount.get());
+        stats.put("ordersCommitted", committedCount.get());
+        stats.put("lateCommits", lateCommitCount.get());
+        stats.put("ordersReleased", releasedCount.get());
+        stats.put("reservationsExpired", expiredCount.get());
+        stats.put("indexResyncsSkipped", resyncSkippedCount.get());
+        stats.put("lastSweepAt", lastSweepAt);
+        return stats;
+    }
+
+    private List<HeldLine> findByOrder(Long orderId) {
+        return jdbcTemplate.query(ORDER_RESERVATIONS_SQL, this::mapLine, orderId);
+    }
+
+    private HeldLine mapLine(ResultSet rs, int rowNum) throws SQLException {
+        return new HeldLine(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("quantity"),
+                StockReservation.Status.valueOf(rs.getString("status")));
+    }
+
+    /**
+     * Move rows from one status to another and return the quantities (per product) of the
+     * rows this call actually moved.
+     */
+    private Map<Long, Integer> transition(List<HeldLine> lines, StockReservation.Status from,
+                                          StockReservation.Status to, Timestamp now) {
+        return sumByProduct(move(lines, from, to, now));
+    }
+
+    /**
+     * Move rows from one status to another and return the rows this call actually moved
+     */
+    private List<HeldLine> move(List<HeldLine> lines, StockReservation.Status from,
+                                StockReservation.Status to, Timestamp now) {
+        List<HeldLine> candidates = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (HeldLine line : lines) {
+            if (line.status == from) {
+                candidates.add(line);
+                batch.add(new Object[] { to.name(), now, line.id, from.name() });
+            }
+        }
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(TRANSITION_SQL, batch);
+        List<HeldLine> moved = new ArrayList<>(candidates.size());
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                moved.add(candidates.get(i));
+            }
+        }
+        return moved;
+    }
+
+    private void unhold(Map<Long, Integer> quantities, Timestamp now) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            batch.add(new Object[] { entry.getValue(), now, entry.getKey(), entry.getValue() });
+        }
+        warnOnMisses("release", jdbcTemplate.batchUpdate(UNHOLD_SQL, batch), quantities);
+    }
+
+    private void warnOnMisses(String action, int[] updated, Map<Long, Integer> quantities) {
+        int index = 0;
+        for (Long productId : quantities.keySet()) {
+            if (updated[index++] == 0) {
+                logger.warn("Stock reservation {} found less reserved stock than expected for product {}",
+                        action, productId);
+            }
+        }
+    }
+
+    private static TreeMap<Long, Integer> sumByProduct(List<HeldLine> lines) {
+        TreeMap<Long, Integer> totals = new TreeMap<>();
+        for (HeldLine line : lines) {
+            totals.merge(line.productId, line.quantity, Integer::sum);
+        }
+        return totals;
+    }
+
+    private void updateIndexAfterCommit(Map<Long, Integer> quantities, int sign) {
+        Map<Long, Integer> delta = new HashMap<>(quantities);
+        AfterCommit.run(() -> applyToIndex(delta, sign));
+    }
+
+    private void applyToIndex(Map<Long, Integer> delta, int sign) {
+        synchronized (indexLock) {
+            for (Map.Entry<Long, Integer> entry : delta.entrySet()) {
+                heldByProduct.compute(entry.getKey(), (id, held) -> {
+                    int next = (held != null ? held : 0) + sign * entry.getValue();
+                    return next > 0 ? next : null;
+                });
+            }
+            indexVersion++;
+        }
+        // Product pages show the units still available to sell
+        pageOutputCache.evictProductStock(delta.keySet());
+    }
+
+    private static final class HeldLine {
+        private final long id;
+        private final long productId;
+        private final int quantity;
+        private final StockReservation.Status status;
+
+        private HeldLine(long id, long productId, int quantity, StockReservation.Status status) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.dacsanviet.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import com.dacsanviet.config.WebSocketBrokerProperties;
+
+/**
+ * Multi-node broker mode. Messages sent to this node's broker are queued and published in
+ * batches, one STOMP SEND frame per batch, to a topic on an external STOMP broker that every
+ * node subscribes to. Batches from other nodes are unpacked and sent to the local broker,
+ * which delivers them to the clients connected here.
+ *
+ * Relaying never blocks the sender: when the queue is full, or the broker is unreachable,
+ * messages are dropped for the other nodes (and counted) while local delivery goes on.
+ */
+public class StompBrokerRelay implements BrokerRelay, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompBrokerRelay.class);
+
+    private static final String NODE_HEADER = "relay-node";
+    private static final String SUBSCRIPTION_ID = "broker-relay";
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final WebSocketBrokerProperties properties;
+    private final MessageChannel brokerChannel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final BlockingQueue<RelayedMessage> queue;
+    private final StompEncoder encoder = new StompEncoder();
+    private final Object writeLock = new Object();
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Socket socket;
+    private volatile OutputStream output;
+    private Thread connectionThread;
+    private Thread publisherThread;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong receivedBatchCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong connectCount = new AtomicLong();
+    private final AtomicLong fanOutMillis = new AtomicLong();
+    private final AtomicLong maxFanOutMillis = new AtomicLong();
+
+    public StompBrokerRelay(WebSocketBrokerProperties properties, MessageChannel brokerChannel) {
+        this.properties = properties;
+        this.brokerChannel = brokerChannel;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    @Override
+    public void relay(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        byte[] payload = message.getPayload() instanceof byte[]
+                ? (byte[]) message.getPayload()
+                : String.valueOf(message.getPayload()).getBytes(StandardCharsets.UTF_8);
+        MimeType contentType = accessor.getContentType();
+        RelayedMessage relayed = new RelayedMessage(accessor.getDestination(),
+                contentType != null ? contentType.toString() : "", System.currentTimeMillis(), payload);
+        if (!queue.offer(relayed)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        connectionThread = daemon(this::maintainConnection, "broker-relay-connection");
+        publisherThread = daemon(this::publishBatches, "broker-relay-publisher");
+        logger.info("Broker relay node {} connecting to {}:{}", nodeId, properties.getRelayHost(),
+                properties.getRelayPort());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeSocket();
+        if (connectionThread != null) {
+            connectionThread.interrupt();
+            publisherThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // ===== PUBLISHING =====
+
+    private void publishBatches() {
+        List<RelayedMessage> batch = new ArrayList<>(properties.getBatchSize());
+        while (running) {
+            try {
+                RelayedMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+                while (batch.size() < properties.getBatchSize()) {
+                    queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    RelayedMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                publish(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void publish(List<RelayedMessage> batch) {
+        if (!connected) {
+            droppedCount.addAndGet(batch.size());
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setDestination(properties.getRelayDestination());
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(NODE_HEADER, nodeId);
+        try {
+            write(frame(encodeBatch(batch), accessor));
+            publishedCount.addAndGet(batch.size());
+            batchCount.incrementAndGet();
+        } catch (IOException ex) {
+            droppedCount.addAndGet(batch.size());
+            logger.warn("Broker relay publish failed: {}", ex.getMessage());
+            closeSocket();
+        }
+    }
+
+    static byte[] encodeBatch(List<RelayedMessage> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(batch.size());
+        for (RelayedMessage message : batch) {
+            data.writeUTF(message.destination);
+            data.writeUTF(message.contentType);
+            data.writeLong(message.sentAt);
+            data.writeInt(message.payload.length);
+            data.write(message.payload);
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    static List<RelayedMessage> decodeBatch(byte[] body) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(body));
+        int size = data.readInt();
+        List<RelayedMessage> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String destination = data.readUTF();
+            String contentType = data.readUTF();
+            long sentAt = data.readLong();
+            byte[] payload = new byte[data.readInt()];
+            data.readFully(payload);
+            batch.add(new RelayedMessage(destination, contentType, sentAt, payload));
+        }
+        return batch;
+    }
+
+    // ===== CONNECTION AND RECEIVING =====
+
+    private void maintainConnection() {
+        while (running) {
+            try {
+                connectAndRead();
+            } catch (IOException ex) {
+                if (running) {
+                    logger.warn("Broker relay connection to {}:{} lost: {}", properties.getRelayHost(),
+                            properties.getRelayPort(), ex.getMessage());
+                }
+            } finally {
+                closeSocket();
+            }
+            try {
+                Thread.sleep(properties.getReconnectDelayMs());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void connectAndRead() throws IOException {
+        Socket connection = new Socket();
+        socket = connection;
+        connection.connect(new InetSocketAddress(properties.getRelayHost(), properties.getRelayPort()),
+                CONNECT_TIMEOUT_MS);
+        connection.setTcpNoDelay(true);
+        output = new BufferedOutputStream(connection.getOutputStream());
+
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setAcceptVersion("1.2");
+        connect.setHost(properties.getRelayHost());
+        connect.setLogin(properties.getRelayLogin());
+        connect.setPasscode(properties.getRelayPasscode());
+        connect.setHeartbeat(0, 0);
+        write(frame(new byte[0], connect));
+
+        StompDecoder decoder = new StompDecoder();
+        InputStream input = connection.getInputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        byte[] chunk = new byte[16 * 1024];
+        int read;
+        while (running && (read = input.read(chunk)) != -1) {
+            if (buffer.remaining() < read) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + read));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            buffer.put(chunk, 0, read);
+            buffer.flip();
+            for (Message<byte[]> frame : decoder.decode(buffer)) {
+                handleFrame(frame);
+            }
+            buffer.compact();
+        }
+        throw new IOException("connection closed by broker");
+    }
+
+    private void handleFrame(Message<byte[]> frame) throws IOException {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECTED) {
+            StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+            subscribe.setDestination(properties.getRelayDestination());
+            subscribe.setSubscriptionId(SUBSCRIPTION_ID);
+            write(frame(new byte[0], subscribe));
+            connected = true;
+            connectCount.incrementAndGet();
+            logger.info("Broker relay node {} connected", nodeId);
+        } else if (command == StompCommand.ERROR) {
+            throw new IOException("broker error: " + accessor.getMessage());
+        } else if (command == StompCommand.MESSAGE && !nodeId.equals(accessor.getFirstNativeHeader(NODE_HEADER))) {
+            deliver(decodeBatch(frame.getPayload()), accessor.getFirstNativeHeader(NODE_HEADER));
+        }
+    }
+
+    private void deliver(List<RelayedMessage> batch, String fromNode) {
+        for (RelayedMessage relayed : batch) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(relayed.destination);
+            if (!relayed.contentType.isEmpty()) {
+                accessor.setContentType(MimeTypeUtils.parseMimeType(relayed.contentType));
+            }
+            accessor.setHeader(RELAYED_HEADER, fromNode != null ? fromNode : "unknown");
+            brokerChannel.send(MessageBuilder.createMessage(relayed.payload, accessor.getMessageHeaders()));
+
+            long latency = Math.max(0, System.currentTimeMillis() - relayed.sentAt);
+            fanOutMillis.addAndGet(latency);
+            maxFanOutMillis.accumulateAndGet(latency, Math::max);
+        }
+        receivedCount.addAndGet(batch.size());
+        receivedBatchCount.incrementAndGet();
+    }
+
+    private byte[] frame(byte[] body, StompHeaderAccessor accessor) {
+        return encoder.encode(MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+    }
+
+    private void write(byte[] frame) throws IOException {
+        OutputStream out = output;
+        if (out == null) {
+            throw new IOException("not connected");
+        }
+        synchronized (writeLock) {
+            out.write(frame);
+            out.flush();
+        }
+    }
+
+    private void closeSocket() {
+        connected = false;
+        output = null;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ex) {
+                // Already closed
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long received = receivedCount.get();
+        long batches = batchCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", "relay");
+        stats.put("nodeId", nodeId);
+        stats.put("relay", properties.getRelayHost() + ":" + properties.getRelayPort());
+        stats.put("connected", connected);
+        stats.put("connects", connectCount.get());
+        stats.put("queued", queue.size());
+        stats.put("published", publishedCount.get());
+        stats.put("publishedBatches", batches);
+        stats.put("averageBatchSize", batches > 0 ? (double) publishedCount.get() / batches : 0.0);
+        stats.put("dropped", droppedCount.get());
+        stats.put("received", received);
+        stats.put("receivedBatches", receivedBatchCount.get());
+        stats.put("averageFanOutMillis", received > 0 ? (double) fanOutMillis.get() / received : 0.0);
+        stats.put("maxFanOutMillis", maxFanOutMillis.get());
+        return stats;
+    }
+
+    static final class RelayedMessage {
+        private final String destination;
+        private final String contentType;
+        private final long sentAt;
+        private final byte[] payload;
+
+        RelayedMessage(String destination, String contentType, long sentAt, byte[] payload) {
+            this.destination = destination;
+            this.contentType = contentType;
+            this.sentAt = sentAt;
+            this.payload = payload;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.dacsanviet.dao.UserDao;
 import com.dacsanviet.model.Role;
 import com.dacsanviet.model.User;
 import com.dacsanviet.repository.UserRepository;
+import com.dacsanviet.security.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -29,6 +30,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
     /**
      * Register a new user
      */
@@ -129,6 +133,7 @@ public class UserService {
         }
         
         User updatedUser = userRepository.save(user);
+        userPrincipalCache.invalidateUser(userId);
         return convertToDto(updatedUser);
     }
     
@@ -147,6 +152,7 @@ public class UserService {
         // Update password
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userPrincipalCache.invalidateUser(userId);
     }
     
     /**
@@ -158,6 +164,7 @@ public class UserService {
         
         user.setIsActive(!user.getIsActive());
         User updatedUser = userRepository.save(user);
+        userPrincipalCache.invalidateUser(userId);
         return convertToDto(updatedUser);
     }
     
@@ -249,6 +256,7 @@ public class UserService {
         user.setIsActive(request.getIsActive() != null ? request.getIsActive() : true);
         
         User updatedUser = userRepository.save(user);
+        userPrincipalCache.invalidateUser(id);
         return convertToDto(updatedUser);
     }
     
@@ -262,6 +270,7 @@ public class UserService {
         // Soft delete by deactivating
         user.setIsActive(false);
         userRepository.save(user);
+        userPrincipalCache.invalidateUser(id);
     }
     
     /**
@@ -32,6 +32,10 @@ public class VNPayService {
     @Value("${vnpay.command}")
     private String command;
 
+    // Same window as the stock hold of the order, see StockReservationService
+    @Value("${app.stock.reservation.ttl-minutes:15}")
+    private int paymentExpiryMinutes;
+
     /**
      * Create payment URL for VNPAY
      */
@@ -55,7 +59,7 @@ public class VNPayService {
         String vnpCreateDate = formatter.format(cld.getTime());
         vnpParams.put("vnp_CreateDate", vnpCreateDate);
         
-        cld.add(Calendar.MINUTE, 15);
+        cld.add(Calendar.MINUTE, paymentExpiryMinutes);
         String vnpExpireDate = formatter.format(cld.getTime());
         vnpParams.put("vnp_ExpireDate", vnpExpireDate);
         
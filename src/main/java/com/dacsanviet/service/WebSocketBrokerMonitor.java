@@ -0,0 +1,200 @@
+package com.dacsanviet.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+/**
+ * Interceptors for the broker channel and the client inbound channel. They hand messages
+ * produced on this node to the BrokerRelay, time how long the local broker takes to
+ * dispatch each message to its subscribers, and count subscriptions per destination.
+ *
+ * Destinations are grouped by replacing path segments that contain a digit with "*"
+ * ("/topic/chat/guest_12ab" becomes "/topic/chat/*"), so per-session and per-product
+ * topics do not grow the statistics without bound.
+ */
+public class WebSocketBrokerMonitor {
+
+    private final BrokerRelay brokerRelay;
+
+    // Dispatch start times, a stack because user destinations are resolved in a nested send
+    private final ThreadLocal<Deque<Long>> dispatchStarts = ThreadLocal.withInitial(ArrayDeque::new);
+    private final Map<String, DestinationStats> destinations = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> subscribers = new ConcurrentHashMap<>();
+
+    public WebSocketBrokerMonitor(BrokerRelay brokerRelay) {
+        this.brokerRelay = brokerRelay;
+    }
+
+    /**
+     * For the broker channel: relays outgoing messages and times local dispatch
+     */
+    public ChannelInterceptor brokerChannelInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    if (isRelayable(message)) {
+                        brokerRelay.relay(message);
+                    }
+                    dispatchStarts.get().push(System.nanoTime());
+                }
+                return message;
+            }
+
+            @Override
+            public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent,
+                    Exception ex) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+                    return;
+                }
+                Long started = dispatchStarts.get().poll();
+                if (started != null) {
+                    destinations.computeIfAbsent(group(dispatchDestination(message)), key -> new DestinationStats())
+                            .record(System.nanoTime() - started);
+                }
+            }
+        };
+    }
+
+    /**
+     * For the client inbound channel: tracks subscriptions and relays frames that clients
+     * send straight to a broker destination
+     */
+    public ChannelInterceptor clientInboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+                if (type == SimpMessageType.MESSAGE && isRelayable(message)) {
+                    brokerRelay.relay(message);
+                } else if (type == SimpMessageType.SUBSCRIBE) {
+                    subscribed(sessionId, SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()),
+                            SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                } else if (type == SimpMessageType.UNSUBSCRIBE) {
+                    unsubscribed(sessionId, SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()));
+                } else if (type == SimpMessageType.DISCONNECT) {
+                    disconnected(sessionId);
+                }
+                return message;
+            }
+        };
+    }
+
+    // Messages produced here for broker or user destinations; not ones relayed in from another
+    // node, and not the per-session copies the user destination handler resolves locally
+    static boolean isRelayable(Message<?> message) {
+        if (message.getHeaders().containsKey(BrokerRelay.RELAYED_HEADER)) {
+            return false;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return false;
+        }
+        if (destination.startsWith("/user/")) {
+            return true;
+        }
+        return (destination.startsWith("/topic/") || destination.startsWith("/queue/"))
+                && !message.getHeaders().containsKey(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+    }
+
+    static String group(String destination) {
+        if (destination == null) {
+            return "unknown";
+        }
+        StringBuilder group = new StringBuilder(destination.length());
+        for (String segment : destination.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            group.append('/').append(segment.chars().anyMatch(Character::isDigit) ? "*" : segment);
+        }
+        return group.toString();
+    }
+
+    private String dispatchDestination(Message<?> message) {
+        Object original = message.getHeaders().get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        return original instanceof String ? (String) original
+                : SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+
+    private void subscribed(String sessionId, String subscriptionId, String destination) {
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        String group = group(destination);
+        String previous = sessionSubscriptions.computeIfAbsent(sessionId, key -> new ConcurrentHashMap<>())
+                .put(subscriptionId, group);
+        if (previous != null) {
+            decrement(previous);
+        }
+        subscribers.computeIfAbsent(group, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = sessionId != null ? sessionSubscriptions.get(sessionId) : null;
+        String group = subscriptions != null && subscriptionId != null ? subscriptions.remove(subscriptionId) : null;
+        if (group != null) {
+            decrement(group);
+        }
+    }
+
+    private void disconnected(String sessionId) {
+        Map<String, String> subscriptions = sessionId != null ? sessionSubscriptions.remove(sessionId) : null;
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    private void decrement(String group) {
+        subscribers.computeIfPresent(group, (key, count) -> count.decrementAndGet() > 0 ? count : null);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(brokerRelay.getStats());
+        stats.put("sessions", sessionSubscriptions.size());
+
+        Map<String, Integer> subscriberCounts = new TreeMap<>();
+        subscribers.forEach((group, count) -> subscriberCounts.put(group, count.get()));
+        stats.put("subscribers", subscriberCounts);
+
+        Map<String, Object> dispatch = new TreeMap<>();
+        destinations.forEach((group, destinationStats) -> dispatch.put(group, destinationStats.toMap()));
+        stats.put("localDispatch", dispatch);
+        return stats;
+    }
+
+    private static final class DestinationStats {
+        private final AtomicLong messages = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            messages.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private Map<String, Object> toMap() {
+            long count = messages.get();
+            Map<String, Object> map = new HashMap<>();
+            map.put("messages", count);
+            map.put("averageMicros", count > 0 ? totalNanos.get() / count / 1000.0 : 0.0);
+            map.put("maxMicros", maxNanos.get() / 1000.0);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.dacsanviet.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import com.dacsanviet.config.WebSocketOutboundProperties;
+
+/**
+ * Bounded per-session send buffers. Every frame for a client goes into that session's
+ * buffer and is written to the socket by a dedicated sender executor, so a client that
+ * reads slowly holds up neither the broker nor the other clients.
+ *
+ * A session overflows when its buffer would exceed sessionBufferSizeLimit bytes, or when
+ * a write has been blocked for longer than sessionSendTimeLimitMs. The "drop" policy then
+ * discards the oldest buffered frames (all of them if the write is stuck); "disconnect"
+ * closes the session with SESSION_NOT_RELIABLE so the client reconnects and reloads.
+ */
+public class WebSocketSessionBuffers {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionBuffers.class);
+
+    // Frames one task writes before yielding its thread to other sessions
+    private static final int DRAIN_BATCH = 64;
+
+    private final Executor executor;
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitMillis;
+    private final boolean disconnectOnOverflow;
+
+    private final Map<String, SessionSendBuffer> sessions = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    public WebSocketSessionBuffers(WebSocketOutboundProperties properties) {
+        this(createExecutor(properties.getSendThreads()), properties.getSessionBufferSizeLimit(),
+                properties.getSessionSendTimeLimitMs(), properties.isDisconnectOnOverflow());
+    }
+
+    WebSocketSessionBuffers(Executor executor, int bufferSizeLimit, long sendTimeLimitMillis,
+            boolean disconnectOnOverflow) {
+        this.executor = executor;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.disconnectOnOverflow = disconnectOnOverflow;
+    }
+
+    private static ThreadPoolTaskExecutor createExecutor(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("ws-send-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Decorator for the STOMP WebSocket handler: gives every session a send buffer
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionSendBuffer buffer = new SessionSendBuffer(session);
+                sessions.put(session.getId(), buffer);
+                super.afterConnectionEstablished(buffer);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                super.handleMessage(buffered(session), message);
+            }
+
+            @Override
+            public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+                super.handleTransportError(buffered(session), exception);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                SessionSendBuffer buffer = sessions.remove(session.getId());
+                if (buffer != null) {
+                    buffer.discard();
+                }
+                super.afterConnectionClosed(buffer != null ? buffer : session, closeStatus);
+            }
+        };
+    }
+
+    private WebSocketSession buffered(WebSocketSession session) {
+        SessionSendBuffer buffer = sessions.get(session.getId());
+        return buffer != null ? buffer : session;
+    }
+
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor taskExecutor) {
+            taskExecutor.shutdown();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int bufferedFrames = 0;
+        long bufferedBytes = 0;
+        long largestBuffer = 0;
+        for (SessionSendBuffer buffer : sessions.values()) {
+            synchronized (buffer.lock) {
+                bufferedFrames += buffer.pending.size();
+                bufferedBytes += buffer.bufferedBytes;
+                largestBuffer = Math.max(largestBuffer, buffer.bufferedBytes);
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("bufferedFrames", bufferedFrames);
+        stats.put("bufferedBytes", bufferedBytes);
+        stats.put("largestSessionBufferBytes", largestBuffer);
+        stats.put("sessionBufferSizeLimit", bufferSizeLimit);
+        stats.put("sessionSendTimeLimitMs", sendTimeLimitMillis);
+        stats.put("overflowPolicy", disconnectOnOverflow ? "disconnect" : "drop");
+        stats.put("sent", sent.sum());
+        stats.put("overflows", overflows.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("disconnects", disconnects.sum());
+        return stats;
+    }
+
+    private final class SessionSendBuffer extends WebSocketSessionDecorator {
+
+        private final Object lock = new Object();
+        private final ArrayDeque<WebSocketMessage<?>> pending = new ArrayDeque<>();
+        private long bufferedBytes;
+        private long writeStartedAt;
+        private boolean draining;
+        private boolean closed;
+
+        private SessionSendBuffer(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            int size = message.getPayloadLength();
+            boolean disconnect = false;
+            boolean startDrain = false;
+            synchronized (lock) {
+                if (closed) {
+                    dropped.increment();
+                    return;
+                }
+                boolean stuck = writeStartedAt > 0 && System.currentTimeMillis() - writeStartedAt > sendTimeLimitMillis;
+                if (stuck || (!pending.isEmpty() && bufferedBytes + size > bufferSizeLimit)) {
+                    overflows.increment();
+                    if (disconnectOnOverflow) {
+                        disconnect = true;
+                        dropped.add(pending.size() + 1);
+                        clear();
+                        closed = true;
+                    } else {
+                        while (!pending.isEmpty() && (stuck || bufferedBytes + size > bufferSizeLimit)) {
+                            bufferedBytes -= pending.poll().getPayloadLength();
+                            dropped.increment();
+                        }
+                    }
+                }
+                if (!disconnect) {
+                    pending.add(message);
+                    bufferedBytes += size;
+                    if (!draining) {
+                        draining = true;
+                        startDrain = true;
+                    }
+                }
+            }
+            if (disconnect) {
+                disconnects.increment();
+                logger.debug("Closing slow WebSocket session {}", getId());
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } else if (startDrain) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                discard();
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                WebSocketMessage<?> next;
+                synchronized (lock) {
+                    next = pending.poll();
+                    if (next == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                    bufferedBytes -= next.getPayloadLength();
+                    writeStartedAt = System.currentTimeMillis();
+                }
+                try {
+                    getDelegate().sendMessage(next);
+                    sent.increment();
+                } catch (IOException | RuntimeException ex) {
+                    logger.debug("Failed to write to WebSocket session {}: {}", getId(), ex.getMessage());
+                    discard();
+                    return;
+                } finally {
+                    synchronized (lock) {
+                        writeStartedAt = 0;
+                    }
+                }
+            }
+            schedule();
+        }
+
+        private void discard() {
+            synchronized (lock) {
+                dropped.add(pending.size());
+                clear();
+                closed = true;
+                draining = false;
+            }
+        }
+
+        private void clear() {
+            pending.clear();
+            bufferedBytes = 0;
+        }
+    }
+}
@@ -10,9 +10,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -69,6 +71,13 @@ public class ImageServiceImpl implements ImageService {
         try {
             // Read and process the image
             BufferedImage originalImage = ImageIO.read(tempFilePath.toFile());
+            if (originalImage == null && "webp".equals(extension)) {
+                // No WebP codec to resize with, so the checked upload serves as both sizes
+                Files.copy(tempFilePath, uploadDir.resolve(filename), StandardCopyOption.REPLACE_EXISTING);
+                String url = "/uploads/news/" + getCurrentDatePath() + "/" + filename;
+                logger.info("Image upload successful (WebP stored as uploaded): {}", url);
+                return new ImageUploadResult(url, url, filename, file.getSize());
+            }
             if (originalImage == null) {
                 throw new IllegalArgumentException("File is not a valid image");
             }
@@ -192,17 +201,17 @@ public class ImageServiceImpl implements ImageService {
             }
             
             // Additional security: Try to read as image to ensure it's not malicious
-            BufferedImage image = ImageIO.read(new java.io.ByteArrayInputStream(fileBytes));
-            if (image == null) {
+            Dimension size = readImageSize(fileBytes, extension);
+            if (size == null) {
                 throw new IllegalArgumentException("File không thể đọc được như một hình ảnh");
             }
             
             // Validate reasonable image dimensions
-            if (image.getWidth() > 10000 || image.getHeight() > 10000) {
+            if (size.width > 10000 || size.height > 10000) {
                 throw new IllegalArgumentException("Kích thước hình ảnh quá lớn (tối đa 10000x10000 pixels)");
             }
             
-            if (image.getWidth() < 10 || image.getHeight() < 10) {
+            if (size.width < 10 || size.height < 10) {
                 throw new IllegalArgumentException("Kích thước hình ảnh quá nhỏ (tối thiểu 10x10 pixels)");
             }
             
@@ -339,6 +348,59 @@ public class ImageServiceImpl implements ImageService {
         }
     }
     
+    /**
+     * Width and height of the image, or null when it cannot be read. The JDK has no WebP
+     * reader, so without a WebP ImageIO plugin they come from the WebP header.
+     */
+    private Dimension readImageSize(byte[] fileBytes, String extension) throws IOException {
+        BufferedImage image = ImageIO.read(new java.io.ByteArrayInputStream(fileBytes));
+        if (image != null) {
+            return new Dimension(image.getWidth(), image.getHeight());
+        }
+        if ("webp".equals(extension) && !ImageIO.getImageReadersByFormatName("webp").hasNext()) {
+            return readWebpSize(fileBytes);
+        }
+        return null;
+    }
+    
+    /**
+     * Canvas size from the header of a lossy (VP8), lossless (VP8L) or extended (VP8X) WebP
+     */
+    private Dimension readWebpSize(byte[] b) {
+        if (b.length < 30) {
+            return null;
+        }
+        String chunk = new String(b, 12, 4, StandardCharsets.US_ASCII);
+        switch (chunk) {
+            case "VP8 ":
+                // Frame tag, then the start code 9D 01 2A and two 14-bit sizes
+                if ((b[23] & 0xFF) != 0x9D || (b[24] & 0xFF) != 0x01 || (b[25] & 0xFF) != 0x2A) {
+                    return null;
+                }
+                return new Dimension(littleEndian(b, 26, 2) & 0x3FFF, littleEndian(b, 28, 2) & 0x3FFF);
+            case "VP8L":
+                // Signature 0x2F, then width - 1 and height - 1 in 14 bits each
+                if ((b[20] & 0xFF) != 0x2F) {
+                    return null;
+                }
+                int bits = littleEndian(b, 21, 4);
+                return new Dimension((bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+            case "VP8X":
+                // Canvas width - 1 and height - 1 in 24 bits each
+                return new Dimension(littleEndian(b, 24, 3) + 1, littleEndian(b, 27, 3) + 1);
+            default:
+                return null;
+        }
+    }
+    
+    private int littleEndian(byte[] b, int offset, int length) {
+        int value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = (value << 8) | (b[offset + i] & 0xFF);
+        }
+        return value;
+    }
+    
     /**
      * Security: Check if byte array starts with given magic bytes
      */
@@ -0,0 +1,120 @@
+package com.dacsanviet.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Email template compiled once from a {@code String.format}-style pattern.
+ *
+ * The pattern is split at class-load time into its static HTML fragments and the
+ * placeholder slots between them, so rendering is a straight sequence of appends into a
+ * pre-sized builder: no format-string parsing, no {@code Formatter}, no regex per email.
+ * Supported placeholders are {@code %s}, {@code %d} and {@code %%}; anything else is
+ * rejected when the template is compiled, i.e. at startup rather than on the first send.
+ */
+public final class EmailTemplate {
+
+    private static final char SLOT_STRING = 's';
+    private static final char SLOT_NUMBER = 'd';
+
+    /** Expected size of one rendered placeholder, used to pre-size the output buffer. */
+    private static final int SLOT_SIZE_HINT = 32;
+
+    private final String source;
+    private final String[] fragments;
+    private final char[] slots;
+    private final int staticLength;
+
+    private EmailTemplate(String source, String[] fragments, char[] slots) {
+        this.source = source;
+        this.fragments = fragments;
+        this.slots = slots;
+        int length = 0;
+        for (String fragment : fragments) {
+            length += fragment.length();
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * Compile a pattern. Throws IllegalArgumentException on unsupported placeholders.
+     */
+    public static EmailTemplate compile(String pattern) {
+        List<String> fragments = new ArrayList<>();
+        StringBuilder slots = new StringBuilder();
+        StringBuilder current = new StringBuilder();
+
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                current.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 >= pattern.length()) {
+                throw new IllegalArgumentException("Dangling '%' at end of email template");
+            }
+            char spec = pattern.charAt(i + 1);
+            if (spec == '%') {
+                current.append('%');
+            } else if (spec == SLOT_STRING || spec == SLOT_NUMBER) {
+                fragments.add(current.toString());
+                current.setLength(0);
+                slots.append(spec);
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported placeholder '%" + spec + "' at offset " + i + " in email template");
+            }
+            i += 2;
+        }
+        fragments.add(current.toString());
+
+        return new EmailTemplate(pattern, fragments.toArray(new String[0]), slots.toString().toCharArray());
+    }
+
+    /**
+     * Number of placeholders the template expects.
+     */
+    public int getSlotCount() {
+        return slots.length;
+    }
+
+    /**
+     * The pattern this template was compiled from.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Render the template. Arguments are positional, exactly as with {@code String.format}.
+     */
+    public String render(Object... args) {
+        StringBuilder out = new StringBuilder(staticLength + slots.length * SLOT_SIZE_HINT);
+        renderTo(out, args);
+        return out.toString();
+    }
+
+    /**
+     * Render the template into an existing builder, e.g. one row per order item.
+     */
+    public void renderTo(StringBuilder out, Object... args) {
+        if (args.length != slots.length) {
+            throw new IllegalArgumentException(
+                    "Email template expects " + slots.length + " arguments but got " + args.length);
+        }
+        out.ensureCapacity(out.length() + staticLength + slots.length * SLOT_SIZE_HINT);
+
+        for (int i = 0; i < slots.length; i++) {
+            out.append(fragments[i]);
+            Object arg = args[i];
+            if (slots[i] == SLOT_NUMBER && arg != null && !(arg instanceof Number)) {
+                throw new IllegalArgumentException("Email template slot " + i + " expects a number but got "
+                        + arg.getClass().getSimpleName());
+            }
+            out.append(arg);
+        }
+        out.append(fragments[slots.length]);
+    }
+}
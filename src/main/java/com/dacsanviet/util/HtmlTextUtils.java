@@ -0,0 +1,53 @@
+package com.dacsanviet.util;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for turning rich-text (HTML) fields into plain text for list cards
+ */
+public class HtmlTextUtils {
+
+    private static final Pattern TAGS = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("[\\s\\u00A0]+");
+
+    private HtmlTextUtils() {
+    }
+
+    /**
+     * Plain-text excerpt of an HTML fragment: tags dropped (including one cut off at the end,
+     * as a database prefix may be), entities decoded, whitespace collapsed, and cut to at
+     * most maxLength characters at a word boundary with an ellipsis
+     */
+    public static String excerpt(String html, int maxLength) {
+        String text = plainText(html);
+        if (text.isEmpty()) {
+            return null;
+        }
+        if (text.length() <= maxLength) {
+            return text;
+        }
+        int cut = text.lastIndexOf(' ', maxLength - 1);
+        if (cut < maxLength / 2) {
+            cut = maxLength - 1;
+        }
+        return text.substring(0, cut).trim() + "…";
+    }
+
+    /**
+     * The text of an HTML fragment on one line: tags dropped (including one cut off at the
+     * end), entities decoded and whitespace collapsed; empty for null
+     */
+    public static String plainText(String html) {
+        if (html == null || html.isEmpty()) {
+            return "";
+        }
+        String text = TAGS.matcher(html).replaceAll(" ");
+        int openTag = text.lastIndexOf('<');
+        if (openTag >= 0) {
+            text = text.substring(0, openTag);
+        }
+        return WHITESPACE.matcher(HtmlUtils.htmlUnescape(text)).replaceAll(" ").trim();
+    }
+}
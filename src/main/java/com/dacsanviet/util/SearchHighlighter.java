@@ -0,0 +1,121 @@
+package com.dacsanviet.util;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Utility class for marking search words in plain text. Words are compared folded
+ * ("mam" marks "mắm" and "mâm"), and the result is escaped HTML with each matching
+ * word wrapped in {@code <mark>}, safe to render unescaped.
+ */
+public class SearchHighlighter {
+
+    // Characters of context kept before the first mark of a snippet
+    private static final int LEAD = 40;
+
+    private SearchHighlighter() {
+    }
+
+    /**
+     * The whole text with every word in foldedWords marked
+     */
+    public static String highlight(String text, Set<String> foldedWords) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+        return render(normalized, matches(normalized, foldedWords), 0, normalized.length());
+    }
+
+    /**
+     * The passage of about maxLength characters holding the most marked words, cut at word
+     * boundaries with an ellipsis on each cut side; the start of the text when nothing matches
+     */
+    public static String snippet(String text, Set<String> foldedWords, int maxLength) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+        List<int[]> matches = matches(normalized, foldedWords);
+
+        int start = 0;
+        int best = 0;
+        for (int i = 0, j = 0; i < matches.size(); i++) {
+            // Window from match i: matches that end within maxLength - LEAD characters of it
+            j = Math.max(j, i);
+            while (j + 1 < matches.size() && matches.get(j + 1)[1] - matches.get(i)[0] <= maxLength - LEAD) {
+                j++;
+            }
+            if (j - i + 1 > best) {
+                best = j - i + 1;
+                start = matches.get(i)[0];
+            }
+        }
+        if (best > 0 && start > LEAD) {
+            int space = normalized.lastIndexOf(' ', start - LEAD);
+            start = space >= 0 && space < start ? space + 1 : start - LEAD;
+        } else {
+            start = 0;
+        }
+        int end = Math.min(normalized.length(), start + maxLength);
+        if (end < normalized.length()) {
+            int space = normalized.lastIndexOf(' ', end);
+            if (space > start) {
+                end = space;
+            }
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append("…");
+        }
+        snippet.append(render(normalized, matches, start, end));
+        if (end < normalized.length()) {
+            snippet.append("…");
+        }
+        return snippet.toString();
+    }
+
+    /**
+     * Start and end of each word of the text whose folded form is one of foldedWords
+     */
+    private static List<int[]> matches(String text, Set<String> foldedWords) {
+        List<int[]> matches = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && isWordChar(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                if (foldedWords.contains(VietnameseTextUtils.fold(text.substring(start, i)))) {
+                    matches.add(new int[] { start, i });
+                }
+                start = -1;
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+
+    private static String render(String text, List<int[]> matches, int start, int end) {
+        StringBuilder html = new StringBuilder(end - start + 32);
+        int position = start;
+        for (int[] match : matches) {
+            if (match[0] < start || match[1] > end) {
+                continue;
+            }
+            html.append(HtmlUtils.htmlEscape(text.substring(position, match[0]), "UTF-8"));
+            html.append("<mark>").append(HtmlUtils.htmlEscape(text.substring(match[0], match[1]), "UTF-8")).append("</mark>");
+            position = match[1];
+        }
+        html.append(HtmlUtils.htmlEscape(text.substring(position, end), "UTF-8"));
+        return html.toString();
+    }
+}
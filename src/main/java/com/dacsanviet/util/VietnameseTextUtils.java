@@ -0,0 +1,85 @@
+package com.dacsanviet.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for folding and tokenizing Vietnamese text for search
+ */
+public class VietnameseTextUtils {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Folded form of each character below U+2000 (Latin, Vietnamese and combining marks):
+    // REMOVED for a mark, UNMAPPED where one character does not fold to one character or
+    // lowercases by context (capital sigma)
+    private static final int TABLE_SIZE = 0x2000;
+    private static final char REMOVED = 0xFFFE;
+    private static final char UNMAPPED = 0xFFFF;
+    private static final char[] FOLDED = new char[TABLE_SIZE];
+
+    static {
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            String folded = slowFold(String.valueOf((char) c));
+            FOLDED[c] = folded.isEmpty() ? REMOVED : folded.length() == 1 ? folded.charAt(0) : UNMAPPED;
+        }
+        FOLDED['\u03A3'] = UNMAPPED;
+    }
+
+    private VietnameseTextUtils() {
+    }
+
+    /**
+     * Lower-case the text and strip its diacritics, so "Nước mắm Phú Quốc" becomes
+     * "nuoc mam phu quoc". Đ/đ is not a combining mark and is mapped to d explicitly.
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        // Character by character through the table; other scripts take the general path
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char mapped = c < TABLE_SIZE ? FOLDED[c] : UNMAPPED;
+            if (mapped == UNMAPPED) {
+                return slowFold(text);
+            }
+            if (mapped != REMOVED) {
+                folded.append(mapped);
+            }
+        }
+        return folded.toString();
+    }
+
+    private static String slowFold(String text) {
+        String lower = text.toLowerCase().replace('đ', 'd');
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Fold the text and split it into words (runs of letters and digits)
+     */
+    public static List<String> tokenize(String text) {
+        String folded = fold(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < folded.length(); i++) {
+            if (Character.isLetterOrDigit(folded.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(folded.substring(start));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,25 @@
+-- ===================================================================
+-- ĐẶCSAN VIỆT - MAIL OUTBOX
+-- Version: 2
+-- Description: Durable queue for outbound emails, written in the same
+--              transaction as the order change and drained by workers
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS mail_jobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    mail_type VARCHAR(40) NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    html_body LONGTEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6) NOT NULL,
+    claim_token VARCHAR(36),
+    claimed_at DATETIME(6),
+    last_error VARCHAR(1000),
+    created_at DATETIME(6) NOT NULL,
+    sent_at DATETIME(6),
+
+    INDEX idx_mail_job_status_next (status, next_attempt_at),
+    INDEX idx_mail_job_claim (claim_token)
+);
@@ -0,0 +1,23 @@
+-- ===================================================================
+-- ĐẶCSAN VIỆT - STOCK RESERVATIONS
+-- Version: 3
+-- Description: Time-limited stock holds for orders awaiting online
+--              payment, released by a sweeper when payment never arrives
+-- ===================================================================
+
+ALTER TABLE products
+    ADD COLUMN reserved_quantity INT NOT NULL DEFAULT 0 AFTER stock_quantity;
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    resolved_at DATETIME(6),
+
+    INDEX idx_stock_reservation_status_expires (status, expires_at),
+    INDEX idx_stock_reservation_order (order_id)
+);
@@ -0,0 +1,19 @@
+-- ===================================================================
+-- ĐẶCSAN VIỆT - DAILY SALES ROLLUP
+-- Version: 4
+-- Description: Per-day, per-status order totals kept up to date on
+--              order create/status change and rebuilt nightly, so the
+--              dashboard and revenue analytics read O(days) rows
+-- ===================================================================
+
+CREATE TABLE IF NOT EXISTS daily_sales_rollup (
+    sales_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    order_count INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    items_sold INT NOT NULL DEFAULT 0,
+    new_customers INT NOT NULL DEFAULT 0,
+    updated_at DATETIME(6) NOT NULL,
+
+    PRIMARY KEY (sales_date, status)
+);
@@ -0,0 +1,103 @@
+package com.dacsanviet.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+/**
+ * Coalescing cache: refresh-ahead through registered reloads, stale loads and reads of loaded entries
+ */
+public class CoalescingCacheTest {
+
+	private CoalescingCache cache;
+
+	@Test
+	void refreshesAnAgingEntryThroughItsReloadWhileServingIt() throws Exception {
+		// Refreshes run on the calling thread, after the cached value has been read
+		AtomicInteger version = new AtomicInteger();
+		cache = new CoalescingCache(new ConcurrentMapCache("test"), 1,
+				key -> () -> cache.get(key, version::incrementAndGet), Runnable::run);
+
+		assertThat(cache.get("cart:1", version::incrementAndGet)).isEqualTo(1);
+		Thread.sleep(5);
+
+		// The hit's own loader belongs to its request and is not run again
+		assertThat(cache.get("cart:1", () -> -1)).isEqualTo(1);
+		assertThat(cache.get("cart:1", Integer.class)).isEqualTo(2);
+		assertThat(cache.getStats()).containsEntry("refreshes", 1L).containsEntry("loads", 2L);
+	}
+
+	@Test
+	void keepsTheCachedValueWhenARefreshFails() throws Exception {
+		cache = new CoalescingCache(new ConcurrentMapCache("test"), 1, key -> () -> cache.get(key, () -> {
+			throw new IllegalStateException("database unavailable");
+		}), Runnable::run);
+		cache.get("cart:1", () -> "loaded");
+		Thread.sleep(5);
+
+		assertThat(cache.get("cart:1", () -> "reloaded")).isEqualTo("loaded");
+		assertThat(cache.get("cart:1").get()).isEqualTo("loaded");
+		assertThat(cache.getStats()).containsEntry("refreshFailures", 1L);
+	}
+
+	@Test
+	void refreshesOnlyKeysWithAReloadThatLoadsThroughTheCache() throws Exception {
+		cache = new CoalescingCache(new ConcurrentMapCache("test"), 1,
+				key -> key.equals("cart:2") ? () -> { } : null, Runnable::run);
+		cache.get("cart:1", () -> "loaded");
+		cache.get("cart:2", () -> "loaded");
+		Thread.sleep(5);
+
+		assertThat(cache.get("cart:1", () -> "reloaded")).isEqualTo("loaded");
+		assertThat(cache.get("cart:2", () -> "reloaded")).isEqualTo("loaded");
+		assertThat(cache.get("cart:2").get()).isEqualTo("loaded");
+		assertThat(cache.getStats()).containsEntry("loads", 2L).containsEntry("refreshes", 0L)
+				.containsEntry("refreshFailures", 1L);
+	}
+
+	@Test
+	void doesNotStoreALoadWhoseKeyWasEvictedWhileItRan() {
+		cache = new CoalescingCache(new ConcurrentMapCache("test"), 0, key -> null, Runnable::run);
+
+		String value = cache.get("cart:1", () -> {
+			// An item is added to the cart while it is being read
+			cache.evict("cart:1");
+			return "before";
+		});
+
+		assertThat(value).isEqualTo("before");
+		assertThat(cache.get("cart:1")).isNull();
+		assertThat(cache.getStats()).containsEntry("staleLoadsDiscarded", 1L);
+	}
+
+	@Test
+	void doesNotStoreALoadThatOverlappedAClear() {
+		cache = new CoalescingCache(new ConcurrentMapCache("test"), 0, key -> null, Runnable::run);
+
+		cache.get("categories", () -> {
+			cache.clear();
+			return "before";
+		});
+
+		assertThat(cache.get("categories")).isNull();
+		assertThat(cache.get("categories", () -> "after")).isEqualTo("after");
+	}
+
+	@Test
+	void readsValuesWithoutTheirLoadTime() {
+		ConcurrentMapCache nativeCache = new ConcurrentMapCache("test");
+		cache = new CoalescingCache(nativeCache, 0, key -> null, Runnable::run);
+		cache.put("product:1", "Nước mắm");
+		nativeCache.put("product:2", "Trà sen");
+
+		assertThat(cache.get("product:1").get()).isEqualTo("Nước mắm");
+		assertThat(cache.get("product:1", String.class)).isEqualTo("Nước mắm");
+		// Values put into the underlying cache directly are read as they are
+		assertThat(cache.get("product:2", () -> "reloaded")).isEqualTo("Trà sen");
+		assertThat(cache.evictIfPresent("product:1")).isTrue();
+		assertThat(cache.evictIfPresent("product:1")).isFalse();
+	}
+}
@@ -0,0 +1,107 @@
+package com.dacsanviet.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+/**
+ * Dependency tracking cache: evicting by dependency, single-flight loads and stale loads
+ */
+public class DependencyTrackingCacheTest {
+
+	// Values are lists of dependencies, so each entry depends on what it holds
+	@SuppressWarnings("unchecked")
+	private final DependencyTrackingCache cache = new DependencyTrackingCache(new ConcurrentMapCache("test"), 0,
+			key -> null, Runnable::run, (key, value) -> Set.copyOf((List<String>) value));
+
+	@Test
+	void evictsOnlyTheEntriesDependingOnWhatChanged() {
+		cache.put("page-1", List.of("product:1", "product:2"));
+		cache.put("page-2", List.of("product:3"));
+
+		assertThat(cache.evictDependents(List.of("product:2"))).isEqualTo(1);
+
+		assertThat(cache.get("page-1")).isNull();
+		assertThat(cache.get("page-2")).isNotNull();
+		assertThat(cache.dependenciesOfDependents("product:3")).containsExactly("product:3");
+		assertThat(cache.trackedDependencies()).containsExactly("product:3");
+		assertThat(cache.getStats()).containsEntry("trackedEntries", 1).containsEntry("entriesEvicted", 1L);
+	}
+
+	@Test
+	void coalescesConcurrentMissesIntoOneLoad() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<List<String>>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> cache.get("featured", () -> {
+					calls.incrementAndGet();
+					release.await();
+					return List.of("product:1");
+				})));
+			}
+			// Let the other threads queue behind the first load
+			Thread.sleep(100);
+			release.countDown();
+			for (Future<List<String>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly("product:1");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(cache.getStats()).containsEntry("loads", 1L);
+	}
+
+	@Test
+	void doesNotStoreALoadWhoseDependencyWasEvictedWhileItRan() {
+		List<String> value = cache.get("page-1", () -> {
+			// A product write commits while the page is being read
+			cache.evictDependents(List.of("product:1"));
+			return List.of("product:1");
+		});
+
+		assertThat(value).containsExactly("product:1");
+		assertThat(cache.get("page-1")).isNull();
+		assertThat(cache.getStats()).containsEntry("staleLoadsDiscarded", 1L);
+
+		// The next load starts after the write and is kept
+		cache.get("page-1", () -> List.of("product:1"));
+		assertThat(cache.get("page-1")).isNotNull();
+	}
+
+	@Test
+	void loaderFailuresAreNotCached() {
+		assertThatThrownBy(() -> cache.get("page-1", () -> {
+			throw new IllegalStateException("database unavailable");
+		})).isInstanceOf(Cache.ValueRetrievalException.class).hasCauseInstanceOf(IllegalStateException.class);
+
+		assertThat(cache.get("page-1", () -> List.of("product:1"))).containsExactly("product:1");
+	}
+
+	@Test
+	void clearDropsTheIndex() {
+		cache.put("page-1", List.of("product:1"));
+		cache.clear();
+
+		assertThat(cache.get("page-1")).isNull();
+		assertThat(cache.trackedDependencies()).isEmpty();
+		assertThat(cache.evictDependents(List.of("product:1"))).isZero();
+	}
+}
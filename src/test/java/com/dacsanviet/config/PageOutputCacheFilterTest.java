@@ -0,0 +1,44 @@
+package com.dacsanviet.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Rendered page cache keys: only the query parameters a page reads, in a fixed order
+ */
+public class PageOutputCacheFilterTest {
+
+	@Test
+	void keysListPagesByTheParametersTheyRead() {
+		String key = PageOutputCacheFilter.key(request("/products", "size=12&utm_source=zalo&page=1&search="));
+
+		assertThat(key).isEqualTo("/products?page=1&size=12|vi");
+		assertThat(PageOutputCacheFilter.key(request("/products", "page=1&size=12&fbclid=abc"))).isEqualTo(key);
+		assertThat(PageOutputCacheFilter.key(request("/products", "search=n%C6%B0%E1%BB%9Bc+m%E1%BA%AFm&x=1")))
+				.isEqualTo("/products?search=n%C6%B0%E1%BB%9Bc+m%E1%BA%AFm|vi");
+	}
+
+	@Test
+	void ignoresQueryParametersOnPagesThatReadNone() {
+		assertThat(PageOutputCacheFilter.key(request("/", "v=123"))).isEqualTo("/|vi");
+		assertThat(PageOutputCacheFilter.key(request("/news/tet", "page=2"))).isEqualTo("/news/tet|vi");
+		assertThat(PageOutputCacheFilter.key(request("/news", "page=2&sortBy=name"))).isEqualTo("/news?page=2|vi");
+	}
+
+	private static MockHttpServletRequest request(String uri, String query) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		request.setQueryString(query);
+		for (String pair : query.split("&")) {
+			String[] nameAndValue = pair.split("=", 2);
+			request.addParameter(nameAndValue[0], URLDecoder.decode(nameAndValue[1], StandardCharsets.UTF_8));
+		}
+		request.addPreferredLocale(Locale.forLanguageTag("vi"));
+		return request;
+	}
+}
@@ -0,0 +1,164 @@
+package com.dacsanviet.controller;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.dacsanviet.DacSanVietEcommerceApplication;
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.CategoryRepository;
+import com.dacsanviet.repository.ProductRepository;
+
+/**
+ * Anonymous {@code GET /} over HTTP against the running application, as requests per
+ * second from one client thread. The application runs with the test profile (in-memory
+ * H2) and Thymeleaf's template cache on, holding the seeded category tree (3 regions with
+ * 4 provinces each and 3 product types per province) and 60 products, 12 of them featured.
+ *
+ * With {@code pageCache} false every request runs the controller, the category header
+ * advice and Thymeleaf; with true, repeat requests are answered from the page output cache.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.controller.HomePageBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 40, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class HomePageBenchmark {
+
+	private static final int REGIONS = 3;
+	private static final int PROVINCES = 4;
+	private static final int TYPES = 3;
+	private static final int PRODUCTS = 60;
+
+	@Param({ "false", "true" })
+	boolean pageCache;
+
+	private ConfigurableApplicationContext context;
+	private HttpClient client;
+	private HttpRequest home;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		context = new SpringApplicationBuilder(DacSanVietEcommerceApplication.class, Catalogue.class)
+				.profiles("test")
+				// As arguments, which override the profile's properties files
+				.run("--server.port=0",
+						"--spring.datasource.url=jdbc:h2:mem:homepage;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+						"--spring.thymeleaf.cache=true",
+						"--app.page-cache.enabled=" + pageCache,
+						"--logging.level.root=WARN",
+						"--logging.level.com.dacsanviet=WARN");
+		String port = context.getEnvironment().getProperty("local.server.port");
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		// Asks for gzip as a browser does; the body is read without being decompressed
+		home = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/"))
+				.header("Accept-Encoding", "gzip")
+				.GET()
+				.build();
+
+		client.send(home, HttpResponse.BodyHandlers.ofByteArray());
+		HttpResponse<byte[]> response = client.send(home, HttpResponse.BodyHandlers.ofByteArray());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("GET / answered " + response.statusCode());
+		}
+		System.out.println("GET / body: " + response.body().length + " bytes, "
+				+ response.headers().firstValue("Content-Encoding").orElse("identity") + ", "
+				+ (response.headers().firstValue("ETag").isPresent() ? "from the page cache" : "rendered"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public byte[] home() throws Exception {
+		return client.send(home, HttpResponse.BodyHandlers.ofByteArray()).body();
+	}
+
+	/**
+	 * Seeds the catalogue before the application reports itself ready, so anything loaded
+	 * at startup sees it
+	 */
+	static class Catalogue implements ApplicationRunner {
+
+		private final CategoryRepository categoryRepository;
+		private final ProductRepository productRepository;
+
+		Catalogue(CategoryRepository categoryRepository, ProductRepository productRepository) {
+			this.categoryRepository = categoryRepository;
+			this.productRepository = productRepository;
+		}
+
+		@Override
+		public void run(ApplicationArguments args) {
+			List<Category> types = new ArrayList<>();
+			for (int region = 0; region < REGIONS; region++) {
+				Category regionCategory = categoryRepository.save(new Category("Đặc Sản Miền " + region, "Mô tả miền"));
+				for (int province = 0; province < PROVINCES; province++) {
+					Category provinceCategory = new Category("Tỉnh " + region + "-" + province, "Mô tả tỉnh");
+					provinceCategory.setParent(regionCategory);
+					provinceCategory = categoryRepository.save(provinceCategory);
+					for (int type = 0; type < TYPES; type++) {
+						Category typeCategory = new Category("Loại " + region + "-" + province + "-" + type, "Mô tả loại");
+						typeCategory.setParent(provinceCategory);
+						types.add(categoryRepository.save(typeCategory));
+					}
+				}
+			}
+
+			List<Product> products = new ArrayList<>();
+			for (int i = 0; i < PRODUCTS; i++) {
+				Product product = new Product("Đặc sản " + i, new BigDecimal(50000 + i * 1000),
+						types.get(i % types.size()));
+				product.setShortDescription("Đặc sản số " + i);
+				product.setDescription("<p>Mô tả đặc sản số " + i + "</p>");
+				product.setStockQuantity(100);
+				product.setOrigin("Tỉnh " + i % PROVINCES);
+				product.setIsFeatured(i % 5 == 0);
+				products.add(product);
+			}
+			productRepository.saveAll(products);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(HomePageBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
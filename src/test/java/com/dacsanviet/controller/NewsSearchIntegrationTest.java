@@ -0,0 +1,121 @@
+package com.dacsanviet.controller;
+
+import com.dacsanviet.dto.NewsArticleDto;
+import com.dacsanviet.model.NewsArticle;
+import com.dacsanviet.model.NewsCategory;
+import com.dacsanviet.model.NewsStatus;
+import com.dacsanviet.model.User;
+import com.dacsanviet.repository.NewsArticleRepository;
+import com.dacsanviet.repository.NewsCategoryRepository;
+import com.dacsanviet.repository.UserRepository;
+import com.dacsanviet.service.NewsSearchIndex;
+import com.dacsanviet.service.NewsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Public news search through the in-memory index: articles are committed as a publish from
+ * the admin would be, and /news/search must follow them as they are published and unpublished
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class NewsSearchIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NewsService newsService;
+
+    @Autowired
+    private NewsSearchIndex newsSearchIndex;
+
+    @Autowired
+    private NewsArticleRepository newsArticleRepository;
+
+    @Autowired
+    private NewsCategoryRepository newsCategoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User author;
+    private NewsCategory category;
+    private NewsArticle article;
+
+    @BeforeEach
+    void setUp() {
+        author = new User();
+        author.setUsername("search-author");
+        author.setEmail("search-author@test.com");
+        author.setPassword("password");
+        author = userRepository.save(author);
+
+        category = new NewsCategory();
+        category.setName("Ẩm thực");
+        category.setSlug("search-am-thuc");
+        category.setIsActive(true);
+        category = newsCategoryRepository.save(category);
+
+        article = new NewsArticle();
+        article.setTitle("Nước mắm Phú Quốc vào mùa cá cơm");
+        article.setSlug("nuoc-mam-phu-quoc-vao-mua-ca-com");
+        article.setContent("<p>Những thùng gỗ ủ nước mắm truyền thống ở Phú Quốc.</p>");
+        article.setExcerpt("Mùa cá cơm trên đảo ngọc");
+        article.setStatus(NewsStatus.DRAFT);
+        article.setAuthor(author);
+        article.setCategory(category);
+        article.setViewCount(0L);
+        article.setIsFeatured(false);
+        article = newsArticleRepository.save(article);
+
+        // Start from the committed data, whether or not the startup load has run yet
+        newsSearchIndex.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        newsArticleRepository.deleteById(article.getId());
+        newsCategoryRepository.deleteById(category.getId());
+        userRepository.deleteById(author.getId());
+    }
+
+    @Test
+    void searchFollowsPublishAndUnpublish() throws Exception {
+        assertThat(newsSearchIndex.isReady()).isTrue();
+        assertThat(search("nuoc mam")).isEmpty();
+
+        newsService.publishArticle(article.getId());
+
+        // Unaccented and in any order of words, which only the index matches
+        assertThat(search("nuoc mam")).extracting(NewsArticleDto::getId).containsExactly(article.getId());
+        assertThat(search("phu quoc mam")).extracting(NewsArticleDto::getId).containsExactly(article.getId());
+
+        newsService.unpublishArticle(article.getId());
+
+        assertThat(search("nuoc mam")).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<NewsArticleDto> search(String keyword) throws Exception {
+        Object articles = mockMvc.perform(get("/news/search").param("q", keyword))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getModelAndView()
+                .getModel()
+                .get("articles");
+        return (Page<NewsArticleDto>) articles;
+    }
+}
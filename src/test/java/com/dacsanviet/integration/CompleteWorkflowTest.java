@@ -28,7 +28,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  * Complete workflow integration test for News Management System
  * Tests the entire workflow from category creation to article management and analytics
  */
-@SpringBootTest
+// Searches for articles this test's uncommitted transaction created, which the in-memory
+// news index only picks up after commit, so news search goes to the database
+@SpringBootTest(properties = "app.search.news-index.enabled=false")
 @ActiveProfiles("test")
 @Transactional
 public class CompleteWorkflowTest {
@@ -26,7 +26,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  * System Integration Test to verify all news management components are properly wired
  * Tests the complete system integration including services, repositories, and business logic
  */
-@SpringBootTest
+// Searches for articles this test's uncommitted transaction created, which the in-memory
+// news index only picks up after commit, so news search goes to the database
+@SpringBootTest(properties = "app.search.news-index.enabled=false")
 @ActiveProfiles("test")
 @Transactional
 public class SystemIntegrationTest {
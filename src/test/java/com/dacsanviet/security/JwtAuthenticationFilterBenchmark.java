@@ -0,0 +1,144 @@
+package com.dacsanviet.security;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dacsanviet.config.JwtProperties;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+
+/**
+ * Authentication overhead per request carrying a bearer token: the previous path (a new
+ * parser for validateToken and another for getUsernameFromToken, then the user lookup),
+ * the filter verifying once with the cache disabled, and the filter on a cache hit.
+ *
+ * {@code lookupMicros} simulates the user query round trip that UserDetailsServiceImpl
+ * makes on MySQL.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.security.JwtAuthenticationFilterBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+	private static final String SECRET = "mySecretKeyForJWTTokenGenerationThatIsLongEnoughForSecurity256Bits";
+	private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+	};
+
+	@Param({ "0", "300" })
+	long lookupMicros;
+
+	private SecretKey secretKey;
+	private String token;
+	private UserDetailsService userDetailsService;
+	private JwtAuthenticationFilter uncachedFilter;
+	private JwtAuthenticationFilter cachedFilter;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@Setup
+	public void setUp() throws Exception {
+		JwtProperties jwtProperties = new JwtProperties();
+		jwtProperties.setSecret(SECRET);
+		jwtProperties.setExpiration(86400000);
+		JwtTokenProvider tokenProvider = new JwtTokenProvider(jwtProperties);
+		secretKey = Keys.hmacShaKeyFor(SECRET.getBytes());
+		token = tokenProvider.generateTokenFromUsername("customer");
+
+		UserPrincipal principal = new UserPrincipal(7L, "customer", "customer@example.com", "Khách hàng",
+				"{noop}secret", List.of(new SimpleGrantedAuthority("ROLE_USER")), true);
+		userDetailsService = username -> {
+			if (lookupMicros > 0) {
+				LockSupport.parkNanos(lookupMicros * 1000);
+			}
+			return principal;
+		};
+		uncachedFilter = filter(tokenProvider, new VerifiedTokenCache(0, 0));
+		cachedFilter = filter(tokenProvider, new VerifiedTokenCache(10000, 300000));
+
+		request = new MockHttpServletRequest("GET", "/api/cart");
+		request.addHeader("Authorization", "Bearer " + token);
+		response = new MockHttpServletResponse();
+		cachedFilter.doFilter(request, response, NO_OP_CHAIN);
+	}
+
+	@Benchmark
+	public UserDetails perCallParsers() {
+		// Previous JwtTokenProvider: validateToken and getUsernameFromToken each built a parser
+		Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
+		Claims claims = Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload();
+		return userDetailsService.loadUserByUsername(claims.getSubject());
+	}
+
+	@Benchmark
+	public Object filterVerifyOnce() throws ServletException, IOException {
+		return authenticate(uncachedFilter);
+	}
+
+	@Benchmark
+	public Object filterCacheHit() throws ServletException, IOException {
+		return authenticate(cachedFilter);
+	}
+
+	private Object authenticate(JwtAuthenticationFilter filter) throws ServletException, IOException {
+		filter.doFilter(request, response, NO_OP_CHAIN);
+		Object authentication = SecurityContextHolder.getContext().getAuthentication();
+		SecurityContextHolder.clearContext();
+		return authentication;
+	}
+
+	private JwtAuthenticationFilter filter(JwtTokenProvider tokenProvider, VerifiedTokenCache cache) {
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+		ReflectionTestUtils.setField(filter, "tokenProvider", tokenProvider);
+		ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+		ReflectionTestUtils.setField(filter, "verifiedTokenCache", cache);
+		return filter;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,119 @@
+package com.dacsanviet.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dacsanviet.model.Role;
+import com.dacsanviet.model.User;
+import com.dacsanviet.repository.UserRepository;
+
+/**
+ * Principal cache: lookups by username, email and id, expiry, invalidation and stale loads
+ */
+public class UserPrincipalCacheTest {
+
+	private static final long MINUTE = 60_000L;
+
+	private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(100, MINUTE);
+
+	@Test
+	void findsAUserByUsernameEmailOrId() {
+		UserPrincipalCache cache = new UserPrincipalCache(100, MINUTE, verifiedTokenCache);
+		UserPrincipal alice = principal(1L, "alice");
+		cache.put(alice, cache.stamp());
+
+		assertThat(cache.getByLogin("alice")).isSameAs(alice);
+		assertThat(cache.getByLogin("alice@example.com")).isSameAs(alice);
+		assertThat(cache.getById(1L)).isSameAs(alice);
+		assertThat(cache.getByLogin("bob")).isNull();
+		assertThat(cache.getStats()).containsEntry("users", 1).containsEntry("logins", 2)
+				.containsEntry("hits", 3L).containsEntry("misses", 1L);
+	}
+
+	@Test
+	void expiresAfterTheTtl() throws InterruptedException {
+		UserPrincipalCache cache = new UserPrincipalCache(100, 20, verifiedTokenCache);
+		cache.put(principal(1L, "alice"), cache.stamp());
+
+		Thread.sleep(40);
+		assertThat(cache.getByLogin("alice")).isNull();
+		assertThat(cache.getById(1L)).isNull();
+	}
+
+	@Test
+	void invalidationEvictsTheUserAndTheUsersTokens() {
+		UserPrincipalCache cache = new UserPrincipalCache(100, MINUTE, verifiedTokenCache);
+		UserPrincipal alice = principal(1L, "alice");
+		cache.put(alice, cache.stamp());
+		cache.put(principal(2L, "bob"), cache.stamp());
+		verifiedTokenCache.put("alice-token", alice, System.currentTimeMillis() + MINUTE, verifiedTokenCache.stamp());
+
+		cache.invalidateUser(1L);
+
+		assertThat(cache.getByLogin("alice")).isNull();
+		assertThat(cache.getByLogin("alice@example.com")).isNull();
+		assertThat(cache.getById(1L)).isNull();
+		assertThat(cache.getByLogin("bob")).isNotNull();
+		assertThat(verifiedTokenCache.get("alice-token")).isNull();
+	}
+
+	@Test
+	void dropsALoadThatRacedAnInvalidation() {
+		UserPrincipalCache cache = new UserPrincipalCache(100, MINUTE, verifiedTokenCache);
+		long stamp = cache.stamp();
+		// The user is updated while the old row is being read
+		cache.invalidateUser(1L);
+		cache.put(principal(1L, "alice"), stamp);
+
+		assertThat(cache.getByLogin("alice")).isNull();
+	}
+
+	@Test
+	void staysWithinItsSizeBound() {
+		UserPrincipalCache cache = new UserPrincipalCache(50, MINUTE, verifiedTokenCache);
+		for (long id = 1; id <= 500; id++) {
+			cache.put(principal(id, "user" + id), cache.stamp());
+		}
+
+		assertThat((Integer) cache.getStats().get("users")).isLessThanOrEqualTo(50);
+		assertThat((Integer) cache.getStats().get("logins")).isLessThanOrEqualTo(100);
+		assertThat(cache.getByLogin("user500")).isNotNull();
+	}
+
+	@Test
+	void userDetailsServiceQueriesTheDatabaseOnlyOnAMiss() {
+		User user = new User();
+		user.setId(1L);
+		user.setUsername("alice");
+		user.setEmail("alice@example.com");
+		user.setPassword("{noop}secret");
+		user.setRole(Role.USER);
+		UserRepository userRepository = mock(UserRepository.class);
+		when(userRepository.findByUsernameOrEmail("alice")).thenReturn(Optional.of(user));
+		UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl();
+		ReflectionTestUtils.setField(userDetailsService, "userRepository", userRepository);
+		ReflectionTestUtils.setField(userDetailsService, "userPrincipalCache",
+				new UserPrincipalCache(100, MINUTE, verifiedTokenCache));
+
+		assertThat(userDetailsService.loadUserByUsername("alice").getUsername()).isEqualTo("alice");
+		assertThat(userDetailsService.loadUserByUsername("alice").getUsername()).isEqualTo("alice");
+		assertThat(userDetailsService.loadUserById(1L).getUsername()).isEqualTo("alice");
+
+		verify(userRepository, times(1)).findByUsernameOrEmail("alice");
+	}
+
+	private UserPrincipal principal(Long id, String username) {
+		return new UserPrincipal(id, username, username + "@example.com", username, "{noop}secret",
+				List.of(new SimpleGrantedAuthority("ROLE_USER")), true);
+	}
+}
@@ -0,0 +1,83 @@
+package com.dacsanviet.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Verified-token cache: expiry, size bound and per-user invalidation
+ */
+public class VerifiedTokenCacheTest {
+
+	private static final long HOUR = 3600_000L;
+
+	@Test
+	void returnsPrincipalUntilTokenExpires() {
+		VerifiedTokenCache cache = new VerifiedTokenCache(100, HOUR);
+		UserPrincipal alice = principal(1L, "alice");
+		cache.put("token-a", alice, System.currentTimeMillis() + HOUR, cache.stamp());
+		cache.put("token-expired", alice, System.currentTimeMillis() - 1, cache.stamp());
+
+		assertThat(cache.get("token-a")).isSameAs(alice);
+		assertThat(cache.get("token-expired")).isNull();
+		assertThat(cache.get("token-unknown")).isNull();
+		assertThat(cache.getStats()).containsEntry("entries", 1).containsEntry("hits", 1L)
+				.containsEntry("misses", 2L);
+	}
+
+	@Test
+	void capsEntriesAtTheTtl() throws InterruptedException {
+		VerifiedTokenCache cache = new VerifiedTokenCache(100, 20);
+		cache.put("token-a", principal(1L, "alice"), System.currentTimeMillis() + HOUR, cache.stamp());
+		assertThat(cache.get("token-a")).isNotNull();
+
+		Thread.sleep(40);
+		assertThat(cache.get("token-a")).isNull();
+	}
+
+	@Test
+	void staysWithinItsSizeBound() {
+		VerifiedTokenCache cache = new VerifiedTokenCache(50, HOUR);
+		for (int i = 0; i < 500; i++) {
+			cache.put("token-" + i, principal((long) i, "user" + i), System.currentTimeMillis() + HOUR,
+					cache.stamp());
+		}
+
+		assertThat((Integer) cache.getStats().get("entries")).isLessThanOrEqualTo(50);
+		assertThat(cache.get("token-499")).isNotNull();
+	}
+
+	@Test
+	void invalidatesEveryTokenOfAUser() {
+		VerifiedTokenCache cache = new VerifiedTokenCache(100, HOUR);
+		long expiresAt = System.currentTimeMillis() + HOUR;
+		cache.put("alice-browser", principal(1L, "alice"), expiresAt, cache.stamp());
+		cache.put("alice-phone", principal(1L, "alice"), expiresAt, cache.stamp());
+		cache.put("bob-browser", principal(2L, "bob"), expiresAt, cache.stamp());
+
+		cache.invalidateUser(1L);
+
+		assertThat(cache.get("alice-browser")).isNull();
+		assertThat(cache.get("alice-phone")).isNull();
+		assertThat(cache.get("bob-browser")).isNotNull();
+	}
+
+	@Test
+	void dropsALoadThatRacedAnInvalidation() {
+		VerifiedTokenCache cache = new VerifiedTokenCache(100, HOUR);
+		long stamp = cache.stamp();
+		// The user is updated while the token's user is being loaded
+		cache.invalidateUser(1L);
+		cache.put("alice-browser", principal(1L, "alice"), System.currentTimeMillis() + HOUR, stamp);
+
+		assertThat(cache.get("alice-browser")).isNull();
+	}
+
+	private UserPrincipal principal(Long id, String username) {
+		return new UserPrincipal(id, username, username + "@example.com", username, "{noop}secret",
+				List.of(new SimpleGrantedAuthority("ROLE_USER")), true);
+	}
+}
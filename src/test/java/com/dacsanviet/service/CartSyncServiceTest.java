@@ -13,6 +13,7 @@ import net.jqwik.api.*;
 import net.jqwik.api.constraints.IntRange;
 import net.jqwik.api.constraints.NotEmpty;
 import net.jqwik.api.constraints.Positive;
+import net.jqwik.api.lifecycle.BeforeProperty;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -26,6 +27,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 /**
@@ -47,6 +49,13 @@ class CartSyncServiceTest {
         cartSyncService = new CartSyncService(cartItemRepository, objectMapper);
     }
     
+    // jqwik runs properties outside the Jupiter lifecycle, so neither @Mock nor @BeforeEach apply
+    @BeforeProperty
+    void setUpProperty() {
+        cartItemRepository = mock(CartItemRepository.class);
+        setUp();
+    }
+    
     /**
      * Property 1: Database to localStorage Synchronization
      * For any authenticated user with non-empty database cart and empty localStorage,
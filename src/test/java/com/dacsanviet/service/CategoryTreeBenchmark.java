@@ -0,0 +1,161 @@
+package com.dacsanviet.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.dacsanviet.repository.CategoryRepository;
+
+/**
+ * Category work done by GlobalControllerAdvice for every page render, as operations per
+ * second: the previous path (root categories with children, one lazy load of
+ * grandchildren per child, then all active categories) against reading
+ * CategoryTreeSnapshot. The category tree is the seeded one: 3 regions with 4 provinces
+ * each and a few product types per province. This is only the advice's share of a render;
+ * HomePageBenchmark measures whole {@code GET /} requests.
+ *
+ * The database is in-process H2; {@code rttMicros} adds a simulated network round trip per
+ * query, as MySQL would see it.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.service.CategoryTreeBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryTreeBenchmark {
+
+	private static final int REGIONS = 3;
+	private static final int PROVINCES = 4;
+	private static final int TYPES = 3;
+
+	@Param({ "0", "300" })
+	long rttMicros;
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private CategoryTreeSnapshot snapshot;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:categorytree" + rttMicros, "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE categories (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL, "
+				+ "description VARCHAR(500), image_url VARCHAR(500), is_active BOOLEAN, parent_id BIGINT)");
+		jdbcTemplate.execute("CREATE INDEX idx_category_parent ON categories (parent_id)");
+
+		List<Object[]> rows = new ArrayList<>();
+		long id = 1;
+		for (int region = 0; region < REGIONS; region++) {
+			long regionId = id++;
+			rows.add(new Object[] { regionId, "Đặc Sản Miền " + region, "Mô tả miền " + region, null, true, null });
+			for (int province = 0; province < PROVINCES; province++) {
+				long provinceId = id++;
+				rows.add(new Object[] { provinceId, "Tỉnh " + region + "-" + province, "Mô tả tỉnh", null, true,
+						regionId });
+				for (int type = 0; type < TYPES; type++) {
+					rows.add(new Object[] { id++, "Loại " + provinceId + "-" + type, "Mô tả loại", null, true,
+							provinceId });
+				}
+			}
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO categories (id, name, description, image_url, is_active, parent_id) "
+				+ "VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+		CategoryRepository categoryRepository = mock(CategoryRepository.class);
+		when(categoryRepository.findCategoryTreeRows()).thenReturn(jdbcTemplate.query(
+				"SELECT c.id, c.name, c.image_url, c.is_active, c.parent_id FROM categories c ORDER BY c.name",
+				(rs, rowNum) -> new Object[] { rs.getLong(1), rs.getString(2), rs.getString(3), rs.getBoolean(4),
+						(Long) rs.getObject(5, Long.class) }));
+		snapshot = new CategoryTreeSnapshot(categoryRepository, mock(PageOutputCache.class));
+		snapshot.reload();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public void queries(Blackhole blackhole) {
+		// Roots fetch-joined with their children (entity columns, as Hibernate selects them)
+		List<Object[]> rootsWithChildren = query(
+				"SELECT r.id, r.name, r.description, r.image_url, r.is_active, r.parent_id, "
+						+ "c.id, c.name, c.description, c.image_url, c.is_active, c.parent_id "
+						+ "FROM categories r LEFT JOIN categories c ON c.parent_id = r.id "
+						+ "WHERE r.parent_id IS NULL AND r.is_active = TRUE ORDER BY r.name",
+				12);
+		blackhole.consume(rootsWithChildren);
+		// One lazy collection load per child
+		for (Object[] row : rootsWithChildren) {
+			if (row[6] != null) {
+				blackhole.consume(query("SELECT id, name, description, image_url, is_active, parent_id "
+						+ "FROM categories WHERE parent_id = " + row[6], 6));
+			}
+		}
+		blackhole.consume(query("SELECT id, name, description, image_url, is_active, parent_id "
+				+ "FROM categories WHERE is_active = TRUE ORDER BY name", 6));
+	}
+
+	@Benchmark
+	public void snapshot(Blackhole blackhole) {
+		blackhole.consume(snapshot.getRootCategories());
+		blackhole.consume(snapshot.getActiveCategories());
+	}
+
+	private List<Object[]> query(String sql, int columns) {
+		roundTrip();
+		return jdbcTemplate.query(sql, (rs, rowNum) -> {
+			Object[] row = new Object[columns];
+			for (int i = 0; i < columns; i++) {
+				row[i] = rs.getObject(i + 1);
+			}
+			return row;
+		});
+	}
+
+	private void roundTrip() {
+		if (rttMicros > 0) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(CategoryTreeBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,100 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.dacsanviet.repository.CategoryRepository;
+import com.dacsanviet.service.CategoryTreeSnapshot.CategoryNode;
+
+/**
+ * Header category tree: building from flat rows, ordering, active filtering and swaps
+ */
+public class CategoryTreeSnapshotTest {
+
+	private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+	private final CategoryTreeSnapshot snapshot = new CategoryTreeSnapshot(categoryRepository, mock(PageOutputCache.class));
+
+	@Test
+	void buildsThreeLevelsFromOneQuery() {
+		// Rows come ordered by name
+		when(categoryRepository.findCategoryTreeRows()).thenReturn(rows(
+				row(5L, "Bánh pía", true, 4L),
+				row(1L, "Đặc Sản Miền Bắc", true, null),
+				row(3L, "Đặc Sản Miền Nam", true, null),
+				row(7L, "Đặc Sản Ngừng Bán", false, null),
+				row(2L, "Hà Giang", true, 1L),
+				row(6L, "Kẹo dừa", false, 4L),
+				row(4L, "Sóc Trăng", true, 3L)));
+		snapshot.reload();
+
+		List<CategoryNode> roots = snapshot.getRootCategories();
+		assertThat(roots).extracting(CategoryNode::getName).containsExactly("Đặc Sản Miền Bắc", "Đặc Sản Miền Nam");
+		assertThat(roots.get(0).getChildren()).extracting(CategoryNode::getId).containsExactly(2L);
+		CategoryNode socTrang = roots.get(1).getChildren().get(0);
+		// Children keep id order and, as before, include inactive ones
+		assertThat(socTrang.getChildren()).extracting(CategoryNode::getId).containsExactly(5L, 6L);
+		assertThat(snapshot.getActiveCategories()).extracting(CategoryNode::getId).containsExactly(5L, 1L, 3L, 2L, 4L);
+		verify(categoryRepository, times(1)).findCategoryTreeRows();
+	}
+
+	@Test
+	void stopsAtTheGrandchildLevelAndIsImmutable() {
+		when(categoryRepository.findCategoryTreeRows()).thenReturn(rows(
+				row(1L, "A", true, null),
+				row(2L, "B", true, 1L),
+				row(3L, "C", true, 2L),
+				row(4L, "D", true, 3L)));
+		snapshot.reload();
+
+		CategoryNode grandchild = snapshot.getRootCategories().get(0).getChildren().get(0).getChildren().get(0);
+		assertThat(grandchild.getId()).isEqualTo(3L);
+		assertThat(grandchild.getChildren()).isEmpty();
+		assertThatThrownBy(() -> snapshot.getRootCategories().clear()).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	void refreshSwapsInTheNewTree() {
+		when(categoryRepository.findCategoryTreeRows())
+				.thenReturn(rows(row(1L, "Trà", true, null)))
+				.thenReturn(rows(row(1L, "Trà", true, null), row(2L, "Gia vị", true, null)));
+
+		// First read loads lazily, then reads are served from the snapshot
+		assertThat(snapshot.getRootCategories()).hasSize(1);
+		assertThat(snapshot.getRootCategories()).hasSize(1);
+		verify(categoryRepository, times(1)).findCategoryTreeRows();
+
+		List<CategoryNode> before = snapshot.getRootCategories();
+		snapshot.refresh();
+		assertThat(snapshot.getRootCategories()).hasSize(2);
+		assertThat(before).hasSize(1);
+		assertThat(snapshot.getStats()).containsEntry("rebuilds", 2L).containsEntry("rootCategories", 2);
+	}
+
+	@Test
+	void keepsTheLastTreeWhenReloadFails() {
+		when(categoryRepository.findCategoryTreeRows())
+				.thenReturn(rows(row(1L, "Trà", true, null)))
+				.thenThrow(new RuntimeException("database unavailable"));
+		snapshot.reload();
+		snapshot.reload();
+
+		assertThat(snapshot.getRootCategories()).extracting(CategoryNode::getName).containsExactly("Trà");
+	}
+
+	private static List<Object[]> rows(Object[]... rows) {
+		return new ArrayList<>(List.of(rows));
+	}
+
+	private static Object[] row(Long id, String name, boolean active, Long parentId) {
+		return new Object[] { id, name, null, active, parentId };
+	}
+}
@@ -0,0 +1,179 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.dacsanviet.config.ChatJournalProperties;
+import com.dacsanviet.entity.ChatMessage;
+import com.dacsanviet.repository.ChatMessageRepository;
+
+/**
+ * Chat write-behind journal against a real (H2) database: batching, read marks, shutdown,
+ * retries and the in-memory recent messages
+ */
+public class ChatMessageJournalTest {
+
+	private static final String CREATE_TABLE = "CREATE TABLE chat_messages (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+			+ "session_id VARCHAR(255) NOT NULL, sender_name VARCHAR(255), sender_email VARCHAR(255), "
+			+ "message CLOB NOT NULL, message_type VARCHAR(20) NOT NULL, created_at TIMESTAMP NOT NULL, "
+			+ "is_read BOOLEAN NOT NULL, admin_id BIGINT)";
+
+	private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+	private final ChatJournalProperties properties = new ChatJournalProperties();
+	private DriverManagerDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private ChatMessageJournal journal;
+
+	@BeforeEach
+	void setUp() {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:chat" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa",
+				"");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute(CREATE_TABLE);
+		properties.setFlushIntervalMs(60_000);
+		properties.setBatchSize(3);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (journal != null && journal.isRunning()) {
+			journal.stop();
+		}
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	void writesAFullBatchWithoutWaitingForTheInterval() throws Exception {
+		journal = newJournal();
+		journal.start();
+
+		ChatMessage first = user("chat_a", "Còn hàng trà Shan Tuyết không?");
+		journal.append(first);
+		journal.append(user("chat_a", "Giao về Đà Nẵng mất mấy ngày?"));
+		assertThat(rowCount()).isZero();
+		journal.append(user("chat_b", "Xin chào"));
+
+		awaitTrue(() -> (Long) journal.getStats().get("written") == 3);
+		assertThat(rowCount()).isEqualTo(3);
+		assertThat(first.getId()).isNotNull();
+		assertThat(journal.getStats()).containsEntry("batches", 1L).containsEntry("queued", 0);
+	}
+
+	@Test
+	void writesEverythingBufferedOnStop() {
+		properties.setBatchSize(500);
+		journal = newJournal();
+		journal.start();
+
+		journal.append(user("chat_a", "Một"));
+		journal.append(user("chat_a", "Hai"));
+		journal.markSessionAsRead("chat_a");
+		journal.append(user("chat_a", "Ba"));
+		ChatMessage reply = new ChatMessage("chat_a", "Dạ còn ạ", ChatMessage.MessageType.ADMIN);
+		reply.setAdminId(7L);
+		journal.append(reply);
+		journal.stop();
+
+		assertThat(jdbcTemplate.queryForList("SELECT message FROM chat_messages WHERE is_read = TRUE ORDER BY id",
+				String.class)).containsExactly("Một", "Hai");
+		assertThat(jdbcTemplate.queryForObject("SELECT admin_id FROM chat_messages WHERE message_type = 'ADMIN'",
+				Long.class)).isEqualTo(7L);
+
+		// After shutdown a late message is written straight away
+		journal.append(user("chat_a", "Bốn"));
+		assertThat(rowCount()).isEqualTo(5);
+	}
+
+	@Test
+	void keepsARejectedBatchAndRetriesIt() {
+		journal = newJournal();
+		jdbcTemplate.execute("DROP TABLE chat_messages");
+		journal.append(user("chat_a", "Alo"));
+		journal.markSessionAsRead("chat_a");
+
+		assertThatThrownBy(journal::flush).isInstanceOf(RuntimeException.class);
+		assertThat(journal.getStats()).containsEntry("failedBatches", 1L).containsEntry("retained", 2);
+
+		jdbcTemplate.execute(CREATE_TABLE);
+		journal.flush();
+		assertThat(jdbcTemplate.queryForObject("SELECT is_read FROM chat_messages", Boolean.class)).isTrue();
+		assertThat(journal.getStats()).containsEntry("retained", 0).containsEntry("written", 2L);
+	}
+
+	@Test
+	void dropsOnlyTheRowTheDatabaseRejects() {
+		journal = newJournal();
+		journal.append(user("chat_a", "Trước"));
+		journal.append(new ChatMessage("chat_a", "K".repeat(300), "khach@example.com", "Tên quá dài",
+				ChatMessage.MessageType.USER));
+		journal.append(user("chat_a", "Sau"));
+
+		journal.flush();
+
+		assertThat(jdbcTemplate.queryForList("SELECT message FROM chat_messages ORDER BY id", String.class))
+				.containsExactly("Trước", "Sau");
+		assertThat(journal.getStats()).containsEntry("failedBatches", 1L).containsEntry("droppedEntries", 1L)
+				.containsEntry("retained", 0).containsEntry("written", 2L);
+	}
+
+	@Test
+	void servesRecentMessagesFromMemoryAfterOneLoad() {
+		journal = newJournal();
+		ChatMessage stored = user("chat_a", "Đã lưu");
+		journal.append(stored);
+		journal.flush();
+		List<ChatMessage> newestFirst = new ArrayList<>(List.of(stored));
+		when(chatMessageRepository.findRecentMessagesBySessionId("chat_a")).thenReturn(newestFirst);
+
+		// Still buffered when the session is loaded, and appended after
+		ChatMessage buffered = user("chat_a", "Đang chờ ghi");
+		journal.append(buffered);
+		assertThat(journal.getRecentMessages("chat_a")).containsExactly(stored, buffered);
+		for (int i = 0; i < 60; i++) {
+			journal.append(user("chat_a", "Tin " + i));
+		}
+
+		List<ChatMessage> recent = journal.getRecentMessages("chat_a");
+		assertThat(recent).hasSize(ChatMessageJournal.RECENT_MESSAGES);
+		assertThat(recent.get(0).getMessage()).isEqualTo("Tin 10");
+		assertThat(recent.get(49).getMessage()).isEqualTo("Tin 59");
+		verify(chatMessageRepository, times(1)).findRecentMessagesBySessionId("chat_a");
+		assertThat(journal.getStats()).containsEntry("recentHits", 1L).containsEntry("recentLoads", 1L);
+	}
+
+	private ChatMessageJournal newJournal() {
+		return new ChatMessageJournal(properties, jdbcTemplate, new DataSourceTransactionManager(dataSource),
+				chatMessageRepository);
+	}
+
+	private ChatMessage user(String sessionId, String text) {
+		return new ChatMessage(sessionId, "Khách", "khach@example.com", text, ChatMessage.MessageType.USER);
+	}
+
+	private int rowCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class);
+	}
+
+	private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+			Thread.sleep(20);
+		}
+	}
+}
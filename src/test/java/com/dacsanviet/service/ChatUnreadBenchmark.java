@@ -0,0 +1,132 @@
+package com.dacsanviet.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.dacsanviet.repository.ChatMessageRepository;
+
+/**
+ * The admin console's unread count and unread session list, answered by the previous
+ * aggregate queries over chat_messages (in-memory H2, indexed like MySQL) and by
+ * ChatUnreadCounter, for growing chat histories with the same 200 unread messages.
+ * The queries grow with the history; the counter reads do not.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.service.ChatUnreadBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatUnreadBenchmark {
+
+	private static final int UNREAD = 200;
+
+	@Param({ "1000", "100000" })
+	int historyRows;
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private ChatUnreadCounter counter;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:chatunread" + historyRows, "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE chat_messages (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+				+ "session_id VARCHAR(255) NOT NULL, message VARCHAR(1000) NOT NULL, message_type VARCHAR(20) NOT NULL, "
+				+ "created_at TIMESTAMP NOT NULL, is_read BOOLEAN NOT NULL)");
+		jdbcTemplate.execute("CREATE INDEX idx_chat_session ON chat_messages (session_id)");
+		jdbcTemplate.execute("CREATE INDEX idx_chat_read ON chat_messages (is_read)");
+
+		Random random = new Random(42);
+		String[] types = { "USER", "USER", "ADMIN", "SYSTEM" };
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		List<Object[]> rows = new ArrayList<>(historyRows);
+		for (int i = 0; i < historyRows; i++) {
+			boolean unread = i >= historyRows - UNREAD;
+			rows.add(new Object[] { "chat_" + (i / 12), "Tin nhắn " + i,
+					unread ? "USER" : types[random.nextInt(types.length)], now, !unread });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO chat_messages (session_id, message, message_type, created_at, is_read) "
+				+ "VALUES (?, ?, ?, ?, ?)", rows);
+
+		ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+		when(chatMessageRepository.countUnreadUserMessagesBySession()).thenReturn(jdbcTemplate.query(
+				"SELECT session_id, COUNT(*) FROM chat_messages WHERE is_read = FALSE AND message_type = 'USER' "
+						+ "GROUP BY session_id",
+				(rs, rowNum) -> new Object[] { rs.getString(1), rs.getLong(2) }));
+		counter = new ChatUnreadCounter(chatMessageRepository, mock(OutboundMessageDispatcher.class));
+		counter.rebuild();
+		System.out.println("\nUnread messages: " + counter.getUnreadCount() + " in "
+				+ counter.getSessionsWithUnread().size() + " sessions of " + historyRows + " history rows");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public Long countQuery() {
+		return jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM chat_messages WHERE is_read = FALSE AND message_type = 'USER'", Long.class);
+	}
+
+	@Benchmark
+	public List<String> sessionsQuery() {
+		return jdbcTemplate.queryForList(
+				"SELECT DISTINCT session_id FROM chat_messages WHERE is_read = FALSE AND message_type = 'USER'",
+				String.class);
+	}
+
+	@Benchmark
+	public long countCounter() {
+		return counter.getUnreadCount();
+	}
+
+	@Benchmark
+	public List<String> sessionsCounter() {
+		return counter.getSessionsWithUnread();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(ChatUnreadBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,88 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.dacsanviet.repository.ChatMessageRepository;
+
+/**
+ * In-memory unread counts: loading, updates, concurrent senders and pushes to admins
+ */
+public class ChatUnreadCounterTest {
+
+	private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+	private final OutboundMessageDispatcher outboundDispatcher = mock(OutboundMessageDispatcher.class);
+	private final ChatUnreadCounter counter = new ChatUnreadCounter(chatMessageRepository, outboundDispatcher);
+
+	@Test
+	void loadsCountsAndFollowsNewAndReadMessages() {
+		List<Object[]> rows = new ArrayList<>();
+		rows.add(new Object[] { "chat_a", 2L });
+		rows.add(new Object[] { "chat_b", 1L });
+		when(chatMessageRepository.countUnreadUserMessagesBySession()).thenReturn(rows);
+		counter.rebuild();
+		assertThat(counter.getUnreadCount()).isEqualTo(3);
+		assertThat(counter.getSessionsWithUnread()).containsExactlyInAnyOrder("chat_a", "chat_b");
+
+		counter.messageReceived("chat_c");
+		counter.messageReceived("chat_a");
+		counter.markRead("chat_b");
+		assertThat(counter.getUnreadCount()).isEqualTo(4);
+		assertThat(counter.getUnreadCount("chat_a")).isEqualTo(3);
+		assertThat(counter.getUnreadCount("chat_b")).isZero();
+		assertThat(counter.getSessionsWithUnread()).containsExactlyInAnyOrder("chat_a", "chat_c");
+	}
+
+	@Test
+	void pushesEveryChangeKeyedBySession() {
+		counter.messageReceived("chat_a");
+		counter.messageReceived("chat_a");
+		counter.markRead("chat_a");
+		// Reading a session without unread messages changes nothing
+		counter.markRead("chat_z");
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Map<String, Object>> updates = ArgumentCaptor.forClass(Map.class);
+		verify(outboundDispatcher, times(3)).sendLatest(eq(ChatUnreadCounter.UNREAD_TOPIC),
+				eq("chat_a"), updates.capture());
+		assertThat(updates.getAllValues()).extracting(update -> update.get("sessionUnread")).containsExactly(1L, 2L,
+				0L);
+		assertThat(updates.getAllValues().get(2)).containsEntry("totalUnread", 0L);
+		verify(outboundDispatcher, never()).sendLatest(eq(ChatUnreadCounter.UNREAD_TOPIC), eq("chat_z"), any());
+	}
+
+	@Test
+	void countsConcurrentSendersExactly() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int thread = 0; thread < 4; thread++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 1000; i++) {
+					counter.messageReceived("chat_" + (i % 10));
+				}
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(counter.getUnreadCount()).isEqualTo(4000);
+		assertThat(counter.getUnreadCount("chat_3")).isEqualTo(400);
+		counter.markRead("chat_3");
+		assertThat(counter.getUnreadCount()).isEqualTo(3600);
+	}
+}
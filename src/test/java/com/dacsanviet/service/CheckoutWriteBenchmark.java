@@ -0,0 +1,224 @@
+package com.dacsanviet.service;
+
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Order;
+import com.dacsanviet.model.OrderItem;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+
+/**
+ * Checkout write path for 1/10/50-item carts: one product lookup, item insert and stock
+ * update per line (previous code path) against one fetch-joined lookup, one order item
+ * batch and one stock batch.
+ *
+ * The database is in-process H2, so a round trip costs almost nothing; {@code rttMicros}
+ * adds a simulated network round trip per statement or batch sent, as MySQL would see it.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.service.CheckoutWriteBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutWriteBenchmark {
+
+	private static final int PRODUCTS = 60;
+	private static final int INITIAL_STOCK = 1_000_000_000;
+
+	private static final String PRODUCT_BY_ID_SQL = "SELECT p.id, p.name, p.description, p.image_url, p.category_id "
+			+ "FROM products p WHERE p.id = ?";
+	private static final String CATEGORY_BY_ID_SQL = "SELECT c.id, c.name FROM categories c WHERE c.id = ?";
+	private static final String PRODUCTS_WITH_CATEGORY_SQL = "SELECT p.id, p.name, p.description, p.image_url, "
+			+ "c.id AS category_id, c.name AS category_name FROM products p LEFT JOIN categories c "
+			+ "ON c.id = p.category_id WHERE p.id IN (:ids)";
+	private static final String INSERT_ITEM_SQL = "INSERT INTO order_items (order_id, product_id, quantity, "
+			+ "unit_price, product_name, product_description, category_name, product_image_url, created_at) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+	private static final String SAVE_PRODUCT_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, "
+			+ "updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+	@Param({ "1", "10", "50" })
+	int itemCount;
+
+	@Param({ "0", "250" })
+	long rttMicros;
+
+	private JdbcTemplate jdbcTemplate;
+	private NamedParameterJdbcTemplate namedJdbcTemplate;
+	private OrderItemBatchService orderItemBatchService;
+	private StockAllocationService stockAllocationService;
+	private Map<Long, Integer> cart;
+	private Order order;
+
+	@Setup
+	public void setUp() {
+		// One pooled-like connection, so the numbers measure statements rather than connects
+		SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:checkout" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		orderItemBatchService = new OrderItemBatchService(jdbcTemplate);
+		stockAllocationService = new StockAllocationService(jdbcTemplate,
+				new ProductFacetIndex(mock(ProductRepository.class)), mock(PageOutputCache.class));
+
+		jdbcTemplate.execute("CREATE TABLE categories (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(200) NOT NULL, "
+				+ "description VARCHAR(2000), image_url VARCHAR(500), category_id BIGINT, "
+				+ "stock_quantity INT NOT NULL, reserved_quantity INT DEFAULT 0 NOT NULL, updated_at TIMESTAMP)");
+		jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_id BIGINT NOT NULL, "
+				+ "product_id BIGINT NOT NULL, quantity INT NOT NULL, unit_price DECIMAL(10,2) NOT NULL, "
+				+ "product_name VARCHAR(200) NOT NULL, product_description VARCHAR(2000), category_name VARCHAR(100), "
+				+ "product_image_url VARCHAR(500), created_at TIMESTAMP NOT NULL)");
+		for (long c = 1; c <= 5; c++) {
+			jdbcTemplate.update("INSERT INTO categories (id, name) VALUES (?, ?)", c, "Đặc sản miền " + c);
+		}
+		for (long p = 1; p <= PRODUCTS; p++) {
+			jdbcTemplate.update("INSERT INTO products (id, name, description, image_url, category_id, stock_quantity) "
+					+ "VALUES (?, ?, ?, ?, ?, ?)", p, "Trà Shan Tuyết cổ thụ " + p, "Mô tả sản phẩm " + p,
+					"https://files.catbox.moe/product-" + p + ".jpg", 1 + p % 5, INITIAL_STOCK);
+		}
+
+		cart = new HashMap<>();
+		for (long p = 1; p <= itemCount; p++) {
+			cart.put(p, 1 + (int) (p % 3));
+		}
+		order = new Order();
+		order.setId(1L);
+	}
+
+	@TearDown(Level.Iteration)
+	public void resetTables() {
+		jdbcTemplate.execute("TRUNCATE TABLE order_items");
+		jdbcTemplate.update("UPDATE products SET stock_quantity = ?", INITIAL_STOCK);
+	}
+
+	@Benchmark
+	public List<OrderItem> perItemWrites() {
+		List<OrderItem> items = new ArrayList<>(cart.size());
+		for (Map.Entry<Long, Integer> line : cart.entrySet()) {
+			// productRepository.findById + lazy category
+			Product product = jdbcTemplate.queryForObject(PRODUCT_BY_ID_SQL, (rs, rowNum) -> {
+				Product p = new Product();
+				p.setId(rs.getLong("id"));
+				p.setName(rs.getString("name"));
+				p.setDescription(rs.getString("description"));
+				p.setImageUrl(rs.getString("image_url"));
+				Category category = new Category();
+				category.setId(rs.getLong("category_id"));
+				p.setCategory(category);
+				return p;
+			}, line.getKey());
+			roundTrip();
+			jdbcTemplate.query(CATEGORY_BY_ID_SQL, rs -> {
+				product.getCategory().setName(rs.getString("name"));
+			}, product.getCategory().getId());
+			roundTrip();
+
+			// orderItemRepository.save: one INSERT per item, IDENTITY key read back
+			OrderItem item = new OrderItem(order, product, line.getValue(), new BigDecimal("125000"));
+			KeyHolder keyHolder = new GeneratedKeyHolder();
+			jdbcTemplate.update(connection -> {
+				PreparedStatement ps = connection.prepareStatement(INSERT_ITEM_SQL, Statement.RETURN_GENERATED_KEYS);
+				ps.setLong(1, order.getId());
+				ps.setLong(2, product.getId());
+				ps.setInt(3, item.getQuantity());
+				ps.setBigDecimal(4, item.getUnitPrice());
+				ps.setString(5, item.getProductName());
+				ps.setString(6, item.getProductDescription());
+				ps.setString(7, item.getCategoryName());
+				ps.setString(8, item.getProductImageUrl());
+				return ps;
+			}, keyHolder);
+			item.setId(keyHolder.getKey().longValue());
+			roundTrip();
+
+			// productRepository.save with the new stock
+			jdbcTemplate.update(SAVE_PRODUCT_SQL, line.getValue(), product.getId());
+			roundTrip();
+			items.add(item);
+		}
+		return items;
+	}
+
+	@Benchmark
+	public List<OrderItem> batchedWrites() {
+		Map<Long, Product> products = new HashMap<>();
+		namedJdbcTemplate.query(PRODUCTS_WITH_CATEGORY_SQL, new MapSqlParameterSource("ids", cart.keySet()), rs -> {
+			Category category = new Category();
+			category.setId(rs.getLong("category_id"));
+			category.setName(rs.getString("category_name"));
+			Product p = new Product(rs.getString("name"), new BigDecimal("125000"), category);
+			p.setId(rs.getLong("id"));
+			p.setDescription(rs.getString("description"));
+			p.setImageUrl(rs.getString("image_url"));
+			products.put(p.getId(), p);
+		});
+		roundTrip();
+
+		stockAllocationService.allocate(cart).orThrow();
+		roundTrip();
+
+		List<OrderItem> items = new ArrayList<>(cart.size());
+		for (Map.Entry<Long, Integer> line : cart.entrySet()) {
+			items.add(new OrderItem(order, products.get(line.getKey()), line.getValue(), new BigDecimal("125000")));
+		}
+		orderItemBatchService.insertAll(items);
+		roundTrip();
+		return items;
+	}
+
+	private void roundTrip() {
+		if (rttMicros > 0) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(CheckoutWriteBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
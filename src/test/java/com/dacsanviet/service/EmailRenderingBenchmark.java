@@ -0,0 +1,173 @@
+package com.dacsanviet.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dacsanviet.dao.OrderDao;
+import com.dacsanviet.dao.OrderItemDao;
+import com.dacsanviet.model.OrderStatus;
+
+/**
+ * Render time and allocation per email: String.format / StringBuilder (previous code path)
+ * against the compiled templates in EmailService.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.service.EmailRenderingBenchmark"
+ * (allocation per email is reported as gc.alloc.rate.norm; extra JMH options such as -f or -i
+ * can be appended to exec.args)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailRenderingBenchmark {
+
+	@Param({ "1", "5", "20" })
+	int itemCount;
+
+	private EmailService emailService;
+	private OrderDao order;
+
+	@Setup
+	public void setUp() {
+		emailService = new EmailService();
+		ReflectionTestUtils.setField(emailService, "frontendUrl", "https://dacsanviet.vn");
+
+		order = new OrderDao();
+		order.setOrderNumber("DSV20250101-0001");
+		order.setCustomerName("Nguyễn Văn An");
+		order.setCustomerPhone("0931652105");
+		order.setCustomerEmail("an.nguyen@example.com");
+		order.setShippingAddressText("01 Võ Văn Ngân, Phường Thủ Đức, TP Hồ Chí Minh");
+		order.setOrderDate(LocalDateTime.of(2025, 1, 1, 9, 30));
+		order.setStatus(OrderStatus.PENDING);
+		order.setPaymentMethod("COD");
+		order.setShippingFee(new BigDecimal("30000"));
+
+		List<OrderItemDao> items = new ArrayList<>();
+		BigDecimal total = order.getShippingFee();
+		for (int i = 0; i < itemCount; i++) {
+			OrderItemDao item = new OrderItemDao();
+			item.setProductName("Trà Shan Tuyết cổ thụ Hà Giang " + i);
+			item.setProductImageUrl("https://files.catbox.moe/product-" + i + ".jpg");
+			item.setQuantity(1 + i % 3);
+			item.setUnitPrice(new BigDecimal(125000 + i * 1000));
+			items.add(item);
+			total = total.add(item.getUnitPrice().multiply(new BigDecimal(item.getQuantity())));
+		}
+		order.setOrderItems(items);
+		order.setTotalAmount(total);
+	}
+
+	@Benchmark
+	public String orderConfirmationLegacy() {
+		return legacyOrderConfirmation(order);
+	}
+
+	@Benchmark
+	public String orderConfirmationCompiled() {
+		return emailService.buildOrderConfirmationEmailContent(order);
+	}
+
+	@Benchmark
+	public String orderStatusUpdateLegacy() {
+		return legacyOrderStatusUpdate(order, "PENDING", "SHIPPED");
+	}
+
+	@Benchmark
+	public String orderStatusUpdateCompiled() {
+		return emailService.buildOrderStatusUpdateEmail(order, "PENDING", "SHIPPED");
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(EmailRenderingBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	// --- Previous implementation, used as the baseline ---
+
+	private String legacyOrderConfirmation(OrderDao order) {
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+		String orderDate = order.getOrderDate() != null ? order.getOrderDate().format(formatter) : "";
+
+		StringBuilder orderItemsHtml = new StringBuilder();
+		for (OrderItemDao item : order.getOrderItems()) {
+			orderItemsHtml.append(String.format(EmailService.ORDER_ITEM_ROW_TEMPLATE.getSource(),
+					item.getProductImageUrl(), item.getProductName(), item.getProductName(), item.getQuantity(),
+					legacyFormatPrice(item.getUnitPrice()),
+					legacyFormatPrice(item.getUnitPrice().multiply(new BigDecimal(item.getQuantity())))));
+		}
+
+		return String.format(EmailService.ORDER_CONFIRMATION_TEMPLATE.getSource(), order.getOrderNumber(), orderDate,
+				"Chờ xác nhận", "Thanh toán khi nhận hàng (COD)", order.getCustomerName(), order.getCustomerPhone(),
+				order.getCustomerEmail(), order.getShippingAddressText(), orderItemsHtml.toString(),
+				legacyFormatPrice(order.getTotalAmount().subtract(order.getShippingFee())),
+				order.getShippingFee().compareTo(BigDecimal.ZERO) == 0 ? "Miễn phí"
+						: legacyFormatPrice(order.getShippingFee()),
+				legacyFormatPrice(order.getTotalAmount()), "https://dacsanviet.vn/products");
+	}
+
+	private String legacyFormatPrice(BigDecimal price) {
+		return String.format("%,dđ", price.longValue());
+	}
+
+	private String legacyOrderStatusUpdate(OrderDao order, String oldStatus, String newStatus) {
+		StringBuilder html = new StringBuilder();
+		html.append("<!DOCTYPE html>");
+		html.append("<html><head><meta charset='UTF-8'></head><body style='font-family: Arial, sans-serif;'>");
+		html.append("<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>");
+		html.append(
+				"<div style='background: linear-gradient(135deg, #007bff 0%, #0056b3 100%); color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0;'>");
+		html.append("<h1 style='margin: 0;'>📦 Cập Nhật Đơn Hàng</h1>");
+		html.append("</div>");
+		html.append("<div style='background: #f8f9fa; padding: 30px; border-radius: 0 0 10px 10px;'>");
+		html.append("<p style='font-size: 16px;'>Xin chào <strong>").append(order.getCustomerName())
+				.append("</strong>,</p>");
+		html.append("<p>Đơn hàng <strong>").append(order.getOrderNumber())
+				.append("</strong> của bạn đã được cập nhật trạng thái.</p>");
+		html.append("<div style='background: white; padding: 20px; border-radius: 8px; margin: 20px 0;'>");
+		html.append("<h3 style='color: #007bff; margin-top: 0;'>Thông Tin Cập Nhật</h3>");
+		html.append("<table style='width: 100%; border-collapse: collapse;'>");
+		html.append("<tr><td style='padding: 8px 0; border-bottom: 1px solid #dee2e6;'><strong>Trạng thái cũ:</strong></td>");
+		html.append("<td style='padding: 8px 0; border-bottom: 1px solid #dee2e6; text-align: right;'>")
+				.append(oldStatus).append("</td></tr>");
+		html.append("<tr><td style='padding: 8px 0;'><strong>Trạng thái mới:</strong></td>");
+		html.append("<td style='padding: 8px 0; text-align: right; color: #007bff; font-weight: bold;'>")
+				.append(newStatus).append("</td></tr>");
+		html.append("</table>");
+		html.append("</div>");
+		html.append("<p>Cảm ơn bạn đã mua hàng tại <strong>Đặc Sản Việt</strong>!</p>");
+		html.append("</div>");
+		html.append("</div>");
+		html.append("</body></html>");
+		return html.toString();
+	}
+}
@@ -0,0 +1,166 @@
+package com.dacsanviet.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Stand-in for an external STOMP broker (RabbitMQ, ActiveMQ) so StompBrokerRelay can be
+ * tested locally: CONNECT, SUBSCRIBE, SEND and DISCONNECT over TCP, with every SEND
+ * delivered as a MESSAGE to all subscribers of its destination, native headers included.
+ */
+public class EmbeddedStompBroker implements AutoCloseable {
+
+	private final ServerSocket serverSocket;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final Map<Socket, Object> connections = new ConcurrentHashMap<>();
+	private final StompEncoder encoder = new StompEncoder();
+	private final AtomicLong messageIds = new AtomicLong();
+	private final AtomicLong sendFrames = new AtomicLong();
+
+	public EmbeddedStompBroker() throws IOException {
+		serverSocket = new ServerSocket(0);
+		Thread acceptor = new Thread(this::accept, "embedded-stomp-broker");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public long getSendFrames() {
+		return sendFrames.get();
+	}
+
+	/**
+	 * Drop every client connection, as a broker restart would
+	 */
+	public void dropConnections() {
+		subscriptions.clear();
+		for (Socket socket : connections.keySet()) {
+			close(socket);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		dropConnections();
+		serverSocket.close();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				connections.put(socket, new Object());
+				Thread reader = new Thread(() -> serve(socket), "embedded-stomp-connection");
+				reader.setDaemon(true);
+				reader.start();
+			} catch (IOException ex) {
+				return;
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		StompDecoder decoder = new StompDecoder();
+		ByteBuffer buffer = ByteBuffer.allocate(4 * 1024 * 1024);
+		byte[] chunk = new byte[16 * 1024];
+		try {
+			InputStream input = socket.getInputStream();
+			int read;
+			while ((read = input.read(chunk)) != -1) {
+				buffer.put(chunk, 0, read);
+				buffer.flip();
+				for (Message<byte[]> frame : decoder.decode(buffer)) {
+					handle(socket, frame);
+				}
+				buffer.compact();
+			}
+		} catch (IOException ex) {
+			// Client went away
+		} finally {
+			subscriptions.removeIf(subscription -> subscription.socket == socket);
+			close(socket);
+		}
+	}
+
+	private void handle(Socket socket, Message<byte[]> frame) throws IOException {
+		StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+		StompCommand command = accessor.getCommand();
+		if (command == StompCommand.CONNECT || command == StompCommand.STOMP) {
+			StompHeaderAccessor connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+			connected.setVersion("1.2");
+			write(socket, new byte[0], connected);
+		} else if (command == StompCommand.SUBSCRIBE) {
+			subscriptions.add(new Subscription(socket, accessor.getSubscriptionId(), accessor.getDestination()));
+		} else if (command == StompCommand.SEND) {
+			sendFrames.incrementAndGet();
+			for (Subscription subscription : subscriptions) {
+				if (subscription.destination.equals(accessor.getDestination())) {
+					StompHeaderAccessor message = StompHeaderAccessor.create(StompCommand.MESSAGE);
+					accessor.toNativeHeaderMap().forEach((name, values) -> {
+						if (!"content-length".equals(name)) {
+							values.forEach(value -> message.addNativeHeader(name, value));
+						}
+					});
+					message.setSubscriptionId(subscription.id);
+					message.setMessageId(String.valueOf(messageIds.incrementAndGet()));
+					write(subscription.socket, frame.getPayload(), message);
+				}
+			}
+		} else if (command == StompCommand.DISCONNECT) {
+			close(socket);
+		}
+	}
+
+	private void write(Socket socket, byte[] body, StompHeaderAccessor accessor) {
+		byte[] bytes = encoder.encode(MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+		synchronized (socket) {
+			try {
+				OutputStream output = socket.getOutputStream();
+				output.write(bytes);
+				output.flush();
+			} catch (IOException ex) {
+				close(socket);
+			}
+		}
+	}
+
+	private void close(Socket socket) {
+		connections.remove(socket);
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			// Already closed
+		}
+	}
+
+	private static final class Subscription {
+		private final Socket socket;
+		private final String id;
+		private final String destination;
+
+		private Subscription(Socket socket, String id, String destination) {
+			this.socket = socket;
+			this.id = id;
+			this.destination = destination;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.dacsanviet.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server for tests.
+ * Speaks just enough of RFC 5321 for JavaMail, records every accepted message and counts
+ * connections so tests can assert that batches share one SMTP session. Recipients whose
+ * address starts with "reject" are refused with a 550.
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+	private final ServerSocket serverSocket;
+	private final Thread acceptThread;
+	private final AtomicInteger connections = new AtomicInteger();
+	private final List<String> recipients = Collections.synchronizedList(new ArrayList<>());
+	private volatile boolean running = true;
+
+	public FakeSmtpServer() throws IOException {
+		this.serverSocket = new ServerSocket(0);
+		this.acceptThread = new Thread(this::acceptLoop, "fake-smtp");
+		this.acceptThread.setDaemon(true);
+		this.acceptThread.start();
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int getConnectionCount() {
+		return connections.get();
+	}
+
+	/**
+	 * Recipients of the messages that were accepted, in delivery order.
+	 */
+	public List<String> getDeliveredRecipients() {
+		synchronized (recipients) {
+			return new ArrayList<>(recipients);
+		}
+	}
+
+	private void acceptLoop() {
+		while (running) {
+			try (Socket socket = serverSocket.accept()) {
+				connections.incrementAndGet();
+				handle(socket);
+			} catch (IOException e) {
+				// Socket closed on shutdown or client hung up
+			}
+		}
+	}
+
+	private void handle(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+		reply(out, "220 fake-smtp ready");
+
+		List<String> pendingRecipients = new ArrayList<>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			String command = line.toUpperCase();
+			if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+				reply(out, "250 fake-smtp");
+			} else if (command.startsWith("MAIL FROM")) {
+				pendingRecipients.clear();
+				reply(out, "250 OK");
+			} else if (command.startsWith("RCPT TO")) {
+				String address = line.substring(line.indexOf('<') + 1, line.lastIndexOf('>'));
+				if (address.startsWith("reject")) {
+					reply(out, "550 No such user");
+				} else {
+					pendingRecipients.add(address);
+					reply(out, "250 OK");
+				}
+			} else if (command.equals("DATA")) {
+				reply(out, "354 End data with <CR><LF>.<CR><LF>");
+				while ((line = in.readLine()) != null && !line.equals(".")) {
+					// Message body is not inspected
+				}
+				recipients.addAll(pendingRecipients);
+				pendingRecipients.clear();
+				reply(out, "250 OK queued");
+			} else if (command.equals("RSET") || command.equals("NOOP")) {
+				pendingRecipients.clear();
+				reply(out, "250 OK");
+			} else if (command.equals("QUIT")) {
+				reply(out, "221 Bye");
+				return;
+			} else {
+				reply(out, "502 Command not implemented");
+			}
+		}
+	}
+
+	private void reply(Writer out, String response) throws IOException {
+		out.write(response + "\r\n");
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverSocket.close();
+	}
+}
@@ -7,6 +7,10 @@ import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -16,6 +20,13 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 class ImageServiceTest {
     
+    // A 10x10 lossless WebP of one colour, which the JDK itself cannot decode
+    private static final byte[] WEBP_10X10 = {
+        'R', 'I', 'F', 'F', 0x20, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', 'L', 0x14, 0, 0, 0,
+        0x2f, 0x09, 0x40, 0x02, 0x00, 0x28, 0x60, (byte) 0x81, 0x0a, (byte) 0xd2, (byte) 0xff, 0,
+        0, 0, 0, 0, 0, 0, 0, 0
+    };
+    
     private ImageService imageService;
     
     @TempDir
@@ -29,24 +40,24 @@ class ImageServiceTest {
     }
     
     @Test
-    void testValidateImageFile_ValidJpegFile() {
+    void testValidateImageFile_ValidJpegFile() throws IOException {
         MockMultipartFile file = new MockMultipartFile(
             "file", 
             "test.jpg", 
             "image/jpeg", 
-            "test image content".getBytes()
+            image("jpg")
         );
         
         assertDoesNotThrow(() -> imageService.validateImageFile(file));
     }
     
     @Test
-    void testValidateImageFile_ValidPngFile() {
+    void testValidateImageFile_ValidPngFile() throws IOException {
         MockMultipartFile file = new MockMultipartFile(
             "file", 
             "test.png", 
             "image/png", 
-            "test image content".getBytes()
+            image("png")
         );
         
         assertDoesNotThrow(() -> imageService.validateImageFile(file));
@@ -58,12 +69,28 @@ class ImageServiceTest {
             "file", 
             "test.webp", 
             "image/webp", 
-            "test image content".getBytes()
+            WEBP_10X10
         );
         
         assertDoesNotThrow(() -> imageService.validateImageFile(file));
     }
     
+    @Test
+    void testUploadNewsImage_WebpStoredAsUploaded() throws IOException {
+        MockMultipartFile file = new MockMultipartFile(
+            "file", 
+            "test.webp", 
+            "image/webp", 
+            WEBP_10X10
+        );
+        
+        ImageService.ImageUploadResult result = imageService.uploadNewsImage(file, 1L);
+        
+        assertEquals(result.getOriginalUrl(), result.getThumbnailUrl());
+        assertTrue(result.getFilename().endsWith(".webp"));
+        assertEquals(WEBP_10X10.length, result.getFileSize());
+    }
+    
     @Test
     void testValidateImageFile_EmptyFile() {
         MockMultipartFile file = new MockMultipartFile(
@@ -169,4 +196,13 @@ class ImageServiceTest {
         boolean result = imageService.deleteImage("");
         assertFalse(result);
     }
-}
\ No newline at end of file
+    
+    /**
+     * A 10x10 image in the given ImageIO format, the smallest the service accepts
+     */
+    private static byte[] image(String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), format, out);
+        return out.toByteArray();
+    }
+}
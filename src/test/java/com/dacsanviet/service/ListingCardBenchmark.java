@@ -0,0 +1,208 @@
+package com.dacsanviet.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * One storefront listing page (24 products, 12 news articles) loaded as whole rows, as the
+ * entity queries did, and as list cards, as ProductRepository and NewsArticleRepository
+ * card queries do, against in-memory H2 with rich-text bodies of realistic size. The bytes
+ * transferred per page are printed at setup; heap allocated per page is the GC profiler's
+ * gc.alloc.rate.norm.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.service.ListingCardBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingCardBenchmark {
+
+	private static final int PRODUCT_PAGE = 24;
+	private static final int NEWS_PAGE = 12;
+
+	private static final String PRODUCT_ROWS = "SELECT p.*, c.id AS category_id_, c.name AS category_name "
+			+ "FROM products p LEFT JOIN categories c ON c.id = p.category_id WHERE p.is_active = TRUE "
+			+ "ORDER BY p.name LIMIT " + PRODUCT_PAGE;
+	private static final String PRODUCT_CARDS = "SELECT p.id, p.name, p.price, p.stock_quantity, p.image_url, "
+			+ "p.is_active, p.is_featured, p.origin, CASE WHEN p.short_description IS NOT NULL "
+			+ "AND LENGTH(p.short_description) > 0 THEN SUBSTRING(p.short_description, 1, 300) "
+			+ "ELSE SUBSTRING(p.description, 1, 300) END AS summary, c.id AS category_id, c.name AS category_name, "
+			+ "p.created_at, p.updated_at FROM products p LEFT JOIN categories c ON c.id = p.category_id "
+			+ "WHERE p.is_active = TRUE ORDER BY p.name LIMIT " + PRODUCT_PAGE;
+	private static final String NEWS_ROWS = "SELECT a.*, c.name AS category_name, c.slug AS category_slug, "
+			+ "u.full_name FROM news_articles a LEFT JOIN news_categories c ON c.id = a.category_id "
+			+ "LEFT JOIN users u ON u.id = a.author_id WHERE a.status = 'PUBLISHED' "
+			+ "ORDER BY a.published_at DESC LIMIT " + NEWS_PAGE;
+	private static final String NEWS_CARDS = "SELECT a.id, a.title, a.slug, a.excerpt, a.featured_image, "
+			+ "a.thumbnail_image, a.status, a.view_count, a.is_featured, a.published_at, a.created_at, a.updated_at, "
+			+ "c.id AS category_id, c.name AS category_name, c.slug AS category_slug, u.id AS author_id, "
+			+ "COALESCE(u.full_name, u.username) AS author_name FROM news_articles a "
+			+ "LEFT JOIN news_categories c ON c.id = a.category_id LEFT JOIN users u ON u.id = a.author_id "
+			+ "WHERE a.status = 'PUBLISHED' ORDER BY a.published_at DESC LIMIT " + NEWS_PAGE;
+
+	@Param({ "2000" })
+	int rows;
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:listingcards" + rows, "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE categories (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+		jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(200), "
+				+ "short_description CLOB, description CLOB, story CLOB, story_image_url VARCHAR(500), "
+				+ "price DECIMAL(10,2), stock_quantity INT, image_url VARCHAR(500), is_active BOOLEAN, "
+				+ "is_featured BOOLEAN, weight_grams INT, origin VARCHAR(100), category_id BIGINT, "
+				+ "created_at TIMESTAMP, updated_at TIMESTAMP)");
+		jdbcTemplate.execute("CREATE INDEX idx_product_name ON products (name)");
+		jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(50), full_name VARCHAR(100))");
+		jdbcTemplate.execute("CREATE TABLE news_categories (id BIGINT PRIMARY KEY, name VARCHAR(100), slug VARCHAR(100))");
+		jdbcTemplate.execute("CREATE TABLE news_articles (id BIGINT PRIMARY KEY, title VARCHAR(200), "
+				+ "slug VARCHAR(200), content CLOB, excerpt VARCHAR(500), featured_image VARCHAR(500), "
+				+ "thumbnail_image VARCHAR(500), status VARCHAR(20), view_count BIGINT, is_featured BOOLEAN, "
+				+ "meta_description VARCHAR(160), meta_keywords VARCHAR(255), category_id BIGINT, author_id BIGINT, "
+				+ "published_at TIMESTAMP, created_at TIMESTAMP, updated_at TIMESTAMP)");
+		jdbcTemplate.execute("CREATE INDEX idx_news_published ON news_articles (status, published_at)");
+
+		Random random = new Random(42);
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		jdbcTemplate.update("INSERT INTO users VALUES (1, 'admin', 'Ban biên tập')");
+		for (int i = 1; i <= 10; i++) {
+			jdbcTemplate.update("INSERT INTO categories VALUES (?, ?)", i, "Đặc sản vùng " + i);
+			jdbcTemplate.update("INSERT INTO news_categories VALUES (?, ?, ?)", i, "Chuyên mục " + i, "chuyen-muc-" + i);
+		}
+
+		List<Object[]> products = new ArrayList<>(rows);
+		List<Object[]> articles = new ArrayList<>(rows);
+		for (int i = 1; i <= rows; i++) {
+			products.add(new Object[] { i, "Sản phẩm " + i, "<p>Đặc sản " + i + " chuẩn vị quê nhà</p>",
+					html(random, 4_000 + random.nextInt(8_000)), html(random, 2_000 + random.nextInt(6_000)),
+					"/uploads/products/story-" + i + ".jpg", 50_000 + random.nextInt(500_000), random.nextInt(200),
+					"/uploads/products/" + i + ".jpg", true, i % 10 == 0, 500, "Việt Nam", 1 + random.nextInt(10),
+					now, now });
+			articles.add(new Object[] { i, "Bài viết " + i, "bai-viet-" + i, html(random, 6_000 + random.nextInt(20_000)),
+					"Tóm tắt bài viết " + i, "/uploads/news/" + i + ".jpg", "/uploads/news/thumb-" + i + ".jpg",
+					"PUBLISHED", random.nextInt(10_000), i % 20 == 0, "Mô tả " + i, "dac san, tet",
+					1 + random.nextInt(10), 1, Timestamp.valueOf(LocalDateTime.now().minusHours(i)), now, now });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO products VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", products);
+		jdbcTemplate.batchUpdate("INSERT INTO news_articles VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+				articles);
+
+		System.out.println("\nBytes per page: products " + pageBytes(PRODUCT_ROWS) + " as rows, "
+				+ pageBytes(PRODUCT_CARDS) + " as cards; news " + pageBytes(NEWS_ROWS) + " as rows, "
+				+ pageBytes(NEWS_CARDS) + " as cards");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public List<Object[]> productPageRows() {
+		return jdbcTemplate.query(PRODUCT_ROWS, ListingCardBenchmark::readRow);
+	}
+
+	@Benchmark
+	public List<Object[]> productPageCards() {
+		return jdbcTemplate.query(PRODUCT_CARDS, ListingCardBenchmark::readRow);
+	}
+
+	@Benchmark
+	public List<Object[]> newsPageRows() {
+		return jdbcTemplate.query(NEWS_ROWS, ListingCardBenchmark::readRow);
+	}
+
+	@Benchmark
+	public List<Object[]> newsPageCards() {
+		return jdbcTemplate.query(NEWS_CARDS, ListingCardBenchmark::readRow);
+	}
+
+	/**
+	 * Every column read into the heap, as Hibernate hydrates an entity or a projection
+	 */
+	private static Object[] readRow(ResultSet rs, int rowNum) throws SQLException {
+		ResultSetMetaData meta = rs.getMetaData();
+		Object[] row = new Object[meta.getColumnCount()];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = meta.getColumnType(i + 1) == Types.CLOB ? rs.getString(i + 1) : rs.getObject(i + 1);
+		}
+		return row;
+	}
+
+	/**
+	 * Column values of a page, summed in bytes (strings as UTF-8, other values as their text)
+	 */
+	private long pageBytes(String sql) {
+		long bytes = 0;
+		for (Object[] row : jdbcTemplate.query(sql, ListingCardBenchmark::readRow)) {
+			for (Object value : row) {
+				if (value != null) {
+					bytes += value.toString().getBytes(StandardCharsets.UTF_8).length;
+				}
+			}
+		}
+		return bytes;
+	}
+
+	private static String html(Random random, int length) {
+		String[] words = { "nước", "mắm", "Phú", "Quốc", "bánh", "pía", "trà", "Shan", "Tuyết", "đặc", "sản", "miền",
+				"Tây", "hương", "vị", "truyền", "thống" };
+		StringBuilder html = new StringBuilder(length + 16);
+		while (html.length() < length) {
+			html.append("<p>");
+			for (int i = 0; i < 40; i++) {
+				html.append(words[random.nextInt(words.length)]).append(' ');
+			}
+			html.append("</p>\n");
+		}
+		return html.toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(ListingCardBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
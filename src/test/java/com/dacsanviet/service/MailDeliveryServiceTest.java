@@ -0,0 +1,139 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.dacsanviet.config.MailOutboxProperties;
+import com.dacsanviet.model.MailJob;
+import com.dacsanviet.repository.MailJobRepository;
+
+/**
+ * Tests for the outbox drain loop against an in-process SMTP server
+ */
+public class MailDeliveryServiceTest {
+
+	private FakeSmtpServer smtpServer;
+	private MailJobRepository mailJobRepository;
+	private MailOutboxProperties properties;
+	private MailDeliveryService deliveryService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		smtpServer = new FakeSmtpServer();
+		mailJobRepository = mock(MailJobRepository.class);
+		properties = new MailOutboxProperties();
+		properties.setWorkers(1);
+		properties.setBaseBackoffMs(1000);
+		properties.setMaxBackoffMs(5000);
+		deliveryService = new MailDeliveryService(mailJobRepository, mailSenderFor(smtpServer.getPort()), properties,
+				"shop@dacsanviet.test");
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		deliveryService.shutdown();
+		smtpServer.close();
+	}
+
+	@Test
+	void drainSendsWholeBatchOverOneConnection() {
+		List<MailJob> jobs = jobs("a@test.vn", "b@test.vn", "c@test.vn", "d@test.vn", "e@test.vn");
+		givenQueued(jobs);
+
+		deliveryService.drainOutbox();
+
+		assertThat(smtpServer.getDeliveredRecipients()).containsExactlyInAnyOrder("a@test.vn", "b@test.vn",
+				"c@test.vn", "d@test.vn", "e@test.vn");
+		assertThat(smtpServer.getConnectionCount()).isEqualTo(1);
+		assertThat(sentIds()).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+		assertThat(deliveryService.getStats().get("sent")).isEqualTo(5L);
+	}
+
+	@Test
+	void rejectedRecipientIsRescheduledWithoutBlockingTheBatch() {
+		List<MailJob> jobs = jobs("a@test.vn", "reject@test.vn", "c@test.vn");
+		givenQueued(jobs);
+
+		deliveryService.drainOutbox();
+
+		assertThat(smtpServer.getDeliveredRecipients()).containsExactlyInAnyOrder("a@test.vn", "c@test.vn");
+		assertThat(sentIds()).containsExactlyInAnyOrder(1L, 3L);
+		verify(mailJobRepository).markAttemptFailed(eq(2L), eq(MailJob.Status.PENDING), any(), anyString());
+		assertThat(deliveryService.getStats().get("retried")).isEqualTo(1L);
+	}
+
+	@Test
+	void unreachableServerFailsJobsThatExhaustedTheirAttempts() throws Exception {
+		smtpServer.close();
+		List<MailJob> jobs = jobs("a@test.vn", "b@test.vn");
+		jobs.get(1).setAttempts(properties.getMaxAttempts() - 1);
+		givenQueued(jobs);
+
+		deliveryService.drainOutbox();
+
+		verify(mailJobRepository).markAttemptFailed(eq(1L), eq(MailJob.Status.PENDING), any(), anyString());
+		verify(mailJobRepository).markAttemptFailed(eq(2L), eq(MailJob.Status.FAILED), any(), anyString());
+		verify(mailJobRepository, never()).markSent(any(), any(), any());
+	}
+
+	@Test
+	void backoffDoublesUpToTheCap() {
+		assertThat(deliveryService.backoffMs(1)).isEqualTo(1000);
+		assertThat(deliveryService.backoffMs(2)).isEqualTo(2000);
+		assertThat(deliveryService.backoffMs(3)).isEqualTo(4000);
+		assertThat(deliveryService.backoffMs(4)).isEqualTo(5000);
+		assertThat(deliveryService.backoffMs(30)).isEqualTo(5000);
+	}
+
+	private void givenQueued(List<MailJob> jobs) {
+		List<Long> ids = jobs.stream().map(MailJob::getId).toList();
+		when(mailJobRepository.findDueJobIds(eq(MailJob.Status.PENDING), any(), any(Pageable.class)))
+				.thenReturn(ids, List.of());
+		when(mailJobRepository.findByClaimToken(anyString())).thenReturn(jobs);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Long> sentIds() {
+		ArgumentCaptor<Collection<Long>> captor = ArgumentCaptor.forClass(Collection.class);
+		verify(mailJobRepository).markSent(captor.capture(), any(), eq(MailJob.Status.SENT));
+		return new ArrayList<>(captor.getValue());
+	}
+
+	private List<MailJob> jobs(String... recipients) {
+		List<MailJob> jobs = new ArrayList<>();
+		long id = 1;
+		for (String recipient : recipients) {
+			MailJob job = new MailJob(MailJob.Type.ORDER_CONFIRMATION, recipient, "Xác Nhận Đơn Hàng #" + id,
+					"<p>Đơn hàng " + id + "</p>");
+			job.setId(id++);
+			jobs.add(job);
+		}
+		return jobs;
+	}
+
+	private JavaMailSenderImpl mailSenderFor(int port) {
+		JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+		mailSender.setHost("localhost");
+		mailSender.setPort(port);
+		mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+		mailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+		return mailSender;
+	}
+}
@@ -0,0 +1,115 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import com.dacsanviet.config.CoalescingCache;
+import com.dacsanviet.dto.NewsArticleDto;
+import com.dacsanviet.dto.NewsCategoryDto;
+
+/**
+ * News read model: cached list cards and articles, and eviction by article and category writes
+ */
+public class NewsReadModelTest {
+
+	private final NewsService newsService = mock(NewsService.class);
+	private final NewsCategoryService newsCategoryService = mock(NewsCategoryService.class);
+	private NewsReadModel readModel;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(List.of(
+				new CoalescingCache(new ConcurrentMapCache(NewsReadModel.NEWS_LISTS), 0, key -> null, Runnable::run),
+				new CoalescingCache(new ConcurrentMapCache(NewsReadModel.NEWS_ARTICLES), 0, key -> null, Runnable::run)));
+		cacheManager.afterPropertiesSet();
+		ObjectProvider<NewsService> newsServiceProvider = mock(ObjectProvider.class);
+		when(newsServiceProvider.getObject()).thenReturn(newsService);
+		ObjectProvider<NewsCategoryService> categoryServiceProvider = mock(ObjectProvider.class);
+		when(categoryServiceProvider.getObject()).thenReturn(newsCategoryService);
+		readModel = new NewsReadModel(cacheManager, newsServiceProvider, categoryServiceProvider);
+	}
+
+	@Test
+	void cachesListCardsWithoutTheirBodies() {
+		when(newsService.findRecentArticles(6)).thenAnswer(invocation -> List.of(article("tet-2025")));
+
+		List<NewsArticleDto> cards = readModel.findRecentCards(6);
+		readModel.findRecentCards(6);
+
+		assertThat(cards).extracting(NewsArticleDto::getSlug).containsExactly("tet-2025");
+		assertThat(cards.get(0).getContent()).isNull();
+		verify(newsService, times(1)).findRecentArticles(6);
+	}
+
+	@Test
+	void cachesArticlesBySlugButNotMissingSlugs() {
+		when(newsService.findBySlug("tet-2025")).thenAnswer(invocation -> Optional.of(article("tet-2025")));
+		when(newsService.findBySlug("khong-co")).thenReturn(Optional.empty());
+
+		assertThat(readModel.findArticle("tet-2025")).get().extracting(NewsArticleDto::getContent)
+				.isEqualTo("Nội dung");
+		readModel.findArticle("tet-2025");
+		assertThat(readModel.findArticle("khong-co")).isEmpty();
+		assertThat(readModel.findArticle("khong-co")).isEmpty();
+
+		verify(newsService, times(1)).findBySlug("tet-2025");
+		verify(newsService, times(2)).findBySlug("khong-co");
+	}
+
+	@Test
+	void anArticleWriteEvictsItsSlugsAndEveryList() {
+		when(newsService.findBySlug("tet-2025")).thenAnswer(invocation -> Optional.of(article("tet-2025")));
+		when(newsService.findBySlug("banh-chung")).thenAnswer(invocation -> Optional.of(article("banh-chung")));
+		when(newsService.findPublishedFeaturedArticles(3)).thenAnswer(invocation -> List.of(article("tet-2025")));
+		readModel.findArticle("tet-2025");
+		readModel.findArticle("banh-chung");
+		readModel.findFeaturedCards(3);
+
+		// The article was renamed, so it had two slugs
+		readModel.articleChanged("tet-2025", "tet-2026");
+		readModel.findArticle("tet-2025");
+		readModel.findArticle("banh-chung");
+		readModel.findFeaturedCards(3);
+
+		verify(newsService, times(2)).findBySlug("tet-2025");
+		verify(newsService, times(1)).findBySlug("banh-chung");
+		verify(newsService, times(2)).findPublishedFeaturedArticles(3);
+	}
+
+	@Test
+	void aCategoryWriteEvictsEverything() {
+		when(newsCategoryService.findActiveCategories()).thenAnswer(invocation -> List.of(new NewsCategoryDto()));
+		when(newsService.findBySlug("tet-2025")).thenAnswer(invocation -> Optional.of(article("tet-2025")));
+		readModel.findActiveCategories();
+		readModel.findArticle("tet-2025");
+
+		readModel.categoriesChanged();
+		readModel.findActiveCategories();
+		readModel.findArticle("tet-2025");
+
+		verify(newsCategoryService, times(2)).findActiveCategories();
+		verify(newsService, times(2)).findBySlug("tet-2025");
+	}
+
+	private static NewsArticleDto article(String slug) {
+		NewsArticleDto article = new NewsArticleDto();
+		article.setSlug(slug);
+		article.setTitle("Tết " + slug);
+		article.setContent("Nội dung");
+		return article;
+	}
+}
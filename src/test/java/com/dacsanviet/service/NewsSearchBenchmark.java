@@ -0,0 +1,204 @@
+package com.dacsanviet.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.dacsanviet.repository.NewsArticleRepository;
+
+/**
+ * News search over a generated corpus of 50k published articles: the previous LIKE query
+ * on title, excerpt and body (page of 12 plus its count, in-memory H2) against
+ * NewsSearchIndex, for a rare compound, a common compound and a three-syllable query.
+ * The index's size and load time are printed at setup.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.service.NewsSearchBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class NewsSearchBenchmark {
+
+	private static final int ARTICLES = 50_000;
+	private static final int PAGE = 12;
+
+	// Word frequencies follow Zipf's law over this many syllables
+	private static final int VOCABULARY = 1200;
+
+	// The most frequent syllables of running Vietnamese text
+	private static final String[] FUNCTION_WORDS = { "và", "của", "là", "có", "được", "những", "trong", "cho", "với",
+			"một", "các", "người", "không", "này", "đã" };
+	// Food and place syllables, spread from fairly common to rare
+	private static final String[] TOPIC_WORDS = { "nước", "mắm", "bánh", "chưng", "tết", "miền", "tây", "đặc", "sản",
+			"hương", "vị", "quê", "làng", "nghề", "chợ", "gạo", "nếp", "lá", "dong", "thịt", "cá", "cơm", "muối", "trà",
+			"shan", "tuyết", "cổ", "thụ", "phú", "quốc", "nem", "chua", "kẹo", "dừa", "bến", "tre", "mứt", "gừng",
+			"buôn", "thuột", "xoài", "sầu", "riêng", "bún", "huế", "phở", "mực", "vải", "thiều", "bưởi", "yến",
+			"sào", "rượu", "cần" };
+	private static final String[] ONSETS = { "b", "c", "ch", "d", "đ", "g", "gi", "h", "k", "kh", "l", "m", "n", "ng",
+			"nh", "ph", "qu", "r", "s", "t", "th", "tr", "v", "x" };
+	private static final String[] RHYMES = { "a", "á", "à", "ả", "ã", "ạ", "ai", "an", "ang", "anh", "ao", "au", "ay",
+			"e", "em", "en", "eo", "ê", "ên", "i", "im", "in", "inh", "o", "oa", "oi", "om", "on", "ong", "ô", "ôi", "ông",
+			"ơ", "ơi", "ơn", "u", "ui", "um", "un", "ung", "ư", "ưa", "ưng", "ươi", "ương", "iêu", "uyên" };
+
+	private static final String[] WORDS = new String[VOCABULARY];
+	private static final double[] CUMULATIVE = new double[VOCABULARY];
+
+	static {
+		int topic = 0;
+		int generated = 0;
+		for (int rank = 0; rank < VOCABULARY; rank++) {
+			if (rank < FUNCTION_WORDS.length) {
+				WORDS[rank] = FUNCTION_WORDS[rank];
+			} else if (rank % 20 == 0 && topic < TOPIC_WORDS.length) {
+				WORDS[rank] = TOPIC_WORDS[topic++];
+			} else {
+				WORDS[rank] = ONSETS[generated % ONSETS.length] + RHYMES[generated / ONSETS.length % RHYMES.length];
+				generated++;
+			}
+		}
+		double total = 0;
+		for (int rank = 0; rank < VOCABULARY; rank++) {
+			total += 1.0 / (rank + 1);
+			CUMULATIVE[rank] = total;
+		}
+		for (int rank = 0; rank < VOCABULARY; rank++) {
+			CUMULATIVE[rank] /= total;
+		}
+	}
+
+	@Param({ "nước mắm", "yến sào", "bánh chưng tết" })
+	String query;
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private NewsSearchIndex newsSearchIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		LocalDateTime now = LocalDateTime.now();
+		List<Object[]> rows = new ArrayList<>(ARTICLES);
+		for (int i = 1; i <= ARTICLES; i++) {
+			rows.add(new Object[] { (long) i, sentence(random, 6 + random.nextInt(6)), sentence(random, 25),
+					paragraphs(random, 150 + random.nextInt(250)), "Chuyên mục " + (1 + random.nextInt(8)),
+					now.minusMinutes(i) });
+		}
+
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:newssearch" + query.hashCode(), "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE news_articles (id BIGINT PRIMARY KEY, title VARCHAR(200), "
+				+ "excerpt VARCHAR(500), content CLOB, status VARCHAR(20), published_at TIMESTAMP)");
+		jdbcTemplate.execute("CREATE INDEX idx_news_published ON news_articles (status, published_at)");
+		List<Object[]> inserts = new ArrayList<>(ARTICLES);
+		for (Object[] row : rows) {
+			inserts.add(new Object[] { row[0], row[1], row[2], row[3], "PUBLISHED",
+					Timestamp.valueOf((LocalDateTime) row[5]) });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO news_articles VALUES (?, ?, ?, ?, ?, ?)", inserts);
+
+		NewsArticleRepository newsArticleRepository = mock(NewsArticleRepository.class);
+		when(newsArticleRepository.findPublishedForSearchIndex(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+			int from = ((Long) invocation.getArgument(0)).intValue();
+			return rows.subList(Math.min(from, ARTICLES), Math.min(from + 500, ARTICLES));
+		});
+		newsSearchIndex = new NewsSearchIndex(newsArticleRepository);
+		newsSearchIndex.reload();
+		System.out.println("\nIndex: " + newsSearchIndex.getStats());
+		System.out.println("'" + query + "': " + newsSearchIndex.search(query, PAGE).getTotal() + " hits in the index, "
+				+ likeCount() + " by LIKE");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public List<Long> likeQuery() {
+		String pattern = "%" + query + "%";
+		List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM news_articles WHERE status = 'PUBLISHED' AND "
+				+ "(LOWER(title) LIKE ? OR LOWER(content) LIKE ? OR LOWER(excerpt) LIKE ?) "
+				+ "ORDER BY published_at DESC LIMIT " + PAGE, Long.class, pattern, pattern, pattern);
+		ids.add(likeCount());
+		return ids;
+	}
+
+	@Benchmark
+	public NewsSearchIndex.Result indexSearch() {
+		return newsSearchIndex.search(query, PAGE);
+	}
+
+	private long likeCount() {
+		String pattern = "%" + query + "%";
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM news_articles WHERE status = 'PUBLISHED' AND "
+				+ "(LOWER(title) LIKE ? OR LOWER(content) LIKE ? OR LOWER(excerpt) LIKE ?)", Long.class, pattern,
+				pattern, pattern);
+	}
+
+	private static String paragraphs(Random random, int words) {
+		StringBuilder html = new StringBuilder(words * 6);
+		while (words > 0) {
+			int sentence = Math.min(words, 40);
+			html.append("<p>").append(sentence(random, sentence)).append("</p>");
+			words -= sentence;
+		}
+		return html.toString();
+	}
+
+	private static String sentence(Random random, int words) {
+		StringBuilder text = new StringBuilder(words * 6);
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			int rank = Arrays.binarySearch(CUMULATIVE, random.nextDouble());
+			text.append(WORDS[Math.min(rank < 0 ? -rank - 1 : rank, VOCABULARY - 1)]);
+		}
+		return text.toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(NewsSearchBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,126 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import com.dacsanviet.model.NewsArticle;
+import com.dacsanviet.model.NewsCategory;
+import com.dacsanviet.model.NewsStatus;
+import com.dacsanviet.repository.NewsArticleRepository;
+import com.dacsanviet.util.SearchHighlighter;
+
+/**
+ * In-memory news search: folded syllables, syllable pairs, BM25 ranking, incremental
+ * updates and highlighted snippets
+ */
+public class NewsSearchIndexTest {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 20, 8, 0);
+
+	private NewsArticleRepository newsArticleRepository;
+	private NewsSearchIndex newsSearchIndex;
+
+	@BeforeEach
+	void setUp() {
+		newsArticleRepository = mock(NewsArticleRepository.class);
+		when(newsArticleRepository.findPublishedForSearchIndex(eq(0L), any(Pageable.class))).thenReturn(List.of(
+				row(1L, "Mùa nước mắm ở Phú Quốc", "Nhà thùng vào vụ cá cơm",
+						"<p>Nước mắm được ủ chượp trong thùng gỗ <b>12 tháng</b>.</p>", "Ẩm thực", NOW.minusDays(3)),
+				row(2L, "Mắm tôm, mắm ruốc và nước chấm", "Các loại mắm miền Trung",
+						"<p>Nước chấm pha từ mắm tôm. Mắm ruốc kho với thịt. Nước dừa làm dịu vị mắm.</p>", "Ẩm thực",
+						NOW.minusDays(1)),
+				row(3L, "Trà Shan Tuyết Hà Giang", "Cây chè cổ thụ trên núi cao",
+						"<p>Búp trà phủ lông tơ trắng như tuyết.</p>", "Đặc sản", NOW.minusDays(2))));
+		newsSearchIndex = new NewsSearchIndex(newsArticleRepository);
+		newsSearchIndex.reload();
+	}
+
+	@Test
+	void unaccentedQueryMatchesEverySyllable() {
+		assertThat(newsSearchIndex.isReady()).isTrue();
+		assertThat(newsSearchIndex.search("NƯỚC MẮM", 10).getIds()).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(newsSearchIndex.search("mam tom", 10).getIds()).containsExactly(2L);
+		assertThat(newsSearchIndex.search("shan tuyet", 10).getIds()).containsExactly(3L);
+		assertThat(newsSearchIndex.search("nuoc mam sushi", 10).getIds()).isEmpty();
+		assertThat(newsSearchIndex.search("  ", 10).getIds()).isEmpty();
+	}
+
+	@Test
+	void compoundsOutrankSeparateSyllables() {
+		// Article 2 says "nước" and "mắm" more often, but never next to each other
+		assertThat(newsSearchIndex.search("nuoc mam", 10).getIds()).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void returnsTheBestHitsUpToTheLimitAndCountsThemAll() {
+		NewsSearchIndex.Result result = newsSearchIndex.search("nuoc mam", 1);
+		assertThat(result.getIds()).containsExactly(1L);
+		assertThat(result.getTotal()).isEqualTo(2L);
+	}
+
+	@Test
+	void equalScoresAreNewestFirst() {
+		newsSearchIndex.index(article(4L, "Trà Shan Tuyết Hà Giang", NewsStatus.PUBLISHED, NOW));
+		assertThat(newsSearchIndex.search("shan tuyet", 10).getIds()).startsWith(4L);
+	}
+
+	@Test
+	void articleChangesAreAppliedIncrementally() {
+		NewsArticle article = article(3L, "Trà búp Suối Giàng", NewsStatus.PUBLISHED, NOW.minusDays(2));
+		newsSearchIndex.index(article);
+		assertThat(newsSearchIndex.search("shan tuyet", 10).getIds()).isEmpty();
+		assertThat(newsSearchIndex.search("suoi giang", 10).getIds()).containsExactly(3L);
+
+		article.setStatus(NewsStatus.DRAFT);
+		newsSearchIndex.index(article);
+		assertThat(newsSearchIndex.search("suoi giang", 10).getIds()).isEmpty();
+		assertThat(newsSearchIndex.getStats()).containsEntry("documents", 2).containsEntry("incrementalUpdates", 2L);
+
+		// A reload drops the deleted entries
+		newsSearchIndex.reload();
+		assertThat(newsSearchIndex.getStats()).containsEntry("deletedDocuments", 0);
+	}
+
+	@Test
+	void highlightsFoldedMatchesInEscapedText() {
+		Set<String> words = Set.of("nuoc", "mam");
+
+		assertThat(SearchHighlighter.highlight("Nước mắm <Phú Quốc>", words))
+				.isEqualTo("<mark>Nước</mark> <mark>mắm</mark> &lt;Phú Quốc&gt;");
+
+		String body = "Làng chài thức dậy từ sớm. ".repeat(10) + "Thùng gỗ ủ nước mắm suốt một năm. "
+				+ "Cá cơm tươi được muối ngay trên thuyền. ".repeat(10);
+		String snippet = SearchHighlighter.snippet(body, words, 120);
+		assertThat(snippet).startsWith("…").endsWith("…").contains("<mark>nước</mark> <mark>mắm</mark>");
+		assertThat(snippet.replace("<mark>", "").replace("</mark>", "").length()).isLessThanOrEqualTo(122);
+
+		assertThat(SearchHighlighter.snippet("Không có từ khóa", words, 120)).isEqualTo("Không có từ khóa");
+	}
+
+	private static Object[] row(Long id, String title, String excerpt, String content, String categoryName,
+			LocalDateTime publishedAt) {
+		return new Object[] { id, title, excerpt, content, categoryName, publishedAt };
+	}
+
+	private static NewsArticle article(Long id, String title, NewsStatus status, LocalDateTime publishedAt) {
+		NewsArticle article = new NewsArticle();
+		article.setId(id);
+		article.setTitle(title);
+		article.setContent("<p>" + title + "</p>");
+		article.setCategory(new NewsCategory("Đặc sản"));
+		article.setStatus(status);
+		article.setPublishedAt(publishedAt);
+		return article;
+	}
+}
@@ -37,11 +37,27 @@ class NewsServiceSEOIntegrationTest {
     @Mock
     private SEOService seoService;
     
+    @Mock
+    private PageOutputCache pageOutputCache;
+    
+    @Mock
+    private NewsViewCounter newsViewCounter;
+    
+    @Mock
+    private NewsReadModel newsReadModel;
+    
+    @Mock
+    private NewsSearchIndex newsSearchIndex;
+    
+    @Mock
+    private RelatedItemsIndex relatedItemsIndex;
+    
     private NewsService newsService;
     
     @BeforeEach
     void setUp() {
-        newsService = new NewsService(newsArticleRepository, newsCategoryRepository, userRepository, seoService);
+        newsService = new NewsService(newsArticleRepository, newsCategoryRepository, userRepository, seoService, pageOutputCache,
+                newsViewCounter, newsReadModel, newsSearchIndex, relatedItemsIndex);
     }
     
     @Test
@@ -0,0 +1,159 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.dacsanviet.config.NewsViewProperties;
+import com.dacsanviet.model.NewsArticle;
+import com.dacsanviet.model.NewsStatus;
+import com.dacsanviet.repository.NewsArticleRepository;
+
+/**
+ * News view counter against a real (H2) database: batched flushes, retries, visitor
+ * dedupe and most viewed articles merged with unflushed views
+ */
+public class NewsViewCounterTest {
+
+	private static final String CREATE_TABLE = "CREATE TABLE news_articles (id BIGINT PRIMARY KEY, view_count BIGINT)";
+
+	private final NewsArticleRepository newsArticleRepository = mock(NewsArticleRepository.class);
+	private final NewsViewProperties properties = new NewsViewProperties();
+	private DriverManagerDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:views" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa",
+				"");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute(CREATE_TABLE);
+		jdbcTemplate.update("INSERT INTO news_articles VALUES (1, 10), (2, 0), (3, NULL)");
+		properties.setBatchSize(2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	void addsCountedViewsToTheStoredCountsOnFlush() {
+		NewsViewCounter counter = newCounter();
+		for (int i = 0; i < 3; i++) {
+			counter.record(1L);
+		}
+		counter.record(2L);
+		counter.record(3L);
+		assertThat(storedViews(1L)).isEqualTo(10L);
+		assertThat(counter.pendingTotal()).isEqualTo(5L);
+
+		counter.flush();
+		assertThat(storedViews(1L)).isEqualTo(13L);
+		assertThat(storedViews(2L)).isEqualTo(1L);
+		assertThat(storedViews(3L)).isEqualTo(1L);
+		assertThat(counter.pending(1L)).isZero();
+
+		// Only the views since the last flush are added
+		counter.record(1L);
+		counter.flush();
+		assertThat(storedViews(1L)).isEqualTo(14L);
+		assertThat(counter.getStats()).containsEntry("flushes", 2L).containsEntry("viewsFlushed", 6L);
+	}
+
+	@Test
+	void keepsTheViewsOfARejectedFlushForTheNextOne() {
+		NewsViewCounter counter = newCounter();
+		counter.record(1L);
+		counter.record(1L);
+		jdbcTemplate.execute("DROP TABLE news_articles");
+
+		counter.flush();
+		assertThat(counter.pending(1L)).isEqualTo(2L);
+		assertThat(counter.getStats()).containsEntry("failedFlushes", 1L);
+
+		jdbcTemplate.execute(CREATE_TABLE);
+		jdbcTemplate.update("INSERT INTO news_articles VALUES (1, 10)");
+		counter.flush();
+		assertThat(storedViews(1L)).isEqualTo(12L);
+		assertThat(counter.pending(1L)).isZero();
+	}
+
+	@Test
+	void countsAVisitorsRepeatViewsOnce() {
+		NewsViewCounter counter = newCounter();
+		counter.record(1L, "203.0.113.7|Firefox");
+		counter.record(1L, "203.0.113.7|Firefox");
+		counter.record(2L, "203.0.113.7|Firefox");
+		counter.record(1L, "198.51.100.2|Safari");
+
+		assertThat(counter.pending(1L)).isEqualTo(2L);
+		assertThat(counter.pending(2L)).isEqualTo(1L);
+		assertThat(counter.getStats()).containsEntry("duplicatesSkipped", 1L);
+	}
+
+	@Test
+	void countsEveryViewWithDedupeOff() {
+		properties.setDedupeEnabled(false);
+		NewsViewCounter counter = newCounter();
+		counter.record(1L, "203.0.113.7|Firefox");
+		counter.record(1L, "203.0.113.7|Firefox");
+
+		assertThat(counter.pending(1L)).isEqualTo(2L);
+	}
+
+	@Test
+	void ranksMostViewedArticlesWithUnflushedViews() {
+		NewsArticle popular = article(1L, 100L);
+		NewsArticle trending = article(2L, 90L);
+		when(newsArticleRepository.findMostViewedArticles(any(Pageable.class))).thenReturn(List.of(popular));
+		when(newsArticleRepository.findAllById(List.of(2L))).thenReturn(List.of(trending));
+		NewsViewCounter counter = newCounter();
+		for (int i = 0; i < 20; i++) {
+			counter.record(2L);
+		}
+
+		assertThat(counter.findMostViewed(1)).containsExactly(trending);
+		assertThat(counter.viewCount(trending)).isEqualTo(110L);
+	}
+
+	@Test
+	void identifiesVisitorsWithoutASessionByAddressAndBrowser() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+		request.addHeader("User-Agent", "Firefox");
+		assertThat(NewsViewCounter.visitorKey(request)).isEqualTo("203.0.113.7|Firefox");
+
+		request.getSession(true);
+		assertThat(NewsViewCounter.visitorKey(request)).isEqualTo(request.getSession().getId());
+	}
+
+	private NewsViewCounter newCounter() {
+		return new NewsViewCounter(properties, jdbcTemplate, new DataSourceTransactionManager(dataSource),
+				newsArticleRepository);
+	}
+
+	private Long storedViews(Long id) {
+		return jdbcTemplate.queryForObject("SELECT view_count FROM news_articles WHERE id = ?", Long.class, id);
+	}
+
+	private static NewsArticle article(Long id, Long views) {
+		NewsArticle article = new NewsArticle();
+		article.setId(id);
+		article.setViewCount(views);
+		article.setStatus(NewsStatus.PUBLISHED);
+		return article;
+	}
+}
@@ -0,0 +1,67 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.dacsanviet.dao.OrderStatisticsDao;
+import com.dacsanviet.model.OrderStatus;
+import com.dacsanviet.repository.OrderRepository;
+
+/**
+ * Per-status order totals built from one grouped query
+ */
+public class OrderAnalyticsServiceTest {
+
+	private OrderRepository orderRepository;
+	private OrderAnalyticsService orderAnalyticsService;
+
+	@BeforeEach
+	void setUp() {
+		orderRepository = mock(OrderRepository.class);
+		orderAnalyticsService = new OrderAnalyticsService(orderRepository);
+	}
+
+	@Test
+	void statisticsComeFromASingleGroupedQuery() {
+		when(orderRepository.getOrderTotalsByStatus()).thenReturn(List.of(
+				new Object[] { OrderStatus.PENDING, 3L, new BigDecimal("300000") },
+				new Object[] { OrderStatus.DELIVERED, 2L, new BigDecimal("500000") },
+				new Object[] { OrderStatus.CANCELLED, 1L, new BigDecimal("90000") }));
+
+		OrderStatisticsDao stats = orderAnalyticsService.getOrderStatisticsSnapshot();
+
+		assertThat(stats.getTotalOrders()).isEqualTo(6L);
+		assertThat(stats.getPendingOrders()).isEqualTo(3L);
+		assertThat(stats.getConfirmedOrders()).isZero();
+		assertThat(stats.getCancelledOrders()).isEqualTo(1L);
+		assertThat(stats.getTotalRevenue()).isEqualByComparingTo("800000");
+		verify(orderRepository).getOrderTotalsByStatus();
+		verifyNoMoreInteractions(orderRepository);
+	}
+
+	@Test
+	void customerTotalsCoverEveryStatus() {
+		when(orderRepository.getOrderTotalsByStatusForUser(7L)).thenReturn(List.of(
+				new Object[] { OrderStatus.DELIVERED, 3L, new BigDecimal("250000") },
+				new Object[] { OrderStatus.CANCELLED, 1L, new BigDecimal("1000000") }));
+
+		Map<OrderStatus, OrderAnalyticsService.StatusTotals> totals = orderAnalyticsService
+				.getTotalsByStatusForUser(7L);
+
+		assertThat(totals).hasSize(OrderStatus.values().length);
+		assertThat(OrderAnalyticsService.countsByName(totals)).containsEntry("DELIVERED", 3L)
+				.containsEntry("SHIPPED", 0L);
+		assertThat(OrderAnalyticsService.revenue(totals)).isEqualByComparingTo("250000");
+		assertThat(OrderAnalyticsService.averageOrderValue(totals)).isEqualByComparingTo("83333.33");
+	}
+}
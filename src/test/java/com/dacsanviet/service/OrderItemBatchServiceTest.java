@@ -0,0 +1,82 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Order;
+import com.dacsanviet.model.OrderItem;
+import com.dacsanviet.model.Product;
+
+/**
+ * Batched order item inserts against a real (H2) database
+ */
+public class OrderItemBatchServiceTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private OrderItemBatchService orderItemBatchService;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:orderitems" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		orderItemBatchService = new OrderItemBatchService(jdbcTemplate);
+
+		jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_id BIGINT NOT NULL, "
+				+ "product_id BIGINT NOT NULL, quantity INT NOT NULL, unit_price DECIMAL(10,2) NOT NULL, "
+				+ "product_name VARCHAR(200) NOT NULL, product_description VARCHAR(2000), category_name VARCHAR(100), "
+				+ "product_image_url VARCHAR(500), created_at TIMESTAMP NOT NULL)");
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	void insertsAllItemsAndAssignsIds() {
+		Order order = new Order();
+		order.setId(42L);
+		OrderItem tea = new OrderItem(order, product(1L, "Trà Shan Tuyết"), 2, new BigDecimal("125000"));
+		OrderItem cake = new OrderItem(order, product(2L, "Bánh pía"), 1, new BigDecimal("89000"));
+
+		orderItemBatchService.insertAll(List.of(tea, cake));
+
+		assertThat(tea.getId()).isNotNull();
+		assertThat(cake.getId()).isGreaterThan(tea.getId());
+		assertThat(tea.getCreatedAt()).isNotNull();
+
+		List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+				"SELECT id, order_id, product_id, quantity, product_name, category_name FROM order_items ORDER BY id");
+		assertThat(rows).hasSize(2);
+		assertThat(rows.get(0)).containsEntry("ID", tea.getId()).containsEntry("ORDER_ID", 42L)
+				.containsEntry("PRODUCT_ID", 1L).containsEntry("QUANTITY", 2)
+				.containsEntry("PRODUCT_NAME", "Trà Shan Tuyết").containsEntry("CATEGORY_NAME", "Đặc sản");
+		assertThat(rows.get(1)).containsEntry("ID", cake.getId()).containsEntry("PRODUCT_ID", 2L);
+	}
+
+	@Test
+	void ignoresEmptyOrders() {
+		orderItemBatchService.insertAll(List.of());
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items", Integer.class)).isZero();
+	}
+
+	private Product product(Long id, String name) {
+		Category category = new Category();
+		category.setName("Đặc sản");
+		Product product = new Product(name, new BigDecimal("100000"), category);
+		product.setId(id);
+		return product;
+	}
+}
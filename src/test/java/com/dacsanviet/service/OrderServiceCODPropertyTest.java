@@ -2,14 +2,20 @@ package com.dacsanviet.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.dacsanviet.dao.OrderDao;
@@ -18,7 +24,6 @@ import com.dacsanviet.dto.UpdateOrderStatusRequest;
 import com.dacsanviet.model.CartItem;
 import com.dacsanviet.model.Category;
 import com.dacsanviet.model.Order;
-import com.dacsanviet.model.OrderItem;
 import com.dacsanviet.model.OrderStatus;
 import com.dacsanviet.model.PaymentStatus;
 import com.dacsanviet.model.Product;
@@ -51,6 +56,11 @@ public class OrderServiceCODPropertyTest {
 	private ProductRepository productRepository;
 	private NotificationService notificationService;
 	private EmailService emailService;
+	private StockAllocationService stockAllocationService;
+	private StockReservationService stockReservationService;
+	private OrderItemBatchService orderItemBatchService;
+	private SalesRollupService salesRollupService;
+	private OrderAnalyticsService orderAnalyticsService;
 	private OrderService orderService;
 
 	private void setupMocks() {
@@ -62,9 +72,17 @@ public class OrderServiceCODPropertyTest {
 		productRepository = mock(ProductRepository.class);
 		notificationService = mock(NotificationService.class);
 		emailService = mock(EmailService.class);
+		stockAllocationService = mock(StockAllocationService.class);
+		when(stockAllocationService.allocate(anyMap()))
+				.thenAnswer(invocation -> StockAllocationService.StockAllocation.success(invocation.getArgument(0)));
+		stockReservationService = mock(StockReservationService.class);
+		orderItemBatchService = mock(OrderItemBatchService.class);
+		salesRollupService = mock(SalesRollupService.class);
+		orderAnalyticsService = mock(OrderAnalyticsService.class);
 
 		orderService = new OrderService(orderRepository, orderItemRepository, cartItemRepository, userRepository,
-				addressRepository, productRepository, notificationService, emailService);
+				addressRepository, productRepository, notificationService, emailService, stockAllocationService,
+				stockReservationService, orderItemBatchService, salesRollupService, orderAnalyticsService);
 	}
 
 	/**
@@ -98,7 +116,7 @@ public class OrderServiceCODPropertyTest {
 		when(userRepository.findById(userId)).thenReturn(Optional.of(mockUser));
 		when(cartItemRepository.findByUserIdOrderByAddedDateDesc(userId)).thenReturn(cartItems);
 		when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
-		when(orderItemRepository.save(any(OrderItem.class))).thenReturn(new OrderItem());
+		when(productRepository.findAllByIdWithCategory(anyCollection())).thenReturn(List.of(mockProduct));
 
 		CreateOrderRequest request = new CreateOrderRequest();
 		request.setUserId(userId);
@@ -121,6 +139,16 @@ public class OrderServiceCODPropertyTest {
 
 		// Verify order was saved
 		verify(orderRepository).save(any(Order.class));
+
+		// Verify stock was taken atomically instead of saving the product
+		verify(stockAllocationService).allocate(Map.of(1L, quantity));
+		verifyNoInteractions(stockReservationService);
+
+		// Verify the items were written as one batch and returned with the order
+		verify(orderItemBatchService).insertAll(argThat(items -> items.size() == 1));
+		verify(salesRollupService).recordOrderPlaced(any(Order.class), eq(quantity));
+		assertThat(result.getOrderItems()).hasSize(1);
+		assertThat(result.getOrderItems().get(0).getQuantity()).isEqualTo(quantity);
 	}
 
 	/**
@@ -0,0 +1,112 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Outbound dispatch: ordering per destination, coalescing, after-commit delivery and the queue bound
+ */
+public class OutboundMessageDispatcherTest {
+
+	private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+	private final List<Runnable> tasks = new ArrayList<>();
+	private final OutboundMessageDispatcher dispatcher = new OutboundMessageDispatcher(messagingTemplate, 5,
+			tasks::add);
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void dispatchesEachDestinationInOrderWithOneTask() {
+		dispatcher.send("/topic/chat/chat_1", "a");
+		dispatcher.send("/topic/chat/chat_1", "b");
+		dispatcher.sendToUser("alice", "/queue/order-updates", "shipped");
+		dispatcher.send("/topic/chat/chat_1", "c");
+
+		assertThat(tasks).hasSize(2);
+		assertThat(dispatcher.getStats()).containsEntry("queueDepth", 4).containsEntry("pendingDestinations", 2);
+		runTasks();
+
+		InOrder order = inOrder(messagingTemplate);
+		order.verify(messagingTemplate).convertAndSend("/topic/chat/chat_1", (Object) "a");
+		order.verify(messagingTemplate).convertAndSend("/topic/chat/chat_1", (Object) "b");
+		order.verify(messagingTemplate).convertAndSend("/topic/chat/chat_1", (Object) "c");
+		verify(messagingTemplate).convertAndSendToUser("alice", "/queue/order-updates", "shipped");
+		assertThat(dispatcher.getStats()).containsEntry("queueDepth", 0).containsEntry("pendingDestinations", 0)
+				.containsEntry("dispatched", 4L);
+
+		// An emptied destination starts a new task for its next message
+		dispatcher.send("/topic/chat/chat_1", "d");
+		assertThat(tasks).hasSize(1);
+	}
+
+	@Test
+	void replacesAWaitingMessageWithTheSameKey() {
+		dispatcher.sendLatest("/topic/product/7/qa/like", "11", 1);
+		dispatcher.sendLatest("/topic/product/7/qa/like", "12", 5);
+		dispatcher.sendLatest("/topic/product/7/qa/like", "11", 2);
+		dispatcher.sendLatest("/topic/product/7/qa/like", "11", 3);
+		runTasks();
+
+		// The replacement goes behind the other key's message
+		InOrder order = inOrder(messagingTemplate);
+		order.verify(messagingTemplate).convertAndSend("/topic/product/7/qa/like", (Object) 5);
+		order.verify(messagingTemplate).convertAndSend("/topic/product/7/qa/like", (Object) 3);
+		assertThat(dispatcher.getStats()).containsEntry("dispatched", 2L).containsEntry("coalesced", 2L);
+	}
+
+	@Test
+	void sendsOnlyAfterTheTransactionCommits() {
+		TransactionSynchronizationManager.initSynchronization();
+		dispatcher.send("/topic/admin/new-message", "committed");
+		assertThat(tasks).isEmpty();
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		TransactionSynchronizationManager.clearSynchronization();
+		runTasks();
+		verify(messagingTemplate).convertAndSend("/topic/admin/new-message", (Object) "committed");
+
+		// A rolled back transaction never reaches afterCommit
+		TransactionSynchronizationManager.initSynchronization();
+		dispatcher.send("/topic/admin/new-message", "rolled back");
+		TransactionSynchronizationManager.clearSynchronization();
+		assertThat(tasks).isEmpty();
+		assertThat(dispatcher.getStats()).containsEntry("submitted", 2L).containsEntry("dispatched", 1L);
+	}
+
+	@Test
+	void dropsMessagesBeyondTheQueueBound() {
+		for (int i = 0; i < 7; i++) {
+			dispatcher.send("/topic/notifications", i);
+		}
+		assertThat(dispatcher.getStats()).containsEntry("queueDepth", 5).containsEntry("dropped", 2L);
+		verifyNoInteractions(messagingTemplate);
+
+		runTasks();
+		verify(messagingTemplate).convertAndSend("/topic/notifications", (Object) 4);
+		assertThat(dispatcher.getStats()).containsEntry("dispatched", 5L).containsEntry("maxQueueDepth", 5);
+	}
+
+	private void runTasks() {
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+	}
+}
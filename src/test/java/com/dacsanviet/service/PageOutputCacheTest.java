@@ -0,0 +1,147 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.dacsanviet.config.PageCacheProperties;
+
+/**
+ * Rendered page cache: storing tagged renders, tag eviction, stale renders, expiry and
+ * least recently used eviction
+ */
+public class PageOutputCacheTest {
+
+	private static final String HTML = "text/html;charset=UTF-8";
+
+	private final PageCacheProperties properties = new PageCacheProperties();
+	private final PageOutputCache cache = new PageOutputCache(properties);
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void storesTaggedPagesAndEvictsThemByTag() {
+		PageOutputCache.Capture capture = render("/products/7", PageOutputCache.productTag(7L),
+				PageOutputCache.categoryTag(3L));
+		PageOutputCache.CachedPage stored = cache.store("/products/7|vi", capture, HTML, body("<p>Trà</p>"));
+
+		PageOutputCache.CachedPage page = cache.get("/products/7|vi");
+		assertThat(page).isSameAs(stored);
+		assertThat(new String(page.getBody(), StandardCharsets.UTF_8)).isEqualTo("<p>Trà</p>");
+		assertThat(page.getEtag()).startsWith("\"").endsWith("\"");
+		assertThat(page.getTags()).contains(PageOutputCache.productTag(7L), PageOutputCache.CATEGORY_TREE_TAG);
+
+		cache.evictTags(PageOutputCache.categoryTag(3L));
+		assertThat(cache.get("/products/7|vi")).isNull();
+		assertThat(cache.getStats()).containsEntry("pages", 0).containsEntry("tags", 0).containsEntry("pagesEvicted", 1L);
+	}
+
+	@Test
+	void categoryTreeEvictionDropsEveryPage() {
+		cache.store("/|vi", render("/", PageOutputCache.PRODUCT_LIST_TAG), HTML, body("home"));
+		cache.store("/news|vi", render("/news", PageOutputCache.NEWS_LIST_TAG), HTML, body("news"));
+
+		cache.evictTags(PageOutputCache.CATEGORY_TREE_TAG);
+
+		assertThat(cache.get("/|vi")).isNull();
+		assertThat(cache.get("/news|vi")).isNull();
+	}
+
+	@Test
+	void doesNotStoreUntaggedPages() {
+		PageOutputCache.Capture capture = render("/products/404");
+		PageOutputCache.CachedPage page = cache.store("/products/404|vi", capture, HTML, body("error"));
+
+		assertThat(page).isNotNull();
+		assertThat(cache.get("/products/404|vi")).isNull();
+	}
+
+	@Test
+	void discardsARenderWhoseTagWasEvictedWhileRendering() {
+		PageOutputCache.Capture capture = render("/products/7", PageOutputCache.productTag(7L));
+		// Stock changed after the controller read the product
+		cache.evictProductStock(List.of(7L));
+		cache.store("/products/7|vi", capture, HTML, body("old stock"));
+
+		assertThat(cache.get("/products/7|vi")).isNull();
+		assertThat(cache.getStats()).containsEntry("staleRendersDiscarded", 1L);
+
+		// The next render starts after the eviction and is stored
+		cache.store("/products/7|vi", render("/products/7", PageOutputCache.productTag(7L)), HTML, body("new stock"));
+		assertThat(cache.get("/products/7|vi")).isNotNull();
+	}
+
+	@Test
+	void recordsTheViewedArticle() {
+		PageOutputCache.Capture capture = render("/news/tet", PageOutputCache.articleTag(5L));
+		PageOutputCache.countArticleView(5L);
+		cache.store("/news/tet|vi", capture, HTML, body("article"));
+
+		assertThat(cache.get("/news/tet|vi").getViewedArticleId()).isEqualTo(5L);
+		cache.evictArticle(5L);
+		assertThat(cache.get("/news/tet|vi")).isNull();
+	}
+
+	@Test
+	void expiresPages() {
+		properties.setTtlSeconds(-1);
+		cache.store("/|vi", render("/", PageOutputCache.PRODUCT_LIST_TAG), HTML, body("home"));
+		assertThat(cache.get("/|vi")).isNull();
+		assertThat(cache.getStats()).containsEntry("expired", 1L);
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedPageWhenFull() {
+		properties.setMaxEntries(2);
+		cache.store("/|vi", render("/", PageOutputCache.PRODUCT_LIST_TAG), HTML, body("home"));
+		cache.store("/news|vi", render("/news", PageOutputCache.NEWS_LIST_TAG), HTML, body("news"));
+		// The home page is read again after the news list was stored
+		assertThat(cache.get("/|vi")).isNotNull();
+
+		cache.store("/products|vi", render("/products", PageOutputCache.PRODUCT_LIST_TAG), HTML, body("products"));
+
+		assertThat(cache.get("/news|vi")).isNull();
+		assertThat(cache.get("/|vi")).isNotNull();
+		assertThat(cache.get("/products|vi")).isNotNull();
+		assertThat(cache.getStats()).containsEntry("pages", 2).containsEntry("leastRecentlyUsedEvicted", 1L);
+
+		// The evicted page no longer counts under its tag
+		cache.evictTags(PageOutputCache.NEWS_LIST_TAG);
+		assertThat(cache.getStats()).containsEntry("pagesEvicted", 0L);
+	}
+
+	@Test
+	void tagsAreIgnoredOutsideACapturedRequest() {
+		PageOutputCache.tag(PageOutputCache.PRODUCT_LIST_TAG);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		PageOutputCache.tag(PageOutputCache.PRODUCT_LIST_TAG);
+		PageOutputCache.countArticleView(1L);
+
+		assertThat(cache.getStats()).containsEntry("pages", 0);
+	}
+
+	/**
+	 * Start capturing a request and tag it as its controller would
+	 */
+	private PageOutputCache.Capture render(String uri, String... tags) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		PageOutputCache.Capture capture = cache.startCapture(request);
+		PageOutputCache.tag(tags);
+		return capture;
+	}
+
+	private static byte[] body(String html) {
+		return html.getBytes(StandardCharsets.UTF_8);
+	}
+}
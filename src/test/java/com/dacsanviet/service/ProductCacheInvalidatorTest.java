@@ -0,0 +1,153 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import com.dacsanviet.config.CacheKeys;
+import com.dacsanviet.config.DependencyTrackingCache;
+import com.dacsanviet.dao.ProductDao;
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Product;
+
+/**
+ * Product cache invalidation: a write evicts only the cached results it affects
+ */
+public class ProductCacheInvalidatorTest {
+
+	private static final Object MAM_FIRST_PAGE = CacheKeys.searchPage("mam", PageRequest.of(0, 12));
+	private static final Object MAM_SECOND_PAGE = CacheKeys.searchPage("mam", PageRequest.of(1, 12));
+	private static final Object TRA_FIRST_PAGE = CacheKeys.searchPage("tra", PageRequest.of(0, 12));
+	private static final Object FEATURED_FIRST_PAGE = CacheKeys.listPage(PageRequest.of(0, 8));
+
+	private Category sauces;
+	private Category teas;
+	private Cache search;
+	private Cache featured;
+	private Cache details;
+	private ProductCacheInvalidator invalidator;
+
+	@BeforeEach
+	void setUp() {
+		sauces = category(1L, "Gia vị");
+		teas = category(2L, "Trà đặc sản");
+		List<Cache> caches = new ArrayList<>();
+		for (String name : ProductCacheInvalidator.TRACKED_CACHES) {
+			caches.add(new DependencyTrackingCache(new ConcurrentMapCache(name), 0, key -> null, Runnable::run,
+					(key, value) -> ProductCacheInvalidator.dependencies(name, key, value)));
+		}
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(caches);
+		cacheManager.afterPropertiesSet();
+		search = cacheManager.getCache(ProductCacheInvalidator.SEARCH_RESULTS);
+		featured = cacheManager.getCache(ProductCacheInvalidator.FEATURED_PRODUCTS);
+		details = cacheManager.getCache(ProductCacheInvalidator.PRODUCT_DETAILS);
+		invalidator = new ProductCacheInvalidator(cacheManager);
+
+		search.put(MAM_FIRST_PAGE, page(dao(1L, sauces), dao(2L, sauces)));
+		search.put(MAM_SECOND_PAGE, page(dao(3L, sauces)));
+		search.put(TRA_FIRST_PAGE, page(dao(4L, teas)));
+		featured.put(FEATURED_FIRST_PAGE, page(dao(2L, sauces), dao(4L, teas)));
+		details.put(1L, dao(1L, sauces));
+		details.put(2L, dao(2L, sauces));
+	}
+
+	@Test
+	void aPriceEditEvictsOnlyEntriesContainingTheProduct() {
+		Product product = product(1L, "Nước mắm Phú Quốc", sauces);
+		ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
+		product.setPrice(new BigDecimal("120000"));
+		invalidator.productChanged(before, product);
+
+		assertThat(search.get(MAM_FIRST_PAGE)).isNull();
+		assertThat(search.get(MAM_SECOND_PAGE)).isNotNull();
+		assertThat(search.get(TRA_FIRST_PAGE)).isNotNull();
+		assertThat(featured.get(FEATURED_FIRST_PAGE)).isNotNull();
+		assertThat(details.get(1L)).isNull();
+		assertThat(details.get(2L)).isNotNull();
+		assertThat(invalidator.getStats()).containsEntry("targetedInvalidations", 1L).containsEntry("entriesEvicted", 2L);
+	}
+
+	@Test
+	void aRenameEvictsEveryPageOfTheQueriesItLeavesAndJoins() {
+		Product product = product(1L, "Nước mắm Phú Quốc", sauces);
+		ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
+		product.setName("Trà ướp sen");
+		product.setDescription(null);
+		invalidator.productChanged(before, product);
+
+		// The later "mam" page shifts as the product leaves the results
+		assertThat(search.get(MAM_FIRST_PAGE)).isNull();
+		assertThat(search.get(MAM_SECOND_PAGE)).isNull();
+		assertThat(search.get(TRA_FIRST_PAGE)).isNull();
+		assertThat(invalidator.getStats()).containsEntry("listingInvalidations", 1L);
+	}
+
+	@Test
+	void aNewProductEvictsOnlyTheQueriesItMatches() {
+		invalidator.productChanged(null, product(9L, "Trà sen Tây Hồ", teas));
+
+		assertThat(search.get(TRA_FIRST_PAGE)).isNull();
+		assertThat(search.get(MAM_FIRST_PAGE)).isNotNull();
+		// Not featured, so the featured pages are unchanged
+		assertThat(featured.get(FEATURED_FIRST_PAGE)).isNotNull();
+	}
+
+	@Test
+	void featuredPagesAreEvictedWhenAProductJoinsOrLeavesThem() {
+		Product product = product(1L, "Nước mắm Phú Quốc", sauces);
+		ProductCacheInvalidator.Listing before = ProductCacheInvalidator.Listing.of(product);
+		product.setIsFeatured(true);
+		invalidator.productChanged(before, product);
+
+		assertThat(featured.get(FEATURED_FIRST_PAGE)).isNull();
+		assertThat(search.get(TRA_FIRST_PAGE)).isNotNull();
+		assertThat(invalidator.getStats()).containsEntry("featuredListInvalidations", 1L);
+	}
+
+	@Test
+	void searchPagesDependOnTheirKeyword() {
+		Object key = CacheKeys.searchPage("mam_tom 0", PageRequest.of(2, 12));
+
+		assertThat(ProductCacheInvalidator.dependencies(ProductCacheInvalidator.SEARCH_RESULTS, key, page()))
+				.containsExactly("query:mam_tom 0");
+		assertThat(CacheKeys.searchPage(null, PageRequest.of(0, 12)).keyword()).isEmpty();
+	}
+
+	private static PageImpl<ProductDao> page(ProductDao... products) {
+		return new PageImpl<>(List.of(products));
+	}
+
+	private static ProductDao dao(Long id, Category category) {
+		ProductDao product = new ProductDao();
+		product.setId(id);
+		product.setCategoryId(category.getId());
+		return product;
+	}
+
+	private static Category category(Long id, String name) {
+		Category category = new Category();
+		category.setId(id);
+		category.setName(name);
+		return category;
+	}
+
+	private static Product product(Long id, String name, Category category) {
+		Product product = new Product(name, new BigDecimal("100000"), category);
+		product.setId(id);
+		product.setDescription("Đặc sản " + name);
+		product.setIsActive(true);
+		product.setIsFeatured(false);
+		return product;
+	}
+}
@@ -0,0 +1,166 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+
+/**
+ * Facet bitmaps: filter combinations, counts per facet value, sorting and updates
+ */
+public class ProductFacetIndexTest {
+
+	private Category sauces;
+	private Category teas;
+	private ProductRepository productRepository;
+	private ProductFacetIndex productFacetIndex;
+
+	@BeforeEach
+	void setUp() {
+		sauces = category(1L, "Gia vị");
+		teas = category(2L, "Trà đặc sản");
+		productRepository = mock(ProductRepository.class);
+		Product inactive = product(6L, "Nước mắm cũ", "45000", 500, 20, "Phú Quốc", sauces);
+		inactive.setIsActive(false);
+		Product featured = product(3L, "Trà Shan Tuyết cổ thụ", "350000", 200, 0, "Hà Giang", teas);
+		featured.setIsFeatured(true);
+		when(productRepository.findAllWithCategory()).thenReturn(List.of(
+				product(1L, "Nước mắm Phú Quốc 40 độ đạm", "120000", 500, 30, "Phú Quốc", sauces),
+				product(2L, "Mắm tôm Thanh Hóa", "45000", 250, 5, "Thanh Hóa", sauces),
+				featured,
+				product(4L, "Nước tương nấm", "38000", 1000, 0, "phu quoc", sauces),
+				product(5L, "Trà sen Tây Hồ", "180000", null, 12, "Hà Nội", teas),
+				inactive));
+		productFacetIndex = new ProductFacetIndex(productRepository);
+		productFacetIndex.reload();
+	}
+
+	@Test
+	void combinesFiltersAndCountsEachFacetWithoutItsOwnFilter() {
+		ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter();
+		filter.setCategoryId(sauces.getId());
+		filter.setStockStatus(ProductFacetIndex.StockStatus.IN_STOCK);
+
+		ProductFacetIndex.Result result = productFacetIndex.query(filter, byName());
+		assertThat(result.getIds()).containsExactly(2L, 1L);
+		assertThat(result.getTotal()).isEqualTo(2);
+
+		ProductFacetIndex.Facets facets = result.getFacets();
+		// Other categories count as if the category filter were not set
+		assertThat(facets.getCategories()).containsEntry(1L, 2).containsEntry(2L, 1);
+		assertThat(facets.getStockStatuses()).containsEntry(ProductFacetIndex.StockStatus.IN_STOCK, 2)
+				.containsEntry(ProductFacetIndex.StockStatus.LOW_STOCK, 1)
+				.containsEntry(ProductFacetIndex.StockStatus.OUT_OF_STOCK, 1);
+		assertThat(facets.getPriceRanges()).containsEntry(ProductFacetIndex.PriceRange.UNDER_50K, 1)
+				.containsEntry(ProductFacetIndex.PriceRange.FROM_100K_TO_200K, 1)
+				.containsEntry(ProductFacetIndex.PriceRange.OVER_200K, 0);
+		assertThat(facets.getWeightRanges()).containsEntry(ProductFacetIndex.WeightRange.FROM_250G_TO_500G, 1)
+				.containsEntry(ProductFacetIndex.WeightRange.FROM_500G_TO_1KG, 1);
+	}
+
+	@Test
+	void originsMatchWithoutDiacriticsAndInactiveProductsAreHidden() {
+		ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter();
+		filter.setOrigin("phu quoc");
+		assertThat(productFacetIndex.query(filter, byName()).getIds()).containsExactly(1L, 4L);
+		assertThat(productFacetIndex.query(new ProductFacetIndex.Filter(), byName()).getFacets().getOrigins())
+				.containsExactly(Map.entry("Phú Quốc", 2), Map.entry("Hà Giang", 1), Map.entry("Hà Nội", 1),
+						Map.entry("Thanh Hóa", 1));
+
+		filter.setIncludeInactive(true);
+		assertThat(productFacetIndex.query(filter, byName()).getIds()).containsExactly(6L, 1L, 4L);
+	}
+
+	@Test
+	void sortsPagesAndKeepsCandidateOrder() {
+		ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter();
+		ProductFacetIndex.Result byPrice = productFacetIndex.query(filter,
+				PageRequest.of(0, 2, Sort.by("price").descending()));
+		assertThat(byPrice.getIds()).containsExactly(3L, 5L);
+		assertThat(byPrice.getTotal()).isEqualTo(5);
+		assertThat(productFacetIndex.query(filter, PageRequest.of(1, 2, Sort.by("stockQuantity"))).getIds())
+				.containsExactly(2L, 5L);
+
+		filter.setCandidateIds(List.of(5L, 6L, 3L, 99L));
+		filter.setFeatured(false);
+		assertThat(productFacetIndex.query(filter, PageRequest.of(0, 10)).getIds()).containsExactly(5L, 3L);
+
+		assertThatThrownBy(() -> productFacetIndex.query(filter, PageRequest.of(0, 10, Sort.by("supplier"))))
+				.hasMessageContaining("supplier");
+	}
+
+	@Test
+	void appliesProductEditsAndStockMovements() {
+		ProductFacetIndex.Filter outOfStock = new ProductFacetIndex.Filter();
+		outOfStock.setStockStatus(ProductFacetIndex.StockStatus.OUT_OF_STOCK);
+		assertThat(productFacetIndex.query(outOfStock, byName()).getIds()).containsExactly(4L, 3L);
+
+		productFacetIndex.adjustStock(Map.of(4L, 3, 1L, -30));
+		assertThat(productFacetIndex.query(outOfStock, byName()).getIds()).containsExactly(1L, 3L);
+
+		Product renamed = product(3L, "Trà Ô Long", "350000", 200, 8, "Lâm Đồng", teas);
+		productFacetIndex.index(renamed);
+		assertThat(productFacetIndex.query(outOfStock, byName()).getIds()).containsExactly(1L);
+		ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter();
+		filter.setOrigin("Hà Giang");
+		assertThat(productFacetIndex.query(filter, byName()).getTotal()).isZero();
+		filter.setOrigin("lam dong");
+		assertThat(productFacetIndex.query(filter, byName()).getIds()).containsExactly(3L);
+		assertThat(productFacetIndex.getStats()).containsEntry("products", 6).containsEntry("slots", 7);
+	}
+
+	@Test
+	void keepsChangesCommittedWhileReloading() {
+		List<Product> catalogue = productRepository.findAllWithCategory();
+		// Stock for product 1 and a new product commit after the reload has read its rows
+		when(productRepository.findAllWithCategory()).thenAnswer(invocation -> {
+			productFacetIndex.adjustStock(Map.of(1L, -30));
+			productFacetIndex.index(product(7L, "Kẹo dừa Bến Tre", "60000", 300, 40, "Bến Tre", sauces));
+			return catalogue;
+		});
+
+		productFacetIndex.reload();
+
+		ProductFacetIndex.Filter outOfStock = new ProductFacetIndex.Filter();
+		outOfStock.setStockStatus(ProductFacetIndex.StockStatus.OUT_OF_STOCK);
+		assertThat(productFacetIndex.query(outOfStock, byName()).getIds()).containsExactly(1L, 4L, 3L);
+		ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter();
+		filter.setOrigin("ben tre");
+		assertThat(productFacetIndex.query(filter, byName()).getIds()).containsExactly(7L);
+	}
+
+	private Pageable byName() {
+		return PageRequest.of(0, 20, Sort.by("name"));
+	}
+
+	private Category category(Long id, String name) {
+		Category category = new Category();
+		category.setId(id);
+		category.setName(name);
+		return category;
+	}
+
+	private Product product(Long id, String name, String price, Integer weightGrams, int stock, String origin,
+			Category category) {
+		Product product = new Product(name, new BigDecimal(price), category);
+		product.setId(id);
+		product.setWeightGrams(weightGrams);
+		product.setStockQuantity(stock);
+		product.setOrigin(origin);
+		return product;
+	}
+}
@@ -0,0 +1,139 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+import com.dacsanviet.util.VietnameseTextUtils;
+
+/**
+ * In-memory product search: diacritic folding, prefix matching, BM25 ranking and updates
+ */
+public class ProductSearchIndexTest {
+
+	private Category sauces;
+	private Category teas;
+	private ProductRepository productRepository;
+	private ProductSearchIndex productSearchIndex;
+
+	@BeforeEach
+	void setUp() {
+		sauces = category(1L, "Gia vị");
+		teas = category(2L, "Trà đặc sản");
+		productRepository = mock(ProductRepository.class);
+		when(productRepository.findAllActiveWithCategory()).thenReturn(List.of(
+				product(1L, "Nước mắm Phú Quốc 40 độ đạm", "Nước mắm truyền thống ủ chượp 12 tháng", "Phú Quốc", sauces),
+				product(2L, "Mắm tôm Thanh Hóa", "Mắm tôm đặc sánh, dùng với bún đậu", "Thanh Hóa", sauces),
+				product(3L, "Trà Shan Tuyết cổ thụ", "Trà búp từ cây cổ thụ trên núi cao, hợp pha với nước sôi",
+						"Hà Giang", teas),
+				product(4L, "Nước tương nấm", "Nước tương làm từ nấm hương", "Đà Lạt", sauces)));
+		productSearchIndex = new ProductSearchIndex(productRepository);
+		productSearchIndex.reload();
+	}
+
+	@Test
+	void foldsVietnameseDiacritics() {
+		assertThat(VietnameseTextUtils.fold("Nước Mắm ĐẶC BIỆT")).isEqualTo("nuoc mam dac biet");
+		assertThat(VietnameseTextUtils.tokenize("Trà Shan-Tuyết, 500g")).containsExactly("tra", "shan", "tuyet", "500g");
+	}
+
+	@Test
+	void unaccentedQueryMatchesAccentedProducts() {
+		assertThat(productSearchIndex.isReady()).isTrue();
+		assertThat(productSearchIndex.search("nuoc mam", null)).startsWith(1L);
+		assertThat(productSearchIndex.search("NƯỚC MẮM", null)).startsWith(1L);
+		assertThat(productSearchIndex.search("shan tuyet", null)).containsExactly(3L);
+		assertThat(productSearchIndex.search("sushi", null)).isEmpty();
+	}
+
+	@Test
+	void everyWordMustMatchAndTheLastOneMayBeAPrefix() {
+		assertThat(productSearchIndex.search("mam tom", null)).containsExactly(2L);
+		assertThat(productSearchIndex.search("phu quo", null)).containsExactly(1L);
+		// A finished word is not a prefix
+		assertThat(productSearchIndex.search("phu quo ", null)).isEmpty();
+	}
+
+	@Test
+	void nameMatchesOutrankDescriptionMatches() {
+		// Product 3 mentions "nước" once in its description; the others have it in the name
+		List<Long> hits = productSearchIndex.search("nuoc", null);
+		assertThat(hits).containsExactlyInAnyOrder(1L, 3L, 4L);
+		assertThat(hits.get(2)).isEqualTo(3L);
+	}
+
+	@Test
+	void filtersByCategory() {
+		assertThat(productSearchIndex.search("nuoc", teas.getId())).containsExactly(3L);
+		assertThat(productSearchIndex.search("nuoc", sauces.getId())).containsExactlyInAnyOrder(1L, 4L);
+	}
+
+	@Test
+	void productChangesAreAppliedIncrementally() {
+		Product renamed = product(4L, "Xì dầu nấm hương", "Làm từ nấm hương Đà Lạt", "Đà Lạt", sauces);
+		productSearchIndex.index(renamed);
+		assertThat(productSearchIndex.search("nuoc tuong", null)).isEmpty();
+		assertThat(productSearchIndex.search("xi dau", null)).containsExactly(4L);
+
+		renamed.setIsActive(false);
+		productSearchIndex.index(renamed);
+		assertThat(productSearchIndex.search("xi dau", null)).isEmpty();
+
+		productSearchIndex.remove(1L);
+		assertThat(productSearchIndex.search("phu quoc", null)).isEmpty();
+		assertThat(productSearchIndex.getStats()).containsEntry("documents", 2);
+	}
+
+	@Test
+	void keepsChangesCommittedWhileReloading() {
+		List<Product> catalogue = productRepository.findAllActiveWithCategory();
+		when(productRepository.findAllActiveWithCategory()).thenAnswer(invocation -> {
+			productSearchIndex.remove(2L);
+			productSearchIndex.index(product(5L, "Kẹo dừa Bến Tre", "Kẹo dừa sáp", "Bến Tre", sauces));
+			return catalogue;
+		});
+
+		productSearchIndex.reload();
+
+		assertThat(productSearchIndex.search("mam tom", null)).isEmpty();
+		assertThat(productSearchIndex.search("keo dua", null)).containsExactly(5L);
+		assertThat(productSearchIndex.getStats()).containsEntry("documents", 4);
+	}
+
+	@Test
+	void matchesAgreesWithSearch() {
+		Product product = product(5L, "Mắm tôm Thanh Hóa", "Dùng với bún đậu", "Thanh Hóa", sauces);
+		Set<String> terms = ProductSearchIndex.terms(product);
+
+		assertThat(ProductSearchIndex.matches("mam tom", terms)).isTrue();
+		assertThat(ProductSearchIndex.matches("gia vi thanh ho", terms)).isTrue();
+		assertThat(ProductSearchIndex.matches("thanh ho ", terms)).isFalse();
+		assertThat(ProductSearchIndex.matches("nuoc mam", terms)).isFalse();
+		assertThat(ProductSearchIndex.matches("", terms)).isTrue();
+	}
+
+	private Category category(Long id, String name) {
+		Category category = new Category();
+		category.setId(id);
+		category.setName(name);
+		return category;
+	}
+
+	private Product product(Long id, String name, String description, String origin, Category category) {
+		Product product = new Product(name, new BigDecimal("100000"), category);
+		product.setId(id);
+		product.setDescription(description);
+		product.setOrigin(origin);
+		return product;
+	}
+}
@@ -0,0 +1,116 @@
+package com.dacsanviet.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+
+/**
+ * Suggestion lookups over a synthetic catalogue of 10k products (names drawn from
+ * Vietnamese specialty words, 40 categories, 63 origins), for exact prefixes as typed
+ * keystroke by keystroke and for queries with one typo. Sample mode reports the p99.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath com.dacsanviet.service.ProductSuggestBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSuggestBenchmark {
+
+	private static final String[] KINDS = { "Nước mắm", "Mắm tôm", "Trà", "Cà phê", "Bánh pía", "Bánh đậu xanh",
+			"Kẹo dừa", "Mật ong", "Nem chua", "Chả cá", "Lạp xưởng", "Mứt gừng", "Khô bò", "Tương ớt", "Hạt điều",
+			"Tiêu đen", "Gạo tám", "Rượu cần", "Bưởi da xanh", "Yến sào" };
+	private static final String[] QUALITIES = { "đặc biệt", "truyền thống", "thượng hạng", "hảo hạng", "loại 1",
+			"nguyên chất", "hữu cơ", "gia truyền", "cao cấp", "thủ công" };
+	private static final String[] ORIGINS = { "Phú Quốc", "Thanh Hóa", "Hà Giang", "Đà Lạt", "Bến Tre", "Sóc Trăng",
+			"Huế", "Nghệ An", "Buôn Ma Thuột", "Cà Mau", "Hải Dương", "Bình Phước", "Lạng Sơn", "Khánh Hòa",
+			"Quảng Nam", "Thái Nguyên", "Hưng Yên", "Vĩnh Long", "Cao Bằng", "Phú Yên", "Ninh Thuận" };
+	private static final String[] SIZES = { "100g", "200g", "250g", "500g", "1kg", "chai 500ml", "hộp quà", "túi zip" };
+
+	private static final String[] PREFIXES = { "n", "nu", "nuo", "nuoc", "nuoc m", "nuoc mam p", "b", "ba", "ban",
+			"banh p", "banh pia soc", "tr", "tra", "tra thai ng", "mat ong", "yen s", "kho bo", "hat di" };
+	private static final String[] TYPOS = { "nuco mam", "nuoc man", "bahn pia", "banh pja", "trra", "ca phe buon mw",
+			"mat omg", "yne sao", "khoo bo", "hat dieeu", "lap xuong", "mut gung" };
+
+	@Param({ "10000" })
+	int products;
+
+	private ProductSuggestIndex productSuggestIndex;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		List<Category> categories = new ArrayList<>();
+		for (long id = 1; id <= 40; id++) {
+			Category category = new Category();
+			category.setId(id);
+			category.setName(KINDS[(int) (id - 1) % KINDS.length] + (id > KINDS.length ? " quà biếu" : ""));
+			categories.add(category);
+		}
+		List<Product> catalogue = new ArrayList<>(products);
+		for (long id = 1; id <= products; id++) {
+			String origin = ORIGINS[random.nextInt(ORIGINS.length)] + (random.nextInt(3) == 0 ? " " + id % 3 : "");
+			String name = KINDS[random.nextInt(KINDS.length)] + " " + origin + " "
+					+ QUALITIES[random.nextInt(QUALITIES.length)] + " " + SIZES[random.nextInt(SIZES.length)];
+			Product product = new Product(name, new BigDecimal("100000"), categories.get(random.nextInt(40)));
+			product.setId(id);
+			product.setOrigin(origin);
+			product.setIsFeatured(random.nextInt(20) == 0);
+			catalogue.add(product);
+		}
+		ProductRepository productRepository = mock(ProductRepository.class);
+		when(productRepository.findAllActiveWithCategory()).thenReturn(catalogue);
+		productSuggestIndex = new ProductSuggestIndex(productRepository);
+		productSuggestIndex.reload();
+		System.out.println("\nSuggestion trie: " + productSuggestIndex.getStats());
+	}
+
+	@Benchmark
+	public Object prefix() {
+		return productSuggestIndex.suggest(PREFIXES[next++ % PREFIXES.length], ProductSuggestIndex.DEFAULT_LIMIT);
+	}
+
+	@Benchmark
+	public Object oneTypo() {
+		return productSuggestIndex.suggest(TYPOS[next++ % TYPOS.length], ProductSuggestIndex.DEFAULT_LIMIT);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(ProductSuggestBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,157 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.ProductRepository;
+
+/**
+ * Suggestion trie: word-position prefixes, one-typo tolerance, ranking and rebuilds
+ */
+public class ProductSuggestIndexTest {
+
+	private Category sauces;
+	private Category teas;
+	private ProductSuggestIndex productSuggestIndex;
+
+	@BeforeEach
+	void setUp() {
+		sauces = category(1L, "Gia vị");
+		teas = category(2L, "Trà đặc sản");
+		ProductRepository productRepository = mock(ProductRepository.class);
+		when(productRepository.findAllActiveWithCategory()).thenReturn(List.of(
+				product(1L, "Nước mắm Phú Quốc 40 độ đạm", "Phú Quốc", sauces),
+				product(2L, "Mắm tôm Thanh Hóa", "Thanh Hóa", sauces),
+				product(3L, "Trà Shan Tuyết cổ thụ", "Hà Giang", teas),
+				product(4L, "Nước tương nấm", "Đà Lạt", sauces),
+				product(5L, "Trà sen Tây Hồ", "Hà Nội", teas)));
+		// Rebuild on the calling thread so changes are visible immediately
+		productSuggestIndex = new ProductSuggestIndex(productRepository, Runnable::run);
+		productSuggestIndex.reload();
+	}
+
+	@Test
+	void suggestsFromAnyWordOfTheName() {
+		assertThat(texts("nuoc m")).startsWith("Nước mắm Phú Quốc 40 độ đạm");
+		assertThat(texts("tuyet")).containsExactly("Trà Shan Tuyết cổ thụ");
+		// Whole-name matches come before matches further into a name
+		assertThat(texts("mam")).startsWith("Mắm tôm Thanh Hóa", "Nước mắm Phú Quốc 40 độ đạm");
+		assertThat(texts("sushi")).isEmpty();
+		assertThat(texts("  ")).isEmpty();
+	}
+
+	@Test
+	void suggestsCategoriesAndOriginsByProductCount() {
+		List<ProductSuggestIndex.Suggestion> suggestions = productSuggestIndex.suggest("tra", 10);
+		assertThat(suggestions.get(0).getType()).isEqualTo(ProductSuggestIndex.Suggestion.Type.CATEGORY);
+		assertThat(suggestions.get(0).getId()).isEqualTo(2L);
+		assertThat(texts("phu quoc")).containsExactly("Phú Quốc", "Nước mắm Phú Quốc 40 độ đạm");
+		assertThat(productSuggestIndex.suggest("thanh hoa", 10).get(0).getType())
+				.isEqualTo(ProductSuggestIndex.Suggestion.Type.ORIGIN);
+	}
+
+	@Test
+	void toleratesOneTypo() {
+		// Wrong, extra, missing and swapped letter
+		assertThat(texts("tuong")).contains("Nước tương nấm");
+		assertThat(texts("tuobg")).contains("Nước tương nấm");
+		assertThat(texts("tuoong")).contains("Nước tương nấm");
+		assertThat(texts("tong nam")).contains("Nước tương nấm");
+		assertThat(texts("tuogn")).contains("Nước tương nấm");
+		assertThat(texts("shna tuyet")).containsExactly("Trà Shan Tuyết cổ thụ");
+		// Two typos are too many, and short queries must be exact
+		assertThat(texts("tobng")).doesNotContain("Nước tương nấm");
+		assertThat(texts("xa")).isEmpty();
+	}
+
+	@Test
+	void exactMatchesOutrankTypoMatches() {
+		// "sen" is one letter away from "san" and "shan" as well
+		assertThat(texts("sen").get(0)).isEqualTo("Trà sen Tây Hồ");
+		assertThat(texts("nam")).startsWith("Nước tương nấm");
+	}
+
+	@Test
+	void productChangesRebuildTheTrie() {
+		Product renamed = product(4L, "Xì dầu nấm hương", "Đà Lạt", sauces);
+		productSuggestIndex.index(renamed);
+		assertThat(texts("nuoc tuong")).isEmpty();
+		assertThat(texts("xi dau")).containsExactly("Xì dầu nấm hương");
+
+		renamed.setIsActive(false);
+		productSuggestIndex.index(renamed);
+		assertThat(texts("xi dau")).isEmpty();
+		assertThat(texts("da lat")).isEmpty();
+
+		productSuggestIndex.remove(5L);
+		assertThat(texts("tay ho")).isEmpty();
+		assertThat(productSuggestIndex.getStats()).containsEntry("rebuilds", 4L);
+	}
+
+	@Test
+	void keepsChangesCommittedWhileReloading() {
+		ProductRepository productRepository = mock(ProductRepository.class);
+		List<Product> catalogue = List.of(product(1L, "Nước mắm Phú Quốc 40 độ đạm", "Phú Quốc", sauces),
+				product(2L, "Mắm tôm Thanh Hóa", "Thanh Hóa", sauces));
+		ProductSuggestIndex reloading = new ProductSuggestIndex(productRepository, Runnable::run);
+		when(productRepository.findAllActiveWithCategory()).thenAnswer(invocation -> {
+			reloading.remove(2L);
+			reloading.index(product(3L, "Trà Shan Tuyết cổ thụ", "Hà Giang", teas));
+			return catalogue;
+		});
+
+		reloading.reload();
+
+		assertThat(reloading.suggest("mam tom", 10)).isEmpty();
+		assertThat(reloading.suggest("tuyet", 10)).extracting(ProductSuggestIndex.Suggestion::getId)
+				.containsExactly(3L);
+	}
+
+	@Test
+	void respectsTheLimitOnLargeCatalogues() {
+		List<Product> products = new ArrayList<>();
+		for (long id = 1; id <= 500; id++) {
+			products.add(product(id, "Bánh pía số " + id, "Sóc Trăng", sauces));
+		}
+		ProductRepository productRepository = mock(ProductRepository.class);
+		when(productRepository.findAllActiveWithCategory()).thenReturn(products);
+		ProductSuggestIndex large = new ProductSuggestIndex(productRepository, Runnable::run);
+		large.reload();
+
+		assertThat(large.suggest("banh", 50)).hasSize(ProductSuggestIndex.MAX_LIMIT);
+		assertThat(large.suggest("banh pia so 42", 5)).extracting(ProductSuggestIndex.Suggestion::getId)
+				.startsWith(42L);
+	}
+
+	private List<String> texts(String query) {
+		List<String> texts = new ArrayList<>();
+		for (ProductSuggestIndex.Suggestion suggestion : productSuggestIndex.suggest(query, 10)) {
+			texts.add(suggestion.getText());
+		}
+		return texts;
+	}
+
+	private Category category(Long id, String name) {
+		Category category = new Category();
+		category.setId(id);
+		category.setName(name);
+		return category;
+	}
+
+	private Product product(Long id, String name, String origin, Category category) {
+		Product product = new Product(name, new BigDecimal("100000"), category);
+		product.setId(id);
+		product.setOrigin(origin);
+		return product;
+	}
+}
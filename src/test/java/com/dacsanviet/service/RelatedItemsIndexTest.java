@@ -0,0 +1,142 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+
+import com.dacsanviet.config.RecommendationProperties;
+import com.dacsanviet.model.Category;
+import com.dacsanviet.model.Product;
+import com.dacsanviet.repository.NewsArticleRepository;
+import com.dacsanviet.repository.OrderItemRepository;
+import com.dacsanviet.repository.ProductRepository;
+
+/**
+ * Precomputed related items: shared words, category, bought together, the tie break and
+ * page cache eviction of the lists that changed
+ */
+public class RelatedItemsIndexTest {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 20, 8, 0);
+
+	private List<Product> products;
+	private PageOutputCache pageOutputCache;
+	private RecommendationProperties properties;
+	private RelatedItemsIndex relatedItemsIndex;
+
+	@BeforeEach
+	void setUp() {
+		Category sauces = category(1L, "Gia vị");
+		Category teas = category(2L, "Trà");
+		Category sweets = category(3L, "Bánh kẹo");
+		products = new ArrayList<>(List.of(
+				product(1L, "Nước mắm Phú Quốc", "<p>Nước mắm cá cơm ủ chượp</p>", "Phú Quốc", sauces),
+				product(2L, "Nước mắm Nha Trang", "<p>Nước mắm cá cơm nhĩ</p>", "Khánh Hòa", sauces),
+				product(3L, "Mắm tôm Thanh Hóa", "<p>Mắm tôm đặc sánh</p>", "Thanh Hóa", sauces),
+				product(4L, "Trà Shan Tuyết", "<p>Trà búp cổ thụ</p>", "Hà Giang", teas),
+				product(5L, "Trà Thái Nguyên", "<p>Trà móc câu</p>", "Thái Nguyên", teas),
+				product(6L, "Kẹo dừa Bến Tre", "<p>Kẹo dừa sáp</p>", "Bến Tre", sweets)));
+		ProductRepository productRepository = mock(ProductRepository.class);
+		when(productRepository.findAllActiveWithCategory()).thenAnswer(invocation -> products);
+
+		NewsArticleRepository newsArticleRepository = mock(NewsArticleRepository.class);
+		when(newsArticleRepository.findPublishedForRelated(eq(0L), any(Pageable.class))).thenReturn(List.of(
+				row(10L, "Mùa nước mắm", "Nhà thùng vào vụ", "<p>Nước mắm ủ chượp</p>", 1L, NOW.minusDays(5)),
+				row(11L, "Nước mắm Phú Quốc", "Cá cơm và muối", "<p>Nước mắm nhĩ</p>", 1L, NOW.minusDays(4)),
+				row(12L, "Tết ở Hà Giang", "Chợ phiên vùng cao", "<p>Bánh chưng đen</p>", 1L, NOW.minusDays(1)),
+				row(13L, "Trà Shan Tuyết", "Cây chè cổ thụ", "<p>Búp trà</p>", 2L, NOW.minusDays(2)),
+				row(14L, "Vải thiều Lục Ngạn", "Mùa vải chín", "<p>Vườn vải</p>", 2L, NOW.minusDays(9))));
+
+		// Orders 100 and 101 hold fish sauce and coconut candy; product 99 is not active
+		OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+		when(orderItemRepository.findOrderProductsSince(any(LocalDateTime.class))).thenReturn(List.of(
+				new Object[] { 100L, 1L }, new Object[] { 100L, 6L }, new Object[] { 101L, 1L },
+				new Object[] { 101L, 6L }, new Object[] { 102L, 3L }, new Object[] { 102L, 99L }));
+
+		pageOutputCache = mock(PageOutputCache.class);
+		properties = new RecommendationProperties();
+		relatedItemsIndex = new RelatedItemsIndex(productRepository, newsArticleRepository, orderItemRepository,
+				pageOutputCache, properties);
+		relatedItemsIndex.rebuild();
+	}
+
+	@Test
+	void sharedWordsInTheSameCategoryComeFirst() {
+		assertThat(relatedItemsIndex.relatedProducts(2L)).containsExactly(1L, 3L);
+		assertThat(relatedItemsIndex.relatedProducts(4L)).containsExactly(5L);
+		assertThat(relatedItemsIndex.relatedArticles(11L)).startsWith(10L);
+	}
+
+	@Test
+	void productsBoughtTogetherAreRelatedAcrossCategories() {
+		assertThat(relatedItemsIndex.relatedProducts(1L)).containsExactly(2L, 6L, 3L);
+		assertThat(relatedItemsIndex.relatedProducts(6L)).containsExactly(1L);
+	}
+
+	@Test
+	void categoryFillsInNewestFirstWithoutSharedWords() {
+		assertThat(relatedItemsIndex.relatedArticles(12L)).containsExactly(11L, 10L);
+		assertThat(relatedItemsIndex.relatedArticles(13L)).containsExactly(14L);
+	}
+
+	@Test
+	void keepsTheConfiguredNumberOfItems() {
+		properties.setLimit(1);
+		relatedItemsIndex.rebuild();
+
+		assertThat(relatedItemsIndex.relatedProducts(1L)).containsExactly(2L);
+		assertThat(relatedItemsIndex.relatedProducts(99L)).isEmpty();
+		assertThat(relatedItemsIndex.getStats()).containsEntry("products", 6).containsEntry("misses", 1L);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void evictsThePagesWhoseRelatedItemsChanged() {
+		ArgumentCaptor<Collection<Long>> productIds = ArgumentCaptor.forClass(Collection.class);
+		ArgumentCaptor<Collection<Long>> articleIds = ArgumentCaptor.forClass(Collection.class);
+
+		products.remove(2);
+		relatedItemsIndex.rebuild();
+
+		// The first build evicted every item; this one only the lists that held product 3
+		verify(pageOutputCache, times(2)).evictRelated(productIds.capture(), articleIds.capture());
+		assertThat(productIds.getValue()).containsExactlyInAnyOrder(1L, 2L, 3L);
+		assertThat(articleIds.getValue()).isEmpty();
+		assertThat(relatedItemsIndex.relatedProducts(3L)).isEmpty();
+	}
+
+	private static Object[] row(Long id, String title, String excerpt, String content, Long categoryId,
+			LocalDateTime publishedAt) {
+		return new Object[] { id, title, excerpt, content, categoryId, publishedAt };
+	}
+
+	private static Category category(Long id, String name) {
+		Category category = new Category();
+		category.setId(id);
+		category.setName(name);
+		return category;
+	}
+
+	private static Product product(Long id, String name, String description, String origin, Category category) {
+		Product product = new Product(name, new BigDecimal("100000"), category);
+		product.setId(id);
+		product.setDescription(description);
+		product.setOrigin(origin);
+		return product;
+	}
+}
@@ -0,0 +1,175 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dacsanviet.config.SalesRollupProperties;
+import com.dacsanviet.model.Order;
+import com.dacsanviet.model.OrderStatus;
+import com.dacsanviet.model.User;
+
+/**
+ * Daily sales rollup against a real (H2) database: increments, status moves and rebuilds
+ */
+public class SalesRollupServiceTest {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 3, 14);
+
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private SalesRollupService salesRollupService;
+	private long nextOrderId = 1;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:rollup" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		salesRollupService = new SalesRollupService(jdbcTemplate, new SalesRollupProperties(), transactionManager,
+				Runnable::run);
+
+		jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id BIGINT, customer_email VARCHAR(100), "
+				+ "status VARCHAR(20) NOT NULL, total_amount DECIMAL(12,2) NOT NULL, order_date TIMESTAMP NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_id BIGINT NOT NULL, "
+				+ "quantity INT NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE daily_sales_rollup (sales_date DATE NOT NULL, status VARCHAR(20) NOT NULL, "
+				+ "order_count INT DEFAULT 0 NOT NULL, revenue DECIMAL(14,2) DEFAULT 0 NOT NULL, "
+				+ "items_sold INT DEFAULT 0 NOT NULL, new_customers INT DEFAULT 0 NOT NULL, "
+				+ "updated_at TIMESTAMP NOT NULL, PRIMARY KEY (sales_date, status))");
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	void placedOrdersAreCountedPerDayAndStatus() {
+		place(7L, null, OrderStatus.PENDING, "250000", DAY.atTime(9, 0), 3);
+		place(7L, null, OrderStatus.PENDING, "100000", DAY.atTime(10, 0), 1);
+		place(null, "khach@example.com", OrderStatus.PROCESSING, "80000", DAY.atTime(11, 0), 2);
+
+		Map<OrderStatus, SalesRollupService.Totals> byStatus = salesRollupService.getTotalsByStatus(DAY, DAY);
+		assertThat(byStatus.get(OrderStatus.PENDING).getOrderCount()).isEqualTo(2);
+		assertThat(byStatus.get(OrderStatus.PENDING).getRevenue()).isEqualByComparingTo("350000");
+		assertThat(byStatus.get(OrderStatus.PENDING).getItemsSold()).isEqualTo(4);
+		assertThat(byStatus.get(OrderStatus.PENDING).getNewCustomers()).isEqualTo(1);
+		assertThat(byStatus.get(OrderStatus.PROCESSING).getNewCustomers()).isEqualTo(1);
+		assertThat(byStatus.get(OrderStatus.DELIVERED).getOrderCount()).isZero();
+	}
+
+	@Test
+	void statusChangeMovesTheOrderAndCancelledOrdersEarnNothing() {
+		Order order = place(7L, null, OrderStatus.PENDING, "250000", DAY.atTime(9, 0), 3);
+		place(8L, null, OrderStatus.PENDING, "100000", DAY.atTime(10, 0), 1);
+
+		order.setStatus(OrderStatus.CANCELLED);
+		update(order);
+		salesRollupService.recordStatusChange(order, OrderStatus.PENDING, OrderStatus.CANCELLED);
+
+		Map<OrderStatus, SalesRollupService.Totals> byStatus = salesRollupService.getTotalsByStatus(DAY, DAY);
+		assertThat(byStatus.get(OrderStatus.PENDING).getOrderCount()).isEqualTo(1);
+		assertThat(byStatus.get(OrderStatus.CANCELLED).getOrderCount()).isEqualTo(1);
+		assertThat(byStatus.get(OrderStatus.CANCELLED).getItemsSold()).isEqualTo(3);
+		assertThat(salesRollupService.getTotals(DAY, DAY, false).getRevenue()).isEqualByComparingTo("100000");
+		assertThat(salesRollupService.getTotals(DAY, DAY, true).getOrderCount()).isEqualTo(2);
+		assertThat(salesRollupService.getDailyTotals(DAY, DAY).get(DAY).getOrderCount()).isEqualTo(1);
+	}
+
+	@Test
+	void incrementsWaitForTheOrderTransactionToCommit() {
+		transactionTemplate.executeWithoutResult(status -> {
+			place(7L, null, OrderStatus.PENDING, "250000", DAY.atTime(9, 0), 1);
+			assertThat(rollupRows()).isZero();
+		});
+		assertThat(salesRollupService.getTotals(DAY, DAY, true).getOrderCount()).isEqualTo(1);
+
+		// A rolled back checkout leaves no trace
+		transactionTemplate.executeWithoutResult(status -> {
+			place(8L, null, OrderStatus.PENDING, "100000", DAY.atTime(10, 0), 1);
+			status.setRollbackOnly();
+		});
+		assertThat(salesRollupService.getTotals(DAY, DAY, true).getOrderCount()).isEqualTo(1);
+	}
+
+	@Test
+	void rebuildMatchesIncrementalTotals() {
+		place(7L, null, OrderStatus.PENDING, "250000", DAY.atTime(9, 0), 3);
+		Order second = place(7L, null, OrderStatus.PENDING, "100000", DAY.atTime(23, 59), 1);
+		place(null, "khach@example.com", OrderStatus.PROCESSING, "80000", DAY.plusDays(1).atTime(0, 1), 2);
+		second.setStatus(OrderStatus.SHIPPED);
+		update(second);
+		salesRollupService.recordStatusChange(second, OrderStatus.PENDING, OrderStatus.SHIPPED);
+		List<Map<String, Object>> incremental = rollup();
+
+		// Drift from a failed increment is repaired by the rebuild
+		jdbcTemplate.update("UPDATE daily_sales_rollup SET order_count = 99");
+		salesRollupService.rebuild(DAY.minusDays(1), DAY.plusDays(1));
+
+		assertThat(rollup()).isEqualTo(incremental);
+		assertThat(salesRollupService.getMonthlyTotals()).hasSize(1);
+		assertThat(salesRollupService.getStats()).containsEntry("daysRebuilt", 3L);
+	}
+
+	@Test
+	void bootstrapFillsAnEmptyTable() {
+		jdbcTemplate.update("INSERT INTO orders (id, user_id, status, total_amount, order_date) "
+				+ "VALUES (1, 7, 'DELIVERED', 120000, ?)", LocalDateTime.now().minusDays(2));
+
+		salesRollupService.bootstrap();
+
+		SalesRollupService.Totals totals = salesRollupService.getTotals(LocalDate.now().minusDays(2),
+				LocalDate.now(), false);
+		assertThat(totals.getOrderCount()).isEqualTo(1);
+		assertThat(totals.getNewCustomers()).isEqualTo(1);
+	}
+
+	private Order place(Long userId, String email, OrderStatus status, String amount, LocalDateTime orderDate,
+			int quantity) {
+		Order order = new Order();
+		order.setId(nextOrderId++);
+		if (userId != null) {
+			User user = new User();
+			user.setId(userId);
+			order.setUser(user);
+		}
+		order.setCustomerEmail(email);
+		order.setStatus(status);
+		order.setTotalAmount(new BigDecimal(amount));
+		order.setOrderDate(orderDate);
+		jdbcTemplate.update("INSERT INTO orders (id, user_id, customer_email, status, total_amount, order_date) "
+				+ "VALUES (?, ?, ?, ?, ?, ?)", order.getId(), userId, email, status.name(), order.getTotalAmount(),
+				orderDate);
+		jdbcTemplate.update("INSERT INTO order_items (order_id, quantity) VALUES (?, ?)", order.getId(), quantity);
+		salesRollupService.recordOrderPlaced(order, quantity);
+		return order;
+	}
+
+	private void update(Order order) {
+		jdbcTemplate.update("UPDATE orders SET status = ? WHERE id = ?", order.getStatus().name(), order.getId());
+	}
+
+	private int rollupRows() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_sales_rollup", Integer.class);
+	}
+
+	private List<Map<String, Object>> rollup() {
+		return jdbcTemplate.queryForList("SELECT sales_date, status, order_count, revenue, items_sold, new_customers "
+				+ "FROM daily_sales_rollup WHERE order_count <> 0 ORDER BY sales_date, status");
+	}
+}
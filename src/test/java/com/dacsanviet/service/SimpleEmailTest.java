@@ -7,6 +7,7 @@ import java.util.Properties;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import com.dacsanviet.config.MailOutboxProperties;
 import com.dacsanviet.dao.OrderDao;
 
 public class SimpleEmailTest {
@@ -31,14 +32,17 @@ public class SimpleEmailTest {
             // Create EmailService manually
             EmailService emailService = new EmailService();
             
-            // Use reflection to set private fields
-            java.lang.reflect.Field mailSenderField = EmailService.class.getDeclaredField("mailSender");
-            mailSenderField.setAccessible(true);
-            mailSenderField.set(emailService, mailSender);
+            // Deliver synchronously so the test does not need the outbox table
+            MailOutboxProperties outboxProperties = new MailOutboxProperties();
+            outboxProperties.setEnabled(false);
+            MailDeliveryService deliveryService = new MailDeliveryService(null, mailSender, outboxProperties,
+                    "dacsanviethotro@gmail.com");
+            MailOutboxService outboxService = new MailOutboxService(null, deliveryService, outboxProperties);
             
-            java.lang.reflect.Field fromEmailField = EmailService.class.getDeclaredField("fromEmail");
-            fromEmailField.setAccessible(true);
-            fromEmailField.set(emailService, "dacsanviethotro@gmail.com");
+            // Use reflection to set private fields
+            java.lang.reflect.Field outboxField = EmailService.class.getDeclaredField("mailOutboxService");
+            outboxField.setAccessible(true);
+            outboxField.set(emailService, outboxService);
             
             java.lang.reflect.Field frontendUrlField = EmailService.class.getDeclaredField("frontendUrl");
             frontendUrlField.setAccessible(true);
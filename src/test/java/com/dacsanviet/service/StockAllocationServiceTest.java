@@ -0,0 +1,135 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Conditional stock decrements against a real (H2) database, including a flash-sale run
+ * with 200 concurrent buyers
+ */
+public class StockAllocationServiceTest {
+
+	private static final int BUYERS = 200;
+
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private StockAllocationService stockAllocationService;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:stock" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000", "sa", "");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		stockAllocationService = new StockAllocationService(jdbcTemplate, mock(ProductFacetIndex.class),
+				mock(PageOutputCache.class));
+
+		jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(200) NOT NULL, "
+				+ "stock_quantity INT NOT NULL, reserved_quantity INT DEFAULT 0 NOT NULL, updated_at TIMESTAMP)");
+		jdbcTemplate.update("INSERT INTO products (id, name, stock_quantity) VALUES (1, 'Trà Shan Tuyết', 50)");
+		jdbcTemplate.update("INSERT INTO products (id, name, stock_quantity) VALUES (2, 'Bánh pía', 80)");
+		jdbcTemplate.update("INSERT INTO products (id, name, stock_quantity) VALUES (3, 'Kẹo dừa', 1)");
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	void allocatesEveryLineOrNone() {
+		StockAllocationService.StockAllocation allocation = stockAllocationService
+				.allocate(Map.of(1L, 5, 2L, 10, 3L, 2));
+
+		assertThat(allocation.isSuccessful()).isFalse();
+		assertThat(allocation.getFailures()).hasSize(1);
+		StockAllocationService.ItemFailure failure = allocation.getFailures().get(0);
+		assertThat(failure.getProductId()).isEqualTo(3L);
+		assertThat(failure.getReason()).isEqualTo(StockAllocationService.FailureReason.INSUFFICIENT_STOCK);
+		assertThat(failure.getAvailable()).isEqualTo(1);
+		assertThat(failure.getRequested()).isEqualTo(2);
+		assertThat(failure.getMessage()).isEqualTo("Insufficient stock for product: Kẹo dừa. Available: 1, Requested: 2");
+
+		// Products 1 and 2 were decremented by the batch and then given back
+		assertThat(stock(1L)).isEqualTo(50);
+		assertThat(stock(2L)).isEqualTo(80);
+		assertThat(stock(3L)).isEqualTo(1);
+	}
+
+	@Test
+	void reportsUnknownProducts() {
+		StockAllocationService.StockAllocation allocation = stockAllocationService.allocate(Map.of(1L, 1, 99L, 1));
+
+		assertThat(allocation.getFailures()).extracting(StockAllocationService.ItemFailure::getReason)
+				.containsExactly(StockAllocationService.FailureReason.NOT_FOUND);
+		assertThatThrownBy(allocation::orThrow).hasMessage("Product not found: 99");
+		assertThat(stock(1L)).isEqualTo(50);
+	}
+
+	@Test
+	void restockAddsBack() {
+		stockAllocationService.allocate(Map.of(1L, 20)).orThrow();
+		stockAllocationService.restock(Map.of(1L, 5));
+
+		assertThat(stock(1L)).isEqualTo(35);
+	}
+
+	@Test
+	void concurrentBuyersNeverOversell() throws Exception {
+		// Every buyer wants one unit of product 1 (50 in stock) and, for half of them, two units
+		// of product 2 as well. Buyers list products in opposite orders to provoke lock cycles.
+		ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger successful = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < BUYERS; i++) {
+			boolean withSecondProduct = i % 2 == 0;
+			futures.add(pool.submit(() -> {
+				start.await();
+				Map<Long, Integer> cart = withSecondProduct ? Map.of(2L, 2, 1L, 1) : Map.of(1L, 1);
+				boolean ok = transactionTemplate.execute(status -> stockAllocationService.allocate(cart).isSuccessful());
+				(ok ? successful : rejected).incrementAndGet();
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		int soldOfProduct2 = 80 - stock(2L);
+		assertThat(successful.get()).isEqualTo(50);
+		assertThat(rejected.get()).isEqualTo(BUYERS - 50);
+		assertThat(stock(1L)).isZero();
+		assertThat(stock(2L)).isGreaterThanOrEqualTo(0);
+		assertThat(soldOfProduct2 % 2).isZero();
+		assertThat(soldOfProduct2).isLessThanOrEqualTo(80);
+	}
+
+	private int stock(Long productId) {
+		return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class,
+				productId);
+	}
+}
@@ -0,0 +1,250 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dacsanviet.config.StockReservationProperties;
+import com.dacsanviet.model.OrderStatus;
+
+/**
+ * Stock holds for unpaid orders against a real (H2) database: reserve, pay, cancel and expire
+ */
+public class StockReservationServiceTest {
+
+	private static final int BUYERS = 100;
+
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private StockAllocationService stockAllocationService;
+	private ProductFacetIndex productFacetIndex;
+	private StockReservationService stockReservationService;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:reservation" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000", "sa", "");
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		productFacetIndex = mock(ProductFacetIndex.class);
+		stockAllocationService = new StockAllocationService(jdbcTemplate, productFacetIndex,
+				mock(PageOutputCache.class));
+		stockReservationService = new StockReservationService(jdbcTemplate, stockAllocationService,
+				new StockReservationProperties(), transactionManager, productFacetIndex, mock(PageOutputCache.class));
+
+		jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(200) NOT NULL, "
+				+ "stock_quantity INT NOT NULL, reserved_quantity INT DEFAULT 0 NOT NULL, updated_at TIMESTAMP)");
+		jdbcTemplate.execute("CREATE TABLE stock_reservations (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+				+ "order_id BIGINT NOT NULL, product_id BIGINT NOT NULL, quantity INT NOT NULL, "
+				+ "status VARCHAR(20) NOT NULL, expires_at TIMESTAMP NOT NULL, created_at TIMESTAMP NOT NULL, "
+				+ "resolved_at TIMESTAMP)");
+		jdbcTemplate.update("INSERT INTO products (id, name, stock_quantity) VALUES (1, 'Trà Shan Tuyết', 5)");
+		jdbcTemplate.update("INSERT INTO products (id, name, stock_quantity) VALUES (2, 'Bánh pía', 20)");
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	void heldStockIsNotSoldTwice() {
+		stockReservationService.reserve(100L, Map.of(1L, 3, 2L, 1)).orThrow();
+
+		assertThat(stock(1L)).isEqualTo(5);
+		assertThat(reserved(1L)).isEqualTo(3);
+		assertThat(stockReservationService.getHeldQuantity(1L)).isEqualTo(3);
+		assertThat(stockReservationService.getAvailableToSell(1L, 5)).isEqualTo(2);
+
+		// Neither a COD checkout nor another unpaid order can take the held units
+		StockAllocationService.StockAllocation cod = stockAllocationService.allocate(Map.of(1L, 3));
+		assertThat(cod.isSuccessful()).isFalse();
+		assertThat(cod.getFailures().get(0).getAvailable()).isEqualTo(2);
+		assertThat(stockReservationService.reserve(101L, Map.of(2L, 1, 1L, 3)).isSuccessful()).isFalse();
+		assertThat(reserved(2L)).isEqualTo(1);
+		assertThat(statuses(101L)).isEmpty();
+	}
+
+	@Test
+	void paymentTurnsHoldIntoSale() {
+		stockReservationService.reserve(100L, Map.of(1L, 3)).orThrow();
+
+		stockReservationService.commit(100L);
+		stockReservationService.commit(100L); // webhook retried
+
+		assertThat(stock(1L)).isEqualTo(2);
+		assertThat(reserved(1L)).isZero();
+		assertThat(statuses(100L)).containsExactly("COMMITTED");
+		assertThat(stockReservationService.getHeldQuantity(1L)).isZero();
+		verify(productFacetIndex, times(1)).adjustStock(Map.of(1L, -3));
+	}
+
+	@Test
+	void fulfillingAnUnpaidOrderTurnsItsHoldIntoASale() {
+		stockReservationService.reserve(100L, Map.of(1L, 3)).orThrow();
+
+		stockReservationService.commitForStatus(100L, OrderStatus.PROCESSING);
+		assertThat(statuses(100L)).containsExactly("ACTIVE");
+
+		stockReservationService.commitForStatus(100L, OrderStatus.SHIPPED);
+		assertThat(statuses(100L)).containsExactly("COMMITTED");
+		assertThat(stock(1L)).isEqualTo(2);
+		assertThat(reserved(1L)).isZero();
+	}
+
+	@Test
+	void sweeperReleasesExpiredHolds() {
+		stockReservationService.reserve(100L, Map.of(1L, 3)).orThrow();
+		stockReservationService.reserve(101L, Map.of(1L, 2)).orThrow();
+		expire(100L);
+
+		stockReservationService.sweepExpired();
+
+		assertThat(reserved(1L)).isEqualTo(2);
+		assertThat(statuses(100L)).containsExactly("EXPIRED");
+		assertThat(statuses(101L)).containsExactly("ACTIVE");
+		assertThat(stockReservationService.getHeldQuantity(1L)).isEqualTo(2);
+		assertThat(stockReservationService.getStats()).containsEntry("reservationsExpired", 1L);
+	}
+
+	@Test
+	void latePaymentTakesStockAgainWhenAvailable() {
+		stockReservationService.reserve(100L, Map.of(1L, 3)).orThrow();
+		expire(100L);
+		stockReservationService.sweepExpired();
+
+		stockReservationService.commit(100L);
+
+		assertThat(stock(1L)).isEqualTo(2);
+		assertThat(reserved(1L)).isZero();
+		assertThat(statuses(100L)).containsExactly("COMMITTED");
+	}
+
+	@Test
+	void paymentDuringASweepWaitsForItAndTakesTheExpiredHold() throws Exception {
+		stockReservationService.reserve(100L, Map.of(1L, 3)).orThrow();
+		expire(100L);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		CountDownLatch swept = new CountDownLatch(1);
+		CountDownLatch paid = new CountDownLatch(1);
+
+		// The sweep has expired the row but not committed when the payment comes in
+		Future<?> sweep = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+			jdbcTemplate.update("UPDATE stock_reservations SET status = 'EXPIRED' WHERE order_id = 100");
+			jdbcTemplate.update("UPDATE products SET reserved_quantity = reserved_quantity - 3 WHERE id = 1");
+			swept.countDown();
+			try {
+				paid.await(500, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		swept.await();
+		Future<?> payment = pool.submit(() -> {
+			transactionTemplate.executeWithoutResult(status -> stockReservationService.commit(100L));
+			paid.countDown();
+		});
+		sweep.get(30, TimeUnit.SECONDS);
+		payment.get(30, TimeUnit.SECONDS);
+		pool.shutdown();
+
+		assertThat(statuses(100L)).containsExactly("COMMITTED");
+		assertThat(stock(1L)).isEqualTo(2);
+		assertThat(reserved(1L)).isZero();
+	}
+
+	@Test
+	void cancellationReleasesHoldOrRestocks() {
+		stockReservationService.reserve(100L, Map.of(1L, 3)).orThrow();
+		stockReservationService.cancel(100L, Map.of(1L, 3));
+
+		assertThat(stock(1L)).isEqualTo(5);
+		assertThat(reserved(1L)).isZero();
+		assertThat(statuses(100L)).containsExactly("RELEASED");
+
+		// A paid order gives its units back to stock
+		stockReservationService.reserve(101L, Map.of(1L, 2)).orThrow();
+		stockReservationService.commit(101L);
+		stockReservationService.cancel(101L, Map.of(1L, 2));
+		assertThat(stock(1L)).isEqualTo(5);
+
+		// COD orders have no reservation rows and were decremented at checkout
+		stockAllocationService.allocate(Map.of(2L, 4)).orThrow();
+		stockReservationService.cancel(102L, Map.of(2L, 4));
+		assertThat(stock(2L)).isEqualTo(20);
+	}
+
+	@Test
+	void concurrentReservationsNeverOverHold() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger held = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < BUYERS; i++) {
+			long orderId = 1000L + i;
+			futures.add(pool.submit(() -> {
+				start.await();
+				boolean ok = transactionTemplate
+						.execute(status -> stockReservationService.reserve(orderId, Map.of(2L, 1)).isSuccessful());
+				if (ok) {
+					held.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		assertThat(held.get()).isEqualTo(20);
+		assertThat(reserved(2L)).isEqualTo(20);
+		assertThat(stockReservationService.getHeldQuantity(2L)).isEqualTo(20);
+
+		// The sweeper's resync agrees with what the commits put in the index
+		stockReservationService.resyncIndex();
+		assertThat(stockReservationService.getHeldQuantity(2L)).isEqualTo(20);
+	}
+
+	private void expire(Long orderId) {
+		jdbcTemplate.update("UPDATE stock_reservations SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) "
+				+ "WHERE order_id = ?", orderId);
+	}
+
+	private List<String> statuses(Long orderId) {
+		return jdbcTemplate.queryForList("SELECT status FROM stock_reservations WHERE order_id = ? ORDER BY id",
+				String.class, orderId);
+	}
+
+	private int stock(Long productId) {
+		return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class,
+				productId);
+	}
+
+	private int reserved(Long productId) {
+		return jdbcTemplate.queryForObject("SELECT reserved_quantity FROM products WHERE id = ?", Integer.class,
+				productId);
+	}
+}
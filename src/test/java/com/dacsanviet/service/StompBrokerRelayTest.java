@@ -0,0 +1,125 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import com.dacsanviet.config.WebSocketBrokerProperties;
+
+/**
+ * Two relay nodes connected through the embedded STOMP broker stand-in
+ */
+public class StompBrokerRelayTest {
+
+	private EmbeddedStompBroker broker;
+	private final BlockingQueue<Message<?>> deliveredToA = new LinkedBlockingQueue<>();
+	private final BlockingQueue<Message<?>> deliveredToB = new LinkedBlockingQueue<>();
+	private final List<StompBrokerRelay> relays = new ArrayList<>();
+	private StompBrokerRelay nodeA;
+	private StompBrokerRelay nodeB;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		broker = new EmbeddedStompBroker();
+		nodeA = startRelay(broker.getPort(), deliveredToA);
+		nodeB = startRelay(broker.getPort(), deliveredToB);
+		awaitTrue(() -> nodeA.isConnected() && nodeB.isConnected());
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		relays.forEach(StompBrokerRelay::stop);
+		broker.close();
+	}
+
+	@Test
+	void publishesInBatchesToTheOtherNodesOnly() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			nodeA.relay(message("/topic/chat/guest_1", "{\"content\":\"xin chào " + i + "\"}"));
+		}
+
+		for (int i = 0; i < 5; i++) {
+			Message<?> delivered = deliveredToB.poll(5, TimeUnit.SECONDS);
+			assertThat(delivered).isNotNull();
+			assertThat(SimpMessageHeaderAccessor.getDestination(delivered.getHeaders()))
+					.isEqualTo("/topic/chat/guest_1");
+			assertThat(SimpMessageHeaderAccessor.wrap(delivered).getContentType())
+					.isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+			assertThat(new String((byte[]) delivered.getPayload(), StandardCharsets.UTF_8))
+					.isEqualTo("{\"content\":\"xin chào " + i + "\"}");
+			assertThat(delivered.getHeaders()).containsKey(BrokerRelay.RELAYED_HEADER);
+		}
+		// The sending node already delivered locally and ignores its own batch
+		assertThat(deliveredToA.poll(200, TimeUnit.MILLISECONDS)).isNull();
+		assertThat(broker.getSendFrames()).isEqualTo(1);
+		assertThat(nodeA.getStats()).containsEntry("published", 5L).containsEntry("publishedBatches", 1L);
+		assertThat(nodeB.getStats()).containsEntry("received", 5L).containsEntry("receivedBatches", 1L);
+	}
+
+	@Test
+	void reconnectsAfterTheBrokerDropsTheConnection() throws Exception {
+		broker.dropConnections();
+		awaitTrue(() -> (Long) nodeA.getStats().get("connects") == 2 && (Long) nodeB.getStats().get("connects") == 2
+				&& nodeA.isConnected() && nodeB.isConnected());
+
+		nodeB.relay(message("/user/admin/queue/notifications", "{}"));
+		Message<?> delivered = deliveredToA.poll(5, TimeUnit.SECONDS);
+		assertThat(delivered).isNotNull();
+		assertThat(SimpMessageHeaderAccessor.getDestination(delivered.getHeaders()))
+				.isEqualTo("/user/admin/queue/notifications");
+	}
+
+	@Test
+	void dropsMessagesWhileTheBrokerIsUnreachable() throws Exception {
+		int port = broker.getPort();
+		broker.close();
+		StompBrokerRelay isolated = startRelay(port, new LinkedBlockingQueue<>());
+
+		isolated.relay(message("/topic/notifications", "{}"));
+
+		awaitTrue(() -> (Long) isolated.getStats().get("dropped") == 1);
+		assertThat(isolated.isConnected()).isFalse();
+	}
+
+	private StompBrokerRelay startRelay(int port, BlockingQueue<Message<?>> delivered) {
+		WebSocketBrokerProperties properties = new WebSocketBrokerProperties();
+		properties.setMode("relay");
+		properties.setRelayPort(port);
+		properties.setFlushIntervalMs(50);
+		properties.setReconnectDelayMs(100);
+		StompBrokerRelay relay = new StompBrokerRelay(properties, (message, timeout) -> delivered.add(message));
+		relay.start();
+		relays.add(relay);
+		return relay;
+	}
+
+	private Message<byte[]> message(String destination, String json) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setDestination(destination);
+		accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+		return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+
+	private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+			Thread.sleep(20);
+		}
+	}
+}
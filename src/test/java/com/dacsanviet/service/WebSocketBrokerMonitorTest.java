@@ -0,0 +1,94 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Broker channel monitoring: which messages are relayed, subscriber counts and dispatch timing
+ */
+public class WebSocketBrokerMonitorTest {
+
+	private final List<String> relayed = new ArrayList<>();
+	private final WebSocketBrokerMonitor monitor = new WebSocketBrokerMonitor(new BrokerRelay() {
+		@Override
+		public void relay(Message<?> message) {
+			relayed.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+		}
+
+		@Override
+		public Map<String, Object> getStats() {
+			return new HashMap<>(Map.of("mode", "test"));
+		}
+	});
+
+	@Test
+	void relaysOnlyMessagesProducedOnThisNode() {
+		ChannelInterceptor broker = monitor.brokerChannelInterceptor();
+		send(broker, message("/topic/admin/new-message", null, null));
+		send(broker, message("/user/alice/queue/order-updates", null, null));
+		// The user destination handler's per-session copy, and a message from another node
+		send(broker, message("/queue/order-updates-user42", "/user/queue/order-updates", null));
+		send(broker, message("/topic/notifications", null, "node-b"));
+		// Application destinations go to @MessageMapping methods, not to the broker
+		send(monitor.clientInboundInterceptor(), message("/app/chat.send", null, null));
+
+		assertThat(relayed).containsExactly("/topic/admin/new-message", "/user/alice/queue/order-updates");
+		@SuppressWarnings("unchecked")
+		Map<String, Object> dispatch = (Map<String, Object>) monitor.getStats().get("localDispatch");
+		assertThat(dispatch).containsOnlyKeys("/topic/admin/new-message", "/user/alice/queue/order-updates",
+				"/user/queue/order-updates", "/topic/notifications");
+	}
+
+	@Test
+	void countsSubscribersPerDestinationGroup() {
+		ChannelInterceptor inbound = monitor.clientInboundInterceptor();
+		send(inbound, subscription(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/topic/product/12/qa"));
+		send(inbound, subscription(SimpMessageType.SUBSCRIBE, "s2", "sub-0", "/topic/product/7/qa"));
+		send(inbound, subscription(SimpMessageType.SUBSCRIBE, "s2", "sub-1", "/topic/chat/guest_9f"));
+		send(inbound, subscription(SimpMessageType.SUBSCRIBE, "s3", "sub-0", "/topic/notifications"));
+		send(inbound, subscription(SimpMessageType.UNSUBSCRIBE, "s3", "sub-0", null));
+		assertThat(monitor.getStats().get("subscribers")).isEqualTo(
+				Map.of("/topic/product/*/qa", 2, "/topic/chat/*", 1));
+
+		send(inbound, subscription(SimpMessageType.DISCONNECT, "s2", null, null));
+		assertThat(monitor.getStats().get("subscribers")).isEqualTo(Map.of("/topic/product/*/qa", 1));
+		assertThat(monitor.getStats()).containsEntry("mode", "test");
+	}
+
+	private void send(ChannelInterceptor interceptor, Message<?> message) {
+		interceptor.preSend(message, null);
+		interceptor.afterSendCompletion(message, null, true, null);
+	}
+
+	private Message<byte[]> message(String destination, String originalDestination, String relayedFrom) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setDestination(destination);
+		if (originalDestination != null) {
+			accessor.setHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, originalDestination);
+		}
+		if (relayedFrom != null) {
+			accessor.setHeader(BrokerRelay.RELAYED_HEADER, relayedFrom);
+		}
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private Message<byte[]> subscription(SimpMessageType type, String sessionId, String subscriptionId,
+			String destination) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
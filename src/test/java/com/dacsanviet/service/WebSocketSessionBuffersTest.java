@@ -0,0 +1,98 @@
+package com.dacsanviet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Per-session send buffers: frames are written off the caller's thread, and slow clients
+ * lose their oldest frames or their session
+ */
+public class WebSocketSessionBuffersTest {
+
+	private final WebSocketHandler stompHandler = mock(WebSocketHandler.class);
+	private final WebSocketSession socket = mock(WebSocketSession.class);
+	private final List<String> written = new ArrayList<>();
+
+	@Test
+	void dropsTheOldestFramesWhenTheBufferIsFull() throws Exception {
+		List<Runnable> tasks = new ArrayList<>();
+		WebSocketSessionBuffers buffers = new WebSocketSessionBuffers(tasks::add, 10, 10_000, false);
+		doAnswer(invocation -> written.add(((TextMessage) invocation.getArgument(0)).getPayload()))
+				.when(socket).sendMessage(any());
+		WebSocketSession session = connect(buffers);
+
+		for (String frame : List.of("aaaa", "bbbb", "cccc", "dddd")) {
+			session.sendMessage(new TextMessage(frame));
+		}
+		assertThat(written).isEmpty();
+		assertThat(buffers.getStats()).containsEntry("bufferedFrames", 2).containsEntry("bufferedBytes", 8L)
+				.containsEntry("dropped", 2L).containsEntry("overflows", 2L);
+
+		assertThat(tasks).hasSize(1);
+		tasks.remove(0).run();
+		assertThat(written).containsExactly("cccc", "dddd");
+		assertThat(buffers.getStats()).containsEntry("sent", 2L).containsEntry("bufferedFrames", 0);
+	}
+
+	@Test
+	void disconnectsAClientWhoseWriteIsStuck() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CountDownLatch writeStarted = new CountDownLatch(1);
+		CountDownLatch releaseWrite = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			writeStarted.countDown();
+			releaseWrite.await(5, TimeUnit.SECONDS);
+			return null;
+		}).when(socket).sendMessage(any());
+		WebSocketSessionBuffers buffers = new WebSocketSessionBuffers(executor, 1024, 20, true);
+		WebSocketSession session = connect(buffers);
+
+		try {
+			session.sendMessage(new TextMessage("first"));
+			assertThat(writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+			Thread.sleep(50);
+			session.sendMessage(new TextMessage("second"));
+
+			verify(socket).close(CloseStatus.SESSION_NOT_RELIABLE);
+			session.sendMessage(new TextMessage("third"));
+			assertThat(buffers.getStats()).containsEntry("disconnects", 1L).containsEntry("dropped", 2L);
+		} finally {
+			releaseWrite.countDown();
+			executor.shutdown();
+		}
+		verify(socket, timeout(1000)).sendMessage(any(WebSocketMessage.class));
+
+		buffers.decorate(stompHandler).afterConnectionClosed(socket, CloseStatus.SESSION_NOT_RELIABLE);
+		assertThat(buffers.getStats()).containsEntry("sessions", 0);
+	}
+
+	// The STOMP handler sees the buffered session, not the socket
+	private WebSocketSession connect(WebSocketSessionBuffers buffers) throws Exception {
+		when(socket.getId()).thenReturn("s1");
+		buffers.decorate(stompHandler).afterConnectionEstablished(socket);
+		ArgumentCaptor<WebSocketSession> session = ArgumentCaptor.forClass(WebSocketSession.class);
+		verify(stompHandler).afterConnectionEstablished(session.capture());
+		assertThat(session.getValue()).isNotSameAs(socket);
+		return session.getValue();
+	}
+}
@@ -0,0 +1,68 @@
+package com.dacsanviet.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * EmailTemplate must render exactly what String.format rendered for the same pattern
+ */
+public class EmailTemplateTest {
+
+    @Test
+    void rendersLikeStringFormat() {
+        String pattern = """
+                <div style="width: 100%%">
+                    <b>%s</b> x %d = %s
+                </div>
+                """;
+
+        EmailTemplate template = EmailTemplate.compile(pattern);
+
+        assertThat(template.getSlotCount()).isEqualTo(3);
+        assertThat(template.render("Trà Shan Tuyết", 3, "450,000đ"))
+                .isEqualTo(String.format(pattern, "Trà Shan Tuyết", 3, "450,000đ"));
+        assertThat(template.render(null, 0, ""))
+                .isEqualTo(String.format(pattern, null, 0, ""));
+    }
+
+    @Test
+    void rendersPatternsWithoutPlaceholders() {
+        EmailTemplate template = EmailTemplate.compile("100%% tự nhiên");
+
+        assertThat(template.getSlotCount()).isZero();
+        assertThat(template.render()).isEqualTo("100% tự nhiên");
+    }
+
+    @Test
+    void appendsIntoExistingBuilder() {
+        EmailTemplate row = EmailTemplate.compile("<tr><td>%s</td><td>%d</td></tr>");
+        StringBuilder html = new StringBuilder("<table>");
+
+        row.renderTo(html, "Bánh pía", 2);
+        row.renderTo(html, "Kẹo dừa", 5);
+
+        assertThat(html.append("</table>").toString())
+                .isEqualTo("<table><tr><td>Bánh pía</td><td>2</td></tr><tr><td>Kẹo dừa</td><td>5</td></tr></table>");
+    }
+
+    @Test
+    void rejectsUnsupportedPlaceholdersAtCompileTime() {
+        assertThatThrownBy(() -> EmailTemplate.compile("Tổng: %,d"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("%,");
+        assertThatThrownBy(() -> EmailTemplate.compile("50%"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsWrongArguments() {
+        EmailTemplate template = EmailTemplate.compile("%s - %d");
+
+        assertThatThrownBy(() -> template.render("only one"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> template.render("a", "not a number"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,35 @@
+package com.dacsanviet.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plain-text card excerpts from rich-text product descriptions
+ */
+public class HtmlTextUtilsTest {
+
+    @Test
+    void dropsTagsAndDecodesEntities() {
+        assertThat(HtmlTextUtils.excerpt("<p>Nước mắm <b>Phú&nbsp;Quốc</b></p>\n<p>40&deg; đạm</p>", 160))
+                .isEqualTo("Nước mắm Phú Quốc 40° đạm");
+    }
+
+    @Test
+    void dropsATagCutOffByThePrefix() {
+        assertThat(HtmlTextUtils.excerpt("<p>Trà Shan Tuyết</p><img src=\"/uploads/tr", 160))
+                .isEqualTo("Trà Shan Tuyết");
+    }
+
+    @Test
+    void cutsLongTextAtAWordBoundary() {
+        assertThat(HtmlTextUtils.excerpt("Bánh pía Sóc Trăng nhân sầu riêng trứng muối", 20))
+                .isEqualTo("Bánh pía Sóc Trăng…");
+    }
+
+    @Test
+    void hasNoExcerptForEmptyMarkup() {
+        assertThat(HtmlTextUtils.excerpt(null, 160)).isNull();
+        assertThat(HtmlTextUtils.excerpt("<p>&nbsp;</p>", 160)).isNull();
+    }
+}